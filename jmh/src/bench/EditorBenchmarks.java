@@ -0,0 +1,46 @@
+package bench;
+
+import io.File;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import test.MockController;
+
+/**
+ * Appending to a file, which is independent of any tree.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EditorBenchmarks {
+
+  private File file;
+
+  private int count;
+
+  @Setup
+  public void setup() throws Exception {
+    file = new MockController().getRootDir().createFile("appended");
+  }
+
+  @Benchmark
+  public File append() {
+    // Start over now and then, so that the file does not fill the heap.
+    if (++count % 65536 == 0) {
+      file.overwriteContentsAs("");
+    }
+    file.appendToContents("0123456789abcdef");
+    return file;
+  }
+}
@@ -0,0 +1,100 @@
+package bench;
+
+import commands.CommCd;
+import commands.CommEcho;
+import commands.CommPwd;
+import io.InputParser;
+import io.OutputHandler;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import test.MockController;
+import util.CommandExecutor;
+import util.CommandMetrics;
+import util.CommandNode;
+import util.Message;
+
+/**
+ * Invoking a command that does next to nothing, with and without recording
+ * it, which is the whole cost of the command metrics, and invoking short
+ * commands parsed beforehand, which is the whole cost of dispatching them.
+ * <p>
+ * Run with {@code -prof gc} to see what dispatch allocates. {@code
+ * CommandExecutorTest} fails if it allocates more than the string echo prints.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExecutorBenchmarks {
+
+  private CommandExecutor executor;
+
+  private CommandExecutor measured;
+
+  private CommPwd pwd;
+
+  private CommCd cd;
+
+  private CommEcho echo;
+
+  private CommandNode toRoot;
+
+  private CommandNode pwdNode;
+
+  private CommandNode echoNode;
+
+  @Setup
+  public void setup() throws Exception {
+    MockController controller = new MockController();
+    OutputHandler handler = new OutputHandler(controller.getPathInterpreter(),
+        OutputStream.nullOutputStream());
+    executor = new CommandExecutor(handler);
+    measured = new CommandExecutor(handler, new CommandMetrics());
+    pwd = CommPwd.getInstance(controller);
+    cd = CommCd.getInstance(controller);
+    echo = CommEcho.getInstance(controller);
+    InputParser parser = new InputParser();
+    toRoot = parser.parseCommands(parser.parse("cd /"),
+        alias -> cd.getFlags()).get(0);
+    pwdNode = parser.parseCommands(parser.parse("pwd"),
+        alias -> pwd.getFlags()).get(0);
+    echoNode = parser.parseCommands(
+        parser.parse("echo \"0123456789abcdef\" > /echoed"),
+        alias -> echo.getFlags()).get(0);
+  }
+
+  @Benchmark
+  public CommandExecutor pwd() throws Exception {
+    executor.invoke(pwd, new Message("pwd"));
+    return executor;
+  }
+
+  @Benchmark
+  public CommandExecutor pwdMeasured() throws Exception {
+    measured.invoke(pwd, new Message("pwd"));
+    return measured;
+  }
+
+  /**
+   * cd, pwd and a redirected echo, already parsed.
+   */
+  @Benchmark
+  public CommandExecutor dispatch() throws Exception {
+    executor.invoke(cd, toRoot);
+    executor.invoke(pwd, pwdNode);
+    executor.invoke(echo, echoNode);
+    return executor;
+  }
+}
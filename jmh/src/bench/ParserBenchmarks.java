@@ -0,0 +1,60 @@
+package bench;
+
+import commands.CommLs;
+import io.InputParser;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import test.MockController;
+import util.CommandNode;
+import util.Flag;
+
+/**
+ * Parsing a command line into the nodes of its commands, for a line of
+ * growing length, so that the cost per section can be seen to stay flat.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmarks {
+
+  /**
+   * The number of sections of the line after {@code ls}.
+   */
+  @Param({"10", "1000", "100000"})
+  public int sections;
+
+  private final InputParser parser = new InputParser();
+
+  private Flag[] lsFlags;
+
+  private String line;
+
+  @Setup
+  public void setup() {
+    lsFlags = CommLs.getInstance(new MockController()).constructFlags();
+    StringBuilder sb = new StringBuilder("ls");
+    for (int i = 0; i < sections; i++) {
+      sb.append(i % 10 == 0 ? " -R" : " dir" + i);
+    }
+    line = sb.append(" > /listing").toString();
+  }
+
+  @Benchmark
+  public List<CommandNode> line() throws Exception {
+    return parser.parseCommands(parser.parse(line), alias -> lsFlags);
+  }
+}
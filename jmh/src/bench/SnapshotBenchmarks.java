@@ -0,0 +1,137 @@
+package bench;
+
+import commands.CommLoadJShell;
+import commands.CommLoadJShellSer;
+import commands.CommSaveJShell;
+import commands.CommSaveJShellSer;
+import commands.CommTree;
+import io.OutputHandler;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Stack;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import test.MockController;
+import test.bench.TreeShape;
+import util.CmdOutput;
+import util.CmdOutput.OutputBuilder;
+import util.Message;
+import util.Path;
+import util.PathInterpreter;
+
+/**
+ * Saving and loading the shell, in the snapshot format and through Java
+ * serialization for comparison, over a wide, a bushy and a deep generated
+ * tree.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotBenchmarks {
+
+  @Param({"WIDE", "BUSHY", "DEEP"})
+  public TreeShape shape;
+
+  private final ArrayList<String> history = new ArrayList<>();
+
+  private final Stack<Path> pathStack = new Stack<>();
+
+  private OutputBuilder builder;
+
+  private File saveFile;
+
+  private File serializedFile;
+
+  private Message savePath;
+
+  private Message serializedPath;
+
+  private CommSaveJShell save;
+
+  private CommLoadJShell load;
+
+  private CommSaveJShellSer saveSer;
+
+  private CommLoadJShell loadSer;
+
+  private CommTree tree;
+
+  @Setup
+  public void setup() throws Exception {
+    MockController controller = new MockController();
+    controller.setRootDir(shape.build());
+    controller.setWorkingDir(controller.getRootDir());
+    PathInterpreter pathInterpreter = controller.getPathInterpreter();
+    builder = new OutputBuilder(new OutputHandler(pathInterpreter));
+    saveFile = File.createTempFile("jshell", ".save");
+    serializedFile = File.createTempFile("jshell", ".ser");
+    savePath = new Message(saveFile.getPath());
+    serializedPath = new Message(serializedFile.getPath());
+    save = CommSaveJShell.getInstance(controller, history, pathStack);
+    load = CommLoadJShell.getInstance(controller, history, pathInterpreter,
+        pathStack);
+    saveSer = CommSaveJShellSer.getInstance(controller, history, pathStack);
+    loadSer = CommLoadJShellSer.getInstance(controller, history,
+        pathInterpreter, pathStack);
+    tree = CommTree.getInstance(controller);
+    // Load from the start the tree that the save benchmarks write over.
+    save.execute(savePath, builder);
+    saveSer.execute(serializedPath, builder);
+  }
+
+  @TearDown
+  public void tearDown() {
+    saveFile.delete();
+    serializedFile.delete();
+  }
+
+  @Benchmark
+  public CmdOutput save() throws Exception {
+    return save.execute(savePath, builder);
+  }
+
+  @Benchmark
+  public CmdOutput load() throws Exception {
+    history.clear();
+    pathStack.clear();
+    return load.execute(savePath, builder);
+  }
+
+  /**
+   * Loads and then visits every directory, since directories are only read
+   * when visited.
+   */
+  @Benchmark
+  public CmdOutput loadTree() throws Exception {
+    history.clear();
+    pathStack.clear();
+    load.execute(savePath, builder);
+    return tree.execute(new Message(), builder);
+  }
+
+  @Benchmark
+  public CmdOutput saveSerialized() throws Exception {
+    return saveSer.execute(serializedPath, builder);
+  }
+
+  @Benchmark
+  public CmdOutput loadSerialized() throws Exception {
+    history.clear();
+    pathStack.clear();
+    return loadSer.execute(serializedPath, builder);
+  }
+}
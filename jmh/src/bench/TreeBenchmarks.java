@@ -0,0 +1,204 @@
+package bench;
+
+import commands.AbstractCommand;
+import commands.CommLs;
+import commands.CommSearch;
+import commands.CommTree;
+import commands.CommWc;
+import io.Directory;
+import io.FileManager;
+import io.FolderElement;
+import io.InputParser;
+import io.OutputHandler;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import test.MockController;
+import test.bench.TreeShape;
+import util.CmdOutput;
+import util.CmdOutput.OutputBuilder;
+import util.CommandExecutor;
+import util.Message;
+import util.Path;
+import util.PathInterpreter;
+
+/**
+ * Paths, the file manager and the commands that walk a tree, over a wide, a
+ * bushy and a deep generated tree.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TreeBenchmarks {
+
+  @Param({"WIDE", "BUSHY", "DEEP"})
+  public TreeShape shape;
+
+  private Directory root;
+
+  private FileManager fileManager;
+
+  private PathInterpreter pathInterpreter;
+
+  private OutputBuilder builder;
+
+  private String absolute;
+
+  private Path path;
+
+  private Path relativePath;
+
+  private FolderElement first;
+
+  private String firstName;
+
+  private CommSearch search;
+
+  private CommTree tree;
+
+  private CommLs ls;
+
+  private CommWc wc;
+
+  private CommandExecutor executor;
+
+  private List<AbstractCommand> pipeline;
+
+  private final InputParser parser = new InputParser();
+
+  private Message pipeLine;
+
+  @Setup
+  public void setup() throws Exception {
+    MockController controller = new MockController();
+    root = shape.build();
+    controller.setRootDir(root);
+    controller.setWorkingDir(root);
+    fileManager = root.getFileManager();
+    pathInterpreter = controller.getPathInterpreter();
+    builder = new OutputBuilder(new OutputHandler(pathInterpreter));
+    String relative = shape.deepestFile();
+    absolute = "/" + relative;
+    path = new Path(absolute);
+    relativePath = new Path(relative);
+    // The first element of the root has the most elements listed after it.
+    first = root.iterator().next();
+    firstName = first.getName();
+    search = CommSearch.getInstance(controller);
+    tree = CommTree.getInstance(controller);
+    ls = CommLs.getInstance(controller);
+    wc = CommWc.getInstance(controller);
+    executor = new CommandExecutor(new OutputHandler(pathInterpreter,
+        OutputStream.nullOutputStream()));
+    pipeline = List.of(ls, wc);
+    pipeLine = parser.parse("ls -R / | wc");
+  }
+
+  @Benchmark
+  public Path pathConstruct() {
+    return new Path(absolute);
+  }
+
+  @Benchmark
+  public int pathIterate() {
+    int length = 0;
+    for (String section : path) {
+      length += section.length();
+    }
+    return length;
+  }
+
+  @Benchmark
+  public FolderElement interpreterAbsolute() throws Exception {
+    return pathInterpreter.toFolderElement(path);
+  }
+
+  @Benchmark
+  public FolderElement interpreterRelative() throws Exception {
+    return pathInterpreter.toFolderElement(relativePath);
+  }
+
+  @Benchmark
+  public Directory createNew() throws Exception {
+    fileManager.createNew(root, 'f', "created");
+    fileManager.remove(root, "created");
+    return root;
+  }
+
+  /**
+   * Renames the first element of the root and back, which must not depend on
+   * how many elements are listed after it.
+   */
+  @Benchmark
+  public Directory rename() throws Exception {
+    fileManager.rename(first, "renamed");
+    fileManager.rename(first, firstName);
+    return root;
+  }
+
+  @Benchmark
+  public Directory copy() throws Exception {
+    FolderElement copy = fileManager.getCopy(root.getElementByName("dir0"));
+    copy.renameTo("copied");
+    fileManager.insert(copy, root);
+    fileManager.remove(root, "copied");
+    return root;
+  }
+
+  @Benchmark
+  public CmdOutput search() throws Exception {
+    return search.execute(new Message(
+        new String[]{"/", "-type", "f", "-name", "\"file0\""}), builder);
+  }
+
+  @Benchmark
+  public CmdOutput searchGlob() throws Exception {
+    return search.execute(new Message(
+        new String[]{"/", "-type", "d", "-name", "\"dir1*\""}), builder);
+  }
+
+  @Benchmark
+  public CmdOutput tree() throws Exception {
+    return tree.execute(new Message(), builder);
+  }
+
+  @Benchmark
+  public CmdOutput lsRecursive() throws Exception {
+    return ls.execute(new Message(new String[]{"-R", "/"}), builder);
+  }
+
+  /**
+   * Counts the lines of a listing through a pipe.
+   */
+  @Benchmark
+  public CommandExecutor pipe() throws Exception {
+    executor.invoke(pipeline, parser.parseCommands(pipeLine,
+        alias -> CommandExecutor.flagsOf(alias.equals("ls") ? ls : wc)));
+    return executor;
+  }
+
+  /**
+   * Counts the lines of the same listing through a file, for comparison.
+   */
+  @Benchmark
+  public CommandExecutor pipeRedirected() throws Exception {
+    executor.invoke(ls, new Message(
+        new String[]{"ls", "-R", "/", ">", "/listing"}));
+    executor.invoke(wc, new Message(new String[]{"wc", "/listing"}));
+    return executor;
+  }
+}
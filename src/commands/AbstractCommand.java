@@ -3,13 +3,57 @@ package commands;
 import exceptions.JShellException;
 import util.CmdOutput;
 import util.CmdOutput.OutputBuilder;
+import util.CommandNode;
+import util.Flag;
+import util.IAcceptsFlags;
 import util.Message;
 
 public abstract class AbstractCommand {
 
+  private static final Flag[] NO_FLAGS = new Flag[0];
+
+  /**
+   * The flags this command accepts, built on the first call to {@code
+   * getFlags}. Flags never change, so threads that race to build them all
+   * end up with the same ones.
+   */
+  private volatile Flag[] flags;
+
   public abstract CmdOutput execute(Message args, OutputBuilder outputBuilder)
       throws JShellException;
 
+  /**
+   * Executes this command with the arguments and flags of {@code node}, as
+   * parsed against the flags it accepts. Commands that accept flags read them
+   * from {@code node}, and the others are given its arguments as a Message.
+   *
+   * @param node          The parsed command line of this command.
+   * @param outputBuilder The builder of the output of this command.
+   * @return the output of this command
+   * @throws JShellException if the command fails.
+   */
+  public CmdOutput execute(CommandNode node, OutputBuilder outputBuilder)
+      throws JShellException {
+    return execute(node.toMessage(), outputBuilder);
+  }
+
+  /**
+   * Returns the flags that this command accepts, which its command line is
+   * parsed against. They are constructed only once for each command, and are
+   * shared by every command line parsed, so the array must not be modified.
+   *
+   * @return the flags of this command, none if it does not accept flags
+   */
+  public final Flag[] getFlags() {
+    Flag[] built = flags;
+    if (built == null) {
+      built = this instanceof IAcceptsFlags
+          ? ((IAcceptsFlags) this).constructFlags() : NO_FLAGS;
+      flags = built;
+    }
+    return built;
+  }
+
   public abstract Message getManual();
 
   public abstract String getAlias();
@@ -0,0 +1,88 @@
+package commands;
+
+import driver.Controller;
+import exceptions.FileNotExistException;
+import exceptions.JShellException;
+import exceptions.NotADirectoryException;
+import io.File;
+import io.FolderElement;
+import java.util.Iterator;
+import util.CmdOutput;
+import util.CmdOutput.OutputBuilder;
+import util.CommandNode;
+import util.IAcceptsInput;
+import util.Message;
+import util.Path;
+import util.PathInterpreter;
+
+/**
+ * A command that works on lines of text, which are either printed by the
+ * command before it in a pipeline, or the contents of a FILE named as its last
+ * argument when it is run on its own.
+ */
+public abstract class AbstractFilterCommand extends AbstractCommand
+    implements IAcceptsInput {
+
+  private final PathInterpreter pathInterpreter;
+
+  protected AbstractFilterCommand(Controller controller) {
+    this.pathInterpreter = controller.getPathInterpreter();
+  }
+
+  /**
+   * Executes this command on the contents of the FILE in {@code args}, as if
+   * {@code execute} was given null for its input.
+   *
+   * @param args a Message containing the arguments from user
+   */
+  @Override
+  public CmdOutput execute(Message args, OutputBuilder builder)
+      throws JShellException {
+    return execute(args, null, builder);
+  }
+
+  /**
+   * Executes this command on the contents of the FILE in {@code node}, as if
+   * {@code execute} was given null for its input.
+   *
+   * @param node the parsed command line of this command
+   */
+  @Override
+  public CmdOutput execute(CommandNode node, OutputBuilder builder)
+      throws JShellException {
+    return execute(node, null, builder);
+  }
+
+  /**
+   * Executes this command on the lines of {@code input}, or, if it is null, on
+   * the lines of the FILE that is the last section of {@code args}.
+   *
+   * @param args    a Message containing the arguments from user
+   * @param input   the lines printed by the command before this one, or null
+   *                if there is none
+   * @param builder the builder of the output of this command
+   */
+  @Override
+  public abstract CmdOutput execute(Message args, Iterator<String> input,
+      OutputBuilder builder) throws JShellException;
+
+  /**
+   * Returns the lines of the file at {@code path}. A newline at the end of the
+   * file ends its last line rather than starting another one.
+   *
+   * @param path the path to the file
+   * @throws NotADirectoryException if the path tries to navigate through a file
+   *                                in the middle.
+   * @throws FileNotExistException  if the path tries to navigate through a
+   *                                nonexistent directory, or the target file
+   *                                does not exist.
+   */
+  protected Iterator<String> linesOf(String path)
+      throws NotADirectoryException, FileNotExistException {
+    FolderElement target = pathInterpreter.toFolderElement(new Path(path));
+    if (!(target instanceof File)) {
+      throw new FileNotExistException(path + ": Not a file");
+    }
+    return ((File) target).getContents().lines().iterator();
+  }
+}
@@ -23,7 +23,6 @@ import util.PathInterpreter;
 public class CommCat extends AbstractCommand {
 
   public static final String alias = "cat";
-  private static CommCat instance;
 
   private final PathInterpreter pathInterpreter;
   private final ErrorHandler errorHandler;
@@ -38,17 +37,18 @@ public class CommCat extends AbstractCommand {
   }
 
   /**
-   * Returns a instance of this class. This method always return the same
-   * instance on every call.
+   * Returns the instance of this class that belongs to {@code controller}.
+   * This method always returns the same instance for the same controller.
    *
    * @param controller the controller that this command belongs to.
-   * @return the sole instance of this class
+   * @return the instance of this class for {@code controller}
    */
   public static CommCat getInstance(Controller controller) {
-    if (instance == null) {
-      instance = new CommCat(controller);
+    AbstractCommand registered = controller.getCommand(alias);
+    if (registered instanceof CommCat) {
+      return (CommCat) registered;
     }
-    return instance;
+    return new CommCat(controller);
   }
 
   @Override
@@ -6,8 +6,10 @@ import exceptions.NotADirectoryException;
 import exceptions.WrongSyntaxException;
 import io.Directory;
 import io.FolderElement;
+import java.util.List;
 import util.CmdOutput;
 import util.CmdOutput.OutputBuilder;
+import util.CommandNode;
 import util.Message;
 import util.Path;
 import util.PathInterpreter;
@@ -23,7 +25,6 @@ import util.PathInterpreter;
 public class CommCd extends AbstractCommand {
 
   public static final String alias = "cd";
-  private static CommCd instance;
 
   /**
    * The file system that this command belongs to.
@@ -42,17 +43,18 @@ public class CommCd extends AbstractCommand {
   }
 
   /**
-   * Returns a instance of this class. This method always return the same
-   * instance on every call.
+   * Returns the instance of this class that belongs to {@code controller}.
+   * This method always returns the same instance for the same controller.
    *
    * @param controller the controller that this command belongs to.
-   * @return the sole instance of this class
+   * @return the instance of this class for {@code controller}
    */
   public static CommCd getInstance(Controller controller) {
-    if (instance == null) {
-      instance = new CommCd(controller);
+    AbstractCommand registered = controller.getCommand(alias);
+    if (registered instanceof CommCd) {
+      return (CommCd) registered;
     }
-    return instance;
+    return new CommCd(controller);
   }
 
   @Override
@@ -60,10 +62,19 @@ public class CommCd extends AbstractCommand {
     return alias;
   }
 
+  @Override
+  public CmdOutput execute(Message args, OutputBuilder builder)
+      throws WrongSyntaxException, NotADirectoryException,
+      FileNotExistException {
+    return execute(CommandNode.parse(alias, args.iterator(), getFlags()),
+        builder);
+  }
+
   /**
-   * Executes this command.
+   * Executes this command. The path is parsed by the path interpreter, which
+   * keeps the paths it has parsed recently.
    *
-   * @param args a Message containing the arguments from user
+   * @param node the parsed command line of this command
    * @throws WrongSyntaxException   if user input is not in accordance with the
    *                                syntax.
    * @throws NotADirectoryException if the path tries to navigate through a file
@@ -73,15 +84,14 @@ public class CommCd extends AbstractCommand {
    *                                nonexistent directory.
    */
   @Override
-  public CmdOutput execute(Message args, OutputBuilder builder)
+  public CmdOutput execute(CommandNode node, OutputBuilder builder)
       throws WrongSyntaxException, NotADirectoryException,
       FileNotExistException {
-    if (args.length() != 1) {
+    List<String> args = node.getArguments();
+    if (args.size() != 1) {
       throw new WrongSyntaxException("cd: wrong number of arguments");
     }
-    String arg = args.getFirstString();
-    Path path = new Path(arg);
-    setWorkingDir(path);
+    setWorkingDir(pathInterpreter.toPath(args.get(0)));
     return builder.isIgnored(true).build();
   }
 
@@ -124,4 +134,4 @@ public class CommCd extends AbstractCommand {
             + "slash.";
     return new Message(manual);
   }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -24,7 +24,6 @@ import util.PathInterpreter;
 public class CommCp extends AbstractCommand {
 
   public static final String alias = "cp";
-  private static CommCp instance;
 
   private final PathInterpreter pathInterpreter;
 
@@ -37,17 +36,18 @@ public class CommCp extends AbstractCommand {
   }
 
   /**
-   * Returns a instance of this class. This method always return the same
-   * instance on every call.
+   * Returns the instance of this class that belongs to {@code controller}.
+   * This method always returns the same instance for the same controller.
    *
    * @param controller the controller that this command belongs to.
-   * @return the sole instance of this class
+   * @return the instance of this class for {@code controller}
    */
   public static CommCp getInstance(Controller controller) {
-    if (instance == null) {
-      instance = new CommCp(controller);
+    AbstractCommand registered = controller.getCommand(alias);
+    if (registered instanceof CommCp) {
+      return (CommCp) registered;
     }
-    return instance;
+    return new CommCp(controller);
   }
 
   @Override
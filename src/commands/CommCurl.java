@@ -26,7 +26,6 @@ import util.Message;
 public class CommCurl extends AbstractCommand {
 
   public static final String alias = "curl";
-  private static CommCurl instance;
 
   protected final Controller controller;
 
@@ -51,8 +50,8 @@ public class CommCurl extends AbstractCommand {
       String fileName = getFileName(url);
       controller.getWorkingDir().createFile(fileName).overwriteContentsAs(c);
     } catch (IOException e) {
-      e.printStackTrace();
-      System.out.println("curl: an error has occurred while reading this URL");
+      throw new ConnectionFailedException("curl: an error has occurred while "
+          + "reading this URL", e);
     }
     return builder.isIgnored(true).build();
   }
@@ -109,17 +108,18 @@ public class CommCurl extends AbstractCommand {
 
 
   /**
-   * Returns a instance of this class. This method always return the same
-   * instance on every call.
+   * Returns the instance of this class that belongs to {@code controller}.
+   * This method always returns the same instance for the same controller.
    *
    * @param controller the controller that this command belongs to.
-   * @return the sole instance of this class
+   * @return the instance of this class for {@code controller}
    */
   public static CommCurl getInstance(Controller controller) {
-    if (instance == null) {
-      instance = new CommCurl(controller);
+    AbstractCommand registered = controller.getCommand(alias);
+    if (registered instanceof CommCurl) {
+      return (CommCurl) registered;
     }
-    return instance;
+    return new CommCurl(controller);
   }
 
   @Override
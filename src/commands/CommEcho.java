@@ -2,8 +2,10 @@ package commands;
 
 import driver.Controller;
 import exceptions.WrongSyntaxException;
+import java.util.List;
 import util.CmdOutput;
 import util.CmdOutput.OutputBuilder;
+import util.CommandNode;
 import util.Message;
 
 /**
@@ -22,7 +24,6 @@ import util.Message;
 public class CommEcho extends AbstractCommand {
 
   public static final String alias = "echo";
-  private static CommEcho instance;
 
   /**
    * Construct a new instance of this command.
@@ -34,17 +35,18 @@ public class CommEcho extends AbstractCommand {
   }
 
   /**
-   * Returns a instance of this class. This method always return the same
-   * instance on every call.
+   * Returns the instance of this class that belongs to {@code controller}.
+   * This method always returns the same instance for the same controller.
    *
    * @param controller the controller that this command belongs to.
-   * @return the sole instance of this class
+   * @return the instance of this class for {@code controller}
    */
   public static CommEcho getInstance(Controller controller) {
-    if (instance == null) {
-      instance = new CommEcho(controller);
+    AbstractCommand registered = controller.getCommand(alias);
+    if (registered instanceof CommEcho) {
+      return (CommEcho) registered;
     }
-    return instance;
+    return new CommEcho(controller);
   }
 
   @Override
@@ -52,21 +54,29 @@ public class CommEcho extends AbstractCommand {
     return alias;
   }
 
+  @Override
+  public CmdOutput execute(Message args, OutputBuilder builder)
+      throws WrongSyntaxException {
+    return execute(CommandNode.parse(alias, args.iterator(), getFlags()),
+        builder);
+  }
+
   /**
    * Executes this command.
    *
-   * @param args a Message containing the arguments from user
+   * @param node the parsed command line of this command
    * @throws WrongSyntaxException if user input is not in accordance with the
    *                              syntax.
    */
   @Override
-  public CmdOutput execute(Message args, OutputBuilder builder)
+  public CmdOutput execute(CommandNode node, OutputBuilder builder)
       throws WrongSyntaxException {
-    if (args.length() != 1) {
+    List<String> args = node.getArguments();
+    if (args.size() != 1) {
       throw new WrongSyntaxException("echo: wrong number of arguments");
     }
     CmdOutput output = builder.build();
-    String text = checkValidity(args.getFirstString());
+    String text = checkValidity(args.get(0));
     output.add(text);
     return output;
   }
@@ -14,24 +14,24 @@ import util.Message;
 public class CommExit extends AbstractCommand {
 
   public static final String alias = "exit";
-  private static CommExit instance;
 
   protected CommExit(Controller controller) {
     controller.registerCommand(this);
   }
 
   /**
-   * Returns a instance of this class. This method always return the same
-   * instance on every call.
+   * Returns the instance of this class that belongs to {@code controller}.
+   * This method always returns the same instance for the same controller.
    *
    * @param controller the controller that this command belongs to.
-   * @return the sole instance of this class
+   * @return the instance of this class for {@code controller}
    */
   public static CommExit getInstance(Controller controller) {
-    if (instance == null) {
-      instance = new CommExit(controller);
+    AbstractCommand registered = controller.getCommand(alias);
+    if (registered instanceof CommExit) {
+      return (CommExit) registered;
     }
-    return instance;
+    return new CommExit(controller);
   }
 
   @Override
@@ -52,8 +52,9 @@ public class CommExit extends AbstractCommand {
     if (args.length() != 0) {
       throw new WrongSyntaxException("exit: too many arguments");
     }
-    System.out.print("exiting shell");
-    return builder.isIgnored(true).build();
+    CmdOutput output = builder.build();
+    output.add("exiting shell");
+    return output;
   }
 
   /**
@@ -0,0 +1,135 @@
+package commands;
+
+import driver.Controller;
+import exceptions.JShellException;
+import exceptions.WrongSyntaxException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import util.CmdOutput;
+import util.CmdOutput.OutputBuilder;
+import util.CombinedCumulativeFlagHandler;
+import util.CommandNode;
+import util.Flag;
+import util.IAcceptsFlags;
+import util.Message;
+
+/**
+ * Syntax: grep [-v] REGEX [FILE]
+ * <p>
+ * Prints the lines of FILE, or of the output of the command before it in a
+ * pipeline, that contain a match of REGEX, a regular expression surrounded by
+ * double quotation marks. With -v, the lines that do not are printed instead.
+ */
+public class CommGrep extends AbstractFilterCommand implements IAcceptsFlags {
+
+  public static final String alias = "grep";
+
+  /**
+   * Sole constructor
+   */
+  protected CommGrep(Controller controller) {
+    super(controller);
+    controller.registerCommand(this);
+  }
+
+  /**
+   * Returns the instance of this class that belongs to {@code controller}.
+   * This method always returns the same instance for the same controller.
+   *
+   * @param controller the controller that this command belongs to.
+   * @return the instance of this class for {@code controller}
+   */
+  public static CommGrep getInstance(Controller controller) {
+    AbstractCommand registered = controller.getCommand(alias);
+    if (registered instanceof CommGrep) {
+      return (CommGrep) registered;
+    }
+    return new CommGrep(controller);
+  }
+
+  @Override
+  public String getAlias() {
+    return alias;
+  }
+
+  @Override
+  public CmdOutput execute(Message args, Iterator<String> input,
+      OutputBuilder builder) throws JShellException {
+    return execute(CommandNode.parse(alias, args.iterator(), getFlags()),
+        input, builder);
+  }
+
+  /**
+   * Executes this command.
+   *
+   * @throws WrongSyntaxException if user input is not in accordance with the
+   *                              syntax, or REGEX is not a valid regular
+   *                              expression.
+   */
+  @Override
+  public CmdOutput execute(CommandNode node, Iterator<String> input,
+      OutputBuilder builder) throws JShellException {
+    boolean isInverted = false;
+    for (String value : node.getFlagValues("-")) {
+      if (!value.equals("v")) {
+        throw new WrongSyntaxException("grep: unknown flag "
+            + "\"-" + value + "\"");
+      }
+      isInverted = true;
+    }
+    List<String> args = node.getArguments();
+    if (args.size() != (input == null ? 2 : 1)) {
+      throw new WrongSyntaxException("grep: wrong number of arguments");
+    }
+    Iterator<String> operands = args.iterator();
+    Matcher matcher;
+    try {
+      matcher = Pattern.compile(checkValidity(operands.next())).matcher("");
+    } catch (PatternSyntaxException e) {
+      throw new WrongSyntaxException("grep: " + e.getDescription());
+    }
+    if (input == null) {
+      input = linesOf(operands.next());
+    }
+    CmdOutput output = builder.buildStreaming();
+    while (input.hasNext()) {
+      String line = input.next();
+      if (matcher.reset(line).find() != isInverted) {
+        output.add(line);
+      }
+    }
+    return output;
+  }
+
+  private String checkValidity(String org) throws WrongSyntaxException {
+    if (org.length() < 2 || !org.startsWith("\"") || !org.endsWith("\"")) {
+      throw new WrongSyntaxException("Invalid string: " + org);
+    }
+    return org.substring(1, org.length() - 1);
+  }
+
+  @Override
+  public Flag[] constructFlags() {
+    return new Flag[]{new Flag("-", new CombinedCumulativeFlagHandler())};
+  }
+
+  /**
+   * @return the manual of this command
+   */
+  @Override
+  public Message getManual() {
+    String manual =
+        "Syntax: grep [-v] REGEX [FILE]\n"
+            + "\n"
+            + "Prints the lines of FILE, or of the output of the command "
+            + "before it in a\n"
+            + "pipeline, that contain a match of REGEX, a regular expression "
+            + "surrounded by\n"
+            + "double quotation marks. With -v, the lines that do not are "
+            + "printed instead.";
+    return new Message(manual);
+  }
+}
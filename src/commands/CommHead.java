@@ -0,0 +1,118 @@
+package commands;
+
+import driver.Controller;
+import exceptions.JShellException;
+import exceptions.WrongSyntaxException;
+import java.util.Iterator;
+import java.util.List;
+import util.CmdOutput;
+import util.CmdOutput.OutputBuilder;
+import util.CommandNode;
+import util.DisjointMutexFlagHandler;
+import util.Flag;
+import util.IAcceptsFlags;
+import util.Message;
+
+/**
+ * Syntax: head [-n NUM] [FILE]
+ * <p>
+ * Prints the first NUM lines, 10 by default, of FILE, or of the output of the
+ * command before it in a pipeline. The command before it is not waited for
+ * once NUM lines have been printed.
+ */
+public class CommHead extends AbstractFilterCommand implements IAcceptsFlags {
+
+  public static final String alias = "head";
+
+  private static final int DEFAULT_LINES = 10;
+
+  /**
+   * Sole constructor
+   */
+  protected CommHead(Controller controller) {
+    super(controller);
+    controller.registerCommand(this);
+  }
+
+  /**
+   * Returns the instance of this class that belongs to {@code controller}.
+   * This method always returns the same instance for the same controller.
+   *
+   * @param controller the controller that this command belongs to.
+   * @return the instance of this class for {@code controller}
+   */
+  public static CommHead getInstance(Controller controller) {
+    AbstractCommand registered = controller.getCommand(alias);
+    if (registered instanceof CommHead) {
+      return (CommHead) registered;
+    }
+    return new CommHead(controller);
+  }
+
+  @Override
+  public String getAlias() {
+    return alias;
+  }
+
+  @Override
+  public CmdOutput execute(Message args, Iterator<String> input,
+      OutputBuilder builder) throws JShellException {
+    return execute(CommandNode.parse(alias, args.iterator(), getFlags()),
+        input, builder);
+  }
+
+  /**
+   * Executes this command.
+   *
+   * @throws WrongSyntaxException if user input is not in accordance with the
+   *                              syntax, or NUM is not a number of lines.
+   */
+  @Override
+  public CmdOutput execute(CommandNode node, Iterator<String> input,
+      OutputBuilder builder) throws JShellException {
+    int lines = DEFAULT_LINES;
+    String value = node.getFlag("-n");
+    if (value != null) {
+      try {
+        lines = Integer.parseInt(value);
+      } catch (NumberFormatException e) {
+        lines = -1;
+      }
+      if (lines < 0) {
+        throw new WrongSyntaxException("head: invalid number of lines: "
+            + value);
+      }
+    }
+    List<String> args = node.getArguments();
+    if (args.size() != (input == null ? 1 : 0)) {
+      throw new WrongSyntaxException("head: wrong number of arguments");
+    }
+    if (input == null) {
+      input = linesOf(args.get(0));
+    }
+    CmdOutput output = builder.buildStreaming();
+    for (int i = 0; i < lines && input.hasNext(); i++) {
+      output.add(input.next());
+    }
+    return output;
+  }
+
+  @Override
+  public Flag[] constructFlags() {
+    return new Flag[]{new Flag("-n", new DisjointMutexFlagHandler())};
+  }
+
+  /**
+   * @return the manual of this command
+   */
+  @Override
+  public Message getManual() {
+    String manual =
+        "Syntax: head [-n NUM] [FILE]\n"
+            + "\n"
+            + "Prints the first NUM lines, 10 by default, of FILE, or of the "
+            + "output of the\n"
+            + "command before it in a pipeline.";
+    return new Message(manual);
+  }
+}
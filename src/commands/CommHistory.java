@@ -25,7 +25,6 @@ import util.Message;
 public class CommHistory extends AbstractCommand {
 
   public static final String alias = "history";
-  private static CommHistory instance;
 
   /**
    * A list that contains all input histories.
@@ -41,8 +40,8 @@ public class CommHistory extends AbstractCommand {
   }
 
   /**
-   * Returns a instance of this class. This method always return the same
-   * instance on every call.
+   * Returns the instance of this class that belongs to {@code controller}.
+   * This method always returns the same instance for the same controller.
    *
    * @param controller The controller that this command belongs to.
    * @param history    The initial history array list.
@@ -50,10 +49,11 @@ public class CommHistory extends AbstractCommand {
    */
   public static CommHistory getInstance(Controller controller,
       ArrayList<String> history) {
-    if (instance == null) {
-      instance = new CommHistory(controller, history);
+    AbstractCommand registered = controller.getCommand(alias);
+    if (registered instanceof CommHistory) {
+      return (CommHistory) registered;
     }
-    return instance;
+    return new CommHistory(controller, history);
   }
 
   @Override
@@ -1,7 +1,16 @@
 package commands;
 
 import driver.Controller;
+import exceptions.FileNotExistException;
 import exceptions.JShellException;
+import exceptions.WrongSyntaxException;
+import io.Directory;
+import io.FileEditor;
+import io.FileManager;
+import io.FolderElement;
+import io.Snapshot;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Stack;
 import util.CmdOutput;
@@ -10,21 +19,19 @@ import util.Message;
 import util.Path;
 import util.PathInterpreter;
 
-/**
- * This is an abandoned implementation of command loadJShell that utilize json
- * formatter.
- */
-
 /**
  * Syntax: 1. loadJShell FileName
  * <p>
  * load the contents of the FileName and reinitialize everything that was saved
  * previously into the FileName.
+ * <p>
+ * The file must have been written by {@link CommSaveJShell}, in the binary
+ * format of {@link Snapshot}. Nothing can be loaded in a session of a daemon,
+ * since the other sessions share its file system.
  */
 public class CommLoadJShell extends AbstractCommand {
 
   public static final String alias = "loadJShell";
-  private static CommLoadJShell instance;
 
   protected Controller controller;
   protected ArrayList<String> history;
@@ -40,105 +47,78 @@ public class CommLoadJShell extends AbstractCommand {
     controller.registerCommand(this);
   }
 
-//  /**
-//   * Returns a instance of this class. This method always return the same
-//   * instance on every call.
-//   *
-//   * @param controller the controller that this command belongs to.
-//   * @return the sole instance of this class
-//   */
-//  public static CommLoadJShell getInstance(Controller controller,
-//      ArrayList<String> history, PathInterpreter pathInterpreter,
-//      Stack<Path> pathStack) {
-//    if (instance == null) {
-//      instance = new CommLoadJShell(controller, commHistory, pathInterpreter,
-//          pathStack);
-//    }
-//    return instance;
-//  }
+  /**
+   * Returns the instance of this class that belongs to {@code controller}.
+   * This method always returns the same instance for the same controller.
+   *
+   * @param controller      the controller that this command belongs to.
+   * @param history         the history that saved commands are added to.
+   * @param pathInterpreter locates the saved working directory.
+   * @param pathStack       the directory stack that saved paths are pushed
+   *                        on.
+   * @return the instance of this class for {@code controller}
+   */
+  public static CommLoadJShell getInstance(Controller controller,
+      ArrayList<String> history, PathInterpreter pathInterpreter,
+      Stack<Path> pathStack) {
+    AbstractCommand registered = controller.getCommand(alias);
+    if (registered instanceof CommLoadJShell) {
+      return (CommLoadJShell) registered;
+    }
+    return new CommLoadJShell(controller, history, pathInterpreter, pathStack);
+  }
 
   @Override
   public CmdOutput execute(Message args, OutputBuilder builder)
       throws JShellException {
-//    if (commHistory.getHistory().size() > 1) {
-//      System.out.print("You have already modified this system, please "
-//          + "only load save files from a new session.");
-//      return builder.isIgnored(true).build();
-//    }
-//    String loadPath = args.nextString();
-//    if (loadPath.equals("") || !args.nextString().equals("")) {
-//      throw new WrongSyntaxException("saveJShell: Wrong number of arguments");
-//    }
-//    JsonObject saveState;
-//    try {
-//      FileReader fr = new FileReader(loadPath);
-//      saveState = (JsonObject) Jsoner.deserialize(fr);
-//    } catch (FileNotFoundException e) {
-//      System.out.print("Cannot find save file at" + loadPath);
-//      return builder.isIgnored(true).build();
-//    } catch (JsonException e) {
-//      e.printStackTrace();
-//      System.out.print("An error has occurred while parsing json file.");
-//      return builder.isIgnored(true).build();
-//    }
-//    Directory rootDir = controller.getRootDir();
-//    JsonObject contentMap = (JsonObject) saveState.get("/");
-//    restoreDirectory(rootDir, contentMap);
-//    restoreWorkingDir(saveState);
-//    restoreHistory(saveState, loadPath);
-//    restorePathStack(saveState);
-//    System.out.print("Work state loaded successfully.");
-    return builder.isIgnored(true).build();
-  }
+    if (controller.isSession()) {
+      throw new JShellException("loadJShell: other sessions share this "
+          + "system, so save files cannot be loaded into it.");
+    }
+    if (controller.isModified()) {
+      throw new JShellException("You have already modified this system, "
+          + "please only load save files from a new session.");
+    }
+    if (args.length() != 1) {
+      throw new WrongSyntaxException("loadJShell: Wrong number of arguments");
+    }
+    String loadPath = args.getFirstString();
+    Snapshot snapshot;
+    try {
+      snapshot = Snapshot.load(loadPath,
+          new FileManager(new FileEditor()));
+    } catch (IOException e) {
+      throw new JShellException("loadJShell: cannot load " + loadPath + ": "
+          + e.getMessage(), e);
+    }
 
-//  private void restoreDirectory(Directory dir, JsonObject contentMap)
-//      throws DuplicateException, IllegalNameException {
-//    for (String key : contentMap.keySet()) {
-//      if (key.endsWith("/")) {
-//        Directory newDir = dir
-//            .createDirectory(key.substring(0, key.length() - 1));
-//        restoreDirectory(newDir, (JsonObject) contentMap.get(key));
-//      } else {
-//        File newFile = dir.createFile(key);
-//        newFile.overwriteContentsAs((String) contentMap.get(key));
-//      }
-//    }
-//  }
+    // The working directory is found in the loaded file system, which is put
+    // back the way it was if that fails.
+    Directory previousRoot = controller.getRootDir();
+    controller.setRootDir(snapshot.getRoot());
+    FolderElement workingDir;
+    try {
+      workingDir = pathInterpreter.toFolderElement(
+          new Path(snapshot.getWorkingDir()));
+    } catch (UncheckedIOException e) {
+      controller.setRootDir(previousRoot);
+      throw new JShellException("loadJShell: cannot load " + loadPath + ": "
+          + e.getCause().getMessage(), e);
+    }
+    if (!(workingDir instanceof Directory)) {
+      controller.setRootDir(previousRoot);
+      throw new FileNotExistException("loadJShell: saved working directory "
+          + snapshot.getWorkingDir() + " does not exist");
+    }
+    controller.setWorkingDir((Directory) workingDir);
 
-//  private void restoreWorkingDir(JsonObject saveState)
-//      throws NotADirectoryException, FileNotExistException {
-//    Path pathToWorkingDir = new Path((String) saveState.get("workingDir"));
-//    FolderElement fe = pathInterpreter.toFolderElement(pathToWorkingDir);
-//    if (!(fe instanceof Directory)) {
-//      throw new NotADirectoryException("loadJShell: Well this should not "
-//          + "happen.");
-//    }
-//    controller.setWorkingDir((Directory) fe);
-//  }
+    history.addAll(0, snapshot.getHistory());
+    for (String path : snapshot.getPathStack()) {
+      pathStack.push(new Path(path));
+    }
 
-//  private void restoreHistory(JsonObject saveState, String loadingPath) {
-//    ArrayList<String> history = commHistory.getHistory();
-//    history.clear();
-//    JsonArray savedHistory = (JsonArray) saveState.get("history");
-//    for (Object o : savedHistory) {
-//      if (o instanceof String) {
-//        // This should always check
-//        history.add((String) o);
-//      }
-//    }
-//    history.add(alias + " " + loadingPath);
-//  }
-
-//  private void restorePathStack(JsonObject saveState) {
-//    JsonArray paths = (JsonArray) saveState.get("pathStack");
-//    for (Object o : paths) {
-//      if (o instanceof String) {
-//        // This should always check
-//        Path p = new Path((String) o);
-//        pathStack.push(p);
-//      }
-//    }
-//  }
+    return builder.isIgnored(true).build();
+  }
 
   /**
    * @return the manual of this command
@@ -18,7 +18,6 @@ import util.PathInterpreter;
 public class CommLoadJShellSer extends CommLoadJShell {
 
   public static final String alias = "loadJShell";
-  private static CommLoadJShell instance;
 
   protected CommLoadJShellSer(Controller controller, ArrayList<String> history,
       PathInterpreter pathInterpreter, Stack<Path> pathStack) {
@@ -27,20 +26,21 @@ public class CommLoadJShellSer extends CommLoadJShell {
   }
 
   /**
-   * Returns a instance of this class. This method always return the same
-   * instance on every call.
+   * Returns the instance of this class that belongs to {@code controller}.
+   * This method always returns the same instance for the same controller.
    *
    * @param controller the controller that this command belongs to.
-   * @return the sole instance of this class
+   * @return the instance of this class for {@code controller}
    */
   public static CommLoadJShell getInstance(Controller controller,
       ArrayList<String> history, PathInterpreter pathInterpreter,
       Stack<Path> pathStack) {
-    if (instance == null) {
-      instance = new CommLoadJShellSer(controller, history, pathInterpreter,
-          pathStack);
+    AbstractCommand registered = controller.getCommand(alias);
+    if (registered instanceof CommLoadJShellSer) {
+      return (CommLoadJShellSer) registered;
     }
-    return instance;
+    return new CommLoadJShellSer(controller, history, pathInterpreter,
+        pathStack);
   }
 
   @Override
@@ -51,6 +51,10 @@ public class CommLoadJShellSer extends CommLoadJShell {
   @Override
   public CmdOutput execute(Message args, OutputBuilder builder)
       throws JShellException {
+    if (controller.isSession()) {
+      throw new JShellException("loadJShell: other sessions share this "
+          + "system, so save files cannot be loaded into it.");
+    }
     if (controller.isModified()) {
       throw new JShellException("You have already modified this system, "
           + "please only load save files from a new session.");
@@ -77,19 +81,17 @@ public class CommLoadJShellSer extends CommLoadJShell {
     return builder.isIgnored(true).build();
   }
 
-  private ArrayList<?> deserialize(String path) {
-    ArrayList<?> saveState = null;
+  private ArrayList<?> deserialize(String path) throws JShellException {
+    ArrayList<?> saveState;
     try {
       FileInputStream fileIn = new FileInputStream(path);
       ObjectInputStream in = new ObjectInputStream(fileIn);
       saveState = (ArrayList<?>) in.readObject();
       in.close();
       fileIn.close();
-    } catch (IOException i) {
-      i.printStackTrace();
-    } catch (ClassNotFoundException c) {
-      c.printStackTrace();
-      System.out.println("An error has occurred during deserialization.");
+    } catch (IOException | ClassNotFoundException e) {
+      throw new JShellException("loadJShell: An error has occurred during "
+          + "deserialization.", e);
     }
     return saveState;
   }
@@ -7,18 +7,17 @@ import exceptions.WrongSyntaxException;
 import io.Directory;
 import io.File;
 import io.FolderElement;
-import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.List;
 import util.CmdOutput;
 import util.CmdOutput.OutputBuilder;
 import util.CombinedCumulativeFlagHandler;
-import util.DisjointMutexFlagHandler;
+import util.CommandNode;
 import util.Flag;
 import util.IAcceptsFlags;
 import util.Message;
 import util.Path;
 import util.PathInterpreter;
+import util.TreeWalker;
 
 /**
  * Syntax: 1. ls [-R] [PATH ...]
@@ -36,7 +35,6 @@ import util.PathInterpreter;
 public class CommLs extends AbstractCommand implements IAcceptsFlags {
 
   public static final String alias = "ls";
-  private static CommLs instance;
 
   /**
    * The file system that this command belongs to.
@@ -57,17 +55,18 @@ public class CommLs extends AbstractCommand implements IAcceptsFlags {
   }
 
   /**
-   * Returns a instance of this class. This method always return the same
-   * instance on every call.
+   * Returns the instance of this class that belongs to {@code controller}.
+   * This method always returns the same instance for the same controller.
    *
    * @param controller the controller that this command belongs to.
-   * @return the sole instance of this class
+   * @return the instance of this class for {@code controller}
    */
   public static CommLs getInstance(Controller controller) {
-    if (instance == null) {
-      instance = new CommLs(controller);
+    AbstractCommand registered = controller.getCommand(alias);
+    if (registered instanceof CommLs) {
+      return (CommLs) registered;
     }
-    return instance;
+    return new CommLs(controller);
   }
 
   @Override
@@ -75,20 +74,27 @@ public class CommLs extends AbstractCommand implements IAcceptsFlags {
     return alias;
   }
 
+  @Override
+  public CmdOutput execute(Message args, OutputBuilder builder)
+      throws WrongSyntaxException {
+    return execute(CommandNode.parse(alias, args.iterator(), getFlags()),
+        builder);
+  }
+
   /**
    * Executes this command.
    *
-   * @param args a Message containing the arguments from user
+   * @param node the parsed command line of this command
    */
   @Override
-  public CmdOutput execute(Message args, OutputBuilder builder)
+  public CmdOutput execute(CommandNode node, OutputBuilder builder)
       throws WrongSyntaxException {
-    CmdOutput output = builder.build();
-    ArrayList<String> options = getFlagValues(args);
-    boolean recur = options.contains("R");
-    if (args.length() == 0) {
-      populateWithDirectory(output, controller.getWorkingDir(), 0, recur);
-      output.removeFirstString();
+    boolean recur = isRecursive(node);
+    List<String> args = node.getArguments();
+    CmdOutput output = builder.buildStreaming();
+    if (args.isEmpty()) {
+      populateWithDirectory(output, controller.getWorkingDir(), 0, recur,
+          false);
     } else {
       for (String arg : args) {
         Path path = new Path(arg);
@@ -108,45 +114,60 @@ public class CommLs extends AbstractCommand implements IAcceptsFlags {
           // Does not include the last slash of the path
           output.add(pathStr.substring(0, pathStr.length() - 1));
         } else {
-          populateWithDirectory(output, (Directory) target, 2, recur);
+          populateWithDirectory(output, (Directory) target, 2, recur, true);
         }
       }
     }
     return output;
   }
 
-  protected ArrayList<String> getFlagValues(Message args)
+  /**
+   * Returns whether -R is given in {@code node}, which is the only flag
+   * there is.
+   *
+   * @throws WrongSyntaxException if any other flag is given.
+   */
+  protected boolean isRecursive(CommandNode node)
       throws WrongSyntaxException {
-    Flag f = constructFlags()[0];
-    ArrayList<String> values = new ArrayList<>();
-    while (f.extractValue(args)) {
-      if (!f.getValue().equals("R")) {
+    List<String> values = node.getFlagValues("-");
+    for (String value : values) {
+      if (!value.equals("R")) {
         throw new WrongSyntaxException("ls: unknown flag "
-            + "\"-" + f.getValue() + "\"");
-      }
-      if (!values.contains(f.getValue())) {
-        values.add(f.getValue());
+            + "\"-" + value + "\"");
       }
     }
-    return values;
+    return !values.isEmpty();
   }
 
+  /**
+   * Adds the path and the contents of {@code dir} to {@code output}, followed
+   * by those of every directory inside it if {@code recursively} is {@code
+   * true}.
+   *
+   * @param output      The output that receives the lines.
+   * @param dir         The directory to be listed.
+   * @param indent      The number of spaces before the contents of {@code
+   *                    dir}.
+   * @param recursively Whether directories inside {@code dir} are listed.
+   * @param showsPath   Whether the path of {@code dir} itself is added.
+   */
   protected void populateWithDirectory(CmdOutput output, Directory dir,
-      int indent, boolean recursively) {
-    output.add(dir.getPathToThis().toString() + ": ");
-    StringBuilder sb =
-        new StringBuilder(new String(new char[indent]).replace("\0", " "));
-    Queue<Directory> subDirs = new LinkedList<>();
-    for (FolderElement fe : dir) {
-      sb.append(fe.getName()).append("  ");
-      if (recursively && fe instanceof Directory) {
-        subDirs.add((Directory) fe);
+      int indent, boolean recursively, boolean showsPath) {
+    String topIndentation = new String(new char[indent]).replace("\0", " ");
+    TreeWalker.walk(dir, (fe, depth, found) -> {
+      if (!(fe instanceof Directory)) {
+        return false;
       }
-    }
-    output.add(sb.toString());
-    for (Directory subDir : subDirs) {
-      populateWithDirectory(output, subDir, 2, true);
-    }
+      if (depth > 0 || showsPath) {
+        found.accept(fe.getPathToThis().toString() + ": ");
+      }
+      StringBuilder sb = new StringBuilder(depth == 0 ? topIndentation : "  ");
+      for (FolderElement child : (Directory) fe) {
+        sb.append(child.getName()).append("  ");
+      }
+      found.accept(sb.toString());
+      return recursively;
+    }, output);
   }
 
   @Override
@@ -16,7 +16,6 @@ import util.Message;
 public class CommMan extends AbstractCommand {
 
   public static final String alias = "man";
-  private static CommMan instance;
 
   /**
    * A outputHandler object that helps print out manuals
@@ -39,18 +38,19 @@ public class CommMan extends AbstractCommand {
   }
 
   /**
-   * Returns a instance of this class. This method always return the same
-   * instance on every call.
+   * Returns the instance of this class that belongs to {@code controller}.
+   * This method always returns the same instance for the same controller.
    *
    * @param controller the controller that this command belongs to.
-   * @return the sole instance of this class
+   * @return the instance of this class for {@code controller}
    */
   public static CommMan getInstance(Controller controller,
       HashMap<String, AbstractCommand> commandsHashMap) {
-    if (instance == null) {
-      instance = new CommMan(controller, commandsHashMap);
+    AbstractCommand registered = controller.getCommand(alias);
+    if (registered instanceof CommMan) {
+      return (CommMan) registered;
     }
-    return instance;
+    return new CommMan(controller, commandsHashMap);
   }
 
   @Override
@@ -27,7 +27,6 @@ import util.PathInterpreter;
 public class CommMkdir extends AbstractCommand {
 
   public static final String alias = "mkdir";
-  private static CommMkdir instance;
 
   /**
    * A pathInterpreter that helps locate places in the file system.
@@ -43,17 +42,18 @@ public class CommMkdir extends AbstractCommand {
   }
 
   /**
-   * Returns a instance of this class. This method always return the same
-   * instance on every call.
+   * Returns the instance of this class that belongs to {@code controller}.
+   * This method always returns the same instance for the same controller.
    *
    * @param controller the controller that this command belongs to.
-   * @return the sole instance of this class
+   * @return the instance of this class for {@code controller}
    */
   public static CommMkdir getInstance(Controller controller) {
-    if (instance == null) {
-      instance = new CommMkdir(controller);
+    AbstractCommand registered = controller.getCommand(alias);
+    if (registered instanceof CommMkdir) {
+      return (CommMkdir) registered;
     }
-    return instance;
+    return new CommMkdir(controller);
   }
 
   @Override
@@ -89,8 +89,9 @@ public class CommMkdir extends AbstractCommand {
       FolderElement dummy = pathInterpreter.createDummyAt(path);
       dummy.getParentDir().createDirectory(dummy.getName());
     }
-    System.out.println("mkdir: Task completed.");
-    return builder.isIgnored(true).build();
+    CmdOutput output = builder.build();
+    output.add("mkdir: Task completed.");
+    return output;
   }
 
   /**
@@ -29,7 +29,6 @@ import util.PathInterpreter;
 public class CommMv extends AbstractCommand {
 
   public static final String alias = "mv";
-  private static CommMv instance;
 
   protected final PathInterpreter pathInterpreter;
   protected final Controller controller;
@@ -44,17 +43,18 @@ public class CommMv extends AbstractCommand {
   }
 
   /**
-   * Returns a instance of this class. This method always return the same
-   * instance on every call.
+   * Returns the instance of this class that belongs to {@code controller}.
+   * This method always returns the same instance for the same controller.
    *
    * @param controller the controller that this command belongs to.
-   * @return the sole instance of this class
+   * @return the instance of this class for {@code controller}
    */
   public static CommMv getInstance(Controller controller) {
-    if (instance == null) {
-      instance = new CommMv(controller);
+    AbstractCommand registered = controller.getCommand(alias);
+    if (registered instanceof CommMv) {
+      return (CommMv) registered;
     }
-    return instance;
+    return new CommMv(controller);
   }
 
   @Override
@@ -126,10 +126,7 @@ public class CommMv extends AbstractCommand {
     if (original instanceof Directory) {
       checkOperation((Directory) original, destParent);
     }
-    Directory originParent = original.getParentDir();
-    originParent.removeElement(original.getName());
-    original.renameTo(newName);
-    destParent.insertElement(original);
+    original.moveTo(destParent, newName);
   }
 
   /*
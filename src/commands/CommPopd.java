@@ -25,7 +25,6 @@ import util.PathInterpreter;
 public class CommPopd extends AbstractCommand {
 
   public static final String alias = "popd";
-  private static CommPopd instance;
 
   /**
    * The stack of paths to directory that this instance shares with commPopd.
@@ -47,18 +46,19 @@ public class CommPopd extends AbstractCommand {
   }
 
   /**
-   * Returns a instance of this class. This method always return the same
-   * instance on every call.
+   * Returns the instance of this class that belongs to {@code controller}.
+   * This method always returns the same instance for the same controller.
    *
    * @param controller the controller that this command belongs to.
-   * @return the sole instance of this class
+   * @return the instance of this class for {@code controller}
    */
   public static CommPopd getInstance(Controller controller,
       Stack<Path> pathStack) {
-    if (instance == null) {
-      instance = new CommPopd(controller, pathStack);
+    AbstractCommand registered = controller.getCommand(alias);
+    if (registered instanceof CommPopd) {
+      return (CommPopd) registered;
     }
-    return instance;
+    return new CommPopd(controller, pathStack);
   }
 
   @Override
@@ -82,16 +82,18 @@ public class CommPopd extends AbstractCommand {
     if (args.length() != 0) {
       throw new WrongSyntaxException("popd: Too many argument");
     }
+    Path changeTo;
     try {
-      Path changeTo = pathStack.pop();
-      controller
-          .setWorkingDir((Directory) pathInterpreter.toFolderElement(changeTo));
-      System.out.println("Returning to " + changeTo);
+      changeTo = pathStack.pop();
     } catch (java.util.EmptyStackException e) {
       throw new exceptions
           .EmptyStackException("popd: directory stack empty", e);
     }
-    return builder.isIgnored(true).build();
+    controller
+        .setWorkingDir((Directory) pathInterpreter.toFolderElement(changeTo));
+    CmdOutput output = builder.build();
+    output.add("Returning to " + changeTo);
+    return output;
   }
 
   /**
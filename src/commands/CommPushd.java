@@ -26,7 +26,6 @@ import util.PathInterpreter;
 public class CommPushd extends AbstractCommand {
 
   public static final String alias = "pushd";
-  private static CommPushd instance;
 
   /**
    * The file system that this command belongs to.
@@ -50,18 +49,19 @@ public class CommPushd extends AbstractCommand {
   }
 
   /**
-   * Returns a instance of this class. This method always return the same
-   * instance on every call.
+   * Returns the instance of this class that belongs to {@code controller}.
+   * This method always returns the same instance for the same controller.
    *
    * @param controller the controller that this command belongs to.
-   * @return the sole instance of this class
+   * @return the instance of this class for {@code controller}
    */
   public static CommPushd getInstance(Controller controller,
       Stack<Path> pathStack) {
-    if (instance == null) {
-      instance = new CommPushd(controller, pathStack);
+    AbstractCommand registered = controller.getCommand(alias);
+    if (registered instanceof CommPushd) {
+      return (CommPushd) registered;
     }
-    return instance;
+    return new CommPushd(controller, pathStack);
   }
 
   @Override
@@ -95,9 +95,9 @@ public class CommPushd extends AbstractCommand {
     Path oldPath = controller.getWorkingDir().getPathToThis();
     pathStack.push(oldPath);
     controller.setWorkingDir((Directory) target);
-    System.out
-        .println("Old directory: " + oldPath.toString() + " pushed to stack.");
-    return builder.isIgnored(true).build();
+    CmdOutput output = builder.build();
+    output.add("Old directory: " + oldPath.toString() + " pushed to stack.");
+    return output;
   }
 
   /**
@@ -4,6 +4,7 @@ import driver.Controller;
 import exceptions.WrongSyntaxException;
 import util.CmdOutput;
 import util.CmdOutput.OutputBuilder;
+import util.CommandNode;
 import util.Message;
 import util.Path;
 
@@ -15,7 +16,6 @@ import util.Path;
 public class CommPwd extends AbstractCommand {
 
   public static final String alias = "pwd";
-  private static CommPwd instance;
 
   /**
    * The file system that this command belongs to.
@@ -31,17 +31,18 @@ public class CommPwd extends AbstractCommand {
   }
 
   /**
-   * Returns a instance of this class. This method always return the same
-   * instance on every call.
+   * Returns the instance of this class that belongs to {@code controller}.
+   * This method always returns the same instance for the same controller.
    *
    * @param controller the controller that this command belongs to.
-   * @return the sole instance of this class
+   * @return the instance of this class for {@code controller}
    */
   public static CommPwd getInstance(Controller controller) {
-    if (instance == null) {
-      instance = new CommPwd(controller);
+    AbstractCommand registered = controller.getCommand(alias);
+    if (registered instanceof CommPwd) {
+      return (CommPwd) registered;
     }
-    return instance;
+    return new CommPwd(controller);
   }
 
   @Override
@@ -49,16 +50,23 @@ public class CommPwd extends AbstractCommand {
     return alias;
   }
 
+  @Override
+  public CmdOutput execute(Message args, OutputBuilder builder)
+      throws WrongSyntaxException {
+    return execute(CommandNode.parse(alias, args.iterator(), getFlags()),
+        builder);
+  }
+
   /**
    * Executes this command.
    *
-   * @param args args a Message containing the arguments from user
+   * @param node the parsed command line of this command
    * @throws WrongSyntaxException is user gives any argument
    */
   @Override
-  public CmdOutput execute(Message args, OutputBuilder builder)
+  public CmdOutput execute(CommandNode node, OutputBuilder builder)
       throws WrongSyntaxException {
-    if (args.length() != 0) {
+    if (!node.getArguments().isEmpty()) {
       throw new WrongSyntaxException("pwd: Too many arguments");
     }
     CmdOutput output = builder.build();
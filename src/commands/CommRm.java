@@ -24,7 +24,6 @@ import util.PathInterpreter;
 public class CommRm extends AbstractCommand {
 
   public static final String alias = "rm";
-  private static CommRm instance;
   /**
    * A pathInterpreter that helps locate places in the file system.
    */
@@ -42,17 +41,18 @@ public class CommRm extends AbstractCommand {
   }
 
   /**
-   * Returns a instance of this class. This method always return the same
-   * instance on every call.
+   * Returns the instance of this class that belongs to {@code controller}.
+   * This method always returns the same instance for the same controller.
    *
    * @param controller the controller that this command belongs to.
-   * @return the sole instance of this class
+   * @return the instance of this class for {@code controller}
    */
   public static CommRm getInstance(Controller controller) {
-    if (instance == null) {
-      instance = new CommRm(controller);
+    AbstractCommand registered = controller.getCommand(alias);
+    if (registered instanceof CommRm) {
+      return (CommRm) registered;
     }
-    return instance;
+    return new CommRm(controller);
   }
 
   /**
@@ -17,8 +17,6 @@ import util.Path;
 
 public class CommSaveJShellSer extends CommSaveJShell {
 
-  private static CommSaveJShellSer instance;
-
   protected CommSaveJShellSer(Controller controller,
       ArrayList<String> history, Stack<Path> pathStack) {
     super(controller, history, pathStack);
@@ -26,10 +24,11 @@ public class CommSaveJShellSer extends CommSaveJShell {
 
   public static CommSaveJShellSer getInstance(Controller controller,
       ArrayList<String> history, Stack<Path> pathStack) {
-    if (instance == null) {
-      instance = new CommSaveJShellSer(controller, history, pathStack);
+    AbstractCommand registered = controller.getCommand(alias);
+    if (registered instanceof CommSaveJShellSer) {
+      return (CommSaveJShellSer) registered;
     }
-    return instance;
+    return new CommSaveJShellSer(controller, history, pathStack);
   }
 
   @Override
@@ -48,10 +47,13 @@ public class CommSaveJShellSer extends CommSaveJShell {
     saveState.add(paths);
 
     serialize(saveState, args.getFirstString());
-    return builder.isIgnored(true).build();
+    CmdOutput output = builder.build();
+    output.add("Serialized data is saved in " + args.getFirstString());
+    return output;
   }
 
-  private void serialize(ArrayList<Serializable> objects, String savePath) {
+  private void serialize(ArrayList<Serializable> objects, String savePath)
+      throws JShellException {
     try {
       FileOutputStream fileOut =
           new FileOutputStream(savePath);
@@ -59,10 +61,9 @@ public class CommSaveJShellSer extends CommSaveJShell {
       out.writeObject(objects);
       out.close();
       fileOut.close();
-      System.out.println("Serialized data is saved in " + savePath);
     } catch (IOException i) {
-      i.printStackTrace();
-      System.out.println("An error has occurred while saving work state.");
+      throw new JShellException("saveJShell: An error has occurred while "
+          + "saving work state.", i);
     }
   }
 }
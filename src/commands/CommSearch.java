@@ -6,27 +6,34 @@ import exceptions.JShellException;
 import exceptions.NotADirectoryException;
 import exceptions.WrongSyntaxException;
 import io.Directory;
-import io.File;
 import io.FolderElement;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.PatternSyntaxException;
 import util.CmdOutput;
 import util.CmdOutput.OutputBuilder;
+import util.CommandNode;
 import util.DisjointMutexFlagHandler;
 import util.Flag;
 import util.IAcceptsFlags;
 import util.Message;
+import util.NamePattern;
 import util.Path;
 import util.PathInterpreter;
 
 /**
- * Syntax: search path ... -type [f|d] -name expression
+ * Syntax: search path ... -type [f|d] (-name expression | -regex expression)
  * <p>
- * This command searches all folder elements of type file or directory of name
- * {@code expression} in {@code path}s and prints their absolute path.
+ * This command searches all folder elements of type file or directory whose
+ * name matches {@code expression} in {@code path}s and prints their absolute
+ * path. With {@code -name}, {@code expression} is a glob, where {@code *}
+ * matches any characters, {@code ?} matches one character, and {@code [...]}
+ * matches one of the characters in the brackets. With {@code -regex}, {@code
+ * expression} is a regular expression that the whole name must match.
  */
 public class CommSearch extends AbstractCommand implements IAcceptsFlags {
 
   public static final String alias = "search";
-  private static CommSearch instance;
 
   private final PathInterpreter pathInterpreter;
 
@@ -36,34 +43,42 @@ public class CommSearch extends AbstractCommand implements IAcceptsFlags {
   }
 
   public static CommSearch getInstance(Controller controller) {
-    if (instance == null) {
-      instance = new CommSearch(controller);
+    AbstractCommand registered = controller.getCommand(alias);
+    if (registered instanceof CommSearch) {
+      return (CommSearch) registered;
     }
-    return instance;
+    return new CommSearch(controller);
   }
 
   @Override
   public CmdOutput execute(Message args, OutputBuilder builder)
       throws WrongSyntaxException, FileNotExistException, NotADirectoryException {
-    Flag[] flags = constructFlags();
-    for (Flag flag : flags) {
-      if (!flag.extractValue(args)) {
-        throw new WrongSyntaxException(flag.getKey() + ": flag value expected");
-      }
+    return execute(CommandNode.parse(alias, args.iterator(), getFlags()),
+        builder);
+  }
+
+  @Override
+  public CmdOutput execute(CommandNode node, OutputBuilder builder)
+      throws WrongSyntaxException, FileNotExistException, NotADirectoryException {
+    String typeValue = node.getFlag("-type");
+    String name = node.getFlag("-name");
+    String regex = node.getFlag("-regex");
+    if (typeValue == null) {
+      throw new WrongSyntaxException("-type: flag value expected");
+    } else if ((name == null) == (regex == null)) {
+      throw new WrongSyntaxException("-name or -regex: exactly one of them "
+          + "expected");
     }
-    // TODO: rewrite this part if someone comes up with new methods.
-    FolderElement dummy;
-    if (flags[0].getValue().equals("f")) {
-      dummy = new File(null, null, null, null);
-    } else if (flags[0].getValue().equals("d")) {
-      dummy = new Directory(null, null);
-    } else {
-      throw new WrongSyntaxException("-type " + flags[0].getValue() + ": "
+    if (!typeValue.equals("f") && !typeValue.equals("d")) {
+      throw new WrongSyntaxException("-type " + typeValue + ": "
           + "unknown parameter");
     }
-    String name = checkValidity(flags[1].getValue());
+    char type = typeValue.charAt(0);
+    NamePattern pattern = compile(name, regex);
+    // One matcher serves every name tested during this invocation.
+    Matcher matcher = pattern.matcher();
     CmdOutput output = builder.build();
-    for (String str : args) {
+    for (String str : node.getArguments()) {
       FolderElement fe;
       try {
         fe = pathInterpreter.toFolderElement(new Path(str));
@@ -74,26 +89,49 @@ public class CommSearch extends AbstractCommand implements IAcceptsFlags {
         output.setBufferedException(jse);
         return output;
       }
-      if (fe.getClass() == dummy.getClass() && fe.getName().equals(name)) {
+      if ((fe instanceof Directory) == (type == 'd')
+          && matcher.reset(fe.getName()).matches()) {
         output.add(fe.getPathToThis().toString());
       }
       if (fe instanceof Directory) {
-        populateOutput(output, name, (Directory) fe, dummy);
+        for (FolderElement found : find((Directory) fe, type, pattern,
+            matcher)) {
+          output.add(found.getPathToThis().toString());
+        }
       }
     }
     return output;
   }
 
-  private void populateOutput(CmdOutput output, String name, Directory dir,
-      FolderElement dummy) {
-    for (FolderElement fe : dir) {
-      if (fe.getClass() == dummy.getClass() && fe.getName().equals(name)) {
-        output.add(fe.getPathToThis().toString());
-      }
-      if (fe instanceof Directory) {
-        populateOutput(output, name, (Directory) fe, dummy);
-      }
+  /**
+   * Compiles whichever of {@code name} and {@code regex} is not null.
+   */
+  private NamePattern compile(String name, String regex)
+      throws WrongSyntaxException {
+    if (name != null) {
+      return NamePattern.glob(checkValidity(name));
+    }
+    String expression = checkValidity(regex);
+    try {
+      return NamePattern.regex(expression);
+    } catch (PatternSyntaxException e) {
+      throw new WrongSyntaxException("-regex " + expression + ": "
+          + e.getDescription());
+    }
+  }
+
+  /**
+   * Finds the elements inside {@code dir} whose names match {@code pattern}.
+   * Names without wildcards are looked up directly, otherwise only names that
+   * start with the literal prefix of {@code pattern} are matched.
+   */
+  private List<FolderElement> find(Directory dir, char type,
+      NamePattern pattern, Matcher matcher) {
+    if (pattern.isLiteral()) {
+      return dir.findElements(type, pattern.getPrefix());
     }
+    return dir.findElements(type, pattern.getPrefix(),
+        name -> matcher.reset(name).matches());
   }
 
   private String checkValidity(String org) throws WrongSyntaxException {
@@ -110,7 +148,8 @@ public class CommSearch extends AbstractCommand implements IAcceptsFlags {
   public Flag[] constructFlags() {
     return new Flag[]{
         new Flag("-type", new DisjointMutexFlagHandler()),
-        new Flag("-name", new DisjointMutexFlagHandler())
+        new Flag("-name", new DisjointMutexFlagHandler()),
+        new Flag("-regex", new DisjointMutexFlagHandler())
     };
   }
 
@@ -120,12 +159,19 @@ public class CommSearch extends AbstractCommand implements IAcceptsFlags {
   @Override
   public Message getManual() {
     String manual =
-        "Syntax: search path ... -type [f|d] -name expression\n"
+        "Syntax: search path ... -type [f|d] "
+            + "(-name expression | -regex expression)\n"
             + "\n"
             + "This command searches all folder "
-            + "elements of type file or directory of name\n"
-            + "{@code expression} in {@code path}s and prints "
-            + "their absolute path.\n";
+            + "elements of type file or directory whose name\n"
+            + "matches expression in paths and prints "
+            + "their absolute path.\n"
+            + "With -name, expression is a glob, where * matches any "
+            + "characters, ? matches one\n"
+            + "character, and [...] matches one of the characters in the "
+            + "brackets.\n"
+            + "With -regex, expression is a regular expression that the "
+            + "whole name must match.\n";
     return new Message(manual);
   }
 
@@ -0,0 +1,117 @@
+package commands;
+
+import driver.Controller;
+import exceptions.JShellException;
+import exceptions.WrongSyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import util.CmdOutput;
+import util.CmdOutput.OutputBuilder;
+import util.CombinedCumulativeFlagHandler;
+import util.CommandNode;
+import util.Flag;
+import util.IAcceptsFlags;
+import util.Message;
+
+/**
+ * Syntax: sort [-r] [FILE]
+ * <p>
+ * Prints the lines of FILE, or of the output of the command before it in a
+ * pipeline, in lexicographic order, or in reverse order with -r.
+ */
+public class CommSort extends AbstractFilterCommand implements IAcceptsFlags {
+
+  public static final String alias = "sort";
+
+  /**
+   * Sole constructor
+   */
+  protected CommSort(Controller controller) {
+    super(controller);
+    controller.registerCommand(this);
+  }
+
+  /**
+   * Returns the instance of this class that belongs to {@code controller}.
+   * This method always returns the same instance for the same controller.
+   *
+   * @param controller the controller that this command belongs to.
+   * @return the instance of this class for {@code controller}
+   */
+  public static CommSort getInstance(Controller controller) {
+    AbstractCommand registered = controller.getCommand(alias);
+    if (registered instanceof CommSort) {
+      return (CommSort) registered;
+    }
+    return new CommSort(controller);
+  }
+
+  @Override
+  public String getAlias() {
+    return alias;
+  }
+
+  @Override
+  public CmdOutput execute(Message args, Iterator<String> input,
+      OutputBuilder builder) throws JShellException {
+    return execute(CommandNode.parse(alias, args.iterator(), getFlags()),
+        input, builder);
+  }
+
+  /**
+   * Executes this command.
+   *
+   * @throws WrongSyntaxException if user input is not in accordance with the
+   *                              syntax.
+   */
+  @Override
+  public CmdOutput execute(CommandNode node, Iterator<String> input,
+      OutputBuilder builder) throws JShellException {
+    boolean isReversed = false;
+    for (String value : node.getFlagValues("-")) {
+      if (!value.equals("r")) {
+        throw new WrongSyntaxException("sort: unknown flag "
+            + "\"-" + value + "\"");
+      }
+      isReversed = true;
+    }
+    List<String> args = node.getArguments();
+    if (args.size() != (input == null ? 1 : 0)) {
+      throw new WrongSyntaxException("sort: wrong number of arguments");
+    }
+    if (input == null) {
+      input = linesOf(args.get(0));
+    }
+    ArrayList<String> lines = new ArrayList<>();
+    input.forEachRemaining(lines::add);
+    lines.sort(isReversed ? Collections.reverseOrder()
+        : Comparator.naturalOrder());
+    CmdOutput output = builder.buildStreaming();
+    for (String line : lines) {
+      output.add(line);
+    }
+    return output;
+  }
+
+  @Override
+  public Flag[] constructFlags() {
+    return new Flag[]{new Flag("-", new CombinedCumulativeFlagHandler())};
+  }
+
+  /**
+   * @return the manual of this command
+   */
+  @Override
+  public Message getManual() {
+    String manual =
+        "Syntax: sort [-r] [FILE]\n"
+            + "\n"
+            + "Prints the lines of FILE, or of the output of the command "
+            + "before it in a\n"
+            + "pipeline, in lexicographic order, or in reverse order with -r.";
+    return new Message(manual);
+  }
+}
@@ -0,0 +1,143 @@
+package commands;
+
+import driver.Controller;
+import exceptions.WrongSyntaxException;
+import util.CmdOutput;
+import util.CmdOutput.OutputBuilder;
+import util.CombinedCumulativeFlagHandler;
+import util.CommandNode;
+import util.CommandMetrics;
+import util.CommandMetrics.Summary;
+import util.Flag;
+import util.IAcceptsFlags;
+import util.Message;
+
+/**
+ * Syntax: stats [-c]
+ * <p>
+ * Prints a line for every command run so far, in every session of the file
+ * system: how many times it was run and how many of those failed, the median,
+ * 90th and 99th percentile and longest time it took in microseconds, and the
+ * bytes it allocated, paths it resolved and lines it output on average. With
+ * -c, the numbers are cleared after being printed.
+ */
+public class CommStats extends AbstractCommand implements IAcceptsFlags {
+
+  public static final String alias = "stats";
+
+  private static final String FORMAT = "%-8s%7s%6s%8s%8s%8s%8s%9s%6s%6s";
+
+  /**
+   * Where the commands are recorded.
+   */
+  private final CommandMetrics metrics;
+
+  /**
+   * Sole constructor
+   */
+  private CommStats(Controller controller, CommandMetrics metrics) {
+    this.metrics = metrics;
+    controller.registerCommand(this);
+  }
+
+  /**
+   * Returns the instance of this class that belongs to {@code controller}.
+   * This method always returns the same instance for the same controller.
+   *
+   * @param controller The controller that this command belongs to.
+   * @param metrics    Where the commands of {@code controller} are recorded.
+   * @return the instance of this class for {@code controller}
+   */
+  public static CommStats getInstance(Controller controller,
+      CommandMetrics metrics) {
+    AbstractCommand registered = controller.getCommand(alias);
+    if (registered instanceof CommStats) {
+      return (CommStats) registered;
+    }
+    return new CommStats(controller, metrics);
+  }
+
+  @Override
+  public String getAlias() {
+    return alias;
+  }
+
+  @Override
+  public CmdOutput execute(Message args, OutputBuilder builder)
+      throws WrongSyntaxException {
+    return execute(CommandNode.parse(alias, args.iterator(), getFlags()),
+        builder);
+  }
+
+  /**
+   * Executes this command.
+   *
+   * @throws WrongSyntaxException if user input is not in accordance with the
+   *                              syntax.
+   */
+  @Override
+  public CmdOutput execute(CommandNode node, OutputBuilder builder)
+      throws WrongSyntaxException {
+    boolean isCleared = false;
+    for (String value : node.getFlagValues("-")) {
+      if (!value.equals("c")) {
+        throw new WrongSyntaxException("stats: unknown flag "
+            + "\"-" + value + "\"");
+      }
+      isCleared = true;
+    }
+    if (!node.getArguments().isEmpty()) {
+      throw new WrongSyntaxException("stats: too many arguments");
+    }
+    CmdOutput output = builder.build();
+    output.add(String.format(FORMAT, "command", "runs", "fails", "p50 us",
+        "p90 us", "p99 us", "max us", "bytes", "paths", "lines"));
+    for (Summary summary : metrics.getCommands()) {
+      long count = summary.getCount();
+      output.add(String.format(FORMAT, summary.getCommand(), count,
+          summary.getFailures(), micros(summary.getP50Nanos()),
+          micros(summary.getP90Nanos()), micros(summary.getP99Nanos()),
+          micros(summary.getMaxNanos()),
+          summary.getAllocatedBytes() / count,
+          perRun(summary.getPathResolutions(), count),
+          perRun(summary.getOutputLines(), count)));
+    }
+    if (isCleared) {
+      metrics.reset();
+    }
+    return output;
+  }
+
+  private static String micros(long nanos) {
+    return String.format("%.1f", nanos / 1e3);
+  }
+
+  private static String perRun(long total, long count) {
+    return String.format("%.1f", (double) total / count);
+  }
+
+  @Override
+  public Flag[] constructFlags() {
+    return new Flag[]{new Flag("-", new CombinedCumulativeFlagHandler())};
+  }
+
+  /**
+   * @return the manual of this command
+   */
+  @Override
+  public Message getManual() {
+    String manual =
+        "Syntax: stats [-c]\n"
+            + "\n"
+            + "Prints a line for every command run so far, in every session "
+            + "of the file\n"
+            + "system: how many times it was run and how many of those "
+            + "failed, the median,\n"
+            + "90th and 99th percentile and longest time it took in "
+            + "microseconds, and the\n"
+            + "bytes it allocated, paths it resolved and lines it output on "
+            + "average. With\n"
+            + "-c, the numbers are cleared after being printed.";
+    return new Message(manual);
+  }
+}
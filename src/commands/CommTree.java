@@ -3,11 +3,10 @@ package commands;
 import driver.Controller;
 import exceptions.JShellException;
 import exceptions.WrongSyntaxException;
-import io.Directory;
-import io.FolderElement;
 import util.CmdOutput;
 import util.CmdOutput.OutputBuilder;
 import util.Message;
+import util.TreeWalker;
 
 /**
  * Syntax: tree
@@ -19,7 +18,6 @@ import util.Message;
 public class CommTree extends AbstractCommand {
 
   public static final String alias = "tree";
-  private static CommTree instance;
 
   private final Controller controller;
 
@@ -29,10 +27,11 @@ public class CommTree extends AbstractCommand {
   }
 
   public static CommTree getInstance(Controller controller) {
-    if (instance == null) {
-      instance = new CommTree(controller);
+    AbstractCommand registered = controller.getCommand(alias);
+    if (registered instanceof CommTree) {
+      return (CommTree) registered;
     }
-    return instance;
+    return new CommTree(controller);
   }
 
   @Override
@@ -41,26 +40,15 @@ public class CommTree extends AbstractCommand {
     if (args.length() != 0) {
       throw new WrongSyntaxException("tree: Too many arguments");
     }
-    CmdOutput output = builder.build();
-    output.add(controller.getRootDir().getName());
-    populateWithDirectory(output, controller.getRootDir(), 1);
+    CmdOutput output = builder.buildStreaming();
+    TreeWalker.walk(controller.getRootDir(), (fe, depth, found) -> {
+      found.accept(new String(new char[depth]).replace("\0", "\t")
+          + fe.getName());
+      return true;
+    }, output);
     return output;
   }
 
-  private void populateWithDirectory(CmdOutput output, Directory dir,
-      int indent) {
-    String indentation = new String(new char[indent]).replace("\0", "\t");
-    for (FolderElement fe : dir) {
-      String line = indentation + fe.getName();
-      if (fe instanceof Directory) {
-        output.add(line);
-        populateWithDirectory(output, (Directory) fe, indent + 1);
-      } else {
-        output.add(line);
-      }
-    }
-  }
-
   /**
    * @return the manual of this command
    */
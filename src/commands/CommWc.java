@@ -0,0 +1,99 @@
+package commands;
+
+import driver.Controller;
+import exceptions.JShellException;
+import exceptions.WrongSyntaxException;
+import java.util.Iterator;
+import util.CmdOutput;
+import util.CmdOutput.OutputBuilder;
+import util.Message;
+
+/**
+ * Syntax: wc [FILE]
+ * <p>
+ * Prints the number of lines, words and characters of FILE, or of the output
+ * of the command before it in a pipeline. Words are separated by whitespace,
+ * and the newline that ends each line counts as a character.
+ */
+public class CommWc extends AbstractFilterCommand {
+
+  public static final String alias = "wc";
+
+  /**
+   * Sole constructor
+   */
+  protected CommWc(Controller controller) {
+    super(controller);
+    controller.registerCommand(this);
+  }
+
+  /**
+   * Returns the instance of this class that belongs to {@code controller}.
+   * This method always returns the same instance for the same controller.
+   *
+   * @param controller the controller that this command belongs to.
+   * @return the instance of this class for {@code controller}
+   */
+  public static CommWc getInstance(Controller controller) {
+    AbstractCommand registered = controller.getCommand(alias);
+    if (registered instanceof CommWc) {
+      return (CommWc) registered;
+    }
+    return new CommWc(controller);
+  }
+
+  @Override
+  public String getAlias() {
+    return alias;
+  }
+
+  /**
+   * Executes this command.
+   *
+   * @throws WrongSyntaxException if user input is not in accordance with the
+   *                              syntax.
+   */
+  @Override
+  public CmdOutput execute(Message args, Iterator<String> input,
+      OutputBuilder builder) throws JShellException {
+    if (args.length() != (input == null ? 1 : 0)) {
+      throw new WrongSyntaxException("wc: wrong number of arguments");
+    }
+    if (input == null) {
+      input = linesOf(args.getFirstString());
+    }
+    long lines = 0;
+    long words = 0;
+    long characters = 0;
+    while (input.hasNext()) {
+      String line = input.next();
+      lines++;
+      characters += line.length() + 1;
+      boolean isInWord = false;
+      for (int i = 0; i < line.length(); i++) {
+        boolean isSpace = Character.isWhitespace(line.charAt(i));
+        if (!isSpace && !isInWord) {
+          words++;
+        }
+        isInWord = !isSpace;
+      }
+    }
+    CmdOutput output = builder.build();
+    output.add(lines + " " + words + " " + characters);
+    return output;
+  }
+
+  /**
+   * @return the manual of this command
+   */
+  @Override
+  public Message getManual() {
+    String manual =
+        "Syntax: wc [FILE]\n"
+            + "\n"
+            + "Prints the number of lines, words and characters of FILE, or "
+            + "of the output\n"
+            + "of the command before it in a pipeline.";
+    return new Message(manual);
+  }
+}
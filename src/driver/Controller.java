@@ -7,8 +7,10 @@ import commands.CommCp;
 import commands.CommCurl;
 import commands.CommEcho;
 import commands.CommExit;
+import commands.CommGrep;
+import commands.CommHead;
 import commands.CommHistory;
-import commands.CommLoadJShellSer;
+import commands.CommLoadJShell;
 import commands.CommLs;
 import commands.CommMan;
 import commands.CommMkdir;
@@ -17,20 +19,32 @@ import commands.CommPopd;
 import commands.CommPushd;
 import commands.CommPwd;
 import commands.CommRm;
-import commands.CommSaveJShellSer;
+import commands.CommSaveJShell;
 import commands.CommSearch;
+import commands.CommSort;
+import commands.CommStats;
 import commands.CommTree;
+import commands.CommWc;
 import exceptions.JShellException;
 import io.Directory;
 import io.FileEditor;
 import io.FileManager;
 import io.InputParser;
 import io.InputReader;
+import io.Journal;
 import io.OutputHandler;
+import io.OutputSink;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Stack;
 import util.CommandExecutor;
+import util.CommandMetrics;
+import util.CommandNode;
 import util.ErrorHandler;
 import util.Message;
 import util.Path;
@@ -71,6 +85,37 @@ public class Controller {
   private boolean isRunning = false;
   private boolean isModified = false;
 
+  /**
+   * Whether commands are read from a script rather than typed by a user, in
+   * which case no prompts are printed.
+   */
+  private boolean isBatch = false;
+
+  /**
+   * Whether this Controller is a session that shares its file system with
+   * other sessions.
+   */
+  private boolean isSession = false;
+
+  /**
+   * The journal that keeps the file system durable, or null if it is only
+   * kept in memory.
+   */
+  private Journal journal;
+
+  /**
+   * Where the commands run by this Controller, and by every session of its
+   * file system, are recorded.
+   */
+  private CommandMetrics metrics;
+
+  /**
+   * The streams that messages of this Controller itself are printed to, the
+   * standard ones unless it is a session.
+   */
+  private PrintStream out = System.out;
+  private PrintStream err = System.err;
+
   /**
    * The sole constructor.
    */
@@ -79,21 +124,112 @@ public class Controller {
 
   /**
    * Setups this Controller so that the helper objects and {@code
-   * commandsHashMap} are initialized.
+   * commandsHashMap} are initialized, and commands are read interactively from
+   * the standard input.
    *
    * @return 0 if successful, 1 otherwise.
    */
   int setup() {
+    return setup(System.in, false);
+  }
 
-    // Setup the helper instances
-    defaultInputParser = new InputParser();
-    pathInterpreter = new PathInterpreter(this);
-    errorHandler = new ErrorHandler();
+  /**
+   * Setups this Controller so that the helper objects and {@code
+   * commandsHashMap} are initialized, and commands are read from {@code in}.
+   *
+   * @param in      The stream that commands are read from.
+   * @param isBatch {@code true} if {@code in} is a script rather than a user,
+   *                so that no prompts are printed and the number of commands
+   *                run per second is reported at the end.
+   * @return 0 if successful, 1 otherwise.
+   */
+  int setup(InputStream in, boolean isBatch) {
+    this.isBatch = isBatch;
+    setupFileSystem();
+    setupHelpers(in, System.out, System.err, null);
+    return 0;
+  }
+
+  /**
+   * Setups this Controller as an engine, with a file system of its own that
+   * commands are given to one at a time by {@code execute} rather than read
+   * from a stream. Each line a command prints is written to {@code printed},
+   * and errors are printed to {@code err}. An engine is running as soon as it
+   * is set up, until the exit command.
+   *
+   * @param printed Receives the lines that commands print.
+   * @param err     The stream that errors are printed to.
+   * @return 0 if successful, 1 otherwise.
+   */
+  int setup(OutputSink printed, PrintStream err) {
+    isBatch = true;
+    setupFileSystem();
+    setupHelpers(InputStream.nullInputStream(),
+        new PrintStream(OutputStream.nullOutputStream()), err, printed);
+    isRunning = true;
+    return 0;
+  }
+
+  /**
+   * Creates an empty file system, with the root directory as the working
+   * directory, and the metrics its commands are recorded in.
+   */
+  private void setupFileSystem() {
     defaultFileEditor = new FileEditor();
     defaultFileManager = new FileManager(defaultFileEditor);
-    defaultOutputHandler = new OutputHandler(pathInterpreter);
-    inputReader = new InputReader(defaultInputParser);
-    defaultCommandExecutor = new CommandExecutor(defaultOutputHandler);
+    metrics = new CommandMetrics();
+    rootDir = new Directory("/", defaultFileManager);
+    workingDir = rootDir;
+  }
+
+  /**
+   * Setups this Controller as one more session of the file system of {@code
+   * shared}. It has a working directory, history and directory stack of its
+   * own, but the root directory, the journal and the command metrics are those
+   * of {@code shared}.
+   * Commands are read from {@code in} without any prompts, and everything
+   * printed, errors included, is written to {@code out}. A session is running
+   * as soon as it is set up, until the exit command.
+   *
+   * @param in     The stream that commands are read from.
+   * @param out    The stream that everything printed is written to.
+   * @param shared The Controller whose file system is used.
+   * @return 0 if successful, 1 otherwise.
+   */
+  int setup(InputStream in, OutputStream out, Controller shared) {
+    isBatch = true;
+    isSession = true;
+    rootDir = shared.getRootDir();
+    workingDir = rootDir;
+    journal = shared.journal;
+    metrics = shared.metrics;
+    defaultFileManager = rootDir.getFileManager();
+    defaultFileEditor = shared.getDefaultFileEditor();
+    PrintStream printer = new PrintStream(out, true);
+    setupHelpers(in, printer, printer, null);
+    isRunning = true;
+    return 0;
+  }
+
+  /**
+   * Initializes the helper objects and {@code commandsHashMap}, once the file
+   * manager and the file editor are there. The lines commands print go to
+   * {@code printed} if it is not null, or are printed to {@code out}
+   * otherwise.
+   */
+  private void setupHelpers(InputStream in, PrintStream out,
+      PrintStream err, OutputSink printed) {
+    this.out = out;
+    this.err = err;
+    defaultInputParser = new InputParser();
+    pathInterpreter = new PathInterpreter(this);
+    errorHandler = new ErrorHandler(err);
+    defaultOutputHandler = printed == null
+        ? new OutputHandler(pathInterpreter, out)
+        : new OutputHandler(pathInterpreter, printed);
+    inputReader = new InputReader(defaultInputParser, in);
+    defaultCommandExecutor = new CommandExecutor(defaultOutputHandler,
+        metrics);
 
     // Setup commands
     CommCat.getInstance(this);
@@ -115,19 +251,33 @@ public class Controller {
     CommTree.getInstance(this);
     CommSearch.getInstance(this);
     CommCurl.getInstance(this);
+    CommStats.getInstance(this, metrics);
+
+    // These read the output of the command before them in a pipeline
+    CommGrep.getInstance(this);
+    CommHead.getInstance(this);
+    CommSort.getInstance(this);
+    CommWc.getInstance(this);
 
     // These three share one array list to store history
     CommHistory.getInstance(this, histories);
-    CommSaveJShellSer.getInstance(this, histories, pathStack);
-    CommLoadJShellSer.getInstance(this, histories, pathInterpreter, pathStack);
+    CommSaveJShell.getInstance(this, histories, pathStack);
+    CommLoadJShell.getInstance(this, histories, pathInterpreter, pathStack);
 
     CommMan.getInstance(this, commandsHashMap);
+  }
 
-    // Setup the root directory
-    rootDir = new Directory("/", defaultFileManager);
+  /**
+   * Rebuilds the file system from {@code journal}, and keeps every later
+   * change to it in {@code journal}. Must be called after {@code setup}.
+   *
+   * @param journal The journal of the file system.
+   * @throws IOException if the file system cannot be rebuilt.
+   */
+  public void useJournal(Journal journal) throws IOException {
+    rootDir = journal.recover(defaultFileManager);
     workingDir = rootDir;
-
-    return 0;
+    this.journal = journal;
   }
 
   /**
@@ -140,38 +290,125 @@ public class Controller {
   }
 
   /**
-   * Starts this Controller.
+   * Returns the command registered as {@code alias}.
+   *
+   * @param alias the alias of the command
+   * @return the command, or null if there is none
+   */
+  public AbstractCommand getCommand(String alias) {
+    return commandsHashMap.get(alias);
+  }
+
+  /**
+   * Starts this Controller. It runs until the exit command, or until there is
+   * no more input.
    *
    * @return 0 if this Controller quits normally, 1 otherwise.
    */
   int run() {
     isRunning = true;
+    long start = System.nanoTime();
+    long commandCount = 0;
     while (isRunning) {
-      Message userInput = inputReader.getUserInput("/#: ");
-      histories.add(userInput.toString());
-      String commandName = userInput.getFirstString();
-      AbstractCommand commandInvoked = commandsHashMap.get(commandName);
-      if (commandInvoked == null) {
-        System.out.println("Command not found.");
-      } else {
-        try {
-          defaultCommandExecutor.invoke(commandInvoked, userInput);
-          if (commandName.equals("exit")) {
-            isRunning = false;
-          }
-        } catch (JShellException jse) {
-          errorHandler.resolve(jse);
-        } catch (Exception e) {
-          e.printStackTrace();
-          System.out.println();
-        }
-        isModified = true;
+      if (!isBatch) {
+        out.print("/#: ");
+        out.flush();
       }
+      Message userInput = inputReader.getUserInput();
+      if (userInput == null) {
+        break;
+      }
+      commandCount++;
+      execute(userInput);
+    }
+    isRunning = false;
+    if (isBatch) {
+      reportThroughput(commandCount, System.nanoTime() - start);
     }
     return 0;
   }
 
+  /**
+   * Runs the command in {@code userInput}, and commits the changes it made to
+   * the journal. Errors are printed rather than thrown.
+   *
+   * @param userInput The command line, as parsed by the input parser.
+   * @return true if the command succeeded, false otherwise.
+   */
+  boolean execute(Message userInput) {
+    histories.add(userInput.toString());
+    boolean isSuccessful = false;
+    try {
+      List<CommandNode> pipeline = defaultInputParser.parseCommands(
+          userInput,
+          alias -> CommandExecutor.flagsOf(commandsHashMap.get(alias)));
+      List<AbstractCommand> commands = new ArrayList<>(pipeline.size());
+      for (CommandNode command : pipeline) {
+        AbstractCommand commandInvoked =
+            commandsHashMap.get(command.getAlias());
+        if (commandInvoked == null) {
+          err.println("Command not found.");
+          return false;
+        }
+        commands.add(commandInvoked);
+      }
+      defaultCommandExecutor.invoke(commands, pipeline);
+      // Like in any shell, exit does nothing in a pipeline.
+      if (commands.size() == 1
+          && commands.get(0).getAlias().equals("exit")) {
+        isRunning = false;
+      }
+      isSuccessful = true;
+    } catch (JShellException jse) {
+      errorHandler.resolve(jse);
+    } catch (Exception e) {
+      e.printStackTrace(err);
+      err.println();
+    }
+    isModified = true;
+    commitJournal();
+    return isSuccessful;
+  }
+
+  /**
+   * Prints how many commands were run per second to the error stream, so that
+   * it does not mix with the output of the commands.
+   */
+  private void reportThroughput(long commandCount, long nanos) {
+    double seconds = nanos / 1e9;
+    err.printf("JShell: %d commands in %.3f s (%.0f commands/s)%n",
+        commandCount, seconds, seconds > 0 ? commandCount / seconds : 0);
+  }
+
+  /**
+   * Commits the changes made by the last command to the journal, if there is
+   * one. Failures are reported to the standard error, and the changes are
+   * kept to be committed with the next command.
+   */
+  private void commitJournal() {
+    if (journal != null) {
+      try {
+        journal.commit();
+      } catch (IOException e) {
+        err.println("JShell: journal: " + e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Closes the journal, if there is one.
+   *
+   * @return 0 if successful, 1 otherwise.
+   */
   int shut() {
+    if (journal != null) {
+      try {
+        journal.close();
+      } catch (IOException e) {
+        err.println("JShell: journal: " + e.getMessage());
+        return 1;
+      }
+    }
     return 0;
   }
 
@@ -191,6 +428,10 @@ public class Controller {
     return isModified;
   }
 
+  public boolean isSession() {
+    return isSession;
+  }
+
   public InputParser getDefaultInputParser() {
     return defaultInputParser;
   }
@@ -219,11 +460,31 @@ public class Controller {
     return pathInterpreter;
   }
 
+  public CommandMetrics getMetrics() {
+    return metrics;
+  }
+
   public void setWorkingDir(Directory workingDir) {
     this.workingDir = workingDir;
   }
 
+  /**
+   * Replaces the root directory, and journals the new tree instead of the old
+   * one if there is a journal.
+   *
+   * @param rootDir the new root directory
+   * @throws IllegalStateException if this Controller is a session, since
+   *                               the other sessions would keep using the old
+   *                               root directory.
+   */
   public void setRootDir(Directory rootDir) {
+    if (isSession) {
+      throw new IllegalStateException("A session cannot replace the root "
+          + "directory it shares");
+    }
     this.rootDir = rootDir;
+    if (journal != null) {
+      journal.attach(rootDir);
+    }
   }
 }
@@ -0,0 +1,217 @@
+package driver;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import util.Message;
+
+/**
+ * Serves one file system to many sessions at once over a Unix domain socket.
+ * <p>
+ * Every connection to the socket is a session with a Controller of its own, so
+ * that it has its own working directory, history and directory stack, while
+ * the root directory and the journal are shared by all of them. Each session
+ * runs on a thread of its own.
+ * <p>
+ * A client sends command lines exactly as they would be typed into the shell,
+ * each ended by a newline. For every command, in order, the daemon sends back
+ * what the shell would have printed for it, errors included, as UTF-8 in
+ * chunks of at most {@value #CHUNK_SIZE} bytes, each a line holding its length
+ * in decimal followed by that many bytes. The reply ends with a line {@code
+ * ok} or {@code error}, depending on whether the command succeeded. Output is
+ * sent while the command runs, so a session holds no more than a chunk and a
+ * buffer of it however much a command prints. A client may send many commands
+ * before reading any reply: the replies are only flushed once every command
+ * received so far has been run, so that a whole batch of commands costs a
+ * single round trip. The session ends after the exit command, or when the
+ * client closes the connection.
+ */
+public class Daemon {
+
+  /**
+   * The size of the buffer of replies of a session, in bytes.
+   */
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /**
+   * The most bytes of output sent in one chunk.
+   */
+  static final int CHUNK_SIZE = 1 << 13;
+
+  private final Controller shared;
+
+  private final Path socketPath;
+
+  private final ServerSocketChannel server;
+
+  /**
+   * The connections of the sessions that have not ended yet.
+   */
+  private final Set<SocketChannel> sessions = ConcurrentHashMap.newKeySet();
+
+  private int sessionCount = 0;
+
+  /**
+   * Creates a daemon that serves the file system of {@code shared} at {@code
+   * socketPath}, which must not exist yet. No session is accepted until
+   * {@code serve} is called.
+   *
+   * @param shared     The Controller whose file system is served.
+   * @param socketPath The path of the socket to be created.
+   * @throws IOException if the socket cannot be created.
+   */
+  public Daemon(Controller shared, String socketPath) throws IOException {
+    this.shared = shared;
+    this.socketPath = Path.of(socketPath);
+    server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+    try {
+      server.bind(UnixDomainSocketAddress.of(this.socketPath));
+    } catch (IOException e) {
+      server.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Accepts sessions and starts a thread for each of them, until this daemon
+   * is closed.
+   *
+   * @throws IOException if a connection cannot be accepted.
+   */
+  public void serve() throws IOException {
+    while (true) {
+      SocketChannel channel;
+      try {
+        channel = server.accept();
+      } catch (AsynchronousCloseException e) {
+        return;
+      }
+      sessions.add(channel);
+      Thread thread = new Thread(() -> runSession(channel),
+          "JShell session " + ++sessionCount);
+      thread.start();
+    }
+  }
+
+  /**
+   * Stops accepting sessions, ends every session that is still running and
+   * deletes the socket.
+   *
+   * @throws IOException if the socket cannot be closed or deleted.
+   */
+  public void close() throws IOException {
+    server.close();
+    for (SocketChannel channel : sessions) {
+      channel.close();
+    }
+    Files.deleteIfExists(socketPath);
+  }
+
+  /**
+   * Runs the commands received on {@code channel} until the session ends.
+   */
+  private void runSession(SocketChannel channel) {
+    try (channel) {
+      InputStream in = Channels.newInputStream(channel);
+      OutputStream out = new BufferedOutputStream(
+          Channels.newOutputStream(channel), BUFFER_SIZE);
+      ChunkedOutputStream printed = new ChunkedOutputStream(out);
+      Controller controller = new Controller();
+      controller.setup(in, printed, shared);
+      while (controller.isRunning()) {
+        Message userInput = controller.getInputReader().getUserInput();
+        if (userInput == null) {
+          break;
+        }
+        printed.end(controller.execute(userInput));
+        if (!controller.isRunning()
+            || !controller.getInputReader().isReady()) {
+          out.flush();
+        }
+      }
+    } catch (IOException | UncheckedIOException e) {
+      // The client went away, or the daemon was closed.
+    } finally {
+      sessions.remove(channel);
+    }
+  }
+
+  /**
+   * Sends what a command prints as chunks of the reply to it. Bytes are held
+   * until a chunk is full or the command ends, and flushing does not send a
+   * chunk, since the printers of a session flush after every line.
+   */
+  private static final class ChunkedOutputStream extends OutputStream {
+
+    private static final byte[] OK = "ok\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ERROR =
+        "error\n".getBytes(StandardCharsets.UTF_8);
+
+    private final OutputStream out;
+
+    /**
+     * The bytes of the next chunk, which are the first {@code count} of them.
+     */
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+
+    private int count;
+
+    private ChunkedOutputStream(OutputStream out) {
+      this.out = out;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      if (count == chunk.length) {
+        sendChunk();
+      }
+      chunk[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      while (len > 0) {
+        if (count == chunk.length) {
+          sendChunk();
+        }
+        int n = Math.min(len, chunk.length - count);
+        System.arraycopy(b, off, chunk, count, n);
+        count += n;
+        off += n;
+        len -= n;
+      }
+    }
+
+    /**
+     * Sends the bytes held, and then the line that ends the reply.
+     *
+     * @param isSuccessful whether the command succeeded
+     * @throws IOException if the reply cannot be sent.
+     */
+    private void end(boolean isSuccessful) throws IOException {
+      if (count > 0) {
+        sendChunk();
+      }
+      out.write(isSuccessful ? OK : ERROR);
+    }
+
+    private void sendChunk() throws IOException {
+      out.write((count + "\n").getBytes(StandardCharsets.UTF_8));
+      out.write(chunk, 0, count);
+      count = 0;
+    }
+  }
+}
@@ -0,0 +1,188 @@
+package driver;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * A session of a {@link Daemon}, seen from the client side.
+ * <p>
+ * Commands sent are kept in a buffer until a reply is received, so that
+ * sending many commands before receiving their replies pipelines them into a
+ * single round trip. A reply can be received whole, or streamed into an
+ * {@code OutputStream} chunk by chunk as the daemon sends it, so that a
+ * command that prints a lot need not be held in memory.
+ */
+public class DaemonClient implements Closeable {
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final SocketChannel channel;
+  private final InputStream in;
+  private final OutputStream out;
+
+  /**
+   * Connects to the daemon at {@code socketPath}, starting a new session.
+   *
+   * @param socketPath The path of the socket of the daemon.
+   * @throws IOException if the daemon cannot be connected to.
+   */
+  public DaemonClient(String socketPath) throws IOException {
+    channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+    try {
+      channel.connect(UnixDomainSocketAddress.of(Path.of(socketPath)));
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+    in = new BufferedInputStream(Channels.newInputStream(channel),
+        BUFFER_SIZE);
+    out = new BufferedOutputStream(Channels.newOutputStream(channel),
+        BUFFER_SIZE);
+  }
+
+  /**
+   * Sends {@code commandLine} to be run after the commands sent before it.
+   *
+   * @param commandLine a command line, without a newline
+   * @throws IOException if the command cannot be sent.
+   */
+  public void send(String commandLine) throws IOException {
+    out.write((commandLine + "\n").getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Returns the reply to the oldest command whose reply has not been received
+   * yet, sending every command sent before first.
+   *
+   * @return the reply to the command
+   * @throws IOException if the reply cannot be received.
+   */
+  public Reply receive() throws IOException {
+    ByteArrayOutputStream printed = new ByteArrayOutputStream();
+    boolean isSuccessful = receive(printed);
+    return new Reply(isSuccessful, printed.toString(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Writes the reply to the oldest command whose reply has not been received
+   * yet to {@code printed} as it arrives, sending every command sent before
+   * first.
+   *
+   * @param printed the stream that what the command printed is written to,
+   *                as UTF-8
+   * @return whether the command succeeded
+   * @throws IOException if the reply cannot be received or written.
+   */
+  public boolean receive(OutputStream printed) throws IOException {
+    out.flush();
+    byte[] chunk = null;
+    while (true) {
+      String line = readLine();
+      if (line.equals("ok")) {
+        return true;
+      } else if (line.equals("error")) {
+        return false;
+      }
+      int length;
+      try {
+        length = Integer.parseInt(line);
+      } catch (NumberFormatException e) {
+        throw new IOException("Bad reply line: " + line);
+      }
+      if (length < 0 || length > Daemon.CHUNK_SIZE) {
+        throw new IOException("Bad chunk length: " + line);
+      }
+      if (chunk == null) {
+        chunk = new byte[Daemon.CHUNK_SIZE];
+      }
+      if (in.readNBytes(chunk, 0, length) < length) {
+        throw new EOFException();
+      }
+      printed.write(chunk, 0, length);
+    }
+  }
+
+  /**
+   * Sends {@code commandLine} and returns its reply.
+   *
+   * @param commandLine a command line, without a newline
+   * @return the reply to the command
+   * @throws IOException if the command cannot be sent or its reply received.
+   */
+  public Reply run(String commandLine) throws IOException {
+    send(commandLine);
+    return receive();
+  }
+
+  /**
+   * Sends {@code commandLine} and writes its reply to {@code printed} as it
+   * arrives.
+   *
+   * @param commandLine a command line, without a newline
+   * @param printed     the stream that what the command printed is written
+   *                    to, as UTF-8
+   * @return whether the command succeeded
+   * @throws IOException if the command cannot be sent or its reply received.
+   */
+  public boolean run(String commandLine, OutputStream printed)
+      throws IOException {
+    send(commandLine);
+    return receive(printed);
+  }
+
+  private String readLine() throws IOException {
+    StringBuilder line = new StringBuilder();
+    int c;
+    while ((c = in.read()) != '\n') {
+      if (c < 0) {
+        throw new EOFException();
+      }
+      line.append((char) c);
+    }
+    return line.toString();
+  }
+
+  /**
+   * Ends the session.
+   *
+   * @throws IOException if the connection cannot be closed.
+   */
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  /**
+   * What a command printed, and whether it succeeded.
+   */
+  public static class Reply {
+
+    private final boolean isSuccessful;
+    private final String output;
+
+    private Reply(boolean isSuccessful, String output) {
+      this.isSuccessful = isSuccessful;
+      this.output = output;
+    }
+
+    public boolean isSuccessful() {
+      return isSuccessful;
+    }
+
+    public String getOutput() {
+      return output;
+    }
+  }
+}
@@ -29,12 +29,146 @@
 // *********************************************************
 package driver;
 
+import io.Journal;
+import io.Journal.Sync;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import util.CommandMetrics;
+
+/**
+ * Usage: JShell [--journal dir [--sync always|interval|never] [--checkpoint
+ * bytes]] [--batch [script] | --listen socket]
+ * <p>
+ * Without arguments, commands are read from the standard input, with a prompt
+ * before each of them if the shell is run from a terminal. With {@code
+ * --batch}, commands are read from {@code script}, or from the standard input
+ * if it is not given, without any prompts. Whenever no prompts are printed,
+ * the number of commands run per second is reported at the end.
+ * <p>
+ * With {@code --journal}, the file system is kept in the host directory
+ * {@code dir}: it is rebuilt from there on startup, and every change to it is
+ * written there as soon as the command making it finishes. {@code --sync}
+ * decides how often those changes are forced to the disk, {@code always} by
+ * default, and {@code --checkpoint} how many bytes of changes are collected
+ * before the whole file system is written again, 16 MiB by default.
+ * <p>
+ * With {@code --listen}, no commands are read from the standard input.
+ * Instead, the file system is served to any number of sessions at once over
+ * the Unix domain socket {@code socket}, as described in {@link Daemon}.
+ * <p>
+ * In every case, the numbers printed by the {@code stats} command are also
+ * exported over JMX, as the MBean {@code jshell:type=CommandMetrics}.
+ */
 public class JShell {
 
+  private static final long DEFAULT_CHECKPOINT_BYTES = 16L << 20;
+
   public static void main(String[] args) {
+    InputStream in = System.in;
+    boolean isBatch = System.console() == null;
+    String journalDir = null;
+    String socketPath = null;
+    Sync sync = Sync.ALWAYS;
+    long checkpointBytes = DEFAULT_CHECKPOINT_BYTES;
+    try {
+      for (int i = 0; i < args.length; i++) {
+        switch (args[i]) {
+          case "--journal":
+            journalDir = args[++i];
+            break;
+          case "--sync":
+            sync = Sync.valueOf(args[++i].toUpperCase());
+            break;
+          case "--checkpoint":
+            checkpointBytes = Long.parseLong(args[++i]);
+            break;
+          case "--batch":
+            isBatch = true;
+            if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+              in = new FileInputStream(args[++i]);
+            }
+            break;
+          case "--listen":
+            socketPath = args[++i];
+            break;
+          default:
+            System.err.println("JShell: unknown option " + args[i]);
+            return;
+        }
+      }
+    } catch (FileNotFoundException e) {
+      System.err.println("JShell: " + e.getMessage() + ": No such file");
+      return;
+    } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+      System.err.println("JShell: bad arguments");
+      return;
+    }
     Controller controller = new Controller();
-    controller.setup();
-    controller.run();
-    controller.shut();
+    controller.setup(in, isBatch);
+    if (journalDir != null) {
+      try {
+        controller.useJournal(new Journal(journalDir, sync, checkpointBytes));
+      } catch (IOException e) {
+        System.err.println("JShell: journal: " + e.getMessage());
+        return;
+      }
+    }
+    exportMetrics(controller);
+    if (socketPath == null) {
+      controller.run();
+      controller.shut();
+    } else {
+      serve(controller, socketPath);
+    }
+  }
+
+  /**
+   * Registers the command metrics of {@code controller} in the platform MBean
+   * server. That server takes a while to start, so it is done on a thread of
+   * its own, rather than before the first command can be run.
+   */
+  private static void exportMetrics(Controller controller) {
+    Thread thread = new Thread(() -> {
+      try {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(
+            controller.getMetrics(), CommandMetrics.OBJECT_NAME);
+      } catch (JMException e) {
+        System.err.println("JShell: metrics: " + e.getMessage());
+      }
+    }, "JShell metrics");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Serves the file system of {@code controller} at {@code socketPath} until
+   * the JVM is shut down, then removes the socket and closes the journal.
+   */
+  private static void serve(Controller controller, String socketPath) {
+    Daemon daemon;
+    try {
+      daemon = new Daemon(controller, socketPath);
+    } catch (IOException e) {
+      System.err.println("JShell: " + socketPath + ": " + e.getMessage());
+      controller.shut();
+      return;
+    }
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      try {
+        daemon.close();
+      } catch (IOException e) {
+        System.err.println("JShell: " + socketPath + ": " + e.getMessage());
+      }
+      controller.shut();
+    }));
+    try {
+      daemon.serve();
+    } catch (IOException e) {
+      System.err.println("JShell: " + socketPath + ": " + e.getMessage());
+    }
   }
 }
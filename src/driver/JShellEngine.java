@@ -0,0 +1,159 @@
+package driver;
+
+import io.OutputSink;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Runs commands on a file system of its own, and returns what they print as
+ * values instead of printing it.
+ * <p>
+ * Every engine has a Controller of its own, with its own root directory,
+ * working directory, history, directory stack and command metrics, so that
+ * any number of engines can be used in one JVM without seeing each other's
+ * files. Nothing is read from the standard input or written to the standard
+ * output or error. An engine is not safe to be used by many threads at once,
+ * but different engines can be used by different threads.
+ * <p>
+ * The output of a command is returned as the lines the command produced,
+ * collected before they are ever turned into text, so they come back exactly
+ * as they were, line separators inside them included.
+ * <p>
+ * For example:
+ * <pre>
+ *   JShellEngine engine = new JShellEngine();
+ *   engine.execute("mkdir dir1");
+ *   engine.execute("cd dir1");
+ *   engine.execute("pwd").getOutput();   // ["/dir1/"]
+ * </pre>
+ */
+public class JShellEngine {
+
+  private final Controller controller = new Controller();
+
+  /**
+   * The lines that the command being run has printed so far.
+   */
+  private List<String> output = new ArrayList<>();
+
+  /**
+   * What the command being run has printed to the error stream of {@code
+   * controller}, in UTF-8, which can encode any error message.
+   */
+  private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+  /**
+   * Creates an engine with an empty file system, whose working directory is
+   * the root directory.
+   */
+  public JShellEngine() {
+    controller.setup(new OutputSink() {
+      @Override
+      public void write(String line) {
+        output.add(line);
+      }
+
+      @Override
+      public void close() {
+      }
+    }, new PrintStream(err, true, StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Runs {@code commandLine} exactly as if it were typed into the shell, pipes
+   * and redirections included.
+   *
+   * @param commandLine The command line to be run.
+   * @return whether the command succeeded, with the lines it output and the
+   * errors it caused.
+   * @throws IllegalStateException if this engine has been exited.
+   */
+  public Result execute(String commandLine) {
+    if (!controller.isRunning()) {
+      throw new IllegalStateException("JShellEngine: exited");
+    }
+    boolean isSuccessful = controller.execute(
+        controller.getDefaultInputParser().parse(commandLine));
+    Result result = new Result(isSuccessful,
+        output.isEmpty() ? Collections.emptyList()
+            : Collections.unmodifiableList(output), errors());
+    output = new ArrayList<>();
+    err.reset();
+    return result;
+  }
+
+  /**
+   * Returns whether this engine still runs commands, which it does until the
+   * exit command.
+   *
+   * @return true if commands can still be run
+   */
+  public boolean isRunning() {
+    return controller.isRunning();
+  }
+
+  /**
+   * Returns the Controller that runs the commands of this engine, so that its
+   * file system can be looked at directly.
+   *
+   * @return the Controller of this engine
+   */
+  public Controller getController() {
+    return controller;
+  }
+
+  /**
+   * Returns the error messages printed to {@code err}, one for each line.
+   */
+  private List<String> errors() {
+    if (err.size() == 0) {
+      return Collections.emptyList();
+    }
+    List<String> errors = new ArrayList<>();
+    err.toString(StandardCharsets.UTF_8).lines().forEach(errors::add);
+    return Collections.unmodifiableList(errors);
+  }
+
+  /**
+   * What running one command line came to.
+   */
+  public static class Result {
+
+    private final boolean isSuccessful;
+    private final List<String> output;
+    private final List<String> errors;
+
+    private Result(boolean isSuccessful, List<String> output,
+        List<String> errors) {
+      this.isSuccessful = isSuccessful;
+      this.output = output;
+      this.errors = errors;
+    }
+
+    /**
+     * @return true if the command succeeded
+     */
+    public boolean isSuccessful() {
+      return isSuccessful;
+    }
+
+    /**
+     * @return the lines the command output, unless they were redirected to a
+     * file
+     */
+    public List<String> getOutput() {
+      return output;
+    }
+
+    /**
+     * @return the error messages the command caused
+     */
+    public List<String> getErrors() {
+      return errors;
+    }
+  }
+}
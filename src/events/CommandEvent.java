@@ -0,0 +1,36 @@
+package events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded by Flight Recorder for every command invoked, each command of a
+ * pipeline included. The event spans the whole command, flushing its output
+ * included, on the thread that ran it, so that the samples taken on that
+ * thread meanwhile can be tied to the command.
+ */
+@Name("jshell.Command")
+@Label("Command")
+@Category({"JShell", "Commands"})
+@Description("A shell command run from start to end")
+@StackTrace(false)
+public class CommandEvent extends jdk.jfr.Event {
+
+  @Label("Command")
+  @Description("The alias of the command")
+  public String command;
+
+  @Label("Argument Count")
+  @Description("The number of arguments, flags and redirections")
+  public int argumentCount;
+
+  @Label("Output Lines")
+  @Description("The number of lines output, to the console, a file or a pipe")
+  public long outputLines;
+
+  @Label("Successful")
+  public boolean successful;
+}
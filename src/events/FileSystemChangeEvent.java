@@ -0,0 +1,31 @@
+package events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Recorded by Flight Recorder for every change that a file manager makes to
+ * the elements it manages. The event spans the change, waiting for the write
+ * lock included.
+ */
+@Name("jshell.FileSystemChange")
+@Label("File System Change")
+@Category({"JShell", "File System"})
+@Description("A file or directory created, renamed, moved, inserted, removed "
+    + "or cleared")
+public class FileSystemChangeEvent extends jdk.jfr.Event {
+
+  @Label("Operation")
+  @Description("One of create, rename, move, insert, remove and clear")
+  public String operation;
+
+  @Label("Directory")
+  @Description("The path of the directory changed")
+  public String directory;
+
+  @Label("Name")
+  @Description("The name of the file or directory in it, if any")
+  public String name;
+}
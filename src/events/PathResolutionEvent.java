@@ -0,0 +1,38 @@
+package events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded by Flight Recorder for every path resolved to a file or directory.
+ * Paths are resolved very often, so this is off in the default settings of
+ * {@code jshell.jfc}, and has a threshold once turned on.
+ */
+@Name("jshell.PathResolution")
+@Label("Path Resolution")
+@Category({"JShell", "Paths"})
+@Description("A path resolved to a file or directory")
+@StackTrace(false)
+public class PathResolutionEvent extends jdk.jfr.Event {
+
+  @Label("Path")
+  public String path;
+
+  @Label("Depth")
+  @Description("The number of sections of the path")
+  public int depth;
+
+  @Label("Absolute")
+  public boolean absolute;
+
+  @Label("Cache Hit")
+  @Description("Whether the path was found among the recently resolved ones")
+  public boolean cacheHit;
+
+  @Label("Found")
+  @Description("Whether the path leads to an existing file or directory")
+  public boolean found;
+}
@@ -0,0 +1,32 @@
+package events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Recorded by Flight Recorder whenever a snapshot of the file system is
+ * written to or read from a host file, by the save and load commands as well
+ * as by journal checkpoints. Directories of a snapshot are read when first
+ * visited, so a load only spans reading the names and the root directory.
+ */
+@Name("jshell.Snapshot")
+@Label("Snapshot")
+@Category({"JShell", "Persistence"})
+@Description("A snapshot of the file system saved or loaded")
+public class SnapshotEvent extends jdk.jfr.Event {
+
+  @Label("Operation")
+  @Description("Either save or load")
+  public String operation;
+
+  @Label("Path")
+  @Description("The path of the host file")
+  public String path;
+
+  @Label("Size")
+  @DataAmount
+  public long bytes;
+}
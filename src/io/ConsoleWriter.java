@@ -0,0 +1,149 @@
+package io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.CoderResult;
+
+/**
+ * A buffered writer that encodes what is written to it into a stream, in the
+ * default charset, as a {@code BufferedWriter} over an {@code
+ * OutputStreamWriter} would.
+ * <p>
+ * The characters are encoded from one buffer into another, both kept for as
+ * long as the writer is, so that writing and flushing allocate nothing, as
+ * the console is flushed after every command. Characters that cannot be
+ * encoded are replaced.
+ */
+class ConsoleWriter extends Writer {
+
+  private final OutputStream out;
+
+  private final CharsetEncoder encoder;
+
+  /**
+   * The characters written but not encoded yet, which are the first {@code
+   * count} of them.
+   */
+  private final char[] chars;
+
+  private int count;
+
+  /**
+   * The view of {@code chars} that the encoder reads.
+   */
+  private final CharBuffer charView;
+
+  /**
+   * The bytes encoded but not written to {@code out} yet.
+   */
+  private final ByteBuffer bytes;
+
+  /**
+   * Constructs a writer to {@code out} that holds up to {@code size}
+   * characters before it encodes them.
+   *
+   * @param out  The stream that the encoded characters are written to.
+   * @param size The size of the buffer in characters.
+   */
+  ConsoleWriter(OutputStream out, int size) {
+    this.out = out;
+    this.encoder = Charset.defaultCharset().newEncoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    this.chars = new char[size];
+    this.charView = CharBuffer.wrap(chars);
+    this.bytes = ByteBuffer.allocate(size);
+  }
+
+  @Override
+  public void write(int c) throws IOException {
+    synchronized (lock) {
+      if (count == chars.length) {
+        encode(false);
+      }
+      chars[count++] = (char) c;
+    }
+  }
+
+  @Override
+  public void write(char[] cbuf, int off, int len) throws IOException {
+    synchronized (lock) {
+      while (len > 0) {
+        if (count == chars.length) {
+          encode(false);
+        }
+        int n = Math.min(len, chars.length - count);
+        System.arraycopy(cbuf, off, chars, count, n);
+        count += n;
+        off += n;
+        len -= n;
+      }
+    }
+  }
+
+  @Override
+  public void write(String str, int off, int len) throws IOException {
+    synchronized (lock) {
+      while (len > 0) {
+        if (count == chars.length) {
+          encode(false);
+        }
+        int n = Math.min(len, chars.length - count);
+        str.getChars(off, off + n, chars, count);
+        count += n;
+        off += n;
+        len -= n;
+      }
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    synchronized (lock) {
+      encode(false);
+      out.flush();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    synchronized (lock) {
+      encode(true);
+      while (encoder.flush(bytes).isOverflow()) {
+        writeBytes();
+      }
+      writeBytes();
+      out.close();
+    }
+  }
+
+  /**
+   * Encodes the characters in {@code chars} and writes them to {@code out}.
+   * Unless {@code isLast}, the first half of a surrogate pair at the end is
+   * kept until the rest of it is written.
+   */
+  private void encode(boolean isLast) throws IOException {
+    charView.limit(count).position(0);
+    CoderResult result;
+    do {
+      result = encoder.encode(charView, bytes, isLast);
+      writeBytes();
+    } while (result.isOverflow());
+    int left = charView.remaining();
+    System.arraycopy(chars, charView.position(), chars, 0, left);
+    count = left;
+  }
+
+  private void writeBytes() throws IOException {
+    if (bytes.position() > 0) {
+      out.write(bytes.array(), 0, bytes.position());
+      bytes.clear();
+    }
+  }
+}
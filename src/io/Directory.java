@@ -2,9 +2,17 @@ package io;
 
 import exceptions.DuplicateException;
 import exceptions.IllegalNameException;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Predicate;
 import java.util.Objects;
 
 /**
@@ -16,11 +24,47 @@ import java.util.Objects;
 public class Directory extends FolderElement implements
     Iterable<FolderElement>, Serializable {
 
-  private static final long serialVersionUID = 5779317454779697768L;
+  private static final long serialVersionUID = 3315947528046290187L;
   /**
-   * List of files and directories that are directly in this directory.
+   * Files and directories that are directly in this directory, keyed by their
+   * names. The map keeps insertion order, so iterating over it lists the
+   * elements in the order they were added, while lookups, insertions,
+   * removals and renames by name take constant time regardless of the size of
+   * this directory.
    */
-  final ArrayList<FolderElement> contents;
+  private final Listing contents;
+
+  /**
+   * Where the elements of this directory are read from the first time they
+   * are needed, or null if they are all in {@code contents} already.
+   */
+  private transient DirectorySource source;
+
+  /**
+   * The number of this directory in {@code source}.
+   */
+  private transient int sourceNumber;
+
+  /**
+   * The directory this one is a copy of, whose elements are copied the first
+   * time the elements of this directory are needed, or null if they have
+   * been copied already.
+   */
+  private transient Directory original;
+
+  /**
+   * Copies of this directory that have not copied its elements yet, or null
+   * if there are none. They are only weakly referenced, so that a copy that
+   * is thrown away before being used does not stay in memory.
+   */
+  private transient List<WeakReference<Directory>> pendingCopies;
+
+  /**
+   * Whether the elements of this directory are still to be read or copied.
+   * It is only cleared once they all are, so a thread that sees it cleared
+   * also sees every element.
+   */
+  private transient volatile boolean pending;
 
   /**
    * Constructs a new Directory of name {@code name}, and parent Directory
@@ -30,7 +74,7 @@ public class Directory extends FolderElement implements
    * @param parentDir the parent directory of this instance
    */
   public Directory(String name, Directory parentDir, FileManager fileManager) {
-    this.contents = new ArrayList<>();
+    this.contents = new Listing();
     this.name = name;
     this.parentDir = parentDir;
     this.fileManager = fileManager;
@@ -43,37 +87,171 @@ public class Directory extends FolderElement implements
    * @param name the name of this instance
    */
   public Directory(String name, FileManager fileManager) {
-    this.contents = new ArrayList<>();
+    this.contents = new Listing();
     this.name = name;
     this.parentDir = this;
     this.fileManager = fileManager;
   }
 
+  /**
+   * Makes this empty directory read its elements from directory number {@code
+   * number} of {@code source} the first time they are needed.
+   *
+   * @param source the snapshot the elements are read from
+   * @param number the number of this directory in {@code source}
+   */
+  void readLater(DirectorySource source, int number) {
+    this.source = source;
+    this.sourceNumber = number;
+    pending = true;
+  }
+
+  /**
+   * Returns the elements directly in this directory keyed by their names,
+   * reading them first if they have not been read yet. Everything that looks
+   * at the elements of a directory goes through here, holding either lock of
+   * the file manager.
+   * <p>
+   * Several readers may find the elements missing at once, so they are read
+   * while holding the monitor of the file manager, by whichever reader gets
+   * there first.
+   *
+   * @return the map of the elements of this directory
+   */
+  Listing contents() {
+    if (pending) {
+      synchronized (fileManager) {
+        fill();
+      }
+    }
+    return contents;
+  }
+
+  /**
+   * Reads or copies the elements of this directory, unless another thread
+   * already has. Reading adds elements through this directory, which comes
+   * back here and does nothing.
+   */
+  private void fill() {
+    if (source != null) {
+      DirectorySource from = source;
+      source = null;
+      try {
+        from.read(this, sourceNumber);
+      } finally {
+        pending = false;
+      }
+    } else if (original != null) {
+      Directory from = original;
+      original = null;
+      if (from.pendingCopies != null) {
+        from.pendingCopies.removeIf(ref -> ref.get() == this);
+      }
+      try {
+        fileManager.fillCopy(this, from);
+      } finally {
+        pending = false;
+      }
+    }
+  }
+
+  /**
+   * Returns the elements of this directory, for callers that hold a lock of
+   * the file manager already and do not need a copy to iterate over.
+   *
+   * @return the elements directly in this directory
+   */
+  Collection<FolderElement> elements() {
+    return contents().values();
+  }
+
+  /**
+   * Makes this empty directory a copy of {@code original} as it is now,
+   * without copying anything yet. The elements are copied the first time they
+   * are needed, or before {@code original} changes, whichever comes first.
+   * The caller holds the monitor of the file manager.
+   *
+   * @param original the directory to be copied
+   */
+  void copyLater(Directory original) {
+    // The elements of the original must be there to see it change.
+    original.contents();
+    this.original = original;
+    if (original.pendingCopies == null) {
+      original.pendingCopies = new ArrayList<>(1);
+    } else if (Integer.bitCount(original.pendingCopies.size()) == 1) {
+      // Copies thrown away unfilled leave cleared references behind. Dropping
+      // them only as the list doubles keeps copying in constant time.
+      int size = original.pendingCopies.size();
+      original.pendingCopies.removeIf(ref -> ref.get() == null);
+      fileManager.forgetCopies(size - original.pendingCopies.size());
+    }
+    original.pendingCopies.add(new WeakReference<>(this));
+    pending = true;
+  }
+
+  /**
+   * @return the directory this one is a copy of, if it has not copied any
+   * elements from it yet, or null otherwise.
+   */
+  Directory getPendingOriginal() {
+    return original;
+  }
+
+  /**
+   * @return whether some copy of this directory may not have copied its
+   * elements yet.
+   */
+  boolean hasPendingCopies() {
+    return pendingCopies != null;
+  }
+
+  /**
+   * Makes every copy of this directory that has not copied its elements yet
+   * copy them now, because they are about to change. The caller holds the
+   * write lock of the file manager.
+   */
+  void fillPendingCopies() {
+    if (pendingCopies != null) {
+      List<WeakReference<Directory>> copies = pendingCopies;
+      pendingCopies = null;
+      int cleared = 0;
+      for (WeakReference<Directory> ref : copies) {
+        Directory copy = ref.get();
+        if (copy != null) {
+          copy.contents();
+        } else {
+          cleared++;
+        }
+      }
+      fileManager.forgetCopies(cleared);
+    }
+  }
+
   /**
    * Returns whether {@code that} is an ancestor of this directory. An ancestor
    * is a directory that has this directory as a sub directory either directly
    * or non-directly.
    * <p>
-   * This implementation is based on the fact that the absolute paths of the
-   * ancestor must be strictly a substring of the descendant's. Back tracing is
-   * inefficient, because each equals() call performs a recursive comparison.
+   * Ancestors are compared by identity, not by name, so a directory in another
+   * tree that happens to have the same path is never an ancestor. This
+   * implementation compares the depths of the two directories first, then
+   * walks up exactly that many parents from this directory, which takes time
+   * proportional to the depth of this directory and allocates nothing.
    *
    * @return {@code true} if {@code that} is an ancestor of this directory.
    */
   public boolean isDescendantOf(FolderElement that) {
-    if (that instanceof File) {
+    if (!(that instanceof Directory)) {
       return false;
     }
-    Iterator<String> itr1 = this.getPathToThis().iterator();
-    Iterator<String> itr2 = that.getPathToThis().iterator();
-    while (itr1.hasNext() && itr2.hasNext()) {
-      String s1 = itr1.next();
-      String s2 = itr2.next();
-      if (!s1.equals(s2)) {
-        return false;
-      }
+    Lock lock = readLock();
+    lock.lock();
+    try {
+      return isUnder((Directory) that);
+    } finally {
+      lock.unlock();
     }
-    return itr1.hasNext();
   }
 
   /**
@@ -133,12 +311,7 @@ public class Directory extends FolderElement implements
    * @param name the name of the element to be removed.
    */
   public void removeElement(String name) {
-    for (FolderElement fe : contents) {
-      if (fe.getName().equals(name)) {
-        contents.remove(fe);
-        break;
-      }
-    }
+    fileManager.remove(this, name);
   }
 
   /**
@@ -158,12 +331,63 @@ public class Directory extends FolderElement implements
    * doesn't exist.
    */
   public FolderElement getElementByName(String name) {
-    for (FolderElement fe : contents) {
-      if (fe.name.equals(name)) {
-        return fe;
-      }
+    Lock lock = readLock();
+    lock.lock();
+    try {
+      return contents().get(name);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns every file or directory named {@code name} inside this directory,
+   * either directly or in any of its sub directories, in the order a
+   * depth-first walk of this directory would visit them. This directory itself
+   * is not included.
+   * <p>
+   * The elements are looked up in the name index of the file manager, so this
+   * takes time proportional to the number of elements named {@code name}
+   * rather than to the size of this directory.
+   *
+   * @param type 'f' to find files only, or 'd' to find directories only
+   * @param name the name of the elements to find
+   * @return the elements found, possibly empty
+   * @throws IllegalArgumentException if type is neither 'f' or 'd'.
+   */
+  public List<FolderElement> findElements(char type, String name) {
+    return fileManager.find(this, type, name);
+  }
+
+  /**
+   * Returns every file or directory inside this directory whose name starts
+   * with {@code prefix} and is accepted by {@code names}, in the order a
+   * depth-first walk of this directory would visit them. This directory itself
+   * is not included.
+   *
+   * @param type   'f' to find files only, or 'd' to find directories only
+   * @param prefix the text all names of interest start with, possibly empty
+   * @param names  decides which names are wanted
+   * @return the elements found, possibly empty
+   * @throws IllegalArgumentException if type is neither 'f' or 'd'.
+   * @see FileManager#find(Directory, char, String, Predicate)
+   */
+  public List<FolderElement> findElements(char type, String prefix,
+      Predicate<String> names) {
+    return fileManager.find(this, type, prefix, names);
+  }
+
+  /**
+   * @return the number of files and directories directly in this directory.
+   */
+  public int size() {
+    Lock lock = readLock();
+    lock.lock();
+    try {
+      return contents().size();
+    } finally {
+      lock.unlock();
     }
-    return null;
   }
 
   /**
@@ -171,6 +395,12 @@ public class Directory extends FolderElement implements
    * name, contents, and file manager with this file, but its parent directory
    * is undefined.
    * <p>
+   * The copy is made lazily, so this takes constant time no matter how large
+   * this directory is: each directory of the copy only copies the elements of
+   * its original when they are first needed, or right before anything inside
+   * the original changes, so the copy always looks the way this directory
+   * does now. Files share their contents until either of them is written.
+   * <p>
    * Remember to assign a parent directory to the copied directory afterwards.
    *
    * @return a deep copy of this directory but with undefined parent directory.
@@ -207,27 +437,79 @@ public class Directory extends FolderElement implements
       return false;
     }
     Directory that = (Directory) o;
-    return contents.size() == that.contents.size()
-        && contents.containsAll(that.contents);
+    Lock lock = readLock();
+    Lock thatLock = that.readLock();
+    lock.lock();
+    thatLock.lock();
+    try {
+      return contents().equals(that.contents());
+    } finally {
+      thatLock.unlock();
+      lock.unlock();
+    }
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(super.hashCode(), contents);
+    Lock lock = readLock();
+    lock.lock();
+    try {
+      return Objects.hash(super.hashCode(), contents());
+    } finally {
+      lock.unlock();
+    }
   }
 
   @Override
   public String toString() {
-    return "Directory{" +
-        "name='" + name + '\'' +
-        ", contents=" + contents +
-        ", parentDir=" + parentDir.getName() +
-        '}';
+    Lock lock = readLock();
+    lock.lock();
+    try {
+      return "Directory{" +
+          "name='" + name + '\'' +
+          ", contents=" + contents().values() +
+          ", parentDir=" + parentDir.getName() +
+          '}';
+    } finally {
+      lock.unlock();
+    }
   }
 
+  /**
+   * Returns an iterator over the elements directly in this directory, as they
+   * are when this is called. Changes made to this directory afterwards, by
+   * this thread or any other, do not affect the iteration, and the iterator
+   * cannot remove elements.
+   * <p>
+   * The elements are iterated from an array that this directory keeps until
+   * it next changes, so iterating over it again copies nothing.
+   *
+   * @return an iterator over the elements of this directory as they are now
+   */
   @Override
   public Iterator<FolderElement> iterator() {
-    return contents.iterator();
+    Lock lock = readLock();
+    lock.lock();
+    try {
+      return Arrays.asList(contents().snapshot()).iterator();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Reads the elements of this directory before it is serialized, so that
+   * they are written as well.
+   */
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    Lock lock = readLock();
+    lock.lock();
+    try {
+      contents();
+      out.defaultWriteObject();
+    } finally {
+      lock.unlock();
+    }
   }
 
 }
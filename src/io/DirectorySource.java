@@ -0,0 +1,118 @@
+package io;
+
+import exceptions.DuplicateException;
+import exceptions.IllegalNameException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * The directories of a memory-mapped snapshot that have not been read yet.
+ * <p>
+ * Every directory of such a snapshot is stored as a record that lists its
+ * elements, with the contents of each file and the number of each sub
+ * directory. A table at the end of the snapshot maps each number to the
+ * position of its record, and the root directory has the highest number. A
+ * directory read from the snapshot starts out empty, and only reads its
+ * record the first time its elements are asked for, at which point its sub
+ * directories are created empty in turn. Opening a snapshot thus takes the
+ * same time no matter how large it is, and a session only ever reads the
+ * directories it visits.
+ */
+class DirectorySource {
+
+  private final SnapshotInput in;
+
+  private final String[] names;
+
+  /**
+   * The position of the table of record positions.
+   */
+  private final long indexPosition;
+
+  /**
+   * The number of directories in the snapshot.
+   */
+  private final int count;
+
+  /**
+   * Reads the table of record positions of the snapshot {@code in}.
+   *
+   * @param in    The whole snapshot.
+   * @param names The name table of the snapshot.
+   * @throws IOException if the table is corrupt.
+   */
+  DirectorySource(SnapshotInput in, String[] names) throws IOException {
+    this.in = in;
+    this.names = names;
+    long end = in.size() - Long.BYTES;
+    if (end < 0) {
+      throw new IOException("Corrupt snapshot: no directory index");
+    }
+    indexPosition = in.at(end).readLong();
+    if (indexPosition < 0 || indexPosition > end
+        || (end - indexPosition) % Long.BYTES != 0
+        || (end - indexPosition) / Long.BYTES > Integer.MAX_VALUE) {
+      throw new IOException("Corrupt snapshot: bad directory index");
+    }
+    count = (int) ((end - indexPosition) / Long.BYTES);
+    if (count == 0) {
+      throw new IOException("Corrupt snapshot: no root directory");
+    }
+  }
+
+  /**
+   * Returns the root directory of the snapshot, none of whose elements has
+   * been read yet.
+   *
+   * @param name        The name of the root directory.
+   * @param fileManager The file manager of the file system read.
+   * @return the root directory
+   */
+  Directory getRoot(String name, FileManager fileManager) {
+    Directory root = new Directory(name, fileManager);
+    root.readLater(this, count - 1);
+    return root;
+  }
+
+  /**
+   * Adds the elements of directory number {@code number} to {@code dir}.
+   * The caller holds the monitor of the file manager, and may hold only its
+   * read lock, so elements are added without taking the write lock.
+   *
+   * @throws UncheckedIOException if the record of the directory is corrupt.
+   */
+  void read(Directory dir, int number) {
+    // Reading elements that are already saved is not a change to journal.
+    FileManager fileManager = dir.getFileManager();
+    fileManager.pauseJournal();
+    try {
+      SnapshotInput record = in.at(in.at(indexPosition
+          + (long) number * Long.BYTES).readLong());
+      int size = record.readLength();
+      for (int i = 0; i < size; i++) {
+        long header = record.readVarint();
+        String name = Snapshot.name(names, header);
+        if ((header & 1) == 1) {
+          int sub = record.readLength();
+          // Sub directories are written first, so this cannot form a cycle.
+          if (sub >= number) {
+            throw new IOException("Corrupt snapshot: directory " + sub
+                + " listed in directory " + number);
+          }
+          ((Directory) fileManager.create(dir, 'd', name))
+              .readLater(this, sub);
+        } else {
+          ((File) fileManager.create(dir, 'f', name))
+              .setContents(record.readString());
+        }
+      }
+    } catch (DuplicateException | IllegalNameException e) {
+      throw new UncheckedIOException(new IOException("Corrupt snapshot: "
+          + e.getMessage(), e));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      fileManager.resumeJournal();
+    }
+  }
+}
@@ -1,7 +1,10 @@
 package io;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.Objects;
+import java.util.concurrent.locks.Lock;
 
 /**
  * One of the two sub-classes of {@code FolderElement}.
@@ -11,11 +14,26 @@ import java.util.Objects;
  */
 public class File extends FolderElement implements Serializable {
 
-  private static final long serialVersionUID = 2485114444758456300L;
+  private static final long serialVersionUID = 7069324040912058672L;
   /**
-   * A string that shows the contents of the the file.
+   * The largest buffer kept when the file is cleared, so that a file cleared
+   * and appended to over and over again does not need a new buffer every
+   * time, while a large buffer is not kept alive for a small file.
    */
-  private String contents;
+  private static final int KEPT_CAPACITY = 4096;
+  /**
+   * A growable buffer that holds the contents of the the file. Appending to
+   * it takes amortized constant time, no matter how large the file is. It is
+   * null until the file is first appended to, so that files that are only
+   * ever overwritten or copied can share their contents as a string.
+   */
+  private StringBuilder contents;
+  /**
+   * The contents of this file as a string, built from {@code contents} on
+   * demand and kept until the next modification. Strings cannot change, so
+   * a copy of this file shares this string until either file is written.
+   */
+  private transient String cachedContents;
   /**
    * A FileEditor dedicated to modify the contents of a file..
    */
@@ -30,7 +48,7 @@ public class File extends FolderElement implements Serializable {
       FileManager fileManager, FileEditor fileEditor) {
     this.name = name;
     this.parentDir = parentDir;
-    this.contents = "";
+    this.cachedContents = "";
     this.fileManager = fileManager;
     this.fileEditor = fileEditor;
   }
@@ -62,16 +80,48 @@ public class File extends FolderElement implements Serializable {
    * @return {@code contents} of this file
    */
   public String getContents() {
-    return contents;
+    Lock lock = readLock();
+    lock.lock();
+    try {
+      // Readers may race to build the string, but they all build the same.
+      String cached = cachedContents;
+      if (cached == null) {
+        cached = contents.toString();
+        cachedContents = cached;
+      }
+      return cached;
+    } finally {
+      lock.unlock();
+    }
   }
 
   void setContents(String contents) {
-    this.contents = contents;
+    if (contents.isEmpty() && this.contents != null
+        && this.contents.capacity() <= KEPT_CAPACITY) {
+      // Keep the buffer of a file that is cleared to be written again, as a
+      // redirection does.
+      this.contents.setLength(0);
+    } else {
+      this.contents = null;
+    }
+    this.cachedContents = contents;
+  }
+
+  void appendContents(String str) {
+    if (str.isEmpty()) {
+      return;
+    }
+    if (contents == null) {
+      contents = new StringBuilder(cachedContents);
+    }
+    this.contents.append(str);
+    this.cachedContents = null;
   }
 
   /**
    * Returns a copy of this file. The returned file has the same name, contents,
-   * and file editor with this file, but its parent directory is undefined.
+   * and file editor with this file, but its parent directory is undefined. The
+   * contents are shared rather than copied.
    * <p>
    * Remember to assign a parent directory to the copied file afterwards.
    *
@@ -79,7 +129,7 @@ public class File extends FolderElement implements Serializable {
    */
   public File copy() {
     File copy = new File(name, null, fileManager, fileEditor);
-    copy.overwriteContentsAs(contents);
+    copy.cachedContents = getContents();
     return copy;
   }
 
@@ -95,11 +145,28 @@ public class File extends FolderElement implements Serializable {
       return false;
     }
     File file = (File) o;
-    return Objects.equals(contents, file.contents);
+    return getContents().equals(file.getContents());
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(super.hashCode(), contents);
+    return Objects.hash(super.hashCode(), getContents());
+  }
+
+  /**
+   * Makes sure the contents are in {@code contents} before this file is
+   * serialized, since {@code cachedContents} is not written.
+   */
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    Lock lock = readLock();
+    lock.lock();
+    try {
+      if (contents == null) {
+        contents = new StringBuilder(getContents());
+      }
+      out.defaultWriteObject();
+    } finally {
+      lock.unlock();
+    }
   }
 }
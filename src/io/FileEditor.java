@@ -1,6 +1,7 @@
 package io;
 
 import java.io.Serializable;
+import java.util.concurrent.locks.Lock;
 
 /**
  * This class modifies the contents of a given file.
@@ -10,12 +11,29 @@ public class FileEditor implements Serializable {
   private static final long serialVersionUID = -743313815130185422L;
 
   void modFile(File f, char mode, String str) throws IllegalArgumentException {
+    if (mode != 'o' && mode != 'a') {
+      throw new IllegalArgumentException("Unknown operation: " + mode);
+    }
+    if (f.fileManager == null) {
+      change(f, mode, str);
+      return;
+    }
+    Lock lock = f.fileManager.getLock().writeLock();
+    lock.lock();
+    try {
+      f.fileManager.editing(f);
+      change(f, mode, str);
+      f.fileManager.edited(f, mode, str);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private static void change(File f, char mode, String str) {
     if (mode == 'o') {
       f.setContents(str);
-    } else if (mode == 'a') {
-      f.setContents((f.getContents() == null ? "" : f.getContents()) + str);
     } else {
-      throw new IllegalArgumentException("Unknown operation: " + mode);
+      f.appendContents(str);
     }
   }
 
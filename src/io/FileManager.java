@@ -1,13 +1,33 @@
 package io;
 
+import events.FileSystemChangeEvent;
 import exceptions.DuplicateException;
 import exceptions.IllegalNameException;
+import exceptions.IllegalOperationException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
-import java.util.Collection;
-import java.util.Iterator;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
 
 /**
  * Creates and deletes files and directories from given directory.
+ * <p>
+ * The elements managed by one instance can be used from many threads at
+ * once. Every change to them holds the write lock of {@link #getLock()}, and
+ * everything that looks at them holds the read lock, so any number of
+ * threads can read while changes wait for them to finish. Work that is put
+ * off until first needed, such as reading a directory from a snapshot or
+ * filling a lazy copy, can happen while only the read lock is held, and is
+ * done by one thread at a time while holding the monitor of this instance.
+ * <p>
+ * Every change made through the public methods of this class is recorded as
+ * a {@code FileSystemChangeEvent} if Flight Recorder is recording those.
  */
 public class FileManager implements Serializable {
 
@@ -20,6 +40,63 @@ public class FileManager implements Serializable {
   private final char[] illegalChars = {'!', '@', '#', '$', '%', '^', '&',
       '*', '(', ')', '{', '}', '~', '|', '<', '>', '?', '.', '/'};
 
+  /**
+   * A counter that is increased whenever an element managed by this instance
+   * is renamed or removed from its directory, that is, whenever a path that
+   * used to lead to an element may stop leading to it. Creating or inserting
+   * elements never changes where an existing element can be found, so it does
+   * not increase this counter.
+   */
+  private transient volatile long generation;
+
+  /**
+   * Maps names to the elements managed by this instance that have them. It is
+   * built the first time a tree is searched, and from then on it is kept up to
+   * date on every change to that tree. Elements that are not in an indexed
+   * tree, such as copies that have not been inserted anywhere yet, are never
+   * listed.
+   */
+  private transient NameIndex nameIndex;
+
+  /**
+   * The {@code sequence} given to the next element added to a directory.
+   */
+  private transient long nextSequence;
+
+  /**
+   * The journal that changes to the elements managed by this instance are
+   * recorded in, or null if they are not journaled.
+   */
+  private transient volatile Journal journal;
+
+  /**
+   * While this is above zero, changes are not journaled, because they only
+   * rebuild a state that is already durable.
+   */
+  private transient int journalPaused;
+
+  /**
+   * How many directories managed by this instance are copies that have not
+   * copied their elements yet. A copy thrown away unused is counted until its
+   * original finds the reference to it cleared, which it does the next time
+   * it is copied or changed.
+   */
+  private transient long pendingCopies;
+
+  /**
+   * Copies listed in the name index that have not copied their elements yet,
+   * so their elements are not listed. The elements are listed when they are
+   * copied, and every copy here is filled before the index is searched.
+   * Copies that have been filled or left the index since may still be here.
+   */
+  private transient ArrayList<Directory> unindexedCopies;
+
+  /**
+   * Guards every element managed by this instance.
+   */
+  private transient ReentrantReadWriteLock lock =
+      new ReentrantReadWriteLock();
+
   /**
    * Creates an FileManager that creates files and directories with {@code fe}
    * and this FileManager to be created as their modifier.
@@ -30,6 +107,78 @@ public class FileManager implements Serializable {
     this.fileEditor = fileEditor;
   }
 
+  /**
+   * Returns the current generation of the elements managed by this instance.
+   * Anything derived from the paths of those elements, such as a cache of
+   * resolved paths, is still valid as long as this value does not change.
+   *
+   * @return the current generation of this file manager.
+   */
+  public long getGeneration() {
+    return generation;
+  }
+
+  /**
+   * Returns the lock that guards the elements managed by this instance.
+   * Every method of this class and of the elements takes the lock it needs
+   * on its own, so callers only need it to make several calls see or change
+   * the tree as one. Holding the read lock while calling anything that
+   * changes the tree never returns, since the read lock cannot be upgraded.
+   *
+   * @return the lock of the elements managed by this instance
+   */
+  public ReadWriteLock getLock() {
+    return lock;
+  }
+
+  /**
+   * Records changes to the elements in the tree of {@code journal} in it from
+   * now on, or stops recording changes if {@code journal} is null.
+   *
+   * @param journal the journal to record changes in
+   */
+  void setJournal(Journal journal) {
+    this.journal = journal;
+  }
+
+  /**
+   * Stops journaling changes until {@link #resumeJournal()} is called as
+   * many times as this method.
+   */
+  synchronized void pauseJournal() {
+    journalPaused++;
+  }
+
+  synchronized void resumeJournal() {
+    journalPaused--;
+  }
+
+  /**
+   * Returns whether changes to {@code fe} are to be journaled.
+   */
+  private boolean isJournaled(FolderElement fe) {
+    return journal != null && journalPaused == 0 && journal.covers(fe);
+  }
+
+  /**
+   * Prepares for the contents of {@code file} to change.
+   */
+  void editing(File file) {
+    if (file.parentDir != null) {
+      beforeChange(file.parentDir);
+    }
+  }
+
+  /**
+   * Journals that {@code file} has been overwritten with, or appended with
+   * {@code str}, according to {@code mode}.
+   */
+  void edited(File file, char mode, String str) {
+    if (isJournaled(file)) {
+      journal.edited(file, mode, str);
+    }
+  }
+
   /**
    * Creates a new file or directory under the given directory.
    * <p>
@@ -51,11 +200,34 @@ public class FileManager implements Serializable {
    */
   public FolderElement createNew(Directory oldDir, char type, String name)
       throws IllegalArgumentException, DuplicateException, IllegalNameException {
+    FileSystemChangeEvent event = new FileSystemChangeEvent();
+    event.begin();
+    lock.writeLock().lock();
+    try {
+      FolderElement created = create(oldDir, type, name);
+      commit(event, "create", oldDir, name);
+      return created;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Does what {@link #createNew} does, without taking the write lock, for
+   * filling directories that nobody else can see the contents of yet.
+   */
+  FolderElement create(Directory oldDir, char type, String name)
+      throws IllegalArgumentException, DuplicateException, IllegalNameException {
     if (containsIllegalCharacters(name)) {
       throw new IllegalNameException("File name cannot contain any of the "
           + "following characters: ! @ # $ % ^ & * ( ) { } ~ | < > ?");
     }
-    Collection<FolderElement> folderList = oldDir.contents;
+    beforeChange(oldDir);
+    Map<String, FolderElement> folderMap = oldDir.contents();
+    if (folderMap.containsKey(name)) {
+      throw new DuplicateException(name + ": File or directory already "
+          + "exists");
+    }
     FolderElement newFE;
     if (type == 'd') {
       newFE = new Directory(name, oldDir, this);
@@ -65,53 +237,215 @@ public class FileManager implements Serializable {
       throw new IllegalArgumentException("Cannot create folder element of "
           + "unknown type " + type);
     }
-    for (FolderElement element : folderList) {
-      if (element.equals(newFE)) {
-        throw new DuplicateException(name + ": File or directory already "
-            + "exists");
-      }
+    attach(oldDir, newFE);
+    if (oldDir.indexed) {
+      index(newFE);
+    }
+    if (isJournaled(oldDir)) {
+      journal.created(oldDir, type, name);
     }
-    folderList.add(newFE);
     return newFE;
   }
 
+  /**
+   * Renames {@code fe} to {@code name}.
+   * <p>
+   * If {@code fe} is currently listed in its parent directory, the entry in
+   * the parent is moved to the new name as well, so that it can still be found
+   * by {@link Directory#getElementByName(String)}. The renamed element keeps
+   * its position among the other elements of its parent.
+   *
+   * @param fe   The folder element to be renamed.
+   * @param name The new name of {@code fe}.
+   * @throws IllegalNameException if {@code name} contains illegal characters.
+   */
   public void rename(FolderElement fe, String name)
       throws IllegalNameException {
     if (containsIllegalCharacters(name)) {
       throw new IllegalNameException("File name cannot contain any of the "
           + "following characters: ! @ # $ % ^ & * ( ) { } ~ | < > ?");
     }
-    fe.name = name;
+    FileSystemChangeEvent event = new FileSystemChangeEvent();
+    event.begin();
+    lock.writeLock().lock();
+    try {
+      String[] oldPath = isJournaled(fe) ? Journal.sectionsOf(fe) : null;
+      Directory parent = fe.parentDir;
+      if (parent != null && parent != fe) {
+        beforeChange(parent);
+      }
+      generation++;
+      boolean listed = parent != null && parent != fe
+          && parent.contents().get(fe.name) == fe;
+      String oldName = fe.name;
+      setIndexedName(fe, name);
+      if (listed) {
+        // Re-key fe where it is listed, so that nothing moves.
+        parent.contents().rekey(oldName, fe.name);
+      }
+      if (oldPath != null) {
+        journal.renamed(fe, oldPath);
+      }
+      commit(event, "rename", parent, name);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Moves {@code fe} out of its parent directory into {@code dest}, and
+   * renames it to {@code name}. Either all of it is done, or nothing is done if
+   * an exception is thrown.
+   * <p>
+   * Unlike removing {@code fe} and inserting it again, this does not visit the
+   * contents of {@code fe} when both directories are in the same indexed tree.
+   *
+   * @param fe   The folder element to be moved.
+   * @param dest The directory to move {@code fe} into.
+   * @param name The name of {@code fe} in {@code dest}.
+   * @throws DuplicateException        if there is another folder element in
+   *                                   {@code dest} named {@code name}.
+   * @throws IllegalNameException      if {@code name} contains illegal
+   *                                   characters.
+   * @throws IllegalOperationException if {@code dest} is {@code fe} or inside
+   *                                   it.
+   */
+  public void move(FolderElement fe, Directory dest, String name)
+      throws DuplicateException, IllegalNameException,
+      IllegalOperationException {
+    if (containsIllegalCharacters(name)) {
+      throw new IllegalNameException("File name cannot contain any of the "
+          + "following characters: ! @ # $ % ^ & * ( ) { } ~ | < > ?");
+    }
+    FileSystemChangeEvent event = new FileSystemChangeEvent();
+    event.begin();
+    lock.writeLock().lock();
+    try {
+      // Checked again under the lock: two moves of directories into each
+      // other may both pass a check made before it, and cut both off.
+      if (fe instanceof Directory
+          && (dest == fe || dest.isUnder((Directory) fe))) {
+        throw new IllegalOperationException(fe.name + ": cannot move a "
+            + "directory into itself");
+      }
+      FolderElement existing = dest.contents().get(name);
+      if (existing != null && existing != fe) {
+        throw new DuplicateException(name + ": File or directory already "
+            + "exists");
+      }
+      String[] oldPath = isJournaled(fe) ? Journal.sectionsOf(fe) : null;
+      Directory parent = fe.parentDir;
+      if (parent != null && parent != fe) {
+        beforeChange(parent);
+      }
+      beforeChange(dest);
+      generation++;
+      if (parent != null && parent != fe
+          && parent.contents().get(fe.name) == fe) {
+        parent.contents().remove(fe.name);
+      }
+      setIndexedName(fe, name);
+      attach(dest, fe);
+      fe.setParentDir(dest);
+      if (fe.indexed && !dest.indexed) {
+        unindexSubtree(fe);
+      } else if (!fe.indexed && dest.indexed) {
+        indexSubtree(fe);
+      }
+      if (oldPath != null && isJournaled(dest)) {
+        journal.moved(fe, oldPath);
+      } else if (oldPath != null) {
+        journal.removed(parent, oldPath[oldPath.length - 1]);
+      } else if (isJournaled(dest)) {
+        journal.inserted(fe);
+      }
+      commit(event, "move", dest, name);
+    } finally {
+      lock.writeLock().unlock();
+    }
   }
 
   /**
+   * Returns a copy of {@code target}. A directory is copied lazily, so this
+   * takes constant time.
+   * <p>
+   * Copying only reads {@code target}, so it holds the read lock, and copies
+   * made by several threads at once are registered one at a time.
+   *
    * @param target The folder element to be copied.
    * @return a copy of {@code target}.
+   * @see Directory#copy()
    */
   public FolderElement getCopy(FolderElement target) {
-    if (target instanceof Directory) {
-      Directory old = (Directory) target;
-      Directory copied = new Directory(old.name, this);
-      for (FolderElement sub : old.contents) {
-        FolderElement subCopied = sub.copy();
-        subCopied.setParentDir(copied);
-        try {
-          copied.insertElement(subCopied);
-        } catch (DuplicateException | IllegalNameException e) {
-          // This should never happen.
-          e.printStackTrace();
-        }
+    if (!(target instanceof Directory)) {
+      return target.copy();
+    }
+    lock.readLock().lock();
+    try {
+      Directory copied = new Directory(target.name, this);
+      synchronized (this) {
+        copied.copyLater((Directory) target);
+        pendingCopies++;
       }
       return copied;
-    } else {
-      // This part is currently unused
-      File old = (File) target;
-      File copied = new File(old.name, null, this, fileEditor);
-      copied.overwriteContentsAs(old.getContents());
-      return copied;
+    } finally {
+      lock.readLock().unlock();
     }
   }
 
+  /**
+   * Adds a copy of every element of {@code original} to {@code copied}, which
+   * is a lazy copy of it. Sub directories are copied lazily in turn. The
+   * caller holds the monitor of this instance.
+   */
+  void fillCopy(Directory copied, Directory original) {
+    pendingCopies--;
+    for (FolderElement sub : original.elements()) {
+      FolderElement subCopied = sub.copy();
+      subCopied.setParentDir(copied);
+      attach(copied, subCopied);
+      if (copied.indexed) {
+        index(subCopied);
+      }
+    }
+  }
+
+  /**
+   * Makes every lazy copy of {@code dir}, or of any directory above it, copy
+   * its elements before {@code dir} changes, so that the change does not show
+   * in the copies. Copies are filled from the top down, since filling a copy
+   * of a directory makes new lazy copies of the directories in it, which may
+   * need to be filled in turn.
+   */
+  void beforeChange(Directory dir) {
+    // Fill the topmost directory with pending copies, until there is none
+    // left. Filling it only makes new lazy copies below it, so each round
+    // starts lower, and nothing is allocated to walk the way back down.
+    while (pendingCopies > 0) {
+      Directory top = null;
+      for (FolderElement fe = dir; ; fe = fe.parentDir) {
+        if (((Directory) fe).hasPendingCopies()) {
+          top = (Directory) fe;
+        }
+        if (fe.isTop()) {
+          break;
+        }
+      }
+      if (top == null) {
+        return;
+      }
+      top.fillPendingCopies();
+    }
+  }
+
+  /**
+   * Stops counting {@code count} copies that were thrown away before they
+   * copied their elements.
+   */
+  void forgetCopies(int count) {
+    pendingCopies -= count;
+  }
+
   /**
    * Adds an element {@code fe} to the directory {@code dir}.
    *
@@ -123,15 +457,67 @@ public class FileManager implements Serializable {
    */
   public void insert(FolderElement fe, Directory dir)
       throws DuplicateException, IllegalNameException {
-    if (dir.contents.contains(fe)) {
-      throw new DuplicateException(
-          "Cannot insert element " + fe + " to " + dir + ": Duplicated name.");
-    } else if (containsIllegalCharacters(fe.getName())) {
-      throw new IllegalNameException("File name cannot contain any of the "
-          + "following characters: ! @ # $ % ^ & * ( ) { } ~ | < > ?");
+    FileSystemChangeEvent event = new FileSystemChangeEvent();
+    event.begin();
+    lock.writeLock().lock();
+    try {
+      beforeChange(dir);
+      if (dir.contents().containsKey(fe.getName())) {
+        throw new DuplicateException("Cannot insert element " + fe + " to "
+            + dir + ": Duplicated name.");
+      } else if (containsIllegalCharacters(fe.getName())) {
+        throw new IllegalNameException("File name cannot contain any of the "
+            + "following characters: ! @ # $ % ^ & * ( ) { } ~ | < > ?");
+      }
+      attach(dir, fe);
+      fe.setParentDir(dir);
+      if (dir.indexed) {
+        indexSubtree(fe);
+      }
+      if (isJournaled(dir)) {
+        Directory original = fe instanceof Directory
+            ? ((Directory) fe).getPendingOriginal() : null;
+        if (original != null && isJournaled(original)) {
+          journal.copied(original, fe);
+        } else {
+          journal.inserted(fe);
+        }
+      }
+      commit(event, "insert", dir, fe.getName());
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes the element named {@code name} from {@code dir}. Does nothing if
+   * there is no such element.
+   * <p>
+   * This method does not clear the contents of the element removed.
+   *
+   * @param dir  The directory to remove the element from.
+   * @param name The name of the element to be removed.
+   */
+  public void remove(Directory dir, String name) {
+    FileSystemChangeEvent event = new FileSystemChangeEvent();
+    event.begin();
+    lock.writeLock().lock();
+    try {
+      beforeChange(dir);
+      FolderElement removed = dir.contents().remove(name);
+      if (removed != null) {
+        generation++;
+        if (removed.indexed) {
+          unindexSubtree(removed);
+        }
+        if (isJournaled(dir)) {
+          journal.removed(dir, name);
+        }
+        commit(event, "remove", dir, name);
+      }
+    } finally {
+      lock.writeLock().unlock();
     }
-    dir.contents.add(fe);
-    fe.setParentDir(dir);
   }
 
   /**
@@ -140,14 +526,277 @@ public class FileManager implements Serializable {
    * @param target The directory to be cleared.
    */
   public void clearDirectory(Directory target) {
-    for (Iterator<FolderElement> itr = target.iterator(); itr.hasNext(); ) {
-      FolderElement fe = itr.next();
+    FileSystemChangeEvent event = new FileSystemChangeEvent();
+    event.begin();
+    lock.writeLock().lock();
+    try {
+      beforeChange(target);
+      if (isJournaled(target)) {
+        journal.cleared(target);
+      }
+      clear(target);
+      commit(event, "clear", target, null);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Ends {@code event}, and commits it as an {@code operation} on the element
+   * named {@code name} in {@code dir} if it is recorded. The caller holds the
+   * write lock, which still lets the path of {@code dir} be read.
+   */
+  private static void commit(FileSystemChangeEvent event, String operation,
+      Directory dir, String name) {
+    event.end();
+    if (event.shouldCommit()) {
+      event.operation = operation;
+      event.directory = dir == null ? null : dir.getPathToThis().toString();
+      event.name = name;
+      event.commit();
+    }
+  }
+
+  private void clear(Directory target) {
+    target.fillPendingCopies();
+    generation++;
+    if (target.indexed) {
+      for (FolderElement fe : target.elements()) {
+        unindexSubtree(fe);
+      }
+    }
+    for (FolderElement fe : target.elements()) {
       if (fe instanceof Directory) {
-        clearDirectory((Directory) fe);
+        clear((Directory) fe);
+      }
+    }
+    target.contents().clear();
+  }
+
+  /**
+   * Returns every element named {@code name} and of type {@code type} inside
+   * {@code dir}, in the order a depth-first walk of {@code dir} would visit
+   * them. {@code dir} itself is not included.
+   * <p>
+   * If the tree {@code dir} belongs to has never been searched before, it is
+   * indexed first, which visits every element in it once.
+   *
+   * @param dir  The directory to search in.
+   * @param type 'f' to find files only, or 'd' to find directories only.
+   * @param name The name of the elements to find.
+   * @return the elements found, possibly empty
+   * @throws IllegalArgumentException if type is neither 'f' or 'd'.
+   */
+  public List<FolderElement> find(Directory dir, char type, String name) {
+    lock.readLock().lock();
+    try {
+      List<FolderElement> candidates = new ArrayList<>();
+      synchronized (this) {
+        NameIndex index = getIndex(dir, type);
+        if (index != null) {
+          index.collect(name, candidates);
+        }
+      }
+      return filter(candidates, dir, type);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns every element of type {@code type} inside {@code dir} whose name
+   * starts with {@code prefix} and is accepted by {@code names}, in the order a
+   * depth-first walk of {@code dir} would visit them. {@code dir} itself is not
+   * included.
+   * <p>
+   * Only names in the index that start with {@code prefix} are looked at, and
+   * {@code names} is tested once for each of them rather than once for each
+   * element, so a longer prefix makes this faster.
+   *
+   * @param dir    The directory to search in.
+   * @param type   'f' to find files only, or 'd' to find directories only.
+   * @param prefix The text all names of interest start with, possibly empty.
+   * @param names  Decides which names are wanted.
+   * @return the elements found, possibly empty
+   * @throws IllegalArgumentException if type is neither 'f' or 'd'.
+   */
+  public List<FolderElement> find(Directory dir, char type, String prefix,
+      Predicate<String> names) {
+    lock.readLock().lock();
+    try {
+      List<FolderElement> candidates = new ArrayList<>();
+      synchronized (this) {
+        NameIndex index = getIndex(dir, type);
+        if (index != null) {
+          index.collect(prefix, names, candidates);
+        }
+      }
+      return filter(candidates, dir, type);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the name index that covers {@code dir}, indexing its tree first if
+   * necessary. Returns null if nothing has ever been indexed.
+   * <p>
+   * Indexing happens while only the read lock is held, so the caller must
+   * hold the monitor of this instance until it is done with the index.
+   */
+  private NameIndex getIndex(Directory dir, char type) {
+    if (type != 'd' && type != 'f') {
+      throw new IllegalArgumentException("Cannot find folder element of "
+          + "unknown type " + type);
+    }
+    if (!dir.indexed) {
+      FolderElement top = dir;
+      while (!top.isTop()) {
+        top = top.parentDir;
+      }
+      if (!top.indexed) {
+        indexSubtree(top);
+      }
+    }
+    // Filling a copy lists its elements, which may add new copies here.
+    while (unindexedCopies != null && !unindexedCopies.isEmpty()) {
+      Directory copy = unindexedCopies.remove(unindexedCopies.size() - 1);
+      if (copy.indexed) {
+        copy.contents();
+      }
+    }
+    return nameIndex;
+  }
+
+  /**
+   * Keeps the elements in {@code candidates} that are of type {@code type} and
+   * inside {@code dir}, and sorts them in the order of a depth-first walk.
+   */
+  private static List<FolderElement> filter(List<FolderElement> candidates,
+      Directory dir, char type) {
+    List<FolderElement> found = new ArrayList<>(candidates.size());
+    for (FolderElement fe : candidates) {
+      if ((fe instanceof Directory) == (type == 'd') && fe.isUnder(dir)) {
+        found.add(fe);
+      }
+    }
+    found.sort(FileManager::compareTreeOrder);
+    return found;
+  }
+
+  /**
+   * Compares two elements of the same tree by the order a depth-first walk of
+   * that tree would visit them: an ancestor comes before its descendants, and
+   * of two elements in the same directory the one added earlier comes first.
+   */
+  private static int compareTreeOrder(FolderElement a, FolderElement b) {
+    int depthA = a.depth();
+    int depthB = b.depth();
+    FolderElement x = a;
+    FolderElement y = b;
+    for (int i = depthA; i > depthB; i--) {
+      x = x.parentDir;
+    }
+    for (int i = depthB; i > depthA; i--) {
+      y = y.parentDir;
+    }
+    if (x == y) {
+      return Integer.compare(depthA, depthB);
+    }
+    while (x.parentDir != y.parentDir) {
+      x = x.parentDir;
+      y = y.parentDir;
+    }
+    return Long.compare(x.sequence, y.sequence);
+  }
+
+  /**
+   * Lists {@code fe} in {@code dir} under the current name of {@code fe}.
+   */
+  private void attach(Directory dir, FolderElement fe) {
+    dir.contents().put(fe.name, fe);
+    fe.sequence = nextSequence++;
+  }
+
+  /**
+   * Renames {@code fe}, and moves it to its new name in the name index if it
+   * is listed there.
+   */
+  private void setIndexedName(FolderElement fe, String name) {
+    if (fe.indexed) {
+      nameIndex.remove(fe);
+      fe.setName(name);
+      nameIndex.add(fe);
+    } else {
+      fe.setName(name);
+    }
+  }
+
+  private void index(FolderElement fe) {
+    if (nameIndex == null) {
+      nameIndex = new NameIndex();
+    }
+    nameIndex.add(fe);
+    fe.indexed = true;
+    if (isUncopied(fe)) {
+      if (unindexedCopies == null) {
+        unindexedCopies = new ArrayList<>();
+      } else if (Integer.bitCount(unindexedCopies.size()) == 1) {
+        unindexedCopies.removeIf(copy -> !copy.indexed || !isUncopied(copy));
+      }
+      unindexedCopies.add((Directory) fe);
+    }
+  }
+
+  /**
+   * Returns whether {@code fe} is a copy that has not copied its elements
+   * yet. The elements of such a copy are not listed in the name index until
+   * they are copied, so that copying into an indexed tree stays fast.
+   */
+  private static boolean isUncopied(FolderElement fe) {
+    return fe instanceof Directory
+        && ((Directory) fe).getPendingOriginal() != null;
+  }
+
+  /**
+   * Lists {@code root} and everything inside it in the name index, except
+   * what is inside copies that have not copied their elements yet. Elements
+   * in each directory are renumbered in the order they are listed, so that
+   * elements of a tree that has just been loaded can be ordered as well.
+   */
+  private void indexSubtree(FolderElement root) {
+    ArrayDeque<FolderElement> pending = new ArrayDeque<>();
+    pending.push(root);
+    while (!pending.isEmpty()) {
+      FolderElement fe = pending.pop();
+      index(fe);
+      if (fe instanceof Directory && !isUncopied(fe)) {
+        for (FolderElement sub : ((Directory) fe).elements()) {
+          sub.sequence = nextSequence++;
+          pending.push(sub);
+        }
+      }
+    }
+  }
+
+  /**
+   * Removes {@code root} and everything inside it from the name index.
+   */
+  private void unindexSubtree(FolderElement root) {
+    ArrayDeque<FolderElement> pending = new ArrayDeque<>();
+    pending.push(root);
+    while (!pending.isEmpty()) {
+      FolderElement fe = pending.pop();
+      if (fe.indexed) {
+        nameIndex.remove(fe);
+        fe.indexed = false;
+      }
+      if (fe instanceof Directory && !isUncopied(fe)) {
+        for (FolderElement sub : ((Directory) fe).elements()) {
+          pending.push(sub);
+        }
       }
-      itr.remove();
     }
-    target.contents.clear();
   }
 
   private boolean containsIllegalCharacters(String name) {
@@ -158,4 +807,14 @@ public class FileManager implements Serializable {
     }
     return false;
   }
+
+  /**
+   * Gives a deserialized instance a lock of its own, since locks are not
+   * serialized.
+   */
+  private void readObject(ObjectInputStream in)
+      throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    lock = new ReentrantReadWriteLock();
+  }
 }
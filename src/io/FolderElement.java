@@ -1,8 +1,12 @@
 package io;
 
+import exceptions.DuplicateException;
 import exceptions.IllegalNameException;
+import exceptions.IllegalOperationException;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Objects;
+import java.util.concurrent.locks.Lock;
 import util.Path;
 
 /**
@@ -28,6 +32,31 @@ public abstract class FolderElement implements Serializable {
    */
   protected FileManager fileManager;
 
+  /**
+   * The absolute path to the root directory.
+   */
+  private static final Path ROOT_PATH = new Path("/");
+
+  /**
+   * The absolute path to this element, as of the last call to {@code
+   * getPathToThis()}, or null. Several readers may rebuild it at once, so it
+   * is replaced as a whole rather than field by field.
+   */
+  private transient volatile CachedPath cachedPath;
+
+  /**
+   * Whether this element is listed in the name index of its file manager.
+   */
+  transient boolean indexed;
+
+  /**
+   * A number that grows every time an element is added to a directory. Among
+   * the elements of one directory, the element added later has the greater
+   * number, so it orders elements the same way iterating over the directory
+   * does.
+   */
+  transient long sequence;
+
   /**
    * Default constructor
    */
@@ -50,12 +79,40 @@ public abstract class FolderElement implements Serializable {
 
   void setName(String name) {
     this.name = name;
+    invalidatePath();
+  }
+
+  /**
+   * @return the file manager that creates and deletes elements around this
+   * one.
+   */
+  public FileManager getFileManager() {
+    return fileManager;
   }
 
   public void renameTo(String name) throws IllegalNameException {
     fileManager.rename(this, name);
   }
 
+  /**
+   * Moves this element out of its parent directory into {@code dest}, under
+   * the name {@code newName}. Nothing is changed if the move fails.
+   *
+   * @param dest    the directory to move this element into
+   * @param newName the name of this element in {@code dest}
+   * @throws DuplicateException        if {@code dest} already contains another
+   *                                   element named {@code newName}.
+   * @throws IllegalNameException      if {@code newName} contains illegal
+   *                                   characters.
+   * @throws IllegalOperationException if {@code dest} is this element or
+   *                                   inside it.
+   */
+  public void moveTo(Directory dest, String newName)
+      throws DuplicateException, IllegalNameException,
+      IllegalOperationException {
+    fileManager.move(this, dest, newName);
+  }
+
   /**
    * Returns the parent directory of this directory.
    *
@@ -67,22 +124,150 @@ public abstract class FolderElement implements Serializable {
 
   public void setParentDir(Directory parentDir) {
     this.parentDir = parentDir;
+    invalidatePath();
+  }
+
+  /**
+   * Drops the cached path of this element. Paths of its descendants are
+   * rebuilt as well the next time they are requested.
+   */
+  void invalidatePath() {
+    cachedPath = null;
+  }
+
+  /**
+   * @return the read lock of the file manager of this element.
+   */
+  Lock readLock() {
+    return fileManager.getLock().readLock();
   }
 
   /**
+   * Returns the absolute path from root to this folder element.
+   * <p>
+   * Paths are cached on each element along the way. When nothing on the way to
+   * root has been renamed or moved since the last call, this only walks up the
+   * parent chain to check that; otherwise only the stale part of the chain is
+   * rebuilt, one section at a time.
+   *
    * @return An absolute path from root to this folder element.
    */
   public Path getPathToThis() {
+    Lock lock = readLock();
+    lock.lock();
+    try {
+      return getCachedPath().path;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the up to date cached path of this element, rebuilding whatever
+   * is stale. The caller holds a lock of the file manager.
+   */
+  private CachedPath getCachedPath() {
+    if (isTop()) {
+      return CachedPath.ROOT;
+    }
+    // Find the top most element whose cached path is stale. Parent of root is
+    // root.
+    FolderElement topStale = null;
     FolderElement current = this;
-    Directory parent = this.getParentDir();
-    StringBuilder sb = new StringBuilder("/");
-    // Parent of root is root.
-    while (parent != current) {
-      sb.insert(0, "/" + current.getName());
+    CachedPath own = cachedPath;
+    CachedPath cached = own;
+    while (!current.isTop()) {
+      FolderElement parent = current.parentDir;
+      CachedPath parentCached = parent.isTop() ? CachedPath.ROOT
+          : parent.cachedPath;
+      if (cached == null || parentCached == null
+          || cached.parentPath != parentCached.path) {
+        topStale = current;
+      }
       current = parent;
-      parent = parent.getParentDir();
+      cached = parentCached;
+    }
+    if (topStale == null) {
+      return own;
+    }
+    return rebuildPaths(topStale);
+  }
+
+  /**
+   * Rebuilds the cached paths of this element and of its ancestors, up to and
+   * including {@code topStale}.
+   */
+  private CachedPath rebuildPaths(FolderElement topStale) {
+    FolderElement current;
+    ArrayList<FolderElement> stale = new ArrayList<>();
+    for (current = this; current != topStale; current = current.parentDir) {
+      stale.add(current);
+    }
+    stale.add(topStale);
+    CachedPath cached = null;
+    for (int i = stale.size() - 1; i >= 0; i--) {
+      FolderElement fe = stale.get(i);
+      FolderElement parent = fe.parentDir;
+      CachedPath parentCached = parent.isTop() ? CachedPath.ROOT
+          : parent.cachedPath;
+      cached = new CachedPath(parentCached.path.getChild(fe.name),
+          parentCached.path, parentCached.depth + 1);
+      fe.cachedPath = cached;
+    }
+    return cached;
+  }
+
+  /**
+   * Returns the number of directories between the root directory and this
+   * element. The root directory itself has a depth of 0, and elements directly
+   * in it have a depth of 1.
+   *
+   * @return the depth of this element in the file system.
+   */
+  public int getDepth() {
+    Lock lock = readLock();
+    lock.lock();
+    try {
+      return depth();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Does what {@link #getDepth()} does, for callers that hold a lock of the
+   * file manager already.
+   */
+  int depth() {
+    return getCachedPath().depth;
+  }
+
+  /**
+   * Returns whether this element is inside {@code dir}, either directly or in
+   * any of its sub directories. Directories are compared by identity. The
+   * caller holds a lock of the file manager.
+   *
+   * @param dir the directory that may contain this element
+   * @return {@code true} if {@code dir} is an ancestor of this element.
+   */
+  boolean isUnder(Directory dir) {
+    int steps = depth() - dir.depth();
+    if (steps <= 0) {
+      return false;
+    }
+    FolderElement current = this;
+    for (int i = 0; i < steps; i++) {
+      current = current.parentDir;
     }
-    return new Path(sb.toString());
+    return current == dir;
+  }
+
+  /**
+   * @return {@code true} if this element has no parent above it, that is, it
+   * is a root directory or it is not placed in any directory.
+   */
+  boolean isTop() {
+    return parentDir == null || parentDir == this;
   }
 
   public abstract FolderElement copy();
@@ -118,4 +303,28 @@ public abstract class FolderElement implements Serializable {
   public String toString() {
     return name;
   }
+
+  /**
+   * The absolute path to an element, with the path of its parent it was
+   * built on and its depth. It is only valid while the path of the parent is
+   * still the very same object as {@code parentPath}, so renaming or moving
+   * any ancestor invalidates the paths of all descendants without visiting
+   * them.
+   */
+  private static final class CachedPath {
+
+    static final CachedPath ROOT = new CachedPath(ROOT_PATH, null, 0);
+
+    final Path path;
+
+    final Path parentPath;
+
+    final int depth;
+
+    CachedPath(Path path, Path parentPath, int depth) {
+      this.path = path;
+      this.parentPath = parentPath;
+      this.depth = depth;
+    }
+  }
 }
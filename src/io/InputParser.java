@@ -1,10 +1,21 @@
 package io;
 
+import exceptions.WrongSyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import util.CommandExecutor;
+import util.CommandNode;
+import util.Flag;
 import util.Message;
 
 /**
  * This class Transfers the String input from user into a message of class
- * Message.
+ * Message, and a message into the commands it runs.
+ * <p>
+ * Both steps take a single pass over their input, so that their cost is linear
+ * in the length of the command line however many sections it has.
  */
 
 public class InputParser {
@@ -14,34 +25,85 @@ public class InputParser {
    * Message.
    * <p>
    * Splits the input {@code str} by whitespaces and transfer the split string[]
-   * into a Message.
+   * into a Message. Whitespaces between double quotation marks do not split,
+   * and the marks are kept in the section.
    *
    * @param str The input string to be transferred
    * @return A Message separating {@code str} by whitespaces as its entries
    */
   public Message parse(String str) {
     Message message = new Message();
-    boolean duringSection = false;
     boolean duringString = false;
-    StringBuilder sb = new StringBuilder();
-    for (char c : str.toCharArray()) {
+    int start = -1;
+    for (int i = 0; i < str.length(); i++) {
+      char c = str.charAt(i);
       if (c != ' ' || duringString) {
-        duringSection = true;
+        if (start < 0) {
+          start = i;
+        }
         if (c == '\"') {
           duringString = !duringString;
         }
-        sb.append(c);
-      } else if (duringSection) {
-        duringSection = false;
-        message.add(sb.toString());
-        sb = new StringBuilder();
+      } else if (start >= 0) {
+        message.add(str.substring(start, i));
+        start = -1;
       }
     }
-    if (sb.length() > 0) {
-      message.add(sb.toString());
+    if (start >= 0) {
+      message.add(str.substring(start));
     }
-//		System.out.println(message);
     return message;
   }
-}	  
 
+  /**
+   * Parses {@code line} into the commands of a pipeline, separated by {@code
+   * |} sections. The first section of each command is its alias, and the rest
+   * are parsed against the flags that {@code flagsOf} gives for that alias.
+   *
+   * @param line    The command line, as split by {@code parse}.
+   * @param flagsOf The flags accepted by the command of each alias.
+   * @return the commands of the pipeline, in order
+   * @throws WrongSyntaxException if a command of the pipeline is empty, or a
+   *                              redirection or a flag is present but no
+   *                              value is given.
+   */
+  public List<CommandNode> parseCommands(Message line,
+      Function<String, Flag[]> flagsOf) throws WrongSyntaxException {
+    List<CommandNode> commands = null;
+    List<String> command = new ArrayList<>();
+    for (String section : line) {
+      if (!section.equals(CommandExecutor.PIPE)) {
+        command.add(section);
+        continue;
+      }
+      if (command.isEmpty()) {
+        throw new WrongSyntaxException("Missing command before |");
+      }
+      if (commands == null) {
+        commands = new ArrayList<>();
+      }
+      commands.add(parseCommand(command, flagsOf));
+      command.clear();
+    }
+    if (commands == null) {
+      return Collections.singletonList(parseCommand(command, flagsOf));
+    }
+    if (command.isEmpty()) {
+      throw new WrongSyntaxException("Missing command after |");
+    }
+    commands.add(parseCommand(command, flagsOf));
+    return commands;
+  }
+
+  /**
+   * Parses the sections of one command, the first of which is its alias. An
+   * empty command has an empty alias.
+   */
+  private static CommandNode parseCommand(List<String> command,
+      Function<String, Flag[]> flagsOf) throws WrongSyntaxException {
+    String alias = command.isEmpty() ? "" : command.get(0);
+    return CommandNode.parse(alias,
+        command.listIterator(Math.min(command.size(), 1)),
+        flagsOf.apply(alias));
+  }
+}
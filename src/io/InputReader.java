@@ -1,15 +1,28 @@
 package io;
 
-import java.util.Scanner;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import util.Message;
 
 /**
  * This class is a helper class that is dedicated to reading input from the
  * user.
+ * <p>
+ * Lines are read through a large buffer, so that reading a long script of
+ * commands from a file or a pipe costs little more than the commands
+ * themselves.
  */
 public class InputReader {
 
-  private final Scanner sc = new Scanner(System.in);
+  /**
+   * The size of the input buffer in characters.
+   */
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final BufferedReader reader;
   private final InputParser inputParser;
 
 
@@ -20,29 +33,53 @@ public class InputReader {
    * @param inputParser InputParser that refactors the plain text.
    */
   public InputReader(InputParser inputParser) {
+    this(inputParser, System.in);
+  }
+
+  /**
+   * Constructs a new InputReader that reads from {@code in} instead of the
+   * standard input.
+   *
+   * @param inputParser InputParser that refactors the plain text.
+   * @param in          The stream that commands are read from.
+   */
+  public InputReader(InputParser inputParser, InputStream in) {
     this.inputParser = inputParser;
+    this.reader = new BufferedReader(new InputStreamReader(in), BUFFER_SIZE);
   }
 
   /**
    * This method gets user input without printing anything, and records input to
    * the history list in commHistory.
    *
-   * @return the parsed message from user input
+   * @return the parsed message from user input, or null if there is no more
+   * input
+   * @throws UncheckedIOException if the input cannot be read.
    */
   public Message getUserInput() {
-    String input = sc.nextLine();
-    return inputParser.parse(input);
+    String input;
+    try {
+      input = reader.readLine();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return input == null ? null : inputParser.parse(input);
   }
 
   /**
-   * Prints {@code prompt}, then get and return the parsed command line input.
+   * Returns whether the next line has already been received, so that it can be
+   * read without waiting. Whatever is written in reply to the lines before it
+   * need not be sent yet, since more is to follow.
    *
-   * @param prompt the string to be printed before user entering
-   * @return the parsed message from user input
+   * @return true if the next line can be read without waiting
+   * @throws UncheckedIOException if the input cannot be read.
    */
-  public Message getUserInput(String prompt) {
-    System.out.print(prompt);
-    return getUserInput();
+  public boolean isReady() {
+    try {
+      return reader.ready();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
   }
 
 }
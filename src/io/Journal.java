@@ -0,0 +1,694 @@
+package io;
+
+import exceptions.DuplicateException;
+import exceptions.IllegalNameException;
+import exceptions.IllegalOperationException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.TreeSet;
+import java.util.concurrent.locks.Lock;
+import java.util.zip.CRC32;
+
+/**
+ * A write-ahead journal that keeps a file system durable on the host, so that
+ * it survives the shell being closed or killed without {@code saveJShell}.
+ * <p>
+ * Every change made through the {@code FileManager} and {@code FileEditor}
+ * of the journaled tree is recorded as an entry naming the path it was made
+ * at. Entries are collected in memory and written together by {@link
+ * #commit()}, once per command, as one frame with its length and checksum, so
+ * a frame cut short by a crash is recognized and ignored. How often frames
+ * are forced to the disk is decided by the {@link Sync} policy.
+ * <p>
+ * Once the journal has grown by {@code checkpointBytes}, the whole tree is
+ * written as a {@code Snapshot}, and the journal starts over. The journal
+ * directory holds files named {@code checkpoint-N} and {@code journal-N}: the
+ * state is the newest checkpoint, followed by every journal whose number is
+ * at least that of the checkpoint, in order. A new checkpoint only replaces
+ * the old one once it is complete, so a crash at any point leaves a state
+ * that can be recovered. The working directory, history and directory stack
+ * are not journaled.
+ * <p>
+ * Entries are recorded while the tree is write locked, and a commit only
+ * holds the monitor of the journal long enough to take the entries recorded
+ * so far, so other threads can keep changing the tree while a frame is
+ * written and forced. A checkpoint read locks the tree while it is written.
+ */
+public class Journal {
+
+  /**
+   * When frames are forced from the page cache to the disk.
+   */
+  public enum Sync {
+    /**
+     * After every commit, so no command that has finished is ever lost.
+     */
+    ALWAYS,
+    /**
+     * At most once per {@code SYNC_INTERVAL_NANOS}, so a crash loses at most
+     * the commits made since.
+     */
+    INTERVAL,
+    /**
+     * Never explicitly, leaving it to the host system. Frames survive the
+     * shell being killed, but not the host crashing.
+     */
+    NEVER
+  }
+
+  private static final long SYNC_INTERVAL_NANOS = 1_000_000_000L;
+
+  private static final String CHECKPOINT = "checkpoint-";
+
+  private static final String JOURNAL = "journal-";
+
+  private static final byte CREATE = 1;
+  private static final byte INSERT = 2;
+  private static final byte RENAME = 3;
+  private static final byte MOVE = 4;
+  private static final byte REMOVE = 5;
+  private static final byte CLEAR = 6;
+  private static final byte OVERWRITE = 7;
+  private static final byte APPEND = 8;
+  private static final byte COPY = 9;
+
+  /**
+   * The size of the length and the checksum before every frame.
+   */
+  private static final int FRAME_HEADER = Integer.BYTES * 2;
+
+  private final Path dir;
+
+  private final Sync sync;
+
+  private final long checkpointBytes;
+
+  /**
+   * The root of the journaled tree, or null before {@link #recover}.
+   */
+  private volatile Directory root;
+
+  /**
+   * Held while writing to the journal file or replacing it, so that frames
+   * are written whole and in the order they were committed. The fields
+   * about the file are guarded by it.
+   */
+  private final Object output = new Object();
+
+  /**
+   * The number of the journal being written.
+   */
+  private long number;
+
+  private FileChannel channel;
+
+  /**
+   * Entries recorded since the last commit, guarded by the monitor of this
+   * journal.
+   */
+  private ByteBuffer pending = ByteBuffer.allocate(1 << 12);
+
+  /**
+   * The buffer that takes the place of {@code pending} at the next commit.
+   */
+  private ByteBuffer spare = ByteBuffer.allocate(1 << 12);
+
+  /**
+   * The number of bytes written to journals since the last checkpoint.
+   */
+  private long sinceCheckpoint;
+
+  /**
+   * Whether the next commit writes a checkpoint, because the tree has been
+   * replaced.
+   */
+  private boolean checkpointDue;
+
+  private long lastSync = System.nanoTime();
+
+  /**
+   * Constructs a journal kept in the host directory {@code dir}, which is
+   * created if it does not exist. Nothing is read or written until {@link
+   * #recover} is called.
+   *
+   * @param dir             The path of the host directory.
+   * @param sync            When frames are forced to the disk.
+   * @param checkpointBytes How far the journal grows before a checkpoint.
+   */
+  public Journal(String dir, Sync sync, long checkpointBytes) {
+    this.dir = Paths.get(dir);
+    this.sync = sync;
+    this.checkpointBytes = checkpointBytes;
+  }
+
+  /**
+   * Rebuilds the file system from the newest checkpoint and the journals
+   * after it, and starts journaling every change to it. The checkpoint is
+   * mapped into memory, so only the journals are read right away.
+   *
+   * @param fileManager The file manager of the file system rebuilt.
+   * @return the root directory of the file system rebuilt
+   * @throws IOException if the directory cannot be read, or holds a corrupt
+   *                     checkpoint or journal.
+   */
+  public Directory recover(FileManager fileManager) throws IOException {
+    Files.createDirectories(dir);
+    TreeSet<Long> checkpoints = new TreeSet<>();
+    TreeSet<Long> journals = new TreeSet<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+      for (Path file : files) {
+        String name = file.getFileName().toString();
+        if (name.startsWith(CHECKPOINT)) {
+          checkpoints.add(parseNumber(name, CHECKPOINT));
+        } else if (name.startsWith(JOURNAL)) {
+          journals.add(parseNumber(name, JOURNAL));
+        }
+      }
+    }
+    checkpoints.remove(-1L);
+    journals.remove(-1L);
+
+    long first = checkpoints.isEmpty() ? 0 : checkpoints.last();
+    Directory recovered = first == 0 ? new Directory("/", fileManager)
+        : Snapshot.load(file(CHECKPOINT, first).toString(), fileManager)
+            .getRoot();
+    fileManager.pauseJournal();
+    try {
+      for (long journal : journals.tailSet(first)) {
+        sinceCheckpoint += replay(recovered, file(JOURNAL, journal));
+      }
+    } finally {
+      fileManager.resumeJournal();
+    }
+
+    number = Math.max(first, journals.isEmpty() ? 0 : journals.last()) + 1;
+    channel = open(number);
+    root = recovered;
+    fileManager.setJournal(this);
+    deleteBefore(first);
+    return recovered;
+  }
+
+  private static long parseNumber(String name, String prefix) {
+    try {
+      return Long.parseLong(name.substring(prefix.length()));
+    } catch (NumberFormatException e) {
+      // Not one of ours, such as a temporary file.
+      return -1;
+    }
+  }
+
+  private Path file(String prefix, long number) {
+    return dir.resolve(prefix + number);
+  }
+
+  private FileChannel open(long number) throws IOException {
+    return FileChannel.open(file(JOURNAL, number), StandardOpenOption.WRITE,
+        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+  }
+
+  /**
+   * Deletes every checkpoint and journal numbered below {@code number}.
+   */
+  private void deleteBefore(long number) throws IOException {
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+      for (Path file : files) {
+        String name = file.getFileName().toString();
+        long n = name.startsWith(CHECKPOINT) ? parseNumber(name, CHECKPOINT)
+            : name.startsWith(JOURNAL) ? parseNumber(name, JOURNAL) : -1;
+        if (n >= 0 && n < number) {
+          Files.delete(file);
+        }
+      }
+    }
+  }
+
+  /**
+   * Journals the tree of {@code root} from now on instead of the current one.
+   * The new tree is checkpointed as a whole at the next commit. Entries
+   * recorded in the current tree and not committed yet are still written at
+   * that commit, before the checkpoint, so that they are not lost if the
+   * checkpoint is never completed.
+   * <p>
+   * The current tree is write locked while it is detached, so that no change
+   * to it is left half recorded.
+   *
+   * @param root the root directory of the new tree
+   */
+  public void attach(Directory root) {
+    Directory previous = this.root;
+    Lock lock = previous == null ? null
+        : previous.getFileManager().getLock().writeLock();
+    if (lock != null) {
+      lock.lock();
+    }
+    try {
+      synchronized (this) {
+        if (previous != null) {
+          previous.getFileManager().setJournal(null);
+        }
+        this.root = root;
+        root.getFileManager().setJournal(this);
+        checkpointDue = true;
+      }
+    } finally {
+      if (lock != null) {
+        lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Writes every entry recorded since the last commit as one frame, forces it
+   * to the disk if the {@link Sync} policy says so, and writes a checkpoint if
+   * one is due.
+   *
+   * @throws IOException if the journal or the checkpoint cannot be written.
+   */
+  public void commit() throws IOException {
+    synchronized (output) {
+      ByteBuffer entries = null;
+      boolean isCheckpointDue;
+      synchronized (this) {
+        isCheckpointDue = checkpointDue || sinceCheckpoint >= checkpointBytes;
+        if (pending.position() > 0) {
+          entries = pending;
+          pending = spare;
+        } else if (!isCheckpointDue) {
+          return;
+        }
+      }
+      if (entries != null) {
+        write(entries);
+        spare = entries;
+      }
+      if (!isCheckpointDue) {
+        return;
+      }
+    }
+    // The tree must be locked before the journal, as a change does.
+    checkpoint();
+  }
+
+  /**
+   * Writes {@code entries} as one frame, and clears it.
+   */
+  private void write(ByteBuffer entries) throws IOException {
+    CRC32 crc = new CRC32();
+    crc.update(entries.array(), 0, entries.position());
+    ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER);
+    header.putInt(entries.position()).putInt((int) crc.getValue()).flip();
+    entries.flip();
+    long written = 0;
+    ByteBuffer[] frame = {header, entries};
+    try {
+      while (entries.hasRemaining()) {
+        written += channel.write(frame);
+      }
+    } finally {
+      entries.clear();
+    }
+    sinceCheckpoint += written;
+    long now = System.nanoTime();
+    if (sync == Sync.ALWAYS
+        || sync == Sync.INTERVAL && now - lastSync >= SYNC_INTERVAL_NANOS) {
+      channel.force(false);
+      lastSync = now;
+    }
+  }
+
+  /**
+   * Writes the whole tree as a new checkpoint, and starts a new journal after
+   * it. Entries not committed yet are part of the checkpoint.
+   *
+   * @throws IOException if the checkpoint cannot be written.
+   */
+  public void checkpoint() throws IOException {
+    Directory root = this.root;
+    Lock lock = root.readLock();
+    lock.lock();
+    try {
+      synchronized (output) {
+        long next = number + 1;
+        root.getFileManager().pauseJournal();
+        try {
+          new Snapshot(root, "/", Collections.emptyList(),
+              Collections.emptyList()).save(file(CHECKPOINT, next).toString());
+        } finally {
+          root.getFileManager().resumeJournal();
+        }
+        synchronized (this) {
+          pending.clear();
+          checkpointDue = false;
+        }
+        channel.close();
+        number = next;
+        channel = open(number);
+        sinceCheckpoint = 0;
+        deleteBefore(number);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Commits everything recorded, forces it to the disk and closes the
+   * journal. A journal that nothing has been written to is deleted.
+   *
+   * @throws IOException if the journal cannot be written.
+   */
+  public void close() throws IOException {
+    boolean empty;
+    try {
+      commit();
+      synchronized (output) {
+        channel.force(false);
+        empty = channel.size() == 0;
+      }
+    } finally {
+      synchronized (output) {
+        channel.close();
+      }
+    }
+    if (empty) {
+      Files.delete(file(JOURNAL, number));
+    }
+  }
+
+  /**
+   * Returns whether {@code fe} is in the journaled tree. An element that has
+   * been removed from it, or that is inside such an element, still knows its
+   * parent, but is no longer listed there, and is not covered.
+   */
+  boolean covers(FolderElement fe) {
+    while (!fe.isTop()) {
+      if (fe.parentDir.contents().get(fe.name) != fe) {
+        return false;
+      }
+      fe = fe.parentDir;
+    }
+    return fe == root;
+  }
+
+  synchronized void created(Directory dir, char type, String name) {
+    writeByte(CREATE);
+    writePath(dir);
+    writeByte(type);
+    writeString(name);
+  }
+
+  synchronized void inserted(FolderElement fe) {
+    writeByte(INSERT);
+    writePath(fe.parentDir);
+    writeTree(fe);
+  }
+
+  /**
+   * Records that {@code copy}, a lazy copy of {@code original} that has not
+   * copied anything yet, has been inserted. Only the path of the original is
+   * recorded, since it has not changed since it was copied.
+   */
+  synchronized void copied(Directory original, FolderElement copy) {
+    writeByte(COPY);
+    writePath(original);
+    writePath(copy.parentDir);
+    writeString(copy.name);
+  }
+
+  synchronized void renamed(FolderElement fe, String[] oldPath) {
+    writeByte(RENAME);
+    writeSections(oldPath);
+    writeString(fe.name);
+  }
+
+  synchronized void moved(FolderElement fe, String[] oldPath) {
+    writeByte(MOVE);
+    writeSections(oldPath);
+    writePath(fe.parentDir);
+    writeString(fe.name);
+  }
+
+  synchronized void removed(Directory dir, String name) {
+    writeByte(REMOVE);
+    writePath(dir);
+    writeString(name);
+  }
+
+  synchronized void cleared(Directory dir) {
+    writeByte(CLEAR);
+    writePath(dir);
+  }
+
+  synchronized void edited(File file, char mode, String str) {
+    writeByte(mode == 'a' ? APPEND : OVERWRITE);
+    writePath(file);
+    writeString(str);
+  }
+
+  /**
+   * Returns the names on the path from the root to {@code fe}.
+   */
+  static String[] sectionsOf(FolderElement fe) {
+    util.Path path = fe.getPathToThis();
+    String[] sections = new String[path.length()];
+    for (int i = 0; i < sections.length; i++) {
+      sections[i] = path.getSection(i);
+    }
+    return sections;
+  }
+
+  private void writePath(FolderElement fe) {
+    writeSections(sectionsOf(fe));
+  }
+
+  private void writeSections(String[] sections) {
+    writeVarint(sections.length);
+    for (String section : sections) {
+      writeString(section);
+    }
+  }
+
+  /**
+   * Writes {@code top} and everything in it in depth-first order: each
+   * element as its type and name, followed by the contents of a file or the
+   * number of elements in a directory.
+   */
+  private void writeTree(FolderElement top) {
+    Deque<Iterator<FolderElement>> pendingDirs = new ArrayDeque<>();
+    Iterator<FolderElement> itr =
+        Collections.singletonList(top).iterator();
+    while (itr != null) {
+      if (!itr.hasNext()) {
+        itr = pendingDirs.poll();
+        continue;
+      }
+      FolderElement fe = itr.next();
+      writeString(fe.name);
+      if (fe instanceof Directory) {
+        writeByte('d');
+        writeVarint(((Directory) fe).elements().size());
+        pendingDirs.push(itr);
+        itr = ((Directory) fe).elements().iterator();
+      } else {
+        writeByte('f');
+        writeString(((File) fe).getContents());
+      }
+    }
+  }
+
+  private void ensureRemaining(int count) {
+    if (pending.remaining() < count) {
+      ByteBuffer grown = ByteBuffer.allocate(
+          Math.max(pending.capacity() * 2, pending.position() + count));
+      pending.flip();
+      pending = grown.put(pending);
+    }
+  }
+
+  private void writeByte(int b) {
+    ensureRemaining(1);
+    pending.put((byte) b);
+  }
+
+  private void writeVarint(long value) {
+    while ((value & ~0x7FL) != 0) {
+      writeByte((int) (value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    writeByte((int) value);
+  }
+
+  private void writeString(String str) {
+    byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+    writeVarint(bytes.length);
+    ensureRemaining(bytes.length);
+    pending.put(bytes);
+  }
+
+  /**
+   * Applies every complete frame of the journal {@code file} to the tree of
+   * {@code root}, and returns the number of bytes they take. A frame cut
+   * short or damaged ends the journal, since it was never committed.
+   */
+  private static long replay(Directory root, Path file) throws IOException {
+    SnapshotInput in = SnapshotInput.map(file.toString());
+    long position = 0;
+    while (in.size() - position >= FRAME_HEADER) {
+      ByteBuffer header =
+          ByteBuffer.wrap(in.at(position).readBytes(FRAME_HEADER));
+      long length = header.getInt() & 0xFFFFFFFFL;
+      int checksum = header.getInt();
+      if (length > in.size() - position - FRAME_HEADER) {
+        break;
+      }
+      byte[] frame = in.at(position + FRAME_HEADER).readBytes((int) length);
+      CRC32 crc = new CRC32();
+      crc.update(frame);
+      if ((int) crc.getValue() != checksum) {
+        break;
+      }
+      try {
+        apply(root, ByteBuffer.wrap(frame));
+      } catch (DuplicateException | IllegalNameException
+          | IllegalOperationException | RuntimeException e) {
+        throw new IOException("Corrupt journal " + file + ": "
+            + e.getMessage(), e);
+      }
+      position += FRAME_HEADER + length;
+    }
+    return position;
+  }
+
+  /**
+   * Applies every entry in {@code frame} to the tree of {@code root}.
+   */
+  private static void apply(Directory root, ByteBuffer frame)
+      throws IOException, DuplicateException, IllegalNameException,
+      IllegalOperationException {
+    while (frame.hasRemaining()) {
+      byte op = frame.get();
+      switch (op) {
+        case CREATE: {
+          Directory dir = (Directory) find(root, readSections(frame));
+          char type = (char) frame.get();
+          dir.getFileManager().createNew(dir, type, readString(frame));
+          break;
+        }
+        case INSERT: {
+          Directory dir = (Directory) find(root, readSections(frame));
+          readTree(dir, frame);
+          break;
+        }
+        case COPY: {
+          FolderElement copy = find(root, readSections(frame)).copy();
+          Directory dir = (Directory) find(root, readSections(frame));
+          copy.renameTo(readString(frame));
+          dir.insertElement(copy);
+          break;
+        }
+        case RENAME:
+          find(root, readSections(frame)).renameTo(readString(frame));
+          break;
+        case MOVE: {
+          FolderElement fe = find(root, readSections(frame));
+          Directory dest = (Directory) find(root, readSections(frame));
+          fe.moveTo(dest, readString(frame));
+          break;
+        }
+        case REMOVE:
+          ((Directory) find(root, readSections(frame)))
+              .removeElement(readString(frame));
+          break;
+        case CLEAR:
+          ((Directory) find(root, readSections(frame))).removeAll();
+          break;
+        case OVERWRITE:
+          ((File) find(root, readSections(frame)))
+              .overwriteContentsAs(readString(frame));
+          break;
+        case APPEND:
+          ((File) find(root, readSections(frame)))
+              .appendToContents(readString(frame));
+          break;
+        default:
+          throw new IOException("unknown entry " + op);
+      }
+    }
+  }
+
+  private static FolderElement find(Directory root, String[] sections)
+      throws IOException {
+    FolderElement fe = root;
+    for (String section : sections) {
+      fe = fe instanceof Directory
+          ? ((Directory) fe).getElementByName(section) : null;
+      if (fe == null) {
+        throw new IOException("no element at /"
+            + String.join("/", sections));
+      }
+    }
+    return fe;
+  }
+
+  /**
+   * Reads a tree written by {@link #writeTree} into {@code dir}.
+   */
+  private static void readTree(Directory dir, ByteBuffer frame)
+      throws DuplicateException, IllegalNameException {
+    Deque<Directory> dirs = new ArrayDeque<>();
+    Deque<Long> counts = new ArrayDeque<>();
+    dirs.push(dir);
+    counts.push(1L);
+    while (!dirs.isEmpty()) {
+      long left = counts.pop();
+      if (left == 0) {
+        dirs.pop();
+        continue;
+      }
+      counts.push(left - 1);
+      String name = readString(frame);
+      if (frame.get() == 'd') {
+        dirs.push(dirs.peek().createDirectory(name));
+        counts.push(readVarint(frame));
+      } else {
+        dirs.peek().createFile(name).overwriteContentsAs(readString(frame));
+      }
+    }
+  }
+
+  private static String[] readSections(ByteBuffer frame) {
+    String[] sections = new String[(int) readVarint(frame)];
+    Arrays.setAll(sections, i -> readString(frame));
+    return sections;
+  }
+
+  private static long readVarint(ByteBuffer frame) {
+    long value = 0;
+    for (int shift = 0; ; shift += 7) {
+      byte b = frame.get();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+  }
+
+  private static String readString(ByteBuffer frame) {
+    byte[] bytes = new byte[(int) readVarint(frame)];
+    frame.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,311 @@
+package io;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The elements directly in a directory, keyed by their names and iterated in
+ * the order they were added.
+ * <p>
+ * This is a hash map of entries that are also linked together in order, much
+ * like {@code LinkedHashMap}, except that an entry can be given a new key
+ * where it is. Renaming an element therefore takes constant time and leaves
+ * it, and everything listed after it, where it was.
+ * <p>
+ * The elements are also kept as an array, made the first time it is asked
+ * for after a change, so that iterating over a directory that has not changed
+ * copies nothing. Entries cannot be changed through {@code setValue}.
+ */
+final class Listing extends AbstractMap<String, FolderElement>
+    implements Serializable {
+
+  private static final long serialVersionUID = 2614630318250446813L;
+
+  /**
+   * The entries keyed by name.
+   */
+  private transient HashMap<String, Node> nodes;
+
+  /**
+   * Links the first and last entries together into a ring, so that neither
+   * end needs special cases.
+   */
+  private transient Node header;
+
+  /**
+   * The number of times entries were added or removed, so that iterators can
+   * tell they were.
+   */
+  private transient int modCount;
+
+  /**
+   * The elements in order, or null if they changed since it was made. Readers
+   * holding the read lock of the file manager may make it at the same time,
+   * so it is published through a volatile field.
+   */
+  private transient volatile FolderElement[] snapshot;
+
+  private transient Set<Map.Entry<String, FolderElement>> entrySet;
+
+  Listing() {
+    init();
+  }
+
+  private void init() {
+    nodes = new HashMap<>();
+    header = new Node(null, null);
+    header.before = header.after = header;
+  }
+
+  @Override
+  public int size() {
+    return nodes.size();
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return nodes.containsKey(key);
+  }
+
+  @Override
+  public FolderElement get(Object key) {
+    Node node = nodes.get(key);
+    return node == null ? null : node.value;
+  }
+
+  /**
+   * Maps {@code key} to {@code value}. A new key is listed last, while a key
+   * that is already here keeps its place.
+   */
+  @Override
+  public FolderElement put(String key, FolderElement value) {
+    Node node = nodes.get(key);
+    if (node != null) {
+      FolderElement old = node.value;
+      node.value = value;
+      snapshot = null;
+      return old;
+    }
+    node = new Node(key, value);
+    nodes.put(key, node);
+    link(node);
+    return null;
+  }
+
+  @Override
+  public FolderElement remove(Object key) {
+    Node node = nodes.remove(key);
+    if (node == null) {
+      return null;
+    }
+    unlink(node);
+    return node.value;
+  }
+
+  @Override
+  public void clear() {
+    nodes.clear();
+    header.before = header.after = header;
+    modCount++;
+    snapshot = null;
+  }
+
+  /**
+   * Returns the elements in order. The array is shared until the next change,
+   * so it must not be modified.
+   *
+   * @return the elements in the order they were added
+   */
+  FolderElement[] snapshot() {
+    FolderElement[] elements = snapshot;
+    if (elements == null) {
+      elements = new FolderElement[nodes.size()];
+      int i = 0;
+      for (Node node = header.after; node != header; node = node.after) {
+        elements[i++] = node.value;
+      }
+      snapshot = elements;
+    }
+    return elements;
+  }
+
+  /**
+   * Moves the element under {@code from} to {@code to}, keeping its place in
+   * the listing. Whatever was under {@code to} before is removed.
+   *
+   * @param from the key the element is under now
+   * @param to   the key the element is to be under
+   * @return whether there was an element under {@code from}
+   */
+  boolean rekey(String from, String to) {
+    Node node = nodes.remove(from);
+    if (node == null) {
+      return false;
+    }
+    node.key = to;
+    Node replaced = nodes.put(to, node);
+    if (replaced != null) {
+      unlink(replaced);
+    }
+    return true;
+  }
+
+  @Override
+  public Set<Map.Entry<String, FolderElement>> entrySet() {
+    if (entrySet == null) {
+      entrySet = new EntrySet();
+    }
+    return entrySet;
+  }
+
+  private void link(Node node) {
+    node.before = header.before;
+    node.after = header;
+    header.before.after = node;
+    header.before = node;
+    modCount++;
+    snapshot = null;
+  }
+
+  private void unlink(Node node) {
+    node.before.after = node.after;
+    node.after.before = node.before;
+    modCount++;
+    snapshot = null;
+  }
+
+  /**
+   * Writes the number of entries followed by every key and value in order.
+   */
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    out.defaultWriteObject();
+    out.writeInt(nodes.size());
+    for (Node node = header.after; node != header; node = node.after) {
+      out.writeObject(node.key);
+      out.writeObject(node.value);
+    }
+  }
+
+  private void readObject(ObjectInputStream in)
+      throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    init();
+    for (int count = in.readInt(); count > 0; count--) {
+      put((String) in.readObject(), (FolderElement) in.readObject());
+    }
+  }
+
+  private static final class Node implements Map.Entry<String, FolderElement> {
+
+    private String key;
+    private FolderElement value;
+    private Node before;
+    private Node after;
+
+    private Node(String key, FolderElement value) {
+      this.key = key;
+      this.value = value;
+    }
+
+    @Override
+    public String getKey() {
+      return key;
+    }
+
+    @Override
+    public FolderElement getValue() {
+      return value;
+    }
+
+    @Override
+    public FolderElement setValue(FolderElement value) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Map.Entry)) {
+        return false;
+      }
+      Map.Entry<?, ?> that = (Map.Entry<?, ?>) o;
+      return Objects.equals(key, that.getKey())
+          && Objects.equals(value, that.getValue());
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(key) ^ Objects.hashCode(value);
+    }
+
+    @Override
+    public String toString() {
+      return key + "=" + value;
+    }
+  }
+
+  private final class EntrySet extends AbstractSet<Map.Entry<String,
+      FolderElement>> {
+
+    @Override
+    public int size() {
+      return nodes.size();
+    }
+
+    @Override
+    public void clear() {
+      Listing.this.clear();
+    }
+
+    @Override
+    public Iterator<Map.Entry<String, FolderElement>> iterator() {
+      return new Iterator<>() {
+        private Node next = header.after;
+        private Node last;
+        private int expected = modCount;
+
+        @Override
+        public boolean hasNext() {
+          return next != header;
+        }
+
+        @Override
+        public Map.Entry<String, FolderElement> next() {
+          if (modCount != expected) {
+            throw new ConcurrentModificationException();
+          }
+          if (next == header) {
+            throw new NoSuchElementException();
+          }
+          last = next;
+          next = next.after;
+          return last;
+        }
+
+        @Override
+        public void remove() {
+          if (last == null) {
+            throw new IllegalStateException();
+          }
+          if (modCount != expected) {
+            throw new ConcurrentModificationException();
+          }
+          nodes.remove(last.key);
+          unlink(last);
+          last = null;
+          expected = modCount;
+        }
+      };
+    }
+  }
+}
@@ -0,0 +1,114 @@
+package io;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * An inverted index from names to the folder elements that currently have
+ * them. Elements are told apart by identity, so two elements that are equal
+ * but live in different directories are both kept.
+ * <p>
+ * Most names belong to exactly one element, so such a name maps to the element
+ * itself, and a set of elements is only allocated once a second element with
+ * the same name is added.
+ * <p>
+ * Names are kept sorted, so all names that start with a given prefix can be
+ * visited without looking at any other name.
+ */
+class NameIndex {
+
+  /**
+   * Maps a name either to the only element of that name, or to a set of all
+   * elements of that name.
+   */
+  private final TreeMap<String, Object> entries = new TreeMap<>();
+
+  /**
+   * Adds {@code fe} under its current name. Does nothing if it is already
+   * there.
+   *
+   * @param fe the element to be added
+   */
+  @SuppressWarnings("unchecked")
+  void add(FolderElement fe) {
+    Object entry = entries.get(fe.name);
+    if (entry == null) {
+      entries.put(fe.name, fe);
+    } else if (entry instanceof Set) {
+      ((Set<FolderElement>) entry).add(fe);
+    } else if (entry != fe) {
+      Set<FolderElement> elements =
+          Collections.newSetFromMap(new IdentityHashMap<>());
+      elements.add((FolderElement) entry);
+      elements.add(fe);
+      entries.put(fe.name, elements);
+    }
+  }
+
+  /**
+   * Removes {@code fe} from under its current name. Does nothing if it is not
+   * there.
+   *
+   * @param fe the element to be removed
+   */
+  @SuppressWarnings("unchecked")
+  void remove(FolderElement fe) {
+    Object entry = entries.get(fe.name);
+    if (entry == fe) {
+      entries.remove(fe.name);
+    } else if (entry instanceof Set) {
+      Set<FolderElement> elements = (Set<FolderElement>) entry;
+      elements.remove(fe);
+      if (elements.size() == 1) {
+        entries.put(fe.name, elements.iterator().next());
+      }
+    }
+  }
+
+  /**
+   * Adds every element named {@code name} to {@code found}, in no particular
+   * order.
+   *
+   * @param name  the name to look up
+   * @param found the list that receives the elements
+   */
+  void collect(String name, List<FolderElement> found) {
+    collectEntry(entries.get(name), found);
+  }
+
+  /**
+   * Adds every element whose name starts with {@code prefix} and is accepted
+   * by {@code names} to {@code found}, in no particular order. {@code names} is
+   * tested once for each distinct name, no matter how many elements have it.
+   *
+   * @param prefix the text all names of interest start with, possibly empty
+   * @param names  decides which of those names are wanted
+   * @param found  the list that receives the elements
+   */
+  void collect(String prefix, Predicate<String> names,
+      List<FolderElement> found) {
+    for (Map.Entry<String, Object> entry :
+        entries.tailMap(prefix, true).entrySet()) {
+      if (!entry.getKey().startsWith(prefix)) {
+        break;
+      }
+      if (names.test(entry.getKey())) {
+        collectEntry(entry.getValue(), found);
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void collectEntry(Object entry, List<FolderElement> found) {
+    if (entry instanceof Set) {
+      found.addAll((Set<FolderElement>) entry);
+    } else if (entry != null) {
+      found.add((FolderElement) entry);
+    }
+  }
+}
@@ -3,8 +3,12 @@ package io;
 import exceptions.DuplicateException;
 import exceptions.FileNotExistException;
 import exceptions.IllegalNameException;
+import exceptions.JShellException;
 import exceptions.NotADirectoryException;
-import java.util.Iterator;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import util.CmdOutput;
 import util.CmdOutput.OutMode;
 import util.Message;
@@ -14,13 +18,72 @@ import util.PathInterpreter;
 /**
  * This class is responsible for handling the {@code CmdOutput} objects
  * generated by command calls.
+ * <p>
+ * Outputs are either handled as a whole after the command is done, or, if they
+ * are streaming, written line by line to a sink opened by this class.
+ * <p>
+ * Everything printed to the console goes through one buffer, which is flushed
+ * once an output is done, or whenever it fills up. Callers that print anything
+ * to the console in another way, such as error messages, should call {@code
+ * flushConsole} first so that the two stay in order. The buffer is encoded
+ * into the console without allocating anything, so that printing the output of
+ * a short command costs no more than the command itself.
+ * <p>
+ * An output handler can also be made to pass the lines of printed outputs to
+ * an {@code OutputSink} as they are, for callers that want the lines rather
+ * than the text they would make on a console.
  */
 public class OutputHandler {
 
+  /**
+   * The size of the console buffer in characters.
+   */
+  private static final int BUFFER_SIZE = 1 << 16;
+
   private final PathInterpreter pathInterpreter;
 
+  /**
+   * The buffered writer that everything printed to the console goes through,
+   * or null if printed lines go to {@code printed} instead.
+   */
+  private final Writer console;
+
+  /**
+   * The sink that printed lines are written to one by one, as they are, or
+   * null if they are printed to the console. It is never closed.
+   */
+  private final OutputSink printed;
+
   public OutputHandler(PathInterpreter pathInterpreter) {
+    this(pathInterpreter, System.out);
+  }
+
+  /**
+   * Constructs an output handler that prints to {@code console} instead of the
+   * standard output.
+   *
+   * @param pathInterpreter Locates the files that outputs are redirected to.
+   * @param console         The stream that printed outputs are written to.
+   */
+  public OutputHandler(PathInterpreter pathInterpreter, OutputStream console) {
     this.pathInterpreter = pathInterpreter;
+    this.console = new ConsoleWriter(console, BUFFER_SIZE);
+    this.printed = null;
+  }
+
+  /**
+   * Constructs an output handler that writes each line of a printed output to
+   * {@code printed}, rather than printing it anywhere. The lines are written
+   * as the command produced them, without separators between them, so that
+   * their text is kept exactly.
+   *
+   * @param pathInterpreter Locates the files that outputs are redirected to.
+   * @param printed         Receives the lines of printed outputs.
+   */
+  public OutputHandler(PathInterpreter pathInterpreter, OutputSink printed) {
+    this.pathInterpreter = pathInterpreter;
+    this.console = null;
+    this.printed = printed;
   }
 
   /**
@@ -52,9 +115,14 @@ public class OutputHandler {
       return;
     }
     OutMode mode = output.getOutMode();
-    if (mode.equals(OutMode.PRINT)) {
+    if (mode.equals(OutMode.PRINT) && printed != null) {
+      for (String line : output) {
+        printed.write(line);
+      }
+    } else if (mode.equals(OutMode.PRINT)) {
       print(output, output.getLineSeparator());
-      System.out.println();
+      write("\n");
+      flushConsole();
     } else {
       handleRedirection(output);
     }
@@ -64,7 +132,8 @@ public class OutputHandler {
    * Prints all strings in {@code m} followed by a {@code endWith}.
    * <p>
    * This method will automatically call {@code resetMessage} on {@code m} so
-   * that it always prints from the beginning.
+   * that it always prints from the beginning. The strings are only buffered,
+   * so {@code flushConsole} has to be called for them to appear.
    *
    * @param msg     the message to be printed
    * @param endWith the string between each item in the message
@@ -72,18 +141,82 @@ public class OutputHandler {
   public void print(Message msg, String endWith) {
     if (msg == null) {
       return;
+    } else if (printed != null) {
+      for (int i = 0; i < msg.length(); i++) {
+        printed.write(msg.get(i));
+      }
+      return;
     }
-    for (Iterator<String> itr = msg.iterator(); itr.hasNext(); ) {
-      System.out.print(itr.next());
-      if (itr.hasNext()) {
-        System.out.print(endWith);
+    // Read by index, so that printing allocates no iterator whether or not
+    // the compiler manages to do away with it.
+    for (int i = 0; i < msg.length(); i++) {
+      if (i > 0) {
+        write(endWith);
       }
+      write(msg.get(i));
     }
   }
 
+  /**
+   * Writes everything printed so far to the console.
+   */
+  public void flushConsole() {
+    if (console == null) {
+      return;
+    }
+    try {
+      console.flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void write(String str) {
+    try {
+      console.write(str);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Opens a sink that writes the lines of {@code output} to where {@code
+   * output} says, in the same way {@code handle} would.
+   * <p>
+   * The file of a redirected output is created or cleared right away, before
+   * the command has produced anything, like a redirection in a real shell. If
+   * that fails, the lines written are dropped and the exception is thrown by
+   * {@code close} instead, at the same point {@code handle} would throw it.
+   *
+   * @param output The output whose lines are to be written to the sink.
+   * @return a new sink for the lines of {@code output}
+   */
+  public OutputSink openSink(CmdOutput output) {
+    if (output.getOutMode().equals(OutMode.PRINT) && printed != null) {
+      return new PrintedSink();
+    } else if (output.getOutMode().equals(OutMode.PRINT)) {
+      return new ConsoleSink(output.getLineSeparator());
+    }
+    return new FileSink(output);
+  }
+
   private void handleRedirection(CmdOutput output)
       throws NotADirectoryException, FileNotExistException, DuplicateException,
       IllegalNameException {
+    File outfile = openFile(output);
+    writeToFile(outfile, output, output.getLineSeparator());
+    // Append a newline char nevertheless to ensure that spacing does not go
+    // wrong when printing the file out.
+    outfile.appendToContents("\n");
+  }
+
+  /**
+   * Returns the file that {@code output} is redirected to, creating it if it
+   * does not exist yet and clearing it if {@code output} overwrites it.
+   */
+  private File openFile(CmdOutput output)
+      throws NotADirectoryException, FileNotExistException, DuplicateException,
+      IllegalNameException {
     Path path = output.getRedirectTo();
     FolderElement out = pathInterpreter.toFolderElement(path);
     if (out instanceof Directory) {
@@ -97,19 +230,119 @@ public class OutputHandler {
     if (output.getOutMode().equals(OutMode.OVERWRITE_FILE)) {
       outfile.overwriteContentsAs("");
     }
-    writeToFile(outfile, output, output.getLineSeparator());
-    // Append a newline char nevertheless to ensure that spacing does not go
-    // wrong when printing the file out.
-    outfile.appendToContents("\n");
+    return outfile;
   }
 
   private void writeToFile(File f, CmdOutput msg, String endLinesWith) {
-    for (Iterator<String> itr = msg.iterator(); itr.hasNext(); ) {
-      f.appendToContents(itr.next());
-      if (itr.hasNext()) {
+    for (int i = 0; i < msg.length(); i++) {
+      if (i > 0) {
         f.appendToContents(endLinesWith);
       }
+      f.appendToContents(msg.get(i));
+    }
+  }
+
+  /**
+   * Writes lines to the console buffer, which is flushed when the sink is
+   * closed.
+   */
+  private class ConsoleSink implements OutputSink {
+
+    private final String lineSeparator;
+
+    private boolean isEmpty = true;
+
+    private ConsoleSink(String lineSeparator) {
+      this.lineSeparator = lineSeparator;
+    }
+
+    @Override
+    public void write(String line) {
+      if (!isEmpty) {
+        OutputHandler.this.write(lineSeparator);
+      }
+      OutputHandler.this.write(line);
+      isEmpty = false;
+    }
+
+    @Override
+    public void close() {
+      OutputHandler.this.write("\n");
+      flushConsole();
+    }
+  }
+
+  /**
+   * Passes lines on to {@code printed}, which stays open when this is closed.
+   */
+  private class PrintedSink implements OutputSink {
+
+    @Override
+    public void write(String line) {
+      printed.write(line);
+    }
+
+    @Override
+    public void close() {
     }
   }
 
+  /**
+   * Appends lines to the file an output is redirected to.
+   */
+  private class FileSink implements OutputSink {
+
+    private final String lineSeparator;
+
+    /**
+     * The file written to, or null if it could not be opened.
+     */
+    private File file;
+
+    /**
+     * The exception thrown while opening {@code file}, if any.
+     */
+    private JShellException failure;
+
+    private boolean isEmpty = true;
+
+    private FileSink(CmdOutput output) {
+      this.lineSeparator = output.getLineSeparator();
+      try {
+        file = openFile(output);
+      } catch (NotADirectoryException | FileNotExistException
+          | DuplicateException | IllegalNameException e) {
+        failure = e;
+      }
+    }
+
+    @Override
+    public void write(String line) {
+      if (file == null) {
+        return;
+      }
+      if (!isEmpty) {
+        file.appendToContents(lineSeparator);
+      }
+      file.appendToContents(line);
+      isEmpty = false;
+    }
+
+    @Override
+    public void close()
+        throws NotADirectoryException, DuplicateException,
+        IllegalNameException, FileNotExistException {
+      if (failure instanceof NotADirectoryException) {
+        throw (NotADirectoryException) failure;
+      } else if (failure instanceof DuplicateException) {
+        throw (DuplicateException) failure;
+      } else if (failure instanceof IllegalNameException) {
+        throw (IllegalNameException) failure;
+      } else if (failure instanceof FileNotExistException) {
+        throw (FileNotExistException) failure;
+      }
+      // Same as handleRedirection, end the output with a newline.
+      file.appendToContents("\n");
+    }
+  }
 }
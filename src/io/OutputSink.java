@@ -0,0 +1,39 @@
+package io;
+
+import exceptions.DuplicateException;
+import exceptions.FileNotExistException;
+import exceptions.IllegalNameException;
+import exceptions.NotADirectoryException;
+
+/**
+ * A destination that a streaming {@code CmdOutput} writes its lines to as soon
+ * as they are produced, instead of keeping them until the command is done.
+ * Sinks are opened by {@link OutputHandler#openSink(util.CmdOutput)}.
+ */
+public interface OutputSink {
+
+  /**
+   * Writes {@code line} after the lines written before it.
+   *
+   * @param line the line to be written
+   */
+  void write(String line);
+
+  /**
+   * Finishes the output, so that it looks the same as if all lines had been
+   * handled by {@link OutputHandler#handle(util.CmdOutput)} at once. Nothing
+   * can be written after this.
+   *
+   * @throws NotADirectoryException When the file written to cannot be reached
+   *                                because a file is on the way to it.
+   * @throws DuplicateException     When the file written to cannot be created
+   *                                because of another element of its name.
+   * @throws IllegalNameException   When the file written to has an illegal
+   *                                name.
+   * @throws FileNotExistException  When the file written to cannot be reached
+   *                                or is a directory.
+   */
+  void close()
+      throws NotADirectoryException, DuplicateException,
+      IllegalNameException, FileNotExistException;
+}
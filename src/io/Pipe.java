@@ -0,0 +1,213 @@
+package io;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Carries the lines written by one stage of a pipeline to the next, which
+ * reads them as they come while the first is still running.
+ * <p>
+ * The output of a command is written through a sink opened by {@code
+ * openSink}, which passes on the lines of the text the command would have
+ * printed, that is, its items and the separators between them split at every
+ * newline.
+ * <p>
+ * Lines are passed on in chunks, so that the two stages do not have to meet
+ * for every single line, and at most {@code CAPACITY} chunks are held at a
+ * time, so that a stage that writes faster than the next one reads waits for
+ * it instead of filling the memory. Once the reading stage is done, whether or
+ * not it has read every line, it closes its end, and whatever is written after
+ * that is dropped, so the writing stage never waits for it again.
+ */
+public class Pipe implements Iterator<String> {
+
+  /**
+   * The number of lines in a full chunk.
+   */
+  private static final int CHUNK_SIZE = 256;
+
+  /**
+   * The number of chunks that can be held at a time.
+   */
+  private static final int CAPACITY = 16;
+
+  /**
+   * The chunk that ends the lines.
+   */
+  private static final String[] END = new String[0];
+
+  private final BlockingQueue<String[]> chunks =
+      new ArrayBlockingQueue<>(CAPACITY);
+
+  /**
+   * The chunk being filled by the writer, and the number of lines in it.
+   */
+  private String[] writing = new String[CHUNK_SIZE];
+  private int written = 0;
+
+  private boolean isClosed = false;
+
+  /**
+   * The chunk being read by the reader, and the number of its lines read.
+   */
+  private String[] reading = new String[0];
+  private int read = 0;
+
+  private volatile boolean isReaderClosed = false;
+
+  /**
+   * Opens a sink that writes the text of an output whose items are separated
+   * by {@code lineSeparator} to this pipe, line by line. Closing the sink
+   * closes this pipe.
+   *
+   * @param lineSeparator the string printed between two items of the output
+   * @return a new sink that writes to this pipe
+   */
+  public OutputSink openSink(String lineSeparator) {
+    return new LineSink(lineSeparator);
+  }
+
+  /**
+   * Writes {@code line} after the lines written before it, waiting for the
+   * reader if it has too many lines to read already.
+   *
+   * @param line the line to be written, without a newline
+   * @throws IllegalStateException if this pipe is closed.
+   */
+  public void write(String line) {
+    if (isClosed) {
+      throw new IllegalStateException("Pipe is closed");
+    }
+    writing[written++] = line;
+    if (written == CHUNK_SIZE) {
+      send(writing);
+      writing = new String[CHUNK_SIZE];
+      written = 0;
+    }
+  }
+
+  /**
+   * Ends the lines, after sending those not sent yet. Nothing can be written
+   * after this, and closing again does nothing.
+   */
+  public void close() {
+    if (isClosed) {
+      return;
+    }
+    isClosed = true;
+    if (written > 0) {
+      String[] last = new String[written];
+      System.arraycopy(writing, 0, last, 0, written);
+      send(last);
+    }
+    writing = null;
+    send(END);
+  }
+
+  private void send(String[] chunk) {
+    if (isReaderClosed) {
+      return;
+    }
+    try {
+      chunks.put(chunk);
+    } catch (InterruptedException e) {
+      // Give up on the lines, but let the caller see the interruption.
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Returns whether there is another line to read, waiting for it to be
+   * written, or for the writer to close, if need be.
+   *
+   * @return true if there is another line
+   */
+  @Override
+  public boolean hasNext() {
+    while (read == reading.length) {
+      if (reading == END) {
+        return false;
+      }
+      try {
+        reading = chunks.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        reading = END;
+      }
+      read = 0;
+    }
+    return true;
+  }
+
+  @Override
+  public String next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    return reading[read++];
+  }
+
+  /**
+   * Closes the reading end, so that the lines not read yet, and any written
+   * later, are dropped.
+   */
+  public void closeReader() {
+    isReaderClosed = true;
+    chunks.clear();
+    reading = END;
+    read = 0;
+  }
+
+  /**
+   * Splits the text of an output into the lines written to this pipe. The
+   * text after the last newline is held back until more text comes, or until
+   * the sink is closed, at which point it is written as the last line, the
+   * same way the console would end it with a newline. An output whose items
+   * are lines of their own thus has each of them written as is.
+   */
+  private class LineSink implements OutputSink {
+
+    private final String lineSeparator;
+
+    /**
+     * The text after the last newline.
+     */
+    private String held = "";
+
+    private boolean isEmpty = true;
+
+    private LineSink(String lineSeparator) {
+      this.lineSeparator = lineSeparator;
+    }
+
+    @Override
+    public void write(String item) {
+      if (!isEmpty) {
+        split(lineSeparator);
+      }
+      isEmpty = false;
+      split(item);
+    }
+
+    private void split(String text) {
+      int start = 0;
+      int end;
+      while ((end = text.indexOf('\n', start)) >= 0) {
+        Pipe.this.write(held.concat(text.substring(start, end)));
+        held = "";
+        start = end + 1;
+      }
+      held = held.concat(text.substring(start));
+    }
+
+    @Override
+    public void close() {
+      if (!isEmpty) {
+        Pipe.this.write(held);
+      }
+      Pipe.this.close();
+    }
+  }
+}
@@ -0,0 +1,391 @@
+package io;
+
+import events.SnapshotEvent;
+import exceptions.DuplicateException;
+import exceptions.IllegalNameException;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * The saved state of a shell: its whole file system, its working directory,
+ * its command history and its directory stack.
+ * <p>
+ * Snapshots are written to host files in a compact binary format, which
+ * consists of, in order:
+ * <ol>
+ *   <li>the magic bytes {@code JSHS} and the format version,</li>
+ *   <li>a table of all distinct names in the file system,</li>
+ *   <li>the path of the working directory,</li>
+ *   <li>the number of history entries and the entries, oldest first,</li>
+ *   <li>the number of paths on the directory stack and the paths, bottom
+ *   first,</li>
+ *   <li>the index of the name of the root directory in the name table,
+ *   shifted left by one, with the lowest bit set,</li>
+ *   <li>a record of every directory, where each sub directory comes before
+ *   the directory it is in. A record holds the number of elements in the
+ *   directory, and for each element its index in the name table shifted left
+ *   by one, with the lowest bit set for directories, followed by the number
+ *   of the directory's record, or the contents of the file,</li>
+ *   <li>the position of the record of each directory by number, in eight
+ *   bytes each, ending with the root directory,</li>
+ *   <li>the position of that table, in eight bytes.</li>
+ * </ol>
+ * All other integers are varints, and all strings are UTF-8 with their length
+ * in bytes before them.
+ * <p>
+ * Snapshots are loaded by mapping the host file into memory. Only the root
+ * directory is created at first, and every directory reads its record the
+ * first time its elements are needed, so loading takes the same time no
+ * matter how large the snapshot is. Snapshots of version 1, which write the
+ * whole file system in depth-first order after the name table, are still
+ * read, but all at once. The file system is written and read with an explicit
+ * stack, so trees of any depth can be saved.
+ * <p>
+ * Every save and load is recorded as a {@code SnapshotEvent} if Flight
+ * Recorder is recording those.
+ */
+public class Snapshot {
+
+  /**
+   * The bytes every snapshot starts with.
+   */
+  private static final byte[] MAGIC = {'J', 'S', 'H', 'S'};
+
+  /**
+   * The version of the format written by this class.
+   */
+  public static final int VERSION = 2;
+
+  private final Directory root;
+
+  private final String workingDir;
+
+  private final List<String> history;
+
+  private final List<String> pathStack;
+
+  /**
+   * Constructs a snapshot of the given state. Nothing is copied, so the state
+   * must not change until the snapshot is written.
+   *
+   * @param root       The root directory of the file system.
+   * @param workingDir The absolute path of the working directory.
+   * @param history    The command history, oldest first.
+   * @param pathStack  The paths on the directory stack, bottom first.
+   */
+  public Snapshot(Directory root, String workingDir, List<String> history,
+      List<String> pathStack) {
+    this.root = root;
+    this.workingDir = workingDir;
+    this.history = history;
+    this.pathStack = pathStack;
+  }
+
+  public Directory getRoot() {
+    return root;
+  }
+
+  public String getWorkingDir() {
+    return workingDir;
+  }
+
+  public List<String> getHistory() {
+    return Collections.unmodifiableList(history);
+  }
+
+  public List<String> getPathStack() {
+    return Collections.unmodifiableList(pathStack);
+  }
+
+  /**
+   * Writes this snapshot to the host file {@code path}, replacing anything in
+   * it. The tree is read locked while it is written, so the snapshot shows
+   * it as it was at one moment.
+   *
+   * @param path The path of the host file.
+   * @throws IOException if the file cannot be written.
+   */
+  public void save(String path) throws IOException {
+    SnapshotEvent event = new SnapshotEvent();
+    event.begin();
+    long bytes;
+    Lock lock = root.readLock();
+    lock.lock();
+    try {
+      bytes = write(path);
+    } finally {
+      lock.unlock();
+    }
+    commit(event, "save", path, bytes);
+  }
+
+  /**
+   * Ends {@code event}, and commits it as an {@code operation} on the host
+   * file {@code path} of {@code bytes} if it is recorded.
+   */
+  private static void commit(SnapshotEvent event, String operation,
+      String path, long bytes) {
+    event.end();
+    if (event.shouldCommit()) {
+      event.operation = operation;
+      event.path = path;
+      event.bytes = bytes;
+      event.commit();
+    }
+  }
+
+  /**
+   * Writes this snapshot to {@code path}, and returns its size in bytes.
+   */
+  private long write(String path) throws IOException {
+    // Every directory is read before the file is written, so a tree that is
+    // still being read from that file is never left behind.
+    Map<String, Integer> names = collectNames();
+    try (SnapshotOutput out = new SnapshotOutput(path)) {
+      out.writeBytes(MAGIC);
+      out.writeVarint(VERSION);
+      out.writeVarint(names.size());
+      for (String name : names.keySet()) {
+        out.writeString(name);
+      }
+      out.writeString(workingDir);
+      writeStrings(out, history);
+      writeStrings(out, pathStack);
+      out.writeVarint((long) names.get(root.getName()) << 1 | 1);
+      List<Long> positions = writeDirectories(out, names);
+      long indexPosition = out.position();
+      for (long position : positions) {
+        out.writeLong(position);
+      }
+      out.writeLong(indexPosition);
+      long size = out.position();
+      out.commit();
+      return size;
+    }
+  }
+
+  /**
+   * Returns every distinct name in the file system, mapped to its index in
+   * the name table in the order the names are first met.
+   */
+  private Map<String, Integer> collectNames() {
+    Map<String, Integer> names = new LinkedHashMap<>();
+    Deque<Directory> pending = new ArrayDeque<>();
+    names.put(root.getName(), 0);
+    pending.push(root);
+    while (!pending.isEmpty()) {
+      for (FolderElement fe : pending.pop().elements()) {
+        names.putIfAbsent(fe.getName(), names.size());
+        if (fe instanceof Directory) {
+          pending.push((Directory) fe);
+        }
+      }
+    }
+    return names;
+  }
+
+  /**
+   * Writes the record of every directory, each sub directory before the
+   * directory it is in, and returns the position of each record by number.
+   */
+  private List<Long> writeDirectories(SnapshotOutput out,
+      Map<String, Integer> names) throws IOException {
+    List<Long> positions = new ArrayList<>();
+    Deque<PendingDirectory> pending = new ArrayDeque<>();
+    pending.push(new PendingDirectory(root));
+    while (!pending.isEmpty()) {
+      PendingDirectory top = pending.peek();
+      if (top.elements.hasNext()) {
+        FolderElement fe = top.elements.next();
+        if (fe instanceof Directory) {
+          pending.push(new PendingDirectory((Directory) fe));
+        }
+        continue;
+      }
+      pending.pop();
+      int number = positions.size();
+      positions.add(out.position());
+      writeRecord(out, names, top);
+      if (!pending.isEmpty()) {
+        pending.peek().subNumbers.add(number);
+      }
+    }
+    return positions;
+  }
+
+  private static void writeRecord(SnapshotOutput out,
+      Map<String, Integer> names, PendingDirectory written)
+      throws IOException {
+    Iterator<Integer> subNumbers = written.subNumbers.iterator();
+    out.writeVarint(written.dir.elements().size());
+    for (FolderElement fe : written.dir.elements()) {
+      long index = names.get(fe.getName());
+      if (fe instanceof Directory) {
+        out.writeVarint(index << 1 | 1);
+        out.writeVarint(subNumbers.next());
+      } else {
+        out.writeVarint(index << 1);
+        out.writeString(((File) fe).getContents());
+      }
+    }
+  }
+
+  /**
+   * A directory whose record is yet to be written, because some of its sub
+   * directories have not been written yet.
+   */
+  private static class PendingDirectory {
+
+    private final Directory dir;
+
+    private final Iterator<FolderElement> elements;
+
+    /**
+     * The numbers of the sub directories written so far, in order.
+     */
+    private final List<Integer> subNumbers = new ArrayList<>();
+
+    private PendingDirectory(Directory dir) {
+      this.dir = dir;
+      this.elements = dir.elements().iterator();
+    }
+  }
+
+  private static void writeStrings(SnapshotOutput out, List<String> strings)
+      throws IOException {
+    out.writeVarint(strings.size());
+    for (String str : strings) {
+      out.writeString(str);
+    }
+  }
+
+  /**
+   * Reads the snapshot in the host file {@code path}. The file system read is
+   * managed by {@code fileManager}.
+   * <p>
+   * Only the root directory is created here; every other directory is read
+   * the first time it is visited. A corrupt record is thus only found then,
+   * and reported with an {@code UncheckedIOException}.
+   *
+   * @param path        The path of the host file.
+   * @param fileManager The file manager of the file system read.
+   * @return the snapshot read
+   * @throws IOException if the file cannot be read, or is not a snapshot of a
+   *                     version this class can read.
+   */
+  public static Snapshot load(String path, FileManager fileManager)
+      throws IOException {
+    SnapshotEvent event = new SnapshotEvent();
+    event.begin();
+    SnapshotInput in = SnapshotInput.map(path);
+    Snapshot snapshot = read(path, in, fileManager);
+    commit(event, "load", path, in.size());
+    return snapshot;
+  }
+
+  private static Snapshot read(String path, SnapshotInput in,
+      FileManager fileManager) throws IOException {
+    for (byte b : MAGIC) {
+      if (in.readByte() != b) {
+        throw new IOException(path + ": Not a JShell snapshot");
+      }
+    }
+    long version = in.readVarint();
+    if (version != 1 && version != VERSION) {
+      throw new IOException(path + ": Unsupported snapshot version "
+          + version);
+    }
+    String[] names = new String[in.readLength()];
+    for (int i = 0; i < names.length; i++) {
+      names[i] = in.readString();
+    }
+    if (version == 1) {
+      Directory root = readTree(in, names, fileManager);
+      String workingDir = in.readString();
+      List<String> history = readStrings(in);
+      List<String> pathStack = readStrings(in);
+      return new Snapshot(root, workingDir, history, pathStack);
+    }
+    String workingDir = in.readString();
+    List<String> history = readStrings(in);
+    List<String> pathStack = readStrings(in);
+    long header = in.readVarint();
+    if ((header & 1) == 0) {
+      throw new IOException("Root of snapshot is not a directory");
+    }
+    Directory root = new DirectorySource(in, names)
+        .getRoot(name(names, header), fileManager);
+    return new Snapshot(root, workingDir, history, pathStack);
+  }
+
+  /**
+   * Reads a whole file system written in depth-first order by version 1.
+   */
+  private static Directory readTree(SnapshotInput in, String[] names,
+      FileManager fileManager) throws IOException {
+    long header = in.readVarint();
+    if ((header & 1) == 0) {
+      throw new IOException("Root of snapshot is not a directory");
+    }
+    Directory root = new Directory(name(names, header), fileManager);
+    // Each directory being read, and how many of its elements are left.
+    Deque<Directory> dirs = new ArrayDeque<>();
+    Deque<Integer> counts = new ArrayDeque<>();
+    dirs.push(root);
+    counts.push(in.readLength());
+    while (!dirs.isEmpty()) {
+      int left = counts.pop();
+      if (left == 0) {
+        dirs.pop();
+        continue;
+      }
+      counts.push(left - 1);
+      header = in.readVarint();
+      try {
+        if ((header & 1) == 1) {
+          Directory dir = dirs.peek().createDirectory(name(names, header));
+          dirs.push(dir);
+          counts.push(in.readLength());
+        } else {
+          dirs.peek().createFile(name(names, header))
+              .overwriteContentsAs(in.readString());
+        }
+      } catch (DuplicateException | IllegalNameException e) {
+        throw new IOException("Corrupt snapshot: " + e.getMessage(), e);
+      }
+    }
+    return root;
+  }
+
+  /**
+   * Returns the name whose index is in {@code header}.
+   *
+   * @throws IOException if there is no such name.
+   */
+  static String name(String[] names, long header) throws IOException {
+    long index = header >>> 1;
+    if (index >= names.length) {
+      throw new IOException("Corrupt snapshot: name " + index
+          + " out of range");
+    }
+    return names[(int) index];
+  }
+
+  private static List<String> readStrings(SnapshotInput in)
+      throws IOException {
+    int count = in.readLength();
+    List<String> strings = new ArrayList<>(Math.min(count, 1 << 16));
+    for (int i = 0; i < count; i++) {
+      strings.add(in.readString());
+    }
+    return strings;
+  }
+}
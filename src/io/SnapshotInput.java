@@ -0,0 +1,156 @@
+package io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the primitive values written by {@code SnapshotOutput} from a host
+ * file that is mapped into memory, starting at any position in it.
+ * <p>
+ * The file is mapped in chunks of at most {@code CHUNK_SIZE} bytes, so files
+ * larger than a single {@code ByteBuffer} can address can be read as well.
+ * Nothing is read from disk until a value is read, and then only the pages
+ * holding that value. Inputs at different positions of the same file share
+ * one mapping, which stays valid for as long as any of them is reachable.
+ */
+class SnapshotInput {
+
+  private static final int CHUNK_BITS = 30;
+
+  /**
+   * The size of each mapped chunk but the last, in bytes.
+   */
+  private static final long CHUNK_SIZE = 1L << CHUNK_BITS;
+
+  private final ByteBuffer[] chunks;
+
+  private final long size;
+
+  private long position;
+
+  private SnapshotInput(ByteBuffer[] chunks, long size, long position) {
+    this.chunks = chunks;
+    this.size = size;
+    this.position = position;
+  }
+
+  /**
+   * Maps the host file {@code path} into memory for reading, and returns an
+   * input positioned at its start.
+   *
+   * @param path The path of the host file.
+   * @return an input over the whole file
+   * @throws IOException if the file cannot be opened or mapped.
+   */
+  static SnapshotInput map(String path) throws IOException {
+    try (FileChannel channel = FileChannel.open(Paths.get(path),
+        StandardOpenOption.READ)) {
+      long size = channel.size();
+      ByteBuffer[] chunks =
+          new ByteBuffer[(int) ((size + CHUNK_SIZE - 1) >>> CHUNK_BITS)];
+      for (int i = 0; i < chunks.length; i++) {
+        long start = (long) i << CHUNK_BITS;
+        chunks[i] = channel.map(MapMode.READ_ONLY, start,
+            Math.min(CHUNK_SIZE, size - start));
+      }
+      return new SnapshotInput(chunks, size, 0);
+    }
+  }
+
+  /**
+   * Returns a new input over the same file, positioned at {@code position}.
+   * This input is not moved.
+   */
+  SnapshotInput at(long position) {
+    return new SnapshotInput(chunks, size, position);
+  }
+
+  /**
+   * @return the size of the file in bytes.
+   */
+  long size() {
+    return size;
+  }
+
+  /**
+   * @throws EOFException if the end of the file has been reached.
+   */
+  int readByte() throws IOException {
+    if (position >= size) {
+      throw new EOFException("Unexpected end of snapshot");
+    }
+    int b = chunks[(int) (position >>> CHUNK_BITS)]
+        .get((int) (position & (CHUNK_SIZE - 1))) & 0xFF;
+    position++;
+    return b;
+  }
+
+  /**
+   * @throws IOException if the varint is longer than a long.
+   */
+  long readVarint() throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = readByte();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed varint in snapshot");
+  }
+
+  /**
+   * Reads a varint that is used as a length, a count or a number.
+   *
+   * @throws IOException if the value does not fit in an int.
+   */
+  int readLength() throws IOException {
+    long value = readVarint();
+    if (value > Integer.MAX_VALUE) {
+      throw new IOException("Length out of range in snapshot: " + value);
+    }
+    return (int) value;
+  }
+
+  /**
+   * Reads a long written in eight bytes, highest byte first.
+   */
+  long readLong() throws IOException {
+    long value = 0;
+    for (int i = 0; i < Long.BYTES; i++) {
+      value = value << 8 | readByte();
+    }
+    return value;
+  }
+
+  /**
+   * @throws EOFException if fewer than {@code length} bytes are left.
+   */
+  byte[] readBytes(int length) throws IOException {
+    if (length > size - position) {
+      throw new EOFException("Unexpected end of snapshot");
+    }
+    byte[] bytes = new byte[length];
+    int done = 0;
+    while (done < length) {
+      int offset = (int) (position & (CHUNK_SIZE - 1));
+      ByteBuffer chunk = chunks[(int) (position >>> CHUNK_BITS)];
+      int count = Math.min(length - done, chunk.limit() - offset);
+      chunk.get(offset, bytes, done, count);
+      done += count;
+      position += count;
+    }
+    return bytes;
+  }
+
+  String readString() throws IOException {
+    return new String(readBytes(readLength()), StandardCharsets.UTF_8);
+  }
+}
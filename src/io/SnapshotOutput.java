@@ -0,0 +1,163 @@
+package io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes the primitive values of a snapshot to a host file through a buffered
+ * {@code FileChannel}. Integers are written as unsigned varints, seven bits
+ * per byte with the lowest bits first, and strings as the varint length of
+ * their UTF-8 encoding followed by the encoding itself.
+ * <p>
+ * Everything is written to a temporary file next to the target, which only
+ * replaces the target on {@link #commit()}. A snapshot that fails halfway
+ * thus never destroys the previous one, and a snapshot that is still mapped
+ * by a lazily loaded tree keeps its contents until that tree is gone.
+ */
+class SnapshotOutput implements Closeable {
+
+  /**
+   * The size of the write buffer in bytes.
+   */
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final Path target;
+
+  private final Path temporary;
+
+  private final FileChannel channel;
+
+  private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+  /**
+   * The number of bytes written to the channel so far.
+   */
+  private long drained;
+
+  private boolean committed;
+
+  /**
+   * Opens a temporary file for writing a snapshot to the host file {@code
+   * path}.
+   *
+   * @param path The path of the host file.
+   * @throws IOException if the file cannot be opened.
+   */
+  SnapshotOutput(String path) throws IOException {
+    target = Paths.get(path);
+    temporary = Paths.get(path + ".tmp");
+    channel = FileChannel.open(temporary, StandardOpenOption.WRITE,
+        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+  }
+
+  /**
+   * @return the number of bytes written so far, which is the position of the
+   * next byte in the file.
+   */
+  long position() {
+    return drained + buffer.position();
+  }
+
+  void writeByte(int b) throws IOException {
+    if (!buffer.hasRemaining()) {
+      drain();
+    }
+    buffer.put((byte) b);
+  }
+
+  /**
+   * Writes {@code value}, which must not be negative, as a varint.
+   */
+  void writeVarint(long value) throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      writeByte((int) (value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    writeByte((int) value);
+  }
+
+  /**
+   * Writes {@code value} in eight bytes, highest byte first, so that it can be
+   * found at a fixed position.
+   */
+  void writeLong(long value) throws IOException {
+    for (int shift = Long.SIZE - 8; shift >= 0; shift -= 8) {
+      writeByte((int) (value >>> shift));
+    }
+  }
+
+  void writeBytes(byte[] bytes) throws IOException {
+    if (bytes.length > buffer.remaining()) {
+      drain();
+    }
+    if (bytes.length > buffer.remaining()) {
+      // Too large for the buffer at all, so write it directly.
+      ByteBuffer direct = ByteBuffer.wrap(bytes);
+      while (direct.hasRemaining()) {
+        drained += channel.write(direct);
+      }
+    } else {
+      buffer.put(bytes);
+    }
+  }
+
+  void writeString(String str) throws IOException {
+    byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+    writeVarint(bytes.length);
+    writeBytes(bytes);
+  }
+
+  /**
+   * Writes everything in the buffer to the channel.
+   */
+  private void drain() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      drained += channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  /**
+   * Writes everything buffered, and replaces the target file with what has
+   * been written.
+   *
+   * @throws IOException if the file cannot be written or replaced.
+   */
+  void commit() throws IOException {
+    drain();
+    channel.close();
+    try {
+      Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+    committed = true;
+  }
+
+  /**
+   * Closes the file, and deletes it unless it has been committed.
+   *
+   * @throws IOException if the file cannot be closed.
+   */
+  @Override
+  public void close() throws IOException {
+    if (!committed) {
+      try {
+        channel.close();
+      } finally {
+        Files.deleteIfExists(temporary);
+      }
+    }
+  }
+}
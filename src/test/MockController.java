@@ -31,6 +31,11 @@ public class MockController extends Controller {
     this.workingDir = workingDir;
   }
 
+  @Override
+  public void setRootDir(Directory rootDir) {
+    this.rootDir = rootDir;
+  }
+
   @Override
   public PathInterpreter getPathInterpreter() {
     return pathInterpreter;
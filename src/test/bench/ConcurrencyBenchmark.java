@@ -0,0 +1,119 @@
+package test.bench;
+
+import io.Directory;
+import io.FolderElement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Measures how the throughput of one shared file system grows with the number
+ * of threads using it, for workloads from lookups only to changes only.
+ * <p>
+ * Every thread runs the same workload on a bushy tree. A lookup follows a
+ * random path down to a file and builds its absolute path, and a change makes
+ * a directory and removes it again. Each run is warmed up for {@code
+ * WARMUP_NANOS} and measured for {@code MEASURE_NANOS}, and the total
+ * operations per second are printed along with the speedup over one thread.
+ * Run {@code main} with the compiled sources and tests on the class path.
+ */
+public class ConcurrencyBenchmark {
+
+  private static final long WARMUP_NANOS = 500_000_000L;
+
+  private static final long MEASURE_NANOS = 1_000_000_000L;
+
+  /**
+   * The names of the workloads and the percentage of changes in each.
+   */
+  private static final String[] WORKLOADS = {"lookup", "mixed", "change"};
+
+  private static final int[] CHANGE_PERCENT = {0, 10, 100};
+
+  /**
+   * Holds results of operations, so that the JIT cannot drop their work.
+   */
+  private static volatile Object blackhole;
+
+  public static void main(String[] args) throws Exception {
+    Directory root = TreeShape.BUSHY.build();
+    int maxThreads = Math.max(8, Runtime.getRuntime().availableProcessors());
+    System.out.printf("%-10s %8s %16s %10s%n", "Workload", "Threads", "ops/s",
+        "speedup");
+    for (int i = 0; i < WORKLOADS.length; i++) {
+      double single = 0;
+      for (int threads = 1; threads <= maxThreads; threads *= 2) {
+        double opsPerSecond = measure(root, threads, CHANGE_PERCENT[i]);
+        if (threads == 1) {
+          single = opsPerSecond;
+        }
+        System.out.printf("%-10s %8d %,16.0f %9.2fx%n", WORKLOADS[i],
+            threads, opsPerSecond, opsPerSecond / single);
+      }
+    }
+  }
+
+  /**
+   * Runs the workload with {@code changePercent} percent of changes on
+   * {@code threads} threads at once, and returns the operations they ran per
+   * second in total.
+   */
+  private static double measure(Directory root, int threads,
+      int changePercent) throws InterruptedException {
+    long[] counts = new long[threads];
+    Throwable[] errors = new Throwable[threads];
+    long start = System.nanoTime() + WARMUP_NANOS;
+    long end = start + MEASURE_NANOS;
+    List<Thread> running = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      int id = t;
+      Thread thread = new Thread(() -> {
+        SplittableRandom random = new SplittableRandom(id);
+        try {
+          while (System.nanoTime() < start) {
+            blackhole = run(root, random, changePercent, id);
+          }
+          long count = 0;
+          do {
+            for (int i = 0; i < 64; i++) {
+              blackhole = run(root, random, changePercent, id);
+            }
+            count += 64;
+          } while (System.nanoTime() < end);
+          counts[id] = count;
+        } catch (Throwable e) {
+          errors[id] = e;
+        }
+      });
+      thread.start();
+      running.add(thread);
+    }
+    long total = 0;
+    for (int t = 0; t < threads; t++) {
+      running.get(t).join();
+      if (errors[t] != null) {
+        throw new IllegalStateException("Thread " + t + " failed", errors[t]);
+      }
+      total += counts[t];
+    }
+    return total / (MEASURE_NANOS / 1e9);
+  }
+
+  private static Object run(Directory root, SplittableRandom random,
+      int changePercent, int id) throws Exception {
+    if (random.nextInt(100) < changePercent) {
+      Directory dir = (Directory) root.getElementByName(
+          "dir" + random.nextInt(TreeShape.BUSHY.fanOut));
+      String name = "thread" + id;
+      dir.createDirectory(name);
+      dir.removeElement(name);
+      return dir;
+    }
+    FolderElement fe = root;
+    for (int i = 0; i < TreeShape.BUSHY.depth; i++) {
+      fe = ((Directory) fe).getElementByName(
+          "dir" + random.nextInt(TreeShape.BUSHY.fanOut));
+    }
+    return ((Directory) fe).getElementByName("file0").getPathToThis();
+  }
+}
@@ -0,0 +1,179 @@
+package test.bench;
+
+import driver.Daemon;
+import driver.DaemonClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import test.MockController;
+
+/**
+ * Puts load on a {@link Daemon} from many sessions at once, and reports the
+ * latency of its commands.
+ * <p>
+ * Every session runs random commands, {@code cd} into a random directory,
+ * {@code ls}, {@code pwd}, and writing and reading a file of its own, sending
+ * {@code depth} of them at a time before reading their replies. The latency of
+ * a command is the time from sending its batch to receiving its reply. Each
+ * run is warmed up for {@code WARMUP_NANOS} and measured for {@code
+ * MEASURE_NANOS}, then the commands per second and the median and 99th
+ * percentile latency are printed.
+ * <p>
+ * Run {@code main} with the compiled sources and tests on the class path,
+ * and either the path of the socket of a running daemon, or no arguments to
+ * start one over a bushy tree in the same JVM.
+ */
+public class DaemonLoadGenerator {
+
+  private static final long WARMUP_NANOS = 500_000_000L;
+
+  private static final long MEASURE_NANOS = 2_000_000_000L;
+
+  private static final int[] SESSIONS = {1, 4, 16, 64};
+
+  private static final int[] DEPTHS = {1, 16};
+
+  public static void main(String[] args) throws Exception {
+    Path dir = null;
+    Daemon daemon = null;
+    String socketPath;
+    if (args.length > 0) {
+      socketPath = args[0];
+    } else {
+      dir = Files.createTempDirectory("daemon");
+      socketPath = dir.resolve("socket").toString();
+      MockController shared = new MockController();
+      shared.setRootDir(TreeShape.BUSHY.build());
+      daemon = new Daemon(shared, socketPath);
+      Daemon serving = daemon;
+      Thread thread = new Thread(() -> {
+        try {
+          serving.serve();
+        } catch (Exception e) {
+          e.printStackTrace();
+        }
+      });
+      thread.setDaemon(true);
+      thread.start();
+    }
+    System.out.printf("%8s %6s %14s %12s %12s%n", "Sessions", "Depth",
+        "commands/s", "p50 (us)", "p99 (us)");
+    try {
+      for (int sessions : SESSIONS) {
+        for (int depth : DEPTHS) {
+          measure(socketPath, sessions, depth);
+        }
+      }
+    } finally {
+      if (daemon != null) {
+        daemon.close();
+        Files.deleteIfExists(dir);
+      }
+    }
+  }
+
+  /**
+   * Runs {@code sessions} sessions at once, each sending {@code depth}
+   * commands at a time, and prints their throughput and latency.
+   */
+  private static void measure(String socketPath, int sessions, int depth)
+      throws Exception {
+    long start = System.nanoTime() + WARMUP_NANOS;
+    long end = start + MEASURE_NANOS;
+    long[][] latencies = new long[sessions][];
+    Throwable[] errors = new Throwable[sessions];
+    List<Thread> running = new ArrayList<>();
+    for (int s = 0; s < sessions; s++) {
+      int id = s;
+      Thread thread = new Thread(() -> {
+        try (DaemonClient client = new DaemonClient(socketPath)) {
+          latencies[id] = run(client, id, depth, start, end);
+        } catch (Throwable e) {
+          errors[id] = e;
+        }
+      });
+      thread.start();
+      running.add(thread);
+    }
+    int count = 0;
+    for (int s = 0; s < sessions; s++) {
+      running.get(s).join();
+      if (errors[s] != null) {
+        throw new IllegalStateException("Session " + s + " failed",
+            errors[s]);
+      }
+      count += latencies[s].length;
+    }
+    long[] all = new long[count];
+    int offset = 0;
+    for (long[] some : latencies) {
+      System.arraycopy(some, 0, all, offset, some.length);
+      offset += some.length;
+    }
+    Arrays.sort(all);
+    System.out.printf("%8d %6d %,14.0f %12.1f %12.1f%n", sessions, depth,
+        count / (MEASURE_NANOS / 1e9), percentile(all, 50) / 1e3,
+        percentile(all, 99) / 1e3);
+  }
+
+  private static long percentile(long[] sorted, int percent) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    return sorted[(int) ((sorted.length - 1) * (long) percent / 100)];
+  }
+
+  /**
+   * Runs batches of random commands until {@code end}, and returns the
+   * latencies of those whose batches were sent after {@code start}.
+   */
+  private static long[] run(DaemonClient client, int id, int depth,
+      long start, long end) throws Exception {
+    SplittableRandom random = new SplittableRandom(id);
+    String file = "/load" + id;
+    long[] latencies = new long[1024];
+    int count = 0;
+    long sent;
+    do {
+      sent = System.nanoTime();
+      for (int i = 0; i < depth; i++) {
+        client.send(command(random, file));
+      }
+      for (int i = 0; i < depth; i++) {
+        if (!client.receive().isSuccessful()) {
+          throw new IllegalStateException("A command failed");
+        }
+        if (sent >= start) {
+          if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+          }
+          latencies[count++] = System.nanoTime() - sent;
+        }
+      }
+    } while (sent < end);
+    return Arrays.copyOf(latencies, count);
+  }
+
+  private static String command(SplittableRandom random, String file) {
+    switch (random.nextInt(5)) {
+      case 0:
+        StringBuilder path = new StringBuilder("cd /");
+        for (int i = 0; i < TreeShape.BUSHY.depth; i++) {
+          path.append("dir").append(random.nextInt(TreeShape.BUSHY.fanOut))
+              .append('/');
+        }
+        return path.toString();
+      case 1:
+        return "ls";
+      case 2:
+        return "pwd";
+      case 3:
+        return "echo \"load\" > " + file;
+      default:
+        return "echo \"load\" >> " + file;
+    }
+  }
+}
@@ -0,0 +1,92 @@
+package test.bench;
+
+import io.OutputHandler;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Iterator;
+import test.MockController;
+import util.CmdOutput;
+import util.CmdOutput.OutputBuilder;
+import util.PathInterpreter;
+
+/**
+ * Compares how many lines per second are printed by {@code OutputHandler}
+ * against printing every item and separator through a {@code PrintStream} set
+ * up like {@code System.out}, which is what {@code OutputHandler} used to do.
+ * <p>
+ * Both print the same output of {@code LINES} lines to a temporary file, so
+ * that every flush costs a real write. Run {@code main} with the compiled
+ * sources and tests on the class path.
+ */
+public class OutputHandlerBenchmark {
+
+  private static final int LINES = 200_000;
+
+  private static final int ROUNDS = 10;
+
+  public static void main(String[] args) throws Exception {
+    File file = File.createTempFile("output", ".txt");
+    file.deleteOnExit();
+    CmdOutput output = new OutputBuilder(null).build();
+    for (int i = 0; i < LINES; i++) {
+      output.add("\t\tsampleFile" + i);
+    }
+
+    try (PrintStream stream = openLikeStdout(file)) {
+      report("PrintStream per item", measure(() -> printEachItem(output,
+          stream)));
+    }
+    try (PrintStream stream = openLikeStdout(file)) {
+      OutputHandler handler = new OutputHandler(
+          new PathInterpreter(new MockController()), stream);
+      report("OutputHandler", measure(() -> {
+        handler.print(output, "\n");
+        handler.flushConsole();
+      }));
+    }
+  }
+
+  /**
+   * Opens {@code file} as a stream that flushes on every newline, the same way
+   * {@code System.out} does.
+   */
+  private static PrintStream openLikeStdout(File file) throws IOException {
+    return new PrintStream(
+        new BufferedOutputStream(new FileOutputStream(file), 8192), true);
+  }
+
+  private static void printEachItem(CmdOutput output, PrintStream stream) {
+    for (Iterator<String> itr = output.iterator(); itr.hasNext(); ) {
+      stream.print(itr.next());
+      if (itr.hasNext()) {
+        stream.print("\n");
+      }
+    }
+    stream.println();
+  }
+
+  /**
+   * Returns the best number of nanoseconds {@code printer} took to print the
+   * output over {@code ROUNDS} rounds, after as many rounds of warm up.
+   */
+  private static long measure(Runnable printer) {
+    long best = Long.MAX_VALUE;
+    for (int i = 0; i < ROUNDS * 2; i++) {
+      long start = System.nanoTime();
+      printer.run();
+      long elapsed = System.nanoTime() - start;
+      if (i >= ROUNDS) {
+        best = Math.min(best, elapsed);
+      }
+    }
+    return best;
+  }
+
+  private static void report(String name, long nanos) {
+    System.out.printf("%-22s %,12.0f lines/s%n", name,
+        LINES / (nanos / 1e9));
+  }
+}
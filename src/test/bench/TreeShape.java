@@ -0,0 +1,86 @@
+package test.bench;
+
+import exceptions.DuplicateException;
+import exceptions.IllegalNameException;
+import io.Directory;
+import io.FileEditor;
+import io.FileManager;
+
+/**
+ * The shapes of the generated trees that benchmarks are run over. Every
+ * directory above {@code depth} has {@code fanOut} subdirectories named
+ * {@code dir0}, {@code dir1}, ..., and every directory has {@code files} files
+ * named {@code file0}, {@code file1}, ....
+ */
+public enum TreeShape {
+
+  /**
+   * One huge directory.
+   */
+  WIDE(1, 10_000, 1),
+
+  /**
+   * A balanced tree of about eleven thousand directories.
+   */
+  BUSHY(4, 10, 2),
+
+  /**
+   * A single long chain of directories.
+   */
+  DEEP(256, 1, 1);
+
+  final int depth;
+
+  final int fanOut;
+
+  final int files;
+
+  TreeShape(int depth, int fanOut, int files) {
+    this.depth = depth;
+    this.fanOut = fanOut;
+    this.files = files;
+  }
+
+  /**
+   * Builds a new tree of this shape.
+   *
+   * @return the root directory of the tree
+   */
+  public Directory build() throws DuplicateException, IllegalNameException {
+    Directory root = new Directory("/", new FileManager(new FileEditor()));
+    fill(root, depth);
+    return root;
+  }
+
+  private void fill(Directory dir, int levels)
+      throws DuplicateException, IllegalNameException {
+    for (int i = 0; i < files; i++) {
+      dir.createFile("file" + i);
+    }
+    if (levels == 0) {
+      return;
+    }
+    for (int i = 0; i < fanOut; i++) {
+      fill(dir.createDirectory("dir" + i), levels - 1);
+    }
+  }
+
+  /**
+   * Returns the relative path, from the root, of the last file on the first
+   * branch of the tree, which is the deepest file of this shape.
+   *
+   * @return the path of the deepest file
+   */
+  public String deepestFile() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < depth; i++) {
+      sb.append("dir0/");
+    }
+    return sb.append("file0").toString();
+  }
+
+  @Override
+  public String toString() {
+    return name().toLowerCase() + "(" + depth + "x" + fanOut + ")";
+  }
+}
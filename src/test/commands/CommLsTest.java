@@ -8,6 +8,7 @@ import exceptions.DuplicateException;
 import exceptions.IllegalNameException;
 import exceptions.WrongSyntaxException;
 import io.Directory;
+import io.File;
 import io.OutputHandler;
 import org.junit.After;
 import org.junit.Before;
@@ -15,6 +16,7 @@ import org.junit.Test;
 import test.MockController;
 import util.CmdOutput;
 import util.CmdOutput.OutputBuilder;
+import util.CommandExecutor;
 import util.Message;
 import util.PathInterpreter;
 
@@ -160,6 +162,21 @@ public class CommLsTest {
     commLs.execute(args, builder);
   }
 
+  /**
+   * Test a streaming output redirected to a file writes the same lines as a
+   * buffered one.
+   */
+  @Test
+  public void testRecursiveStreamedToFile() throws Exception {
+    CommandExecutor executor = new CommandExecutor(
+        new OutputHandler(new PathInterpreter(system)));
+    executor.invoke(commLs, new Message(
+        new String[]{"ls", "-R", "sub1", ">", "out"}));
+    File out = (File) system.getRootDir().getElementByName("out");
+    assertEquals("/sub1/: \n  sub2  subFile1  \n/sub1/sub2/: \n"
+        + "  subFile2  \n", out.getContents());
+  }
+
   @After
   public void tearDown() {
     ((MockController) system).clear();
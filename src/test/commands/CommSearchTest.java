@@ -133,6 +133,100 @@ public class CommSearchTest {
   }
 
 
+  /**
+   * Test matches in nested directories are listed in the order of a
+   * depth-first walk, like before the name index was used.
+   */
+  @Test
+  public void testSearchNestedOrder() throws JShellException {
+    Directory root = system.getRootDir();
+    Directory sub1 = (Directory) root.getElementByName("sub1");
+    Directory sub2 = (Directory) sub1.getElementByName("sub2");
+    sub2.createDirectory("sampleFile1");
+    root.createDirectory("sampleFile1");
+    Message args = new Message(
+        new String[]{"/", "-type", "d", "-name", "\"sampleFile1\""});
+    expected.add("/sub1/sub2/sampleFile1/");
+    expected.add("/sampleFile1/");
+    CmdOutput actual = commSearch.execute(args, builder);
+    assertEquals(expected, actual);
+  }
+
+  /**
+   * Test search finds elements at their new location after they are moved.
+   */
+  @Test
+  public void testSearchAfterMove() throws JShellException {
+    Message args = new Message(
+        new String[]{"/", "-type", "f", "-name", "\"sampleFile\""});
+    expected.add("/sub1/sub2/sampleFile/");
+    assertEquals(expected, commSearch.execute(args, builder));
+
+    Directory root = system.getRootDir();
+    Directory sub1 = (Directory) root.getElementByName("sub1");
+    sub1.getElementByName("sub2")
+        .moveTo((Directory) root.getElementByName("sub3"), "sub4");
+    args = new Message(
+        new String[]{"/", "-type", "f", "-name", "\"sampleFile\""});
+    expected = builder.build();
+    expected.add("/sub3/sub4/sampleFile/");
+    assertEquals(expected, commSearch.execute(args, builder));
+  }
+
+  /**
+   * Test -name accepts a glob with * and ? wildcards.
+   */
+  @Test
+  public void testSearchGlob() throws JShellException {
+    Message args = new Message(
+        new String[]{"/", "-type", "f", "-name", "\"sample*\""});
+    expected.add("/sub1/sub2/sampleFile/");
+    expected.add("/sub1/sampleFile1/");
+    expected.add("/sub3/sampleFile1/");
+    assertEquals(expected, commSearch.execute(args, builder));
+
+    args = new Message(
+        new String[]{"/", "-type", "d", "-name", "\"sub?\""});
+    expected = builder.build();
+    expected.add("/sub1/");
+    expected.add("/sub1/sub2/");
+    expected.add("/sub3/");
+    assertEquals(expected, commSearch.execute(args, builder));
+  }
+
+  /**
+   * Test -regex matches names against a regular expression.
+   */
+  @Test
+  public void testSearchRegex() throws JShellException {
+    Message args = new Message(
+        new String[]{"/sub1", "-type", "f", "-regex", "\"sampleFile\\d\""});
+    expected.add("/sub1/sampleFile1/");
+    assertEquals(expected, commSearch.execute(args, builder));
+  }
+
+  /**
+   * Test search throws WrongSyntaxException when the regular expression is
+   * invalid.
+   */
+  @Test(expected = WrongSyntaxException.class)
+  public void testSearchInvalidRegex() throws JShellException {
+    Message args = new Message(
+        new String[]{"/", "-type", "f", "-regex", "\"sample(\""});
+    commSearch.execute(args, builder);
+  }
+
+  /**
+   * Test search throws WrongSyntaxException when both -name and -regex are
+   * given.
+   */
+  @Test(expected = WrongSyntaxException.class)
+  public void testSearchNameAndRegex() throws JShellException {
+    Message args = new Message(new String[]{"/", "-type", "f", "-name",
+        "\"file1\"", "-regex", "\"file1\""});
+    commSearch.execute(args, builder);
+  }
+
   @After
   public void tearDown() {
     ((MockController) system).clear();
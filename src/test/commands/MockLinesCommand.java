@@ -0,0 +1,35 @@
+package test.commands;
+
+import commands.AbstractCommand;
+import exceptions.JShellException;
+import util.CmdOutput;
+import util.CmdOutput.OutputBuilder;
+import util.Message;
+
+/**
+ * Streams the lines {@code line0}, {@code line1}, ... up to the number given
+ * as its only argument.
+ */
+public class MockLinesCommand extends AbstractCommand {
+
+  @Override
+  public CmdOutput execute(Message args, OutputBuilder outputBuilder)
+      throws JShellException {
+    int count = Integer.parseInt(args.getFirstString());
+    CmdOutput output = outputBuilder.buildStreaming();
+    for (int i = 0; i < count; i++) {
+      output.add("line" + i);
+    }
+    return output;
+  }
+
+  @Override
+  public Message getManual() {
+    return null;
+  }
+
+  @Override
+  public String getAlias() {
+    return "lines";
+  }
+}
@@ -0,0 +1,169 @@
+package test.driver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import driver.Controller;
+import driver.Daemon;
+import driver.DaemonClient;
+import driver.DaemonClient.Reply;
+import io.Directory;
+import io.FileEditor;
+import io.FileManager;
+import io.Journal;
+import io.Journal.Sync;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import test.MockController;
+
+public class DaemonTest {
+
+  private Path dir;
+  private String socketPath;
+  private Controller shared;
+  private Daemon daemon;
+  private Thread serving;
+
+  @Before
+  public void setup() throws IOException {
+    dir = Files.createTempDirectory("daemon");
+    socketPath = dir.resolve("socket").toString();
+    shared = new MockController();
+    daemon = new Daemon(shared, socketPath);
+    serving = new Thread(() -> {
+      try {
+        daemon.serve();
+      } catch (IOException e) {
+        throw new AssertionError(e);
+      }
+    });
+    serving.start();
+  }
+
+  @After
+  public void tearDown() throws IOException, InterruptedException {
+    daemon.close();
+    serving.join();
+    Files.deleteIfExists(dir);
+  }
+
+  /**
+   * Test sessions share the file system but not their working directories.
+   */
+  @Test
+  public void testSessions() throws IOException {
+    try (DaemonClient first = new DaemonClient(socketPath);
+        DaemonClient second = new DaemonClient(socketPath)) {
+      assertTrue(first.run("mkdir dir1").isSuccessful());
+      assertTrue(first.run("cd dir1").isSuccessful());
+      assertEquals("/dir1/\n", first.run("pwd").getOutput());
+      assertEquals("/\n", second.run("pwd").getOutput());
+      assertEquals("dir1", second.run("ls").getOutput().trim());
+      assertTrue(second.run("echo \"hello\" > /dir1/file1").isSuccessful());
+      assertEquals("hello", first.run("cat file1").getOutput().trim());
+    }
+    assertTrue(shared.getRootDir().getElementByName("dir1") != null);
+  }
+
+  /**
+   * Test a session cannot load a save file over the file system it shares,
+   * and the changes of every session are still journaled afterwards.
+   */
+  @Test
+  public void testLoadRefusedInSession() throws IOException {
+    Path journalDir = Files.createTempDirectory("journal");
+    Journal journal = new Journal(journalDir.toString(), Sync.NEVER,
+        Long.MAX_VALUE);
+    shared.setRootDir(journal.recover(new FileManager(new FileEditor())));
+    try (DaemonClient first = new DaemonClient(socketPath);
+        DaemonClient second = new DaemonClient(socketPath)) {
+      assertTrue(first.run("mkdir dir1").isSuccessful());
+      assertTrue(first.run("saveJShell " + dir.resolve("saved"))
+          .isSuccessful());
+      Reply refused = first.run("loadJShell " + dir.resolve("saved"));
+      assertEquals(false, refused.isSuccessful());
+      assertTrue(second.run("mkdir dir2").isSuccessful());
+      assertTrue(first.run("cd /dir2").isSuccessful());
+    }
+    journal.commit();
+    journal.close();
+    journal = new Journal(journalDir.toString(), Sync.NEVER, Long.MAX_VALUE);
+    Directory recovered = journal.recover(new FileManager(new FileEditor()));
+    journal.close();
+    assertTrue(recovered.getElementByName("dir1") != null);
+    assertTrue(recovered.getElementByName("dir2") != null);
+    Files.delete(dir.resolve("saved"));
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(journalDir)) {
+      for (Path file : files) {
+        Files.delete(file);
+      }
+    }
+    Files.delete(journalDir);
+  }
+
+  /**
+   * Test many commands sent at once are replied to in order, errors included.
+   */
+  @Test
+  public void testPipelining() throws IOException {
+    try (DaemonClient client = new DaemonClient(socketPath)) {
+      for (int i = 0; i < 100; i++) {
+        client.send("mkdir dir" + i);
+      }
+      client.send("cd dir5");
+      client.send("nonsense");
+      client.send("cd dir1000");
+      client.send("pwd");
+      for (int i = 0; i < 100; i++) {
+        assertTrue(client.receive().isSuccessful());
+      }
+      assertTrue(client.receive().isSuccessful());
+      Reply notFound = client.receive();
+      assertEquals(false, notFound.isSuccessful());
+      assertEquals("Command not found.\n", notFound.getOutput());
+      Reply failed = client.receive();
+      assertEquals(false, failed.isSuccessful());
+      assertTrue(failed.getOutput().startsWith("JShell: "));
+      assertEquals("/dir5/\n", client.receive().getOutput());
+    }
+  }
+
+  /**
+   * Test output longer than a chunk arrives whole, both received at once and
+   * streamed, and is followed by the replies of the commands after it.
+   */
+  @Test
+  public void testLongOutput() throws IOException {
+    String text = "0123456789".repeat(5000);
+    try (DaemonClient client = new DaemonClient(socketPath)) {
+      assertTrue(client.run("echo \"" + text + "\" > file1").isSuccessful());
+      assertEquals(text, client.run("cat file1").getOutput().trim());
+      ByteArrayOutputStream printed = new ByteArrayOutputStream();
+      client.send("cat file1");
+      client.send("nonsense");
+      client.send("pwd");
+      assertTrue(client.receive(printed));
+      assertEquals(text, printed.toString(StandardCharsets.UTF_8).trim());
+      assertEquals(false, client.receive().isSuccessful());
+      assertEquals("/\n", client.receive().getOutput());
+    }
+  }
+
+  /**
+   * Test the exit command ends the session.
+   */
+  @Test(expected = IOException.class)
+  public void testExit() throws IOException {
+    try (DaemonClient client = new DaemonClient(socketPath)) {
+      assertTrue(client.run("exit").isSuccessful());
+      client.run("pwd");
+    }
+  }
+}
@@ -0,0 +1,153 @@
+package test.driver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import driver.JShellEngine;
+import driver.JShellEngine.Result;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JShellEngineTest {
+
+  private JShellEngine engine;
+  private PrintStream stdout;
+  private PrintStream stderr;
+  private ByteArrayOutputStream printed;
+
+  @Before
+  public void setup() {
+    stdout = System.out;
+    stderr = System.err;
+    printed = new ByteArrayOutputStream();
+    System.setOut(new PrintStream(printed, true));
+    System.setErr(new PrintStream(printed, true));
+    engine = new JShellEngine();
+  }
+
+  @After
+  public void tearDown() {
+    System.setOut(stdout);
+    System.setErr(stderr);
+    assertEquals("", printed.toString());
+  }
+
+  /**
+   * Test the output of commands is returned line by line, and nothing is
+   * printed.
+   */
+  @Test
+  public void testOutput() {
+    assertTrue(engine.execute("mkdir dir1 dir2").isSuccessful());
+    assertTrue(engine.execute("cd dir1").isSuccessful());
+    Result pwd = engine.execute("pwd");
+    assertTrue(pwd.isSuccessful());
+    assertEquals(Collections.singletonList("/dir1/"), pwd.getOutput());
+    assertEquals(Collections.emptyList(), pwd.getErrors());
+    assertTrue(engine.execute("echo \"ab\" > file1").isSuccessful());
+    assertTrue(engine.execute("echo \"b\" >> file1").isSuccessful());
+    assertEquals(Collections.singletonList("ab\nb\n"),
+        engine.execute("cat file1").getOutput());
+    assertEquals(Collections.singletonList("ab"),
+        engine.execute("cat file1 | grep \"a\"").getOutput());
+  }
+
+  /**
+   * Test lines are returned exactly as the command produced them, whatever
+   * characters they contain and whatever the default charset is.
+   */
+  @Test
+  public void testOutputKeptExactly() {
+    String text = "h\u00e9llo \u2603\rworld";
+    assertEquals(Collections.singletonList(text),
+        engine.execute("echo \"" + text + "\"").getOutput());
+    assertTrue(engine.execute("echo \"" + text + "\" > file1").isSuccessful());
+    assertEquals(Arrays.asList(text + "\n", text + "\n"),
+        engine.execute("cat file1 file1").getOutput());
+  }
+
+  /**
+   * Test errors are returned apart from the output.
+   */
+  @Test
+  public void testErrors() {
+    Result notFound = engine.execute("nonsense");
+    assertFalse(notFound.isSuccessful());
+    assertEquals(Collections.emptyList(), notFound.getOutput());
+    assertEquals(Collections.singletonList("Command not found."),
+        notFound.getErrors());
+    Result failed = engine.execute("cd dir1");
+    assertFalse(failed.isSuccessful());
+    assertEquals(1, failed.getErrors().size());
+    assertTrue(failed.getErrors().get(0).startsWith("JShell: "));
+    assertEquals(Collections.emptyList(),
+        engine.execute("pwd").getErrors());
+  }
+
+  /**
+   * Test engines do not share their file systems.
+   */
+  @Test
+  public void testIsolation() {
+    JShellEngine other = new JShellEngine();
+    engine.execute("mkdir dir1");
+    assertEquals("dir1", engine.execute("ls").getOutput().get(0).trim());
+    engine.execute("cd dir1");
+    assertEquals("", String.join("", other.execute("ls").getOutput()).trim());
+    assertEquals(Collections.singletonList("/"),
+        other.execute("pwd").getOutput());
+    assertFalse(other.execute("cd /dir1").isSuccessful());
+  }
+
+  /**
+   * Test many engines can be used by many threads at once.
+   */
+  @Test
+  public void testManyEngines() throws InterruptedException {
+    List<Thread> threads = new ArrayList<>();
+    List<String> failures = Collections.synchronizedList(new ArrayList<>());
+    for (int i = 0; i < 8; i++) {
+      String name = "dir" + i;
+      threads.add(new Thread(() -> {
+        JShellEngine own = new JShellEngine();
+        for (int j = 0; j < 100; j++) {
+          own.execute("mkdir " + name + j);
+        }
+        String ls = own.execute("ls").getOutput().get(0);
+        if (ls.trim().split(" +").length != 100) {
+          failures.add(name + ": not 100 directories");
+        }
+        own.execute("cd " + name + "50");
+        List<String> pwd = own.execute("pwd").getOutput();
+        if (!pwd.equals(Collections.singletonList("/" + name + "50/"))) {
+          failures.add(name + ": " + pwd);
+        }
+      }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(Collections.emptyList(), failures);
+  }
+
+  /**
+   * Test the exit command stops the engine.
+   */
+  @Test(expected = IllegalStateException.class)
+  public void testExit() {
+    assertTrue(engine.execute("exit").isSuccessful());
+    assertFalse(engine.isRunning());
+    engine.execute("pwd");
+  }
+}
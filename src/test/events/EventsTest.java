@@ -0,0 +1,150 @@
+package test.events;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import driver.Controller;
+import io.Directory;
+import io.OutputHandler;
+import io.Snapshot;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import test.MockController;
+import test.commands.MockLinesCommand;
+import util.CommandExecutor;
+import util.Message;
+
+public class EventsTest {
+
+  private Controller system;
+  private Recording recording;
+  private Path dir;
+
+  @Before
+  public void setup() throws IOException {
+    system = new MockController();
+    dir = Files.createTempDirectory("events");
+    recording = new Recording();
+    for (String name : new String[]{"jshell.Command", "jshell.PathResolution",
+        "jshell.FileSystemChange", "jshell.Snapshot"}) {
+      recording.enable(name).withoutStackTrace().withoutThreshold();
+    }
+    recording.start();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    recording.close();
+    try (Stream<Path> files = Files.list(dir)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        Files.delete(file);
+      }
+    }
+    Files.delete(dir);
+  }
+
+  /**
+   * Stops recording and returns the events named {@code name}, in order.
+   */
+  private List<RecordedEvent> eventsNamed(String name) throws IOException {
+    recording.stop();
+    Path file = dir.resolve("recording.jfr");
+    recording.dump(file);
+    List<RecordedEvent> events = new ArrayList<>();
+    for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+      if (event.getEventType().getName().equals(name)) {
+        events.add(event);
+      }
+    }
+    events.sort((a, b) -> a.getStartTime().compareTo(b.getStartTime()));
+    return events;
+  }
+
+  /**
+   * Test every command invoked is recorded with its arguments and output.
+   */
+  @Test
+  public void testCommand() throws Exception {
+    CommandExecutor executor = new CommandExecutor(new OutputHandler(
+        system.getPathInterpreter(), OutputStream.nullOutputStream()));
+    executor.invoke(new MockLinesCommand(),
+        new Message(new String[]{"lines", "3", ">", "/out"}));
+    List<RecordedEvent> events = eventsNamed("jshell.Command");
+    assertEquals(1, events.size());
+    RecordedEvent event = events.get(0);
+    assertEquals("lines", event.getString("command"));
+    assertEquals(2, event.getInt("argumentCount"));
+    assertEquals(3, event.getLong("outputLines"));
+    assertTrue(event.getBoolean("successful"));
+  }
+
+  /**
+   * Test resolutions are recorded with whether they hit the cache.
+   */
+  @Test
+  public void testPathResolution() throws Exception {
+    system.getRootDir().createDirectory("dir1");
+    util.Path path = new util.Path("/dir1");
+    system.getPathInterpreter().toFolderElement(path);
+    system.getPathInterpreter().toFolderElement(path);
+    system.getPathInterpreter().toFolderElement(new util.Path("dir2"));
+    List<RecordedEvent> events = eventsNamed("jshell.PathResolution");
+    assertEquals(3, events.size());
+    assertEquals("/dir1/", events.get(0).getString("path"));
+    assertEquals(false, events.get(0).getBoolean("cacheHit"));
+    assertEquals(true, events.get(1).getBoolean("cacheHit"));
+    assertEquals(true, events.get(1).getBoolean("found"));
+    assertEquals(false, events.get(2).getBoolean("absolute"));
+    assertEquals(false, events.get(2).getBoolean("found"));
+  }
+
+  /**
+   * Test changes made through the file manager are recorded with what they
+   * changed.
+   */
+  @Test
+  public void testFileSystemChange() throws Exception {
+    Directory root = system.getRootDir();
+    Directory dir1 = root.createDirectory("dir1");
+    dir1.createFile("file1");
+    root.getFileManager().remove(dir1, "file1");
+    List<RecordedEvent> events = eventsNamed("jshell.FileSystemChange");
+    assertEquals(3, events.size());
+    assertEquals("create", events.get(0).getString("operation"));
+    assertEquals("/", events.get(0).getString("directory"));
+    assertEquals("dir1", events.get(0).getString("name"));
+    assertEquals("remove", events.get(2).getString("operation"));
+    assertEquals("file1", events.get(2).getString("name"));
+  }
+
+  /**
+   * Test saving and loading a snapshot are recorded with its size.
+   */
+  @Test
+  public void testSnapshot() throws Exception {
+    system.getRootDir().createDirectory("dir1");
+    String file = dir.resolve("snapshot").toString();
+    new Snapshot(system.getRootDir(), "/", Collections.emptyList(),
+        Collections.emptyList()).save(file);
+    Snapshot.load(file, system.getRootDir().getFileManager());
+    List<RecordedEvent> events = eventsNamed("jshell.Snapshot");
+    assertEquals(2, events.size());
+    assertEquals("save", events.get(0).getString("operation"));
+    assertEquals("load", events.get(1).getString("operation"));
+    assertEquals(file, events.get(1).getString("path"));
+    assertEquals(Files.size(Path.of(file)), events.get(0).getLong("bytes"));
+    assertEquals(Files.size(Path.of(file)), events.get(1).getLong("bytes"));
+  }
+}
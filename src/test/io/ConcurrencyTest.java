@@ -0,0 +1,355 @@
+package test.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import exceptions.DuplicateException;
+import exceptions.IllegalNameException;
+import exceptions.IllegalOperationException;
+import io.Directory;
+import io.File;
+import io.FileEditor;
+import io.FileManager;
+import io.FolderElement;
+import io.Journal;
+import io.Journal.Sync;
+import io.Snapshot;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs many threads against one file system at once, and checks that it is
+ * still consistent afterwards.
+ */
+public class ConcurrencyTest {
+
+  private static final int THREADS = 8;
+
+  private static final int OPERATIONS = 20_000;
+
+  private static final int SHARED = 4;
+
+  private Path dir;
+  private Journal journal;
+  private Directory root;
+  private Directory[] shared;
+
+  @Before
+  public void setup()
+      throws DuplicateException, IllegalNameException, IOException {
+    dir = Files.createTempDirectory("concurrency");
+    journal = new Journal(dir.toString(), Sync.NEVER, 1 << 16);
+    root = journal.recover(new FileManager(new FileEditor()));
+    shared = new Directory[SHARED];
+    for (int i = 0; i < SHARED; i++) {
+      shared[i] = root.createDirectory("shared" + i);
+    }
+    journal.commit();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    journal.close();
+    try (Stream<Path> files = Files.walk(dir)) {
+      files.sorted(Comparator.reverseOrder()).forEach(file ->
+          file.toFile().delete());
+    }
+  }
+
+  /**
+   * Runs {@code task} on {@code THREADS} threads started together, and fails
+   * with the first exception any of them throws.
+   */
+  private void runTogether(Task task) throws InterruptedException {
+    ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < THREADS; i++) {
+      int id = i;
+      Thread thread = new Thread(() -> {
+        try {
+          start.await();
+          task.run(id);
+        } catch (Throwable e) {
+          errors.add(e);
+        }
+      });
+      thread.start();
+      threads.add(thread);
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    if (!errors.isEmpty()) {
+      AssertionError error = new AssertionError(errors.size()
+          + " threads failed, first with " + errors.peek());
+      error.initCause(errors.peek());
+      throw error;
+    }
+  }
+
+  private interface Task {
+
+    void run(int id) throws Exception;
+  }
+
+  /**
+   * Test threads that make, move, copy, remove, write and search for elements
+   * in the same directories leave a consistent tree, index and journal.
+   */
+  @Test
+  public void testMixedChanges() throws Exception {
+    runTogether(id -> {
+      Random random = new Random(id);
+      for (int i = 0; i < OPERATIONS; i++) {
+        Directory from = shared[random.nextInt(SHARED)];
+        Directory to = shared[random.nextInt(SHARED)];
+        String name = "n" + random.nextInt(32);
+        try {
+          change(random.nextInt(8), from, to, name, random);
+        } catch (DuplicateException e) {
+          // Another thread got there first, which is fine.
+        }
+      }
+    });
+    checkTree();
+    checkIndex();
+    journal.commit();
+    journal.close();
+    journal = new Journal(dir.toString(), Sync.NEVER, 1 << 16);
+    assertEquals(root, journal.recover(new FileManager(new FileEditor())));
+  }
+
+  private void change(int op, Directory from, Directory to, String name,
+      Random random) throws Exception {
+    FolderElement fe = from.getElementByName(name);
+    switch (op) {
+      case 0:
+        from.createDirectory(name);
+        break;
+      case 1:
+        if (fe instanceof Directory) {
+          ((Directory) fe).createFile("f" + random.nextInt(4))
+              .appendToContents("x");
+        }
+        break;
+      case 2:
+        if (fe != null) {
+          fe.moveTo(to, name);
+        }
+        break;
+      case 3:
+        from.removeElement(name);
+        break;
+      case 4:
+        if (fe instanceof Directory) {
+          FolderElement copy = fe.copy();
+          copy.renameTo("c" + random.nextInt(32));
+          to.insertElement(copy);
+        }
+        break;
+      case 5:
+        for (FolderElement found : root.findElements('d', name)) {
+          assertEquals(name, found.getName());
+          util.Path path = found.getPathToThis();
+          assertEquals(name, path.getSection(path.length() - 1));
+        }
+        break;
+      case 6:
+        for (FolderElement element : from) {
+          element.getPathToThis();
+          if (element instanceof File) {
+            ((File) element).getContents();
+          }
+        }
+        break;
+      default:
+        journal.commit();
+    }
+  }
+
+  /**
+   * Test two directories moved into each other at once, each move checked
+   * beforehand the way mv checks it, end up one inside the other, instead of
+   * both being cut off from the tree. A cycle makes the next change walk up
+   * forever, hence the timeout.
+   */
+  @Test(timeout = 60000)
+  public void testMovesIntoEachOther() throws Exception {
+    CyclicBarrier[] barriers = new CyclicBarrier[THREADS / 2];
+    Directory[][] pairs = new Directory[THREADS / 2][];
+    for (int i = 0; i < barriers.length; i++) {
+      barriers[i] = new CyclicBarrier(2);
+    }
+    runTogether(id -> {
+      int pair = id / 2;
+      Directory parent = shared[pair % SHARED];
+      for (int round = 0; round < 1000; round++) {
+        if (id % 2 == 0) {
+          pairs[pair] = new Directory[]{
+              parent.createDirectory("a" + pair + "_" + round),
+              parent.createDirectory("b" + pair + "_" + round)};
+        }
+        barriers[pair].await(10, TimeUnit.SECONDS);
+        Directory a = pairs[pair][0];
+        Directory b = pairs[pair][1];
+        Directory from = id % 2 == 0 ? a : b;
+        Directory to = id % 2 == 0 ? b : a;
+        if (to != from && !to.isDescendantOf(from)) {
+          try {
+            from.moveTo(to, from.getName());
+          } catch (IllegalOperationException e) {
+            // The other move got there first, which is fine.
+          }
+        }
+        barriers[pair].await(10, TimeUnit.SECONDS);
+        if (id % 2 == 0) {
+          assertReachable(a);
+          assertReachable(b);
+          assertTrue(a.getParentDir() == b ^ b.getParentDir() == a);
+        }
+      }
+    });
+    checkTree();
+    checkIndex();
+  }
+
+  /**
+   * Checks {@code fe} is a few parents below the root, rather than in a cycle
+   * cut off from it.
+   */
+  private void assertReachable(FolderElement fe) {
+    for (int depth = 0; fe != root; depth++) {
+      assertTrue(fe.getName() + " is cut off from the root", depth < 8);
+      fe = fe.getParentDir();
+    }
+  }
+
+  /**
+   * Checks every element is listed in its parent under its own name.
+   */
+  private void checkTree() {
+    for (FolderElement fe : walk(root)) {
+      Directory parent = fe.getParentDir();
+      assertSame(fe, parent.getElementByName(fe.getName()));
+    }
+  }
+
+  /**
+   * Checks searching for every name finds exactly the elements of that name.
+   */
+  private void checkIndex() {
+    List<FolderElement> all = walk(root);
+    for (FolderElement fe : all) {
+      char type = fe instanceof Directory ? 'd' : 'f';
+      List<FolderElement> expected = new ArrayList<>();
+      for (FolderElement other : all) {
+        if (other.getName().equals(fe.getName())
+            && (other instanceof Directory) == (type == 'd')) {
+          expected.add(other);
+        }
+      }
+      assertEquals(expected, root.findElements(type, fe.getName()));
+    }
+  }
+
+  /**
+   * Returns every element in {@code top}, in depth-first order.
+   */
+  private static List<FolderElement> walk(Directory top) {
+    List<FolderElement> all = new ArrayList<>();
+    walk(top, all);
+    return all;
+  }
+
+  private static void walk(Directory dir, List<FolderElement> all) {
+    for (FolderElement fe : dir) {
+      all.add(fe);
+      if (fe instanceof Directory) {
+        walk((Directory) fe, all);
+      }
+    }
+  }
+
+  /**
+   * Test threads that read a snapshot at once each read every directory
+   * exactly once.
+   */
+  @Test
+  public void testConcurrentLazyReads() throws Exception {
+    for (int i = 0; i < 64; i++) {
+      Directory sub = shared[i % SHARED].createDirectory("sub" + i);
+      for (int j = 0; j < 8; j++) {
+        sub.createDirectory("dir" + j).createFile("file")
+            .overwriteContentsAs("contents" + j);
+      }
+    }
+    String path = dir.resolve("snapshot").toString();
+    new Snapshot(root, "/", Collections.emptyList(),
+        Collections.emptyList()).save(path);
+    for (int round = 0; round < 16; round++) {
+      Directory loaded = Snapshot.load(path, new FileManager(new FileEditor()))
+          .getRoot();
+      runTogether(id -> assertEquals(root, loaded));
+      assertEquals(walk(root).size(), walk(loaded).size());
+    }
+  }
+
+  /**
+   * Test a lazy copy made while other threads change its original keeps
+   * showing the original as it was when it was copied.
+   */
+  @Test
+  public void testCopiesWhileChanging() throws Exception {
+    Directory original = shared[0].createDirectory("original");
+    for (int i = 0; i < 32; i++) {
+      original.createDirectory("dir" + i).createFile("file");
+    }
+    Lock lock = original.getFileManager().getLock().readLock();
+    runTogether(id -> {
+      for (int i = 0; i < 500; i++) {
+        if (id == 0) {
+          fileIn(original, i % 32).overwriteContentsAs("version" + i);
+          continue;
+        }
+        Directory copy;
+        List<String> expected = new ArrayList<>();
+        lock.lock();
+        try {
+          copy = original.copy();
+          for (int j = 0; j < 32; j++) {
+            expected.add(fileIn(original, j).getContents());
+          }
+        } finally {
+          lock.unlock();
+        }
+        Thread.yield();
+        for (int j = 0; j < 32; j++) {
+          assertEquals(expected.get(j), fileIn(copy, j).getContents());
+        }
+      }
+    });
+  }
+
+  private static File fileIn(Directory dir, int number) {
+    return (File) ((Directory) dir.getElementByName("dir" + number))
+        .getElementByName("file");
+  }
+}
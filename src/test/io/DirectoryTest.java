@@ -7,11 +7,15 @@ import static org.junit.Assert.assertTrue;
 
 import exceptions.DuplicateException;
 import exceptions.IllegalNameException;
+import exceptions.IllegalOperationException;
 import io.Directory;
 import io.File;
 import io.FileEditor;
 import io.FileManager;
 import io.FolderElement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -228,6 +232,303 @@ public class DirectoryTest {
     assertFalse(sub1.isDescendantOf(sub2));
   }
 
+  /**
+   * Test if isDescendant() returns false for a directory in another tree that
+   * has the same path as an actual ancestor.
+   */
+  @Test
+  public void testDescendantSameNames()
+      throws DuplicateException, IllegalNameException {
+    Directory root = new Directory("root", fileManager);
+    Directory sub2 = root.createDirectory("sub1").createDirectory("sub2");
+    Directory otherRoot = new Directory("root", fileManager);
+    Directory otherSub1 = otherRoot.createDirectory("sub1");
+    assertFalse(sub2.isDescendantOf(otherSub1));
+    assertFalse(sub2.isDescendantOf(otherRoot));
+    assertTrue(sub2.isDescendantOf(root));
+  }
+
+  /**
+   * Test if isDescendant() follows a directory after it has been moved.
+   */
+  @Test
+  public void testDescendantAfterMove()
+      throws DuplicateException, IllegalNameException {
+    Directory root = new Directory("root", fileManager);
+    Directory sub1 = root.createDirectory("sub1");
+    Directory sub2 = sub1.createDirectory("sub2");
+    Directory sub3 = root.createDirectory("sub3");
+    assertEquals(2, sub2.getDepth());
+    sub1.removeElement("sub2");
+    sub3.insertElement(sub2);
+    assertFalse(sub2.isDescendantOf(sub1));
+    assertTrue(sub2.isDescendantOf(sub3));
+    root.removeElement("sub3");
+    sub1.insertElement(sub3);
+    assertEquals(3, sub2.getDepth());
+    assertTrue(sub2.isDescendantOf(sub1));
+  }
+
+  /**
+   * Test iteration lists elements in the order they were added.
+   */
+  @Test
+  public void testIterationOrder()
+      throws DuplicateException, IllegalNameException {
+    self.createDirectory("b");
+    self.createFile("a");
+    self.createDirectory("c");
+    self.removeElement("a");
+    self.createFile("a");
+    ArrayList<String> actual = new ArrayList<>();
+    for (FolderElement fe : self) {
+      actual.add(fe.getName());
+    }
+    assertEquals(Arrays.asList("b", "c", "a"), actual);
+  }
+
+  /**
+   * Test a renamed element can only be found by its new name.
+   */
+  @Test
+  public void testGetByNameAfterRename()
+      throws DuplicateException, IllegalNameException {
+    Directory sub = self.createDirectory("old");
+    sub.renameTo("new");
+    assertEquals(null, self.getElementByName("old"));
+    assertTrue(sub == self.getElementByName("new"));
+    assertEquals(1, self.size());
+  }
+
+  /**
+   * Test a renamed element keeps its position in the iteration order.
+   */
+  @Test
+  public void testIterationOrderAfterRename()
+      throws DuplicateException, IllegalNameException {
+    self.createDirectory("b");
+    self.createFile("a").renameTo("d");
+    self.createDirectory("c");
+    ArrayList<String> actual = new ArrayList<>();
+    for (FolderElement fe : self) {
+      actual.add(fe.getName());
+    }
+    assertEquals(Arrays.asList("b", "d", "c"), actual);
+    assertTrue(self.getElementByName("d") != null);
+  }
+
+  /**
+   * Test an element cannot be created when another element of the same name
+   * but a different type exists.
+   */
+  @Test(expected = DuplicateException.class)
+  public void testCreateDuplicateOfOtherType()
+      throws DuplicateException, IllegalNameException {
+    self.createFile("Test");
+    self.createDirectory("Test");
+  }
+
+  /**
+   * Test paths of descendants follow the rename of an ancestor.
+   */
+  @Test
+  public void testPathAfterAncestorRenamed()
+      throws DuplicateException, IllegalNameException {
+    Directory root = new Directory("/", fileManager);
+    Directory sub1 = root.createDirectory("sub1");
+    Directory sub2 = sub1.createDirectory("sub2");
+    File file = sub2.createFile("file");
+    assertEquals("/sub1/sub2/file/", file.getPathToThis().toString());
+    sub1.renameTo("renamed");
+    assertEquals("/renamed/sub2/file/", file.getPathToThis().toString());
+    assertEquals("/renamed/sub2/", sub2.getPathToThis().toString());
+  }
+
+  /**
+   * Test paths of descendants follow the move of an ancestor.
+   */
+  @Test
+  public void testPathAfterAncestorMoved()
+      throws DuplicateException, IllegalNameException {
+    Directory root = new Directory("/", fileManager);
+    Directory sub1 = root.createDirectory("sub1");
+    Directory sub2 = sub1.createDirectory("sub2");
+    Directory sub3 = root.createDirectory("sub3");
+    File file = sub2.createFile("file");
+    assertEquals("/sub1/sub2/file/", file.getPathToThis().toString());
+    sub1.removeElement("sub2");
+    sub3.insertElement(sub2);
+    assertEquals("/sub3/sub2/file/", file.getPathToThis().toString());
+    assertEquals("/", root.getPathToThis().toString());
+  }
+
+  /**
+   * Builds /sub1/sub2/file1 with contents "hello", and /sub1/file2, in {@code
+   * root}.
+   */
+  private static void buildTree(Directory root)
+      throws DuplicateException, IllegalNameException {
+    Directory sub1 = root.createDirectory("sub1");
+    sub1.createDirectory("sub2").createFile("file1")
+        .overwriteContentsAs("hello");
+    sub1.createFile("file2");
+  }
+
+  /**
+   * Test a copy keeps looking the way its original did when it was copied,
+   * no matter how deep inside the original a later change is made.
+   */
+  @Test
+  public void testCopyUnaffectedByChangesToOriginal() throws DuplicateException,
+      IllegalNameException, IllegalOperationException {
+    Directory root = new Directory("/", fileManager);
+    buildTree(root);
+    Directory expected = new Directory("/", fileManager);
+    buildTree(expected);
+    Directory sub1 = (Directory) root.getElementByName("sub1");
+    Directory sub2 = (Directory) sub1.getElementByName("sub2");
+    Directory copy = root.copy();
+
+    ((File) sub2.getElementByName("file1")).appendToContents(" world");
+    sub2.createDirectory("sub3");
+    sub1.getElementByName("file2").renameTo("renamed");
+    sub2.moveTo(root, "moved");
+    root.removeElement("sub1");
+    assertEquals(expected, copy);
+  }
+
+  /**
+   * Test changes to a copy do not show in its original.
+   */
+  @Test
+  public void testOriginalUnaffectedByChangesToCopy()
+      throws DuplicateException, IllegalNameException {
+    Directory root = new Directory("/", fileManager);
+    buildTree(root);
+    Directory expected = new Directory("/", fileManager);
+    buildTree(expected);
+    Directory copy = root.copy();
+    Directory sub2 = (Directory) ((Directory) copy.getElementByName("sub1"))
+        .getElementByName("sub2");
+    ((File) sub2.getElementByName("file1")).appendToContents(" world");
+    sub2.removeAll();
+    assertEquals(expected, root);
+  }
+
+  /**
+   * Test a directory can be copied into one of its own sub directories.
+   */
+  @Test
+  public void testCopyIntoDescendant()
+      throws DuplicateException, IllegalNameException {
+    Directory root = new Directory("/", fileManager);
+    buildTree(root);
+    Directory sub1 = (Directory) root.getElementByName("sub1");
+    Directory sub2 = (Directory) sub1.getElementByName("sub2");
+    Directory copy = sub1.copy();
+    sub2.insertElement(copy);
+
+    Directory expected = new Directory("/", fileManager);
+    buildTree(expected);
+    Directory expectedSub2 = (Directory) ((Directory) expected
+        .getElementByName("sub1")).getElementByName("sub2");
+    // The copy is sub1 the way it was before it was inserted.
+    buildTree(expectedSub2);
+    assertEquals(expected, root);
+  }
+
+  /**
+   * Test the elements of a copy inserted into a tree that has been searched
+   * can be found, as the copy and its original change.
+   */
+  @Test
+  public void testFindInsideCopy()
+      throws DuplicateException, IllegalNameException {
+    Directory root = new Directory("/", fileManager);
+    buildTree(root);
+    assertEquals(1, fileManager.find(root, 'f', "file1").size());
+    Directory copy = ((Directory) root.getElementByName("sub1")).copy();
+    copy.renameTo("copied");
+    root.insertElement(copy);
+
+    Directory sub2 = (Directory) ((Directory) root.getElementByName("sub1"))
+        .getElementByName("sub2");
+    sub2.getElementByName("file1").renameTo("renamed");
+    sub2 = (Directory) ((Directory) root.getElementByName("copied"))
+        .getElementByName("sub2");
+    assertEquals(Arrays.asList(sub2.getElementByName("file1")),
+        fileManager.find(root, 'f', "file1"));
+    assertEquals(2, fileManager.find(root, 'f', "file2").size());
+    root.removeElement("copied");
+    assertEquals(0, fileManager.find(root, 'f', "file1").size());
+  }
+
+  /**
+   * Test an iterator keeps the elements as they were when it was made, and a
+   * new iterator sees the changes made since.
+   */
+  @Test
+  public void testIteratorSeesChangesOnlyWhenMadeAfter()
+      throws DuplicateException, IllegalNameException {
+    self.createDirectory("a");
+    self.createDirectory("b");
+    Iterator<FolderElement> before = self.iterator();
+    self.removeElement("a");
+    self.createDirectory("c");
+    ArrayList<String> names = new ArrayList<>();
+    before.forEachRemaining(element -> names.add(element.getName()));
+    assertEquals(Arrays.asList("a", "b"), names);
+    names.clear();
+    self.forEach(element -> names.add(element.getName()));
+    assertEquals(Arrays.asList("b", "c"), names);
+  }
+
+  /**
+   * Test the cost of looking up and creating elements does not grow with the
+   * number of elements in a directory. A directory 100 times larger is allowed
+   * to be a few times slower to absorb timing noise, while a linear scan would
+   * be about 100 times slower.
+   */
+  @Test
+  public void testLookupScalesWithFanOut()
+      throws DuplicateException, IllegalNameException {
+    long small = timeLookups(1000);
+    long large = timeLookups(100000);
+    assertTrue("lookups in a 100x larger directory took " + large
+        + "ns compared to " + small + "ns", large < small * 10);
+  }
+
+  /**
+   * Returns the best time, in nanoseconds, of several rounds that each fill a
+   * fresh directory with {@code fanOut} sub directories and then look up a
+   * fixed number of them.
+   */
+  private long timeLookups(int fanOut)
+      throws DuplicateException, IllegalNameException {
+    int lookups = 200000;
+    long best = Long.MAX_VALUE;
+    for (int round = 0; round < 5; round++) {
+      Directory dir = new Directory("wide", fileManager);
+      for (int i = 0; i < fanOut; i++) {
+        dir.createDirectory("d" + i);
+      }
+      String[] names = new String[lookups];
+      for (int i = 0; i < lookups; i++) {
+        names[i] = "d" + (i * 7919 % fanOut);
+      }
+      long start = System.nanoTime();
+      int found = 0;
+      for (String name : names) {
+        if (dir.getElementByName(name) != null) {
+          found++;
+        }
+      }
+      best = Math.min(best, System.nanoTime() - start);
+      assertEquals(lookups, found);
+    }
+    return best;
+  }
+
   @After
   public void tearDown() {
     self = null;
@@ -1,14 +1,19 @@
 package test.io;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import driver.Controller;
 import exceptions.DuplicateException;
 import exceptions.IllegalNameException;
+import exceptions.IllegalOperationException;
 import io.Directory;
 import io.File;
 import io.FileEditor;
 import io.FileManager;
+import io.FolderElement;
+import java.util.Arrays;
+import java.util.List;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -121,6 +126,107 @@ public class FileManagerTest {
     assertEquals(new Directory("test", fileManager), actual);
   }
 
+  /**
+   * Test find lists matches in the order a depth-first walk visits them, and
+   * only those of the requested type.
+   */
+  @Test
+  public void testFindOrder() throws DuplicateException, IllegalNameException {
+    Directory sub1 = actual.createDirectory("sub1");
+    Directory sub2 = actual.createDirectory("sub2");
+    File file1 = sub2.createFile("x");
+    Directory dir1 = sub1.createDirectory("x");
+    Directory dir2 = dir1.createDirectory("x");
+    Directory dir3 = actual.createDirectory("x");
+    assertEquals(Arrays.asList(dir1, dir2, dir3),
+        actual.findElements('d', "x"));
+    assertEquals(Arrays.asList(file1), actual.findElements('f', "x"));
+    assertEquals(Arrays.asList(dir2), dir1.findElements('d', "x"));
+  }
+
+  /**
+   * Test the index follows elements that are renamed, moved, removed or
+   * inserted after the first search.
+   */
+  @Test
+  public void testFindAfterChanges() throws DuplicateException,
+      IllegalNameException, IllegalOperationException {
+    Directory sub1 = actual.createDirectory("sub1");
+    Directory sub2 = actual.createDirectory("sub2");
+    File file = sub1.createFile("old");
+    assertEquals(Arrays.asList(file), actual.findElements('f', "old"));
+
+    file.renameTo("new");
+    assertTrue(actual.findElements('f', "old").isEmpty());
+    assertEquals(Arrays.asList(file), actual.findElements('f', "new"));
+
+    sub1.moveTo(sub2, "moved");
+    assertEquals(Arrays.asList(file), sub1.findElements('f', "new"));
+    assertTrue(actual.findElements('d', "sub1").isEmpty());
+    assertEquals(Arrays.asList(file), sub2.findElements('f', "new"));
+
+    sub2.removeElement("moved");
+    assertTrue(actual.findElements('f', "new").isEmpty());
+    assertTrue(actual.findElements('d', "moved").isEmpty());
+
+    sub2.insertElement(sub1);
+    assertEquals(Arrays.asList(file), actual.findElements('f', "new"));
+
+    actual.removeAll();
+    assertTrue(actual.findElements('f', "new").isEmpty());
+  }
+
+  /**
+   * Test a failed move leaves the element where it was.
+   */
+  @Test
+  public void testMoveDuplicate() throws DuplicateException,
+      IllegalNameException, IllegalOperationException {
+    Directory sub1 = actual.createDirectory("sub1");
+    Directory sub2 = actual.createDirectory("sub2");
+    File file = sub1.createFile("file");
+    sub2.createFile("file");
+    try {
+      file.moveTo(sub2, "file");
+    } catch (DuplicateException e) {
+      assertEquals(file, sub1.getElementByName("file"));
+      assertEquals(sub1, file.getParentDir());
+      return;
+    }
+    throw new AssertionError("DuplicateException expected");
+  }
+
+  /**
+   * Test the time taken by find depends on the number of matches, not on the
+   * size of the tree.
+   */
+  @Test
+  public void testFindScalesWithMatches()
+      throws DuplicateException, IllegalNameException {
+    Directory small = actual.createDirectory("small");
+    Directory large = actual.createDirectory("large");
+    for (int i = 0; i < 100; i++) {
+      small.createDirectory("d" + i).createFile("target");
+    }
+    large.createDirectory("found").createFile("target");
+    for (int i = 0; i < 200000; i++) {
+      large.createFile("f" + i);
+    }
+    List<FolderElement> found = actual.findElements('f', "target");
+    assertEquals(101, found.size());
+    long best = Long.MAX_VALUE;
+    for (int round = 0; round < 5; round++) {
+      long start = System.nanoTime();
+      for (int i = 0; i < 100; i++) {
+        large.findElements('f', "target");
+      }
+      best = Math.min(best, System.nanoTime() - start);
+    }
+    // 100 lookups of 101 candidates each, far less than one walk of 200k
+    // elements would take.
+    assertTrue(best < 1000000000L);
+  }
+
   @After
   public void tearDown() {
     actual = null;
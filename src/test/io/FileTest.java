@@ -102,6 +102,58 @@ public class FileTest {
     assertEquals("123apple", self.getContents());
   }
 
+  /**
+   * Test overwriteContentsAs() discards everything appended before.
+   */
+  @Test
+  public void testOverwriteAfterAppend() {
+    self.appendToContents("123");
+    self.getContents();
+    self.appendToContents("apple");
+    self.overwriteContentsAs("pear");
+    assertEquals("pear", self.getContents());
+    self.appendToContents("!");
+    assertEquals("pear!", self.getContents());
+  }
+
+  /**
+   * Test a large number of appends, which used to copy the whole file on
+   * every call.
+   */
+  @Test
+  public void testAppendMany() {
+    StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < 200000; i++) {
+      self.appendToContents("line" + i);
+      self.appendToContents("\n");
+      expected.append("line").append(i).append("\n");
+    }
+    assertEquals(expected.toString(), self.getContents());
+  }
+
+  /**
+   * Test a file cleared and written again over and over has only what was
+   * written since it was last cleared, and a copy keeps what it was copied
+   * with.
+   */
+  @Test
+  public void testClearAndAppend() {
+    File copied = null;
+    for (int i = 0; i < 3; i++) {
+      self.overwriteContentsAs("");
+      self.appendToContents("line" + i);
+      self.appendToContents("\n");
+      assertEquals("line" + i + "\n", self.getContents());
+      if (i == 1) {
+        copied = self.copy();
+      }
+    }
+    assertEquals("line1\n", copied.getContents());
+    self.overwriteContentsAs("12345");
+    self.appendToContents("6");
+    assertEquals("123456", self.getContents());
+  }
+
   /**
    * Test copy.
    */
@@ -0,0 +1,142 @@
+package test.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import exceptions.WrongSyntaxException;
+import io.InputParser;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import util.CmdOutput.OutMode;
+import util.CombinedCumulativeFlagHandler;
+import util.CommandNode;
+import util.DisjointMutexFlagHandler;
+import util.Flag;
+import util.Message;
+
+public class InputParserTest {
+
+  private final InputParser parser = new InputParser();
+
+  private static final Flag[] FLAGS = {
+      new Flag("-n", new DisjointMutexFlagHandler()),
+      new Flag("-", new CombinedCumulativeFlagHandler())
+  };
+
+  private List<CommandNode> parse(String line) throws WrongSyntaxException {
+    return parser.parseCommands(parser.parse(line), alias -> FLAGS);
+  }
+
+  /**
+   * Test lines are split at whitespaces outside double quotation marks.
+   */
+  @Test
+  public void testParse() {
+    assertEquals(new Message(new String[]{"echo", "\"a  b\"", ">", "f"}),
+        parser.parse("  echo \"a  b\"   >  f "));
+    assertEquals(new Message(), parser.parse("   "));
+  }
+
+  /**
+   * Test arguments, flags and the redirection of a command are told apart.
+   */
+  @Test
+  public void testCommand() throws WrongSyntaxException {
+    List<CommandNode> nodes = parse("cmd a -n 5 -x b -y -n 7 >> out c");
+    assertEquals(1, nodes.size());
+    CommandNode node = nodes.get(0);
+    assertEquals("cmd", node.getAlias());
+    assertEquals(Arrays.asList("a", "b", "c"), node.getArguments());
+    assertEquals("7", node.getFlag("-n"));
+    assertEquals(Arrays.asList("5", "7"), node.getFlagValues("-n"));
+    assertEquals(Arrays.asList("x", "y"), node.getFlagValues("-"));
+    assertEquals(OutMode.APPEND_TO_FILE, node.getOutMode());
+    assertEquals("out/", node.getRedirectTo().toString());
+    assertEquals(8, node.size());
+  }
+
+  /**
+   * Test a command without flags or redirection.
+   */
+  @Test
+  public void testPlainCommand() throws WrongSyntaxException {
+    CommandNode node = parser.parseCommands(parser.parse("mkdir -a b"),
+        alias -> new Flag[0]).get(0);
+    assertEquals(Arrays.asList("-a", "b"), node.getArguments());
+    assertFalse(node.hasFlag("-"));
+    assertNull(node.getFlag("-"));
+    assertEquals(Collections.emptyList(), node.getFlagValues("-"));
+    assertEquals(OutMode.PRINT, node.getOutMode());
+    assertNull(node.getRedirectTo());
+    assertEquals(new Message(new String[]{"-a", "b"}), node.toMessage());
+  }
+
+  /**
+   * Test the commands of a pipeline are parsed one by one.
+   */
+  @Test
+  public void testPipeline() throws WrongSyntaxException {
+    List<CommandNode> nodes = parse("ls -R / | grep \"a | b\" | wc > out");
+    assertEquals(3, nodes.size());
+    assertEquals("ls", nodes.get(0).getAlias());
+    assertTrue(nodes.get(0).hasFlag("-"));
+    assertEquals(Collections.singletonList("\"a | b\""),
+        nodes.get(1).getArguments());
+    assertEquals(OutMode.PRINT, nodes.get(1).getOutMode());
+    assertEquals(OutMode.OVERWRITE_FILE, nodes.get(2).getOutMode());
+  }
+
+  /**
+   * Test an empty line is one command with an empty alias.
+   */
+  @Test
+  public void testEmptyLine() throws WrongSyntaxException {
+    List<CommandNode> nodes = parse("");
+    assertEquals(1, nodes.size());
+    assertEquals("", nodes.get(0).getAlias());
+  }
+
+  /**
+   * Test a flag without its value is an error.
+   */
+  @Test(expected = WrongSyntaxException.class)
+  public void testMissingValue() throws WrongSyntaxException {
+    parse("cmd a -n");
+  }
+
+  /**
+   * Test a redirection without its file is an error.
+   */
+  @Test(expected = WrongSyntaxException.class)
+  public void testMissingRedirection() throws WrongSyntaxException {
+    parse("cmd a >");
+  }
+
+  /**
+   * Test a pipeline with an empty command is an error.
+   */
+  @Test(expected = WrongSyntaxException.class)
+  public void testEmptyPipelineCommand() throws WrongSyntaxException {
+    parse("cmd | | cmd");
+  }
+
+  /**
+   * Test a long line of many flags and arguments is parsed whole, in time
+   * linear in its length.
+   */
+  @Test(timeout = 10000)
+  public void testLongLine() throws WrongSyntaxException {
+    StringBuilder sb = new StringBuilder("cmd");
+    for (int i = 0; i < 200000; i++) {
+      sb.append(i % 2 == 0 ? " -R" : " dir" + i);
+    }
+    CommandNode node = parse(sb.toString()).get(0);
+    assertEquals(100000, node.getArguments().size());
+    assertEquals(100000, node.getFlagValues("-").size());
+    assertEquals("dir199999", node.getArguments().get(99999));
+  }
+}
@@ -0,0 +1,56 @@
+package test.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import io.InputParser;
+import io.InputReader;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+import util.Message;
+
+public class InputReaderTest {
+
+  private static InputReader readerOf(String input) {
+    return new InputReader(new InputParser(),
+        new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  /**
+   * Test lines are read and parsed one at a time.
+   */
+  @Test
+  public void testReadLines() {
+    InputReader reader = readerOf("mkdir a b\necho \"x y\" > f\n");
+    assertEquals(new Message(new String[]{"mkdir", "a", "b"}),
+        reader.getUserInput());
+    assertEquals(new Message(new String[]{"echo", "\"x y\"", ">", "f"}),
+        reader.getUserInput());
+  }
+
+  /**
+   * Test null is returned once there is no more input, with or without a
+   * newline after the last line.
+   */
+  @Test
+  public void testEndOfInput() {
+    InputReader reader = readerOf("pwd");
+    assertEquals(new Message("pwd"), reader.getUserInput());
+    assertNull(reader.getUserInput());
+    assertNull(readerOf("").getUserInput());
+  }
+
+  /**
+   * Test lines longer than the buffer are read whole.
+   */
+  @Test
+  public void testLongLine() {
+    StringBuilder sb = new StringBuilder("echo ");
+    for (int i = 0; i < 100000; i++) {
+      sb.append('a');
+    }
+    Message actual = readerOf(sb.toString()).getUserInput();
+    assertEquals(100005, actual.toString().length());
+  }
+}
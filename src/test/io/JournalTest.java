@@ -0,0 +1,207 @@
+package test.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import exceptions.DuplicateException;
+import exceptions.IllegalNameException;
+import exceptions.IllegalOperationException;
+import io.Directory;
+import io.File;
+import io.FileEditor;
+import io.FileManager;
+import io.FolderElement;
+import io.Journal;
+import io.Journal.Sync;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JournalTest {
+
+  private Path dir;
+  private Journal journal;
+  private Directory root;
+
+  @Before
+  public void setup() throws IOException {
+    dir = Files.createTempDirectory("journal");
+    journal = new Journal(dir.toString(), Sync.NEVER, Long.MAX_VALUE);
+    root = journal.recover(new FileManager(new FileEditor()));
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    try (Stream<Path> files = Files.walk(dir)) {
+      files.sorted(Comparator.reverseOrder()).forEach(file ->
+          file.toFile().delete());
+    }
+  }
+
+  private Directory recover() throws IOException {
+    journal.close();
+    journal = new Journal(dir.toString(), Sync.NEVER, Long.MAX_VALUE);
+    return journal.recover(new FileManager(new FileEditor()));
+  }
+
+  /**
+   * Test an empty journal directory gives an empty file system.
+   */
+  @Test
+  public void testEmpty() throws IOException {
+    assertEquals(new Directory("/", new FileManager(new FileEditor())),
+        recover());
+  }
+
+  /**
+   * Test every kind of change is replayed.
+   */
+  @Test
+  public void testReplay() throws DuplicateException, IllegalNameException,
+      IllegalOperationException, IOException {
+    Directory sub1 = root.createDirectory("sub1");
+    Directory sub2 = sub1.createDirectory("sub2");
+    File file1 = sub2.createFile("file1");
+    file1.overwriteContentsAs("hello");
+    file1.appendToContents(" world");
+    root.createDirectory("sub3").createFile("file2");
+    journal.commit();
+
+    // A copy is only journaled once it is inserted.
+    Directory copied = sub1.copy();
+    copied.renameTo("copied");
+    root.insertElement(copied);
+    file1.renameTo("renamed");
+    sub2.moveTo(root, "moved");
+    root.removeElement("sub3");
+    ((Directory) copied.getElementByName("sub2")).removeAll();
+    journal.commit();
+
+    assertEquals(root, recover());
+  }
+
+  /**
+   * Test a copy is replayed as it was when it was made, even if its original
+   * changes later.
+   */
+  @Test
+  public void testReplayCopy()
+      throws DuplicateException, IllegalNameException, IOException {
+    Directory sub1 = root.createDirectory("sub1");
+    sub1.createDirectory("sub2").createFile("file1")
+        .overwriteContentsAs("hello");
+    FolderElement copy = sub1.copy();
+    copy.renameTo("copied");
+    root.insertElement(copy);
+    ((File) ((Directory) sub1.getElementByName("sub2"))
+        .getElementByName("file1")).appendToContents(" world");
+    sub1.removeAll();
+    journal.commit();
+    assertEquals(root, recover());
+  }
+
+  /**
+   * Test changes to elements that have been removed from the tree, which may
+   * still be in use elsewhere, are not journaled.
+   */
+  @Test
+  public void testChangesAfterRemoval()
+      throws DuplicateException, IllegalNameException, IOException {
+    Directory sub1 = root.createDirectory("sub1");
+    Directory sub2 = sub1.createDirectory("sub2");
+    FolderElement copy = sub1.copy();
+    root.removeElement("sub1");
+    sub2.createFile("file1").overwriteContentsAs("gone");
+    copy.renameTo("copied");
+    root.insertElement(copy);
+    journal.commit();
+    assertEquals(root, recover());
+  }
+
+  /**
+   * Test changes that have not been committed are not replayed.
+   */
+  @Test
+  public void testUncommitted()
+      throws DuplicateException, IllegalNameException, IOException {
+    root.createDirectory("committed");
+    journal.commit();
+    root.createDirectory("uncommitted");
+    Directory expected = new Directory("/", new FileManager(new FileEditor()));
+    expected.createDirectory("committed");
+    // Closing commits, so look at the journal the way a crash leaves it.
+    Journal other = new Journal(dir.toString(), Sync.NEVER, Long.MAX_VALUE);
+    assertEquals(expected, other.recover(new FileManager(new FileEditor())));
+    other.close();
+  }
+
+  /**
+   * Test a frame cut short by a crash is ignored.
+   */
+  @Test
+  public void testTornFrame()
+      throws DuplicateException, IllegalNameException, IOException {
+    root.createDirectory("sub1");
+    journal.commit();
+    journal.close();
+    try (Stream<Path> files = Files.list(dir)) {
+      Path last = files.max(Comparator.naturalOrder()).get();
+      Files.write(last, new byte[]{0, 0, 1, 0, 1, 2, 3, 4, 5},
+          StandardOpenOption.APPEND);
+    }
+    journal = new Journal(dir.toString(), Sync.NEVER, Long.MAX_VALUE);
+    Directory recovered = journal.recover(new FileManager(new FileEditor()));
+    assertEquals(root, recovered);
+  }
+
+  /**
+   * Test a checkpoint replaces the journals before it, and the journal after
+   * it is replayed on top of it.
+   */
+  @Test
+  public void testCheckpoint()
+      throws DuplicateException, IllegalNameException, IOException {
+    root.createDirectory("sub1").createFile("file1")
+        .overwriteContentsAs("contents");
+    journal.commit();
+    journal.checkpoint();
+    root.createDirectory("sub2");
+    journal.commit();
+    try (Stream<Path> files = Files.list(dir)) {
+      assertEquals(2, files.count());
+    }
+    Directory recovered = recover();
+    assertEquals(root, recovered);
+
+    // Reading the checkpoint lazily is not journaled again.
+    ((Directory) recovered.getElementByName("sub1")).size();
+    journal.commit();
+    assertEquals(root, recover());
+  }
+
+  /**
+   * Test a checkpoint is written once the journal has grown large enough.
+   */
+  @Test
+  public void testCheckpointBytes()
+      throws DuplicateException, IllegalNameException, IOException {
+    journal.close();
+    journal = new Journal(dir.toString(), Sync.ALWAYS, 64);
+    root = journal.recover(new FileManager(new FileEditor()));
+    for (int i = 0; i < 20; i++) {
+      root.createDirectory("sub" + i);
+      journal.commit();
+    }
+    try (Stream<Path> files = Files.list(dir)) {
+      assertTrue(files.anyMatch(file ->
+          file.getFileName().toString().startsWith("checkpoint-")));
+    }
+    assertEquals(root, recover());
+  }
+}
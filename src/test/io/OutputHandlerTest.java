@@ -0,0 +1,67 @@
+package test.io;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import io.OutputHandler;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import org.junit.Test;
+import test.MockController;
+import util.CmdOutput;
+import util.CmdOutput.OutputBuilder;
+import util.PathInterpreter;
+
+public class OutputHandlerTest {
+
+  /**
+   * Prints {@code lines} through an output handler, and returns the bytes
+   * written to the console.
+   */
+  private static byte[] print(String... lines) {
+    ByteArrayOutputStream console = new ByteArrayOutputStream();
+    OutputHandler handler = new OutputHandler(
+        new PathInterpreter(new MockController()), console);
+    CmdOutput output = new OutputBuilder(null).build();
+    for (String line : lines) {
+      output.add(line);
+    }
+    handler.print(output, "\n");
+    handler.flushConsole();
+    return console.toByteArray();
+  }
+
+  /**
+   * Returns the bytes an {@code OutputStreamWriter} in the default charset
+   * writes for {@code lines} separated by newlines.
+   */
+  private static byte[] encode(String... lines) throws IOException {
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    try (Writer writer = new OutputStreamWriter(expected)) {
+      writer.write(String.join("\n", lines));
+    }
+    return expected.toByteArray();
+  }
+
+  /**
+   * Test the console is encoded the way an {@code OutputStreamWriter} would
+   * encode it, characters the default charset cannot encode included.
+   */
+  @Test
+  public void testEncodedLikeOutputStreamWriter() throws IOException {
+    String[] lines = {"plain", "h\u00e9llo \u2603", "\ud83d\ude00 smile", ""};
+    assertArrayEquals(encode(lines), print(lines));
+  }
+
+  /**
+   * Test a surrogate pair split by the end of the console buffer is encoded
+   * as one character, and a line longer than the buffer is printed whole.
+   */
+  @Test
+  public void testSurrogatePairAcrossBuffer() throws IOException {
+    String[] lines = {"a".repeat((1 << 16) - 1) + "\ud83d\ude00",
+        "b".repeat(3 << 16) + "\u00e9"};
+    assertArrayEquals(encode(lines), print(lines));
+  }
+}
@@ -0,0 +1,89 @@
+package test.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import exceptions.JShellException;
+import io.OutputSink;
+import io.Pipe;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class PipeTest {
+
+  private static List<String> readAll(Pipe pipe) {
+    List<String> lines = new ArrayList<>();
+    pipe.forEachRemaining(lines::add);
+    return lines;
+  }
+
+  /**
+   * Test lines written on one thread are read in order on another, across
+   * many chunks and while the pipe is full.
+   */
+  @Test
+  public void testStreaming() throws InterruptedException {
+    Pipe pipe = new Pipe();
+    Thread writer = new Thread(() -> {
+      for (int i = 0; i < 100_000; i++) {
+        pipe.write("line" + i);
+      }
+      pipe.close();
+    });
+    writer.start();
+    List<String> lines = readAll(pipe);
+    writer.join();
+    assertEquals(100_000, lines.size());
+    for (int i = 0; i < lines.size(); i++) {
+      assertEquals("line" + i, lines.get(i));
+    }
+  }
+
+  /**
+   * Test a sink writes the text of an output split into lines, the separators
+   * between its items included.
+   */
+  @Test
+  public void testSink() throws JShellException {
+    Pipe pipe = new Pipe();
+    OutputSink sink = pipe.openSink("\n\n");
+    sink.write("a");
+    sink.write("b\nc");
+    sink.write("d\n");
+    sink.write("e");
+    sink.close();
+    List<String> expected = List.of("a", "", "b", "c", "", "d", "", "", "e");
+    assertEquals(expected, readAll(pipe));
+  }
+
+  /**
+   * Test a sink that is given nothing writes no lines.
+   */
+  @Test
+  public void testEmptySink() throws JShellException {
+    Pipe pipe = new Pipe();
+    pipe.openSink("\n").close();
+    assertTrue(!pipe.hasNext());
+  }
+
+  /**
+   * Test closing the reading end lets a writer that is waiting for room go on,
+   * and drops whatever it writes.
+   */
+  @Test
+  public void testCloseReader() throws InterruptedException {
+    Pipe pipe = new Pipe();
+    Thread writer = new Thread(() -> {
+      for (int i = 0; i < 1_000_000; i++) {
+        pipe.write("line" + i);
+      }
+      pipe.close();
+    });
+    writer.start();
+    assertEquals("line0", pipe.next());
+    pipe.closeReader();
+    writer.join();
+    assertTrue(!pipe.hasNext());
+  }
+}
@@ -0,0 +1,210 @@
+package test.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import exceptions.DuplicateException;
+import exceptions.IllegalNameException;
+import io.Directory;
+import io.File;
+import io.FileEditor;
+import io.FileManager;
+import io.FolderElement;
+import io.Snapshot;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SnapshotTest {
+
+  private Directory root;
+  private java.nio.file.Path saveFile;
+
+  @Before
+  public void setup() throws IOException {
+    root = new Directory("/", new FileManager(new FileEditor()));
+    saveFile = Files.createTempFile("snapshot", ".bin");
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(saveFile);
+  }
+
+  private Snapshot saveAndLoad(Snapshot snapshot) throws IOException {
+    snapshot.save(saveFile.toString());
+    return Snapshot.load(saveFile.toString(),
+        new FileManager(new FileEditor()));
+  }
+
+  /**
+   * Test files, directories, contents and their order survive a round trip.
+   */
+  @Test
+  public void testRoundTripTree()
+      throws DuplicateException, IllegalNameException, IOException {
+    Directory sub1 = root.createDirectory("sub1");
+    root.createFile("file1").overwriteContentsAs("h\u00e9llo\nw\u00f6rld");
+    sub1.createFile("file1").overwriteContentsAs("");
+    sub1.createDirectory("sub2").createFile("big")
+        .overwriteContentsAs(String.join("", Collections.nCopies(100000,
+            "0123456789")));
+    Snapshot loaded = saveAndLoad(new Snapshot(root, "/sub1/",
+        Collections.emptyList(), Collections.emptyList()));
+    assertEquals(root, loaded.getRoot());
+    assertEquals(Arrays.asList("sub1", "file1"),
+        namesOf(loaded.getRoot()));
+    assertEquals("h\u00e9llo\nw\u00f6rld",
+        ((File) loaded.getRoot().getElementByName("file1")).getContents());
+  }
+
+  /**
+   * Test the working directory, history and directory stack survive a round
+   * trip.
+   */
+  @Test
+  public void testRoundTripState() throws IOException {
+    Snapshot loaded = saveAndLoad(new Snapshot(root, "/a/b/",
+        Arrays.asList("mkdir a", "cd a", "echo \"\u2603\""),
+        Arrays.asList("/", "/a/")));
+    assertEquals("/a/b/", loaded.getWorkingDir());
+    assertEquals(Arrays.asList("mkdir a", "cd a", "echo \"\u2603\""),
+        loaded.getHistory());
+    assertEquals(Arrays.asList("/", "/a/"), loaded.getPathStack());
+  }
+
+  /**
+   * Test a tree far deeper than the call stack allows to recurse can be saved
+   * and loaded.
+   */
+  @Test
+  public void testDeepTree()
+      throws DuplicateException, IllegalNameException, IOException {
+    Directory dir = root;
+    for (int i = 0; i < 100000; i++) {
+      dir = dir.createDirectory("d");
+    }
+    dir.createFile("leaf");
+    Snapshot loaded = saveAndLoad(new Snapshot(root, "/",
+        Collections.emptyList(), Collections.emptyList()));
+    FolderElement fe = loaded.getRoot();
+    int depth = 0;
+    while (fe instanceof Directory) {
+      fe = ((Directory) fe).iterator().next();
+      depth++;
+    }
+    assertEquals(100001, depth);
+    assertEquals("leaf", fe.getName());
+  }
+
+  /**
+   * Test directories are only read when they are visited, so a corrupt
+   * directory does not keep the rest of the snapshot from being used.
+   */
+  @Test
+  public void testDirectoriesReadOnVisit()
+      throws DuplicateException, IllegalNameException, IOException {
+    root.createDirectory("a").createFile("x")
+        .overwriteContentsAs(String.join("", Collections.nCopies(100, "x")));
+    root.createDirectory("b").createFile("y").overwriteContentsAs("y");
+    new Snapshot(root, "/", Collections.emptyList(), Collections.emptyList())
+        .save(saveFile.toString());
+    // Sub directories come first, so the record of "a" is the first one.
+    ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(saveFile));
+    long indexPosition = bytes.getLong(bytes.limit() - Long.BYTES);
+    int recordOfA = (int) bytes.getLong((int) indexPosition);
+    for (int i = 0; i < 10; i++) {
+      bytes.put(recordOfA + i, (byte) 0xFF);
+    }
+    Files.write(saveFile, bytes.array());
+
+    Directory loaded = Snapshot.load(saveFile.toString(),
+        new FileManager(new FileEditor())).getRoot();
+    assertEquals(Arrays.asList("a", "b"), namesOf(loaded));
+    Directory b = (Directory) loaded.getElementByName("b");
+    assertEquals("y", ((File) b.getElementByName("y")).getContents());
+    Directory a = (Directory) loaded.getElementByName("a");
+    try {
+      a.size();
+      fail("corrupt directory was read");
+    } catch (UncheckedIOException e) {
+      // expected
+    }
+  }
+
+  /**
+   * Test a snapshot can be saved over the file it was loaded from while parts
+   * of it have not been read yet.
+   */
+  @Test
+  public void testSaveOverLoadedFile()
+      throws DuplicateException, IllegalNameException, IOException {
+    root.createDirectory("sub1").createDirectory("sub2").createFile("file1")
+        .overwriteContentsAs("contents");
+    Snapshot loaded = saveAndLoad(new Snapshot(root, "/",
+        Collections.emptyList(), Collections.emptyList()));
+    loaded.save(saveFile.toString());
+    Snapshot reloaded = Snapshot.load(saveFile.toString(),
+        new FileManager(new FileEditor()));
+    assertEquals(root, reloaded.getRoot());
+  }
+
+  /**
+   * Test snapshots written in the first version of the format can still be
+   * read.
+   */
+  @Test
+  public void testVersion1() throws IOException {
+    Files.write(saveFile, new byte[]{'J', 'S', 'H', 'S', 1,
+        2, 1, '/', 1, 'f',       // names
+        1, 1, 2, 2, 'h', 'i',    // root holding file "f"
+        1, '/', 1, 1, 'l', 0});  // working dir, history, stack
+    Snapshot loaded = Snapshot.load(saveFile.toString(),
+        new FileManager(new FileEditor()));
+    assertEquals("hi",
+        ((File) loaded.getRoot().getElementByName("f")).getContents());
+    assertEquals("/", loaded.getWorkingDir());
+    assertEquals(Collections.singletonList("l"), loaded.getHistory());
+    assertEquals(Collections.emptyList(), loaded.getPathStack());
+  }
+
+  /**
+   * Test a file that is not a snapshot is rejected.
+   */
+  @Test(expected = IOException.class)
+  public void testNotASnapshot() throws IOException {
+    Files.write(saveFile, "not a snapshot".getBytes(StandardCharsets.UTF_8));
+    Snapshot.load(saveFile.toString(), new FileManager(new FileEditor()));
+  }
+
+  /**
+   * Test a truncated snapshot is rejected.
+   */
+  @Test(expected = IOException.class)
+  public void testTruncated()
+      throws DuplicateException, IllegalNameException, IOException {
+    root.createDirectory("sub1").createFile("file1");
+    new Snapshot(root, "/", Collections.emptyList(), Collections.emptyList())
+        .save(saveFile.toString());
+    byte[] bytes = Files.readAllBytes(saveFile);
+    Files.write(saveFile, Arrays.copyOf(bytes, bytes.length - 3));
+    Snapshot.load(saveFile.toString(), new FileManager(new FileEditor()));
+  }
+
+  private static List<String> namesOf(Directory dir) {
+    List<String> names = new ArrayList<>();
+    for (FolderElement fe : dir) {
+      names.add(fe.getName());
+    }
+    return names;
+  }
+}
@@ -1,37 +1,78 @@
 package test.util;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import commands.AbstractCommand;
+import commands.CommCd;
+import commands.CommEcho;
+import commands.CommGrep;
+import commands.CommHead;
+import commands.CommPwd;
+import commands.CommSort;
+import commands.CommWc;
 import driver.Controller;
+import exceptions.JShellException;
 import exceptions.WrongSyntaxException;
+import io.File;
+import io.InputParser;
 import io.OutputHandler;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import test.MockController;
 import test.commands.MockEmptyCommand;
+import test.commands.MockLinesCommand;
+import util.CmdOutput;
+import util.CmdOutput.OutputBuilder;
 import util.CommandExecutor;
+import util.CommandMetrics;
+import util.CommandNode;
 import util.Message;
 
 public class CommandExecutorTest {
 
+  /**
+   * The most bytes one round of {@code testSteadyStateAllocation} may allocate
+   * on average. Dispatch itself allocates nothing once the compiler has
+   * warmed up, but echo copies its string out of its quotation marks on every
+   * run, which takes 48 bytes for {@code "a"} on a 64-bit VM with compressed
+   * pointers. Anything more, such as a builder, an output or a flag array per
+   * command, goes over.
+   */
+  private static final long MAX_ROUND_BYTES = 64;
+
   private Controller system;
   private CommandExecutor commandExecutor;
+  private ByteArrayOutputStream console;
 
   @Before
   public void setup() {
     system = new MockController();
+    console = new ByteArrayOutputStream();
     commandExecutor = new CommandExecutor(new OutputHandler(
-        system.getPathInterpreter()));
+        system.getPathInterpreter(), console));
   }
 
   /**
-   * Test invoke method strips > and >> flags sections from args
+   * Test invoke method strips > and >> flags sections from the args the
+   * command is given, and leaves the args passed to it as they are.
    */
   @Test
   public void testArgsStrip() throws Exception {
-    AbstractCommand command = new MockEmptyCommand();
+    Message[] received = new Message[1];
+    AbstractCommand command = new MockEmptyCommand() {
+      @Override
+      public CmdOutput execute(Message args, OutputBuilder outputBuilder)
+          throws JShellException {
+        received[0] = args;
+        return super.execute(args, outputBuilder);
+      }
+    };
     Message actual = new Message(new String[]{
         "empty", "arg1", "arg2", ">", "redirect1", ">>", "redirect2", "arg3"
     });
@@ -39,7 +80,10 @@ public class CommandExecutorTest {
     Message expected = new Message(new String[]{
         "arg1", "arg2", "arg3"
     });
-    assertEquals(expected, actual);
+    assertEquals(expected, received[0]);
+    assertEquals(8, actual.length());
+    assertTrue(system.getRootDir().getElementByName("redirect1") == null);
+    assertTrue(system.getRootDir().getElementByName("redirect2") != null);
   }
 
   /**
@@ -54,6 +98,163 @@ public class CommandExecutorTest {
     commandExecutor.invoke(command, args);
   }
 
+  /**
+   * Runs {@code line} as a pipeline, in which {@code lines} is a {@code
+   * MockLinesCommand}, and returns what it printed.
+   */
+  private String runPipeline(String line) throws Exception {
+    InputParser parser = new InputParser();
+    List<CommandNode> pipeline = parser.parseCommands(parser.parse(line),
+        alias -> CommandExecutor.flagsOf(commandOf(alias)));
+    List<AbstractCommand> commands = new ArrayList<>();
+    for (CommandNode command : pipeline) {
+      commands.add(commandOf(command.getAlias()));
+    }
+    console.reset();
+    commandExecutor.invoke(commands, pipeline);
+    return console.toString();
+  }
+
+  private AbstractCommand commandOf(String alias) {
+    switch (alias) {
+      case "lines":
+        return new MockLinesCommand();
+      case "cd":
+        return CommCd.getInstance(system);
+      case "pwd":
+        return CommPwd.getInstance(system);
+      case "echo":
+        return CommEcho.getInstance(system);
+      case "grep":
+        return CommGrep.getInstance(system);
+      case "head":
+        return CommHead.getInstance(system);
+      case "sort":
+        return CommSort.getInstance(system);
+      default:
+        return CommWc.getInstance(system);
+    }
+  }
+
+  /**
+   * Test the lines printed by each command of a pipeline are read by the next
+   * one, and only the last one prints.
+   */
+  @Test
+  public void testPipeline() throws Exception {
+    StringBuilder expected = new StringBuilder();
+    for (int i = 9997; i >= 9970; i--) {
+      if (String.valueOf(i).contains("7")) {
+        expected.append("line").append(i).append("\n");
+      }
+    }
+    assertEquals(expected.toString(), runPipeline(
+        "lines 10000 | grep \"7\" | sort -r | head -n 12"));
+    assertEquals("10000 10000 88890\n", runPipeline("lines 10000 | wc"));
+    assertEquals("0 0 0\n", runPipeline("lines 0 | wc"));
+  }
+
+  /**
+   * Test a command that stops reading early does not wait for the commands
+   * before it.
+   */
+  @Test
+  public void testPipelineStopsEarly() throws Exception {
+    assertEquals("line0\n", runPipeline("lines 1000000 | head -n 1"));
+    assertEquals("line0\n", runPipeline(
+        "lines 1000000 | grep \"line\" | head -n 1"));
+  }
+
+  /**
+   * Test a redirected command of a pipeline writes nothing to the next one.
+   */
+  @Test
+  public void testPipelineRedirection() throws Exception {
+    assertEquals("0 0 0\n", runPipeline("lines 3 > /out | wc"));
+    assertEquals("line0\nline1\nline2\n",
+        ((File) system.getRootDir().getElementByName("out")).getContents());
+  }
+
+  /**
+   * Test the error of a command of a pipeline is thrown once every command is
+   * done.
+   */
+  @Test
+  public void testPipelineError() throws Exception {
+    try {
+      runPipeline("lines 3 | grep | wc");
+    } catch (WrongSyntaxException e) {
+      assertEquals("0 0 0\n", console.toString());
+      return;
+    }
+    assertTrue(false);
+  }
+
+  /**
+   * Test a pipeline with an empty command is an error.
+   */
+  @Test(expected = WrongSyntaxException.class)
+  public void testEmptyPipelineCommand() throws Exception {
+    runPipeline("lines 3 |");
+  }
+
+  /**
+   * Test commands invoked one after another each print only their own output,
+   * though each is built into the output of the one before.
+   */
+  @Test
+  public void testReusedOutput() throws Exception {
+    system.getRootDir().createDirectory("dir1");
+    assertEquals("a\n", runPipeline("echo \"a\""));
+    assertEquals("", runPipeline("cd dir1"));
+    assertEquals("/dir1/\n", runPipeline("pwd"));
+    assertEquals("line0\nline1\n", runPipeline("lines 2"));
+    assertEquals("", runPipeline("echo \"b\" > /out"));
+    assertEquals("/dir1/\n", runPipeline("pwd"));
+    assertEquals("b\n",
+        ((File) system.getRootDir().getElementByName("out")).getContents());
+  }
+
+  /**
+   * Test invoking cd, pwd and a redirected echo over and over, once they are
+   * parsed, allocates no more than the string echo prints once the compiler
+   * has warmed up.
+   */
+  @Test
+  public void testSteadyStateAllocation() throws Exception {
+    system.getRootDir().createDirectory("dir1");
+    CommandExecutor executor = new CommandExecutor(new OutputHandler(
+        system.getPathInterpreter(), OutputStream.nullOutputStream()));
+    InputParser parser = new InputParser();
+    List<AbstractCommand> commands = new ArrayList<>();
+    List<CommandNode> nodes = new ArrayList<>();
+    for (String line : new String[]{
+        "cd /dir1", "pwd", "echo \"a\" > /out", "cd .."}) {
+      CommandNode node = parser.parseCommands(parser.parse(line),
+          alias -> CommandExecutor.flagsOf(commandOf(alias))).get(0);
+      commands.add(commandOf(node.getAlias()));
+      nodes.add(node);
+    }
+    // Average batch after batch of rounds until one is within the budget,
+    // while the compiler gets rid of the objects that do not escape.
+    int rounds = 10000;
+    double least = Double.MAX_VALUE;
+    for (int batch = 0; batch < 100 && least > MAX_ROUND_BYTES; batch++) {
+      long allocated = CommandMetrics.allocatedBytes();
+      for (int i = 0; i < rounds; i++) {
+        for (int j = 0; j < nodes.size(); j++) {
+          executor.invoke(commands.get(j), nodes.get(j));
+        }
+      }
+      least = Math.min(least,
+          (double) (CommandMetrics.allocatedBytes() - allocated) / rounds);
+    }
+    assertTrue("allocated " + least + " bytes per round",
+        least <= MAX_ROUND_BYTES);
+    assertEquals("a\n",
+        ((File) system.getRootDir().getElementByName("out")).getContents());
+  }
+
   @After
   public void tearDown() {
     ((MockController) system).clear();
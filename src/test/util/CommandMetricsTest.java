@@ -0,0 +1,120 @@
+package test.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import commands.CommGrep;
+import driver.Controller;
+import exceptions.WrongSyntaxException;
+import io.File;
+import io.OutputHandler;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import javax.management.MBeanServer;
+import javax.management.openmbean.CompositeData;
+import org.junit.Before;
+import org.junit.Test;
+import test.MockController;
+import test.commands.MockLinesCommand;
+import util.CommandExecutor;
+import util.CommandMetrics;
+import util.CommandMetrics.Summary;
+import util.Message;
+
+public class CommandMetricsTest {
+
+  private Controller system;
+  private CommandMetrics metrics;
+  private CommandExecutor commandExecutor;
+
+  @Before
+  public void setup() {
+    system = new MockController();
+    metrics = new CommandMetrics();
+    commandExecutor = new CommandExecutor(new OutputHandler(
+        system.getPathInterpreter(), OutputStream.nullOutputStream()),
+        metrics);
+  }
+
+  /**
+   * Test percentiles are read from the histogram within an eighth of the
+   * true ones, and the longest time exactly.
+   */
+  @Test
+  public void testPercentiles() {
+    for (int i = 1; i <= 1000; i++) {
+      metrics.record("cmd", i * 1000L, true, 0, 0, 0);
+    }
+    Summary summary = metrics.getCommands().get(0);
+    assertEquals(1000, summary.getCount());
+    assertEquals(500_500_000L, summary.getTotalNanos());
+    assertInRange(500_000, summary.getP50Nanos());
+    assertInRange(900_000, summary.getP90Nanos());
+    assertInRange(990_000, summary.getP99Nanos());
+    assertEquals(1_000_000, summary.getMaxNanos());
+  }
+
+  private static void assertInRange(long expected, long actual) {
+    assertTrue(actual + " < " + expected, actual >= expected);
+    assertTrue(actual + " > " + expected, actual <= expected * 9 / 8);
+  }
+
+  /**
+   * Test invoked commands are recorded by alias, with their failures, paths
+   * resolved and lines output.
+   */
+  @Test
+  public void testInvoke() throws Exception {
+    File file = system.getRootDir().createFile("file1");
+    file.overwriteContentsAs("a\nb\nab");
+    commandExecutor.invoke(new MockLinesCommand(),
+        new Message(new String[]{"lines", "5"}));
+    commandExecutor.invoke(new MockLinesCommand(),
+        new Message(new String[]{"lines", "3", ">", "/out"}));
+    CommGrep grep = CommGrep.getInstance(system);
+    commandExecutor.invoke(grep,
+        new Message(new String[]{"grep", "\"a\"", "/file1"}));
+    try {
+      commandExecutor.invoke(grep, new Message("grep"));
+    } catch (WrongSyntaxException e) {
+      // Recorded as a failure below.
+    }
+    List<Summary> summaries = metrics.getCommands();
+    assertEquals(2, summaries.size());
+    Summary grepSummary = summaries.get(0);
+    assertEquals("grep", grepSummary.getCommand());
+    assertEquals(2, grepSummary.getCount());
+    assertEquals(1, grepSummary.getFailures());
+    assertEquals(1, grepSummary.getPathResolutions());
+    assertEquals(2, grepSummary.getOutputLines());
+    Summary linesSummary = summaries.get(1);
+    assertEquals("lines", linesSummary.getCommand());
+    assertEquals(2, linesSummary.getCount());
+    assertEquals(0, linesSummary.getFailures());
+    assertEquals(8, linesSummary.getOutputLines());
+    assertTrue(linesSummary.getMaxNanos() > 0);
+  }
+
+  /**
+   * Test the numbers can be read and reset over JMX.
+   */
+  @Test
+  public void testMBean() throws Exception {
+    metrics.record("cmd", 1000, false, 64, 2, 3);
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    server.registerMBean(metrics, CommandMetrics.OBJECT_NAME);
+    try {
+      CompositeData[] commands = (CompositeData[]) server.getAttribute(
+          CommandMetrics.OBJECT_NAME, "Commands");
+      assertEquals(1, commands.length);
+      assertEquals("cmd", commands[0].get("command"));
+      assertEquals(1L, commands[0].get("failures"));
+      assertEquals(64L, commands[0].get("allocatedBytes"));
+      server.invoke(CommandMetrics.OBJECT_NAME, "reset", null, null);
+      assertEquals(0, metrics.getCommands().size());
+    } finally {
+      server.unregisterMBean(CommandMetrics.OBJECT_NAME);
+    }
+  }
+}
@@ -2,6 +2,7 @@ package test.util;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import driver.Controller;
 import exceptions.DuplicateException;
@@ -152,6 +153,78 @@ public class PathInterpreterTest {
     assertEquals(root, actual.getParentDir());
   }
 
+  /**
+   * Test a cached path no longer resolves after its target is renamed, and the
+   * new path resolves instead.
+   */
+  @Test
+  public void testCacheAfterRename()
+      throws NotADirectoryException, FileNotExistException,
+      IllegalNameException {
+    Path oldPath = new Path("/sub1/sub2/subFile2");
+    assertEquals(file2, pathInterpreter.toFolderElement(oldPath));
+    sub2.renameTo("renamed");
+    assertNull(pathInterpreter.toFolderElement(new Path("/sub1/sub2")));
+    assertEquals(file2, pathInterpreter.toFolderElement(
+        new Path("/sub1/renamed/subFile2")));
+  }
+
+  /**
+   * Test a cached path no longer resolves after its target is removed.
+   */
+  @Test(expected = FileNotExistException.class)
+  public void testCacheAfterRemove()
+      throws NotADirectoryException, FileNotExistException {
+    Path path = new Path("/sub1/sub2/subFile2");
+    assertEquals(file2, pathInterpreter.toFolderElement(path));
+    sub1.removeElement("sub2");
+    pathInterpreter.toFolderElement(path);
+  }
+
+  /**
+   * Test a cached path follows the root directory when it is replaced.
+   */
+  @Test
+  public void testCacheAfterRootReplaced()
+      throws NotADirectoryException, FileNotExistException,
+      DuplicateException, IllegalNameException {
+    Path path = new Path("/sub1");
+    assertEquals(sub1, pathInterpreter.toFolderElement(path));
+    Directory newRoot = new Directory("/", root.getFileManager());
+    Directory newSub1 = newRoot.createDirectory("sub1");
+    ((MockController) system).setRootDir(newRoot);
+    assertTrue(newSub1 == pathInterpreter.toFolderElement(path));
+  }
+
+  /**
+   * Test paths through a very deep tree can be resolved without running out
+   * of stack.
+   */
+  @Test
+  public void testDeepPath()
+      throws NotADirectoryException, FileNotExistException,
+      DuplicateException, IllegalNameException {
+    StringBuilder sb = new StringBuilder();
+    Directory current = root;
+    for (int i = 0; i < 100000; i++) {
+      current = current.createDirectory("d");
+      sb.append("/d");
+    }
+    assertTrue(current == pathInterpreter.toFolderElement(
+        new Path(sb.toString())));
+  }
+
+  /**
+   * Test the same text is parsed into the same path only once.
+   */
+  @Test
+  public void testToPath() {
+    Path path = pathInterpreter.toPath("/sub1/../sub2");
+    assertEquals(new Path("/sub2"), path);
+    assertTrue(path == pathInterpreter.toPath("/sub1/../sub2"));
+    assertEquals(new Path("sub1"), pathInterpreter.toPath("sub1"));
+  }
+
   @After
   public void tearDown() {
     ((MockController) system).clear();
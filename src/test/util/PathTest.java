@@ -203,4 +203,56 @@ public class PathTest {
     assertArrayEquals(expected, actual);
   }
 
+  /**
+   * Test paths are equal regardless of their separators and trailing
+   * separators.
+   */
+  @Test
+  public void testEqualsDifferentSeparators() {
+    Path p1 = new Path("com~utsc~lib", "~");
+    Path p2 = new Path("com/utsc/lib");
+    Path p3 = new Path("com/utsc/lib/");
+    assertEquals(p1, p2);
+    assertEquals(p2, p3);
+    assertEquals(p1.hashCode(), p2.hashCode());
+    assertFalse(p2.equals(new Path("/com/utsc/lib")));
+  }
+
+  /**
+   * Test sections can be read by index.
+   */
+  @Test
+  public void testSections() {
+    Path path = new Path("/file1/./file2//file3/../");
+    assertEquals(2, path.length());
+    assertEquals("file1", path.getSection(0));
+    assertEquals("file2", path.getSection(1));
+  }
+
+  /**
+   * Test getChild() appends exactly one section.
+   */
+  @Test
+  public void testGetChild() {
+    Path root = new Path("/");
+    Path child = root.getChild("sub1").getChild("sub2");
+    assertEquals(new Path("/sub1/sub2"), child);
+    assertEquals("/sub1/sub2/", child.toString());
+    assertEquals("sub1/sub2/", child.getText());
+    assertEquals("/", root.toString());
+  }
+
+  /**
+   * Test constructing a path from its string representation gives an equal
+   * path.
+   */
+  @Test
+  public void testToStringRoundTrip() {
+    String[] texts = {"/", "a/b", "/a/../../b/", "../../c"};
+    for (String text : texts) {
+      Path path = new Path(text);
+      assertEquals(path, new Path(path.toString()));
+    }
+  }
+
 }
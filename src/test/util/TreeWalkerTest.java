@@ -0,0 +1,148 @@
+package test.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import exceptions.DuplicateException;
+import exceptions.IllegalNameException;
+import io.Directory;
+import io.FileEditor;
+import io.FileManager;
+import io.FolderElement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinWorkerThread;
+import org.junit.Before;
+import org.junit.Test;
+import util.TreeWalker;
+
+public class TreeWalkerTest {
+
+  private Directory root;
+
+  @Before
+  public void setup() {
+    root = new Directory("", new FileManager(new FileEditor()));
+  }
+
+  /**
+   * Test a small tree is visited in depth-first order.
+   */
+  @Test
+  public void testWalkSmallTree()
+      throws DuplicateException, IllegalNameException {
+    Directory sub1 = root.createDirectory("sub1");
+    sub1.createFile("file1");
+    sub1.createDirectory("sub2").createFile("file2");
+    root.createFile("file3");
+    List<String> actual = TreeWalker.walk(root, (fe, depth, lines) -> {
+      lines.accept(depth + fe.getName());
+      return true;
+    });
+    assertEquals(Arrays.asList("0", "1sub1", "2file1", "2sub2", "3file2",
+        "1file3"), actual);
+  }
+
+  /**
+   * Test elements inside a directory are skipped when the visitor asks to.
+   */
+  @Test
+  public void testWalkNoDescend()
+      throws DuplicateException, IllegalNameException {
+    root.createDirectory("sub1").createFile("file1");
+    root.createFile("file2");
+    List<String> actual = TreeWalker.walk(root, (fe, depth, lines) -> {
+      lines.accept(fe.getName());
+      return depth == 0;
+    });
+    assertEquals(Arrays.asList("", "sub1", "file2"), actual);
+  }
+
+  /**
+   * Test a tree large enough to be walked in parallel gives the same lines in
+   * the same order as a sequential walk.
+   */
+  @Test
+  public void testWalkLargeTree()
+      throws DuplicateException, IllegalNameException {
+    for (int i = 0; i < 40; i++) {
+      Directory dir = root.createDirectory("dir" + i);
+      for (int j = 0; j < 20; j++) {
+        Directory sub = dir.createDirectory("sub" + j);
+        for (int k = 0; k < 10; k++) {
+          sub.createFile("file" + k);
+        }
+      }
+    }
+    List<String> expected = new ArrayList<>();
+    walkSequentially(root, 0, expected);
+    List<String> actual = TreeWalker.walk(root, (fe, depth, lines) -> {
+      lines.accept(depth + fe.getName());
+      return true;
+    });
+    assertEquals(expected, actual);
+  }
+
+  /**
+   * Test the lines of a large tree are passed on in order and on the calling
+   * thread only, while its subtrees are walked in the fork/join pool.
+   */
+  @Test
+  public void testStreamLargeTree()
+      throws DuplicateException, IllegalNameException {
+    for (int i = 0; i < 40; i++) {
+      Directory dir = root.createDirectory("dir" + i);
+      for (int j = 0; j < 200; j++) {
+        dir.createFile("file" + j);
+      }
+    }
+    List<String> expected = new ArrayList<>();
+    walkSequentially(root, 0, expected);
+    Thread caller = Thread.currentThread();
+    boolean[] isParallel = {false};
+    List<String> actual = new ArrayList<>();
+    TreeWalker.walk(root, (fe, depth, lines) -> {
+      if (Thread.currentThread() instanceof ForkJoinWorkerThread) {
+        isParallel[0] = true;
+      }
+      lines.accept(depth + fe.getName());
+      return true;
+    }, line -> {
+      assertTrue(Thread.currentThread() == caller);
+      actual.add(line);
+    });
+    assertEquals(expected, actual);
+    assertTrue(isParallel[0]);
+  }
+
+  /**
+   * Test a very deep tree can be walked without running out of stack.
+   */
+  @Test
+  public void testWalkDeepTree()
+      throws DuplicateException, IllegalNameException {
+    Directory current = root;
+    for (int i = 0; i < 100000; i++) {
+      current = current.createDirectory("d");
+    }
+    current.createFile("file");
+    List<String> actual = TreeWalker.walk(root, (fe, depth, lines) -> {
+      lines.accept(depth + fe.getName());
+      return true;
+    });
+    assertEquals(100002, actual.size());
+    assertEquals("100000d", actual.get(100000));
+    assertEquals("100001file", actual.get(100001));
+  }
+
+  private static void walkSequentially(FolderElement fe, int depth,
+      List<String> lines) {
+    lines.add(depth + fe.getName());
+    if (fe instanceof Directory) {
+      for (FolderElement child : (Directory) fe) {
+        walkSequentially(child, depth + 1, lines);
+      }
+    }
+  }
+}
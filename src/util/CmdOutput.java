@@ -5,11 +5,22 @@ import exceptions.FileNotExistException;
 import exceptions.IllegalNameException;
 import exceptions.NotADirectoryException;
 import io.OutputHandler;
+import io.OutputSink;
+import io.Pipe;
 import java.util.Objects;
 
 /**
  * This class is the standard output returned by a command. It contains
  * instructions on how output handler should handle this output.
+ * <p>
+ * By default, all lines are kept until the command is done and are then handled
+ * at once by {@code flush}. A streaming output instead writes each line to a
+ * sink as soon as it is added and keeps none of them, which is meant for
+ * commands that produce many lines and never look at them again.
+ * <p>
+ * The output of a command in the middle of a pipeline is written to a pipe
+ * instead of being handled by the output handler, as soon as it is added if it
+ * is streaming, or by {@code flush} otherwise.
  */
 public class CmdOutput extends Message {
 
@@ -43,11 +54,40 @@ public class CmdOutput extends Message {
    */
   private Exception bufferedException;
 
+  /**
+   * The sink that lines are written to as they are added, or null if this
+   * output keeps its lines.
+   */
+  private OutputSink sink;
+
+  /**
+   * The pipe that this output is written to on {@code flush}, or null if it is
+   * handled by {@code outputHandler}.
+   */
+  private Pipe pipe;
+
+  /**
+   * The number of lines written to {@code sink} so far.
+   */
+  private long streamedLines;
 
   private CmdOutput() {
     super();
   }
 
+  /**
+   * Empties this output so that it can be built again, keeping the capacity
+   * of its list of lines.
+   *
+   * @return this output
+   */
+  private CmdOutput recycle() {
+    messages.clear();
+    sink = null;
+    streamedLines = 0;
+    return this;
+  }
+
   /**
    * Flushes the {@code message} in this {@code CmdOutput} with the specified
    * {@code outMode} and (if applies) location using {@code outputHandler}.
@@ -68,7 +108,67 @@ public class CmdOutput extends Message {
   public void flush()
       throws NotADirectoryException, DuplicateException,
       IllegalNameException, FileNotExistException {
-    outputHandler.handle(this);
+    if (sink != null) {
+      sink.close();
+    } else if (pipe != null) {
+      if (!noOutPut) {
+        OutputSink pipeSink = pipe.openSink(lineSeparator);
+        for (String line : this) {
+          pipeSink.write(line);
+        }
+        pipeSink.close();
+      }
+    } else {
+      outputHandler.handle(this);
+    }
+  }
+
+  /**
+   * Adds {@code str} to this output if it is not null. A streaming output
+   * writes it to its sink right away instead of keeping it.
+   *
+   * @param str the new string to be added
+   */
+  @Override
+  public void add(String str) {
+    if (sink == null) {
+      super.add(str);
+    } else if (str != null) {
+      sink.write(str);
+      streamedLines++;
+    }
+  }
+
+  /**
+   * @throws UnsupportedOperationException if this output is streaming, since
+   *                                       its lines are already written.
+   */
+  @Override
+  public void removeFirstString() {
+    if (sink != null) {
+      throw new UnsupportedOperationException("Lines of a streaming output "
+          + "cannot be removed");
+    }
+    super.removeFirstString();
+  }
+
+  /**
+   * @return {@code true} if lines added to this output are written right away
+   * instead of being kept.
+   */
+  public boolean isStreaming() {
+    return sink != null;
+  }
+
+  /**
+   * @return the number of lines output, whether they are kept or already
+   * written, or 0 if this output is ignored.
+   */
+  public long getLineCount() {
+    if (noOutPut) {
+      return 0;
+    }
+    return sink == null ? length() : streamedLines;
   }
 
   public boolean isNoOutPut() {
@@ -135,6 +235,12 @@ public class CmdOutput extends Message {
 
   public static class OutputBuilder {
 
+    /**
+     * The most lines an output may have held for it to be reused after a
+     * reset, so that the lines of one large output are not kept alive.
+     */
+    private static final int MAX_RECYCLED_LINES = 64;
+
     /**
      * Required fields
      */
@@ -148,14 +254,48 @@ public class CmdOutput extends Message {
     private Path redirectTo;
     private String lineSeparator;
     private Exception bufferedException;
+    private boolean allowsStreaming;
+    private Pipe pipe;
+
+    /**
+     * The first output built since the last reset, or null if there is none.
+     */
+    private CmdOutput firstBuilt;
+
+    /**
+     * An output that is no longer used, which the next build reuses instead of
+     * a new one, or null if there is none.
+     */
+    private CmdOutput recycled;
 
     public OutputBuilder(OutputHandler outputHandler) {
+      this.outputHandler = outputHandler;
+      reset();
+    }
+
+    /**
+     * Sets every optional field back to its default, so that this builder can
+     * build the output of another command.
+     * <p>
+     * The first output built since the last reset is taken to be no longer
+     * used, so the next build empties and returns it rather than a new one.
+     * Nothing may use it after this is called.
+     *
+     * @return this builder
+     */
+    public OutputBuilder reset() {
       noOutPut = false;
+      allowsStreaming = false;
       outMode = OutMode.PRINT;
       redirectTo = null;
       lineSeparator = "\n";
       bufferedException = null;
-      this.outputHandler = outputHandler;
+      pipe = null;
+      if (firstBuilt != null && firstBuilt.length() <= MAX_RECYCLED_LINES) {
+        recycled = firstBuilt;
+      }
+      firstBuilt = null;
+      return this;
     }
 
     public OutputBuilder isIgnored(boolean isIgnored) {
@@ -183,14 +323,70 @@ public class CmdOutput extends Message {
       return this;
     }
 
+    /**
+     * Sets whether {@code buildStreaming} may build streaming outputs. This is
+     * off by default, so that commands executed directly keep all their lines.
+     */
+    public OutputBuilder allowStreaming(boolean allowsStreaming) {
+      this.allowsStreaming = allowsStreaming;
+      return this;
+    }
+
+    /**
+     * Sets the pipe that the outputs built are written to, instead of being
+     * handled by the output handler. Outputs built by {@code buildStreaming}
+     * stream to it even if streaming is not allowed otherwise.
+     *
+     * @param pipe The pipe to the next command of a pipeline.
+     */
+    public OutputBuilder pipeTo(Pipe pipe) {
+      this.pipe = pipe;
+      return this;
+    }
+
+    /**
+     * Builds an output that writes its lines to a sink as soon as they are
+     * added, if streaming is allowed or the output goes to a pipe, and the
+     * output is not ignored. Otherwise this is the same as {@code build}.
+     * <p>
+     * Commands should only use this if they never need to look at or remove
+     * the lines they have added.
+     *
+     * @return an output, which may be streaming
+     */
+    public CmdOutput buildStreaming() {
+      CmdOutput output = build();
+      if (noOutPut) {
+        return output;
+      }
+      if (pipe != null) {
+        output.sink = pipe.openSink(lineSeparator);
+      } else if (allowsStreaming) {
+        output.sink = outputHandler.openSink(output);
+      }
+      return output;
+    }
+
+    /**
+     * Builds an output that keeps its lines until it is flushed. After a
+     * reset, this is the output built first before it, emptied.
+     *
+     * @return an output with the fields of this builder
+     */
     public CmdOutput build() {
-      CmdOutput output = new CmdOutput();
+      CmdOutput output =
+          recycled == null ? new CmdOutput() : recycled.recycle();
+      recycled = null;
+      if (firstBuilt == null) {
+        firstBuilt = output;
+      }
       output.noOutPut = noOutPut;
       output.outMode = outMode;
       output.redirectTo = redirectTo;
       output.lineSeparator = lineSeparator;
       output.bufferedException = bufferedException;
       output.outputHandler = outputHandler;
+      output.pipe = pipe;
       return output;
     }
 
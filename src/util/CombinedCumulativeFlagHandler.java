@@ -9,20 +9,16 @@ public class CombinedCumulativeFlagHandler implements FlagHandler {
   }
 
   @Override
-  public boolean populate(Flag flag, Message args) throws WrongSyntaxException {
+  public String read(Flag flag, String section, Iterator<String> rest)
+      throws WrongSyntaxException {
     String key = flag.getKey();
-    for (Iterator<String> itr = args.iterator(); itr.hasNext(); ) {
-      String section = itr.next();
-      if (section.startsWith(key)) {
-        if (section.length() == key.length()) {
-          throw missingValue();
-        }
-        flag.setValue(section.substring(key.length()));
-        itr.remove();
-        return true;
-      }
+    if (!section.startsWith(key)) {
+      return null;
     }
-    return false;
+    if (section.length() == key.length()) {
+      throw missingValue();
+    }
+    return section.substring(key.length());
   }
 
 }
@@ -1,33 +1,105 @@
 package util;
 
 import commands.AbstractCommand;
-import exceptions.JShellException;
+import events.CommandEvent;
 import io.OutputHandler;
-import util.CmdOutput.OutMode;
+import io.Pipe;
+import java.util.Iterator;
+import java.util.List;
+import jdk.jfr.EventType;
 import util.CmdOutput.OutputBuilder;
 
 /**
- * This class represents a preprocessor of all commands. It cleanses the common
- * arguments sections of all commands before passing the argument message to the
- * command instance, thus makes the implementation of each command simpler.
+ * This class represents a preprocessor of all commands. It is given every
+ * command already parsed into a {@code CommandNode}, with its redirection and
+ * flags apart from its arguments, and passes the node on to the command
+ * instance, thus makes the implementation of each command simpler.
  * <p>
- * This implementation checks and strips any redirection flags and preset the
- * {@code OutputBuilder} so that it would already had the correct redirection
- * information before being passed to the commands instance.
+ * This implementation presets the {@code OutputBuilder} with the redirection
+ * of the node so that it would already had the correct redirection
+ * information before being passed to the commands instance. The builder also
+ * allows commands to stream their output, since it is flushed right after the
+ * command returns.
+ * <p>
+ * Commands separated by {@code |} form a pipeline, in which each command runs
+ * on a thread of its own at the same time as the others, and the output of
+ * each is written to a {@code Pipe} that the next one reads from, unless it is
+ * redirected to a file. Only the output of the last command is printed.
+ * <p>
+ * Every command invoked, each one of a pipeline included, is recorded in the
+ * {@code CommandMetrics} given to the constructor, if any, and as a {@code
+ * CommandEvent} if Flight Recorder is recording those.
+ * <p>
+ * Commands invoked on their own are invoked by one thread at a time, the one
+ * that runs the session, so their outputs are all built by one builder, and
+ * each into the output of the command before, which is done with by then.
+ * Together with the flags each command keeps, this lets a command that has
+ * already been parsed be invoked without allocating anything.
  */
-public class CommandExecutor implements IAcceptsFlags {
+public class CommandExecutor {
+
+  /**
+   * The section that separates the commands of a pipeline.
+   */
+  public static final String PIPE = "|";
+
+  private static final Flag[] NO_FLAGS = new Flag[0];
+
+  /**
+   * Tells whether command events are being recorded, so that no event needs
+   * to be created when they are not.
+   */
+  private static final EventType COMMAND_EVENTS =
+      EventType.getEventType(CommandEvent.class);
 
   private final OutputHandler outputHandler;
 
+  /**
+   * Where invoked commands are recorded, or null if they are not.
+   */
+  private final CommandMetrics metrics;
+
+  /**
+   * The builder of the output of every command invoked on its own, reset for
+   * each of them, so that invoking a command builds its output into the one
+   * the previous command has left. The commands of a pipeline run at the same
+   * time, so each of them has a new builder instead.
+   */
+  private final OutputBuilder sessionBuilder;
+
+  /**
+   * Whether {@code sessionBuilder} is being used by a command that has not
+   * returned yet.
+   */
+  private boolean isSessionBuilderInUse;
+
   public CommandExecutor(OutputHandler outputHandler) {
+    this(outputHandler, null);
+  }
+
+  public CommandExecutor(OutputHandler outputHandler,
+      CommandMetrics metrics) {
     this.outputHandler = outputHandler;
+    this.metrics = metrics;
+    this.sessionBuilder = new OutputBuilder(outputHandler);
   }
 
   /**
-   * Scans {@code args} for redirection flags' key and value and removes the
-   * read sections in {@code args}. It also constructs and sets the redirection
-   * information of a {@code CmdOutput.OutputBuilder} and pass it to the command
-   * instance.
+   * Returns the flags that {@code command} accepts, which its command line is
+   * parsed against.
+   *
+   * @param command The command, or null if there is none.
+   * @return the flags of {@code command}, none if it accepts none, shared by
+   * every call for the same command
+   */
+  public static Flag[] flagsOf(AbstractCommand command) {
+    return command == null ? NO_FLAGS : command.getFlags();
+  }
+
+  /**
+   * Parses {@code args}, whose first section is the alias of {@code
+   * command}, against the flags of {@code command}, then invokes it. {@code
+   * args} itself is left as it is.
    *
    * @param command The command to be invoked.
    * @param args    The unprocessed argument {@code Message}.
@@ -36,40 +108,187 @@ public class CommandExecutor implements IAcceptsFlags {
    */
   public void invoke(AbstractCommand command, Message args)
       throws Exception {
-    args.removeFirstString();
-    OutputBuilder builder = new OutputBuilder(outputHandler);
-    Flag[] flags = constructFlags();
-    for (Flag flag : flags) {
-      if (flag.extractValue(args)) {
-        builder.redirectTo(new Path(flag.getValue()));
-        switch (flag.getKey()) {
-          case (">"):
-            builder.withOutputMethod(OutMode.OVERWRITE_FILE);
-            break;
-          case (">>"):
-            builder.withOutputMethod(OutMode.APPEND_TO_FILE);
-            break;
-          default:
-            // This should never happen.
-            throw new JShellException("Flag error during command execution "
-                + "preparation.");
-        }
+    Iterator<String> sections = args.iterator();
+    String alias = sections.hasNext() ? sections.next() : "";
+    invoke(command, CommandNode.parse(alias, sections, flagsOf(command)));
+  }
+
+  /**
+   * Constructs and sets the redirection information of a {@code
+   * CmdOutput.OutputBuilder} from {@code node} and passes both to the command
+   * instance.
+   *
+   * @param command The command to be invoked.
+   * @param node    The parsed command line of {@code command}.
+   * @throws Exception When an exception occurs inside of the command
+   *                   execution.
+   */
+  public void invoke(AbstractCommand command, CommandNode node)
+      throws Exception {
+    invoke(command, node, null, null);
+  }
+
+  /**
+   * Invokes {@code commands} as a pipeline, each with the parsed command line
+   * of the same index in {@code nodes}. Every command but the last runs on a
+   * new thread, and this returns once all of them are done.
+   *
+   * @param commands The commands to be invoked, in order.
+   * @param nodes    The parsed command line of each command.
+   * @throws Exception The first exception, in the order of the commands,
+   *                   that occurs inside of the command execution, with those
+   *                   of later commands suppressed.
+   */
+  public void invoke(List<AbstractCommand> commands, List<CommandNode> nodes)
+      throws Exception {
+    int last = commands.size() - 1;
+    if (last == 0) {
+      invoke(commands.get(0), nodes.get(0));
+      return;
+    }
+    Exception[] failures = new Exception[commands.size()];
+    Thread[] threads = new Thread[last];
+    Pipe input = null;
+    for (int i = 0; i < last; i++) {
+      Pipe in = input;
+      Pipe out = new Pipe();
+      int stage = i;
+      threads[i] = new Thread(() -> failures[stage] = invokeStage(
+          commands.get(stage), nodes.get(stage), in, out),
+          "JShell pipeline " + commands.get(i).getAlias());
+      threads[i].start();
+      input = out;
+    }
+    failures[last] = invokeStage(commands.get(last), nodes.get(last), input,
+        null);
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    Exception first = null;
+    for (Exception e : failures) {
+      if (e == null) {
+        continue;
+      }
+      if (first == null) {
+        first = e;
+      } else {
+        first.addSuppressed(e);
+      }
+    }
+    if (first != null) {
+      throw first;
+    }
+  }
+
+  /**
+   * Invokes one command of a pipeline, and closes both its pipes once it is
+   * done, so that the commands next to it do not wait for it any longer.
+   *
+   * @return the exception that occurs inside of the command execution, if any
+   */
+  private Exception invokeStage(AbstractCommand command, CommandNode node,
+      Pipe input, Pipe output) {
+    try {
+      invoke(command, node, input, output);
+      return null;
+    } catch (Exception e) {
+      return e;
+    } finally {
+      if (input != null) {
+        input.closeReader();
+      }
+      if (output != null) {
+        output.close();
+      }
+    }
+  }
+
+  /**
+   * Invokes {@code command} on the lines of {@code input} if it accepts
+   * input, and writes its output to {@code output} unless it is redirected.
+   * Either may be null, for the first and the last command of a pipeline.
+   * The invocation is recorded in {@code metrics} and as an event, whether it
+   * succeeds or not.
+   */
+  private void invoke(AbstractCommand command, CommandNode node, Pipe input,
+      Pipe output) throws Exception {
+    if (metrics == null && !COMMAND_EVENTS.isEnabled()) {
+      throwBuffered(execute(command, node, input, output));
+      return;
+    }
+    CommandEvent event = new CommandEvent();
+    event.begin();
+    long start = System.nanoTime();
+    long allocated = CommandMetrics.allocatedBytes();
+    long resolved = CommandMetrics.pathResolutions();
+    CmdOutput cmdOutput = null;
+    boolean isSuccessful = false;
+    try {
+      cmdOutput = execute(command, node, input, output);
+      isSuccessful = cmdOutput.getBufferedException() == null;
+    } finally {
+      long lines = cmdOutput == null ? 0 : cmdOutput.getLineCount();
+      if (metrics != null) {
+        metrics.record(command.getAlias(), System.nanoTime() - start,
+            isSuccessful, CommandMetrics.allocatedBytes() - allocated,
+            CommandMetrics.pathResolutions() - resolved, lines);
+      }
+      event.end();
+      if (event.shouldCommit()) {
+        event.command = command.getAlias();
+        event.argumentCount = node.size();
+        event.outputLines = lines;
+        event.successful = isSuccessful;
+        event.commit();
       }
     }
-    CmdOutput output = command.execute(args, builder);
-    output.flush();
-    Exception e = output.getBufferedException();
+    throwBuffered(cmdOutput);
+  }
+
+  private static void throwBuffered(CmdOutput cmdOutput) throws Exception {
+    Exception e = cmdOutput.getBufferedException();
     if (e != null) {
       throw e;
     }
   }
 
-  @Override
-  public Flag[] constructFlags() {
-    return new Flag[]{
-        new Flag(">", new DisjointMutexFlagHandler()),
-        new Flag(">>", new DisjointMutexFlagHandler())
-    };
+  /**
+   * Executes {@code command} and flushes its output, then returns the output
+   * without throwing the exception buffered in it. A command invoked on its
+   * own is given {@code sessionBuilder}, unless it is invoked by another
+   * command that is using it, so the output returned is only good until the
+   * next command is invoked.
+   */
+  private CmdOutput execute(AbstractCommand command, CommandNode node,
+      Pipe input, Pipe output) throws Exception {
+    boolean isShared = input == null && output == null
+        && !isSessionBuilderInUse;
+    OutputBuilder builder = isShared ? sessionBuilder.reset()
+        : new OutputBuilder(outputHandler);
+    builder.allowStreaming(true);
+    if (node.getRedirectTo() != null) {
+      builder.redirectTo(node.getRedirectTo())
+          .withOutputMethod(node.getOutMode());
+    } else if (output != null) {
+      builder.pipeTo(output);
+    }
+    CmdOutput cmdOutput;
+    isSessionBuilderInUse |= isShared;
+    try {
+      if (input != null && command instanceof IAcceptsInput) {
+        cmdOutput = ((IAcceptsInput) command).execute(node, input, builder);
+      } else {
+        cmdOutput = command.execute(node, builder);
+      }
+      cmdOutput.flush();
+    } finally {
+      if (isShared) {
+        isSessionBuilderInUse = false;
+      }
+      // Whatever a failed command has printed must appear before its error.
+      outputHandler.flushConsole();
+    }
+    return cmdOutput;
   }
 
 }
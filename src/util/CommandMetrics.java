@@ -0,0 +1,307 @@
+package util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+/**
+ * Keeps count of how often each command is run and what it costs: how long it
+ * takes, how many bytes it allocates, how many paths it resolves and how many
+ * lines it outputs. The numbers of each command are kept apart by its alias,
+ * and they can be read by the {@code stats} command, or over JMX once this is
+ * registered as {@link #OBJECT_NAME}.
+ * <p>
+ * Recording is meant to be cheap enough to be left on. Latencies are counted
+ * into a histogram of fixed buckets, eight to every power of two, so that
+ * recording one takes a few atomic increments and no allocation, and a
+ * percentile read from it is at most an eighth more than the true one. It is
+ * safe to record from many threads at once, and the numbers read while others
+ * are being recorded may be a command or two behind.
+ * <p>
+ * Allocations are measured per thread, by the {@code ThreadMXBean} of the JVM
+ * if it supports that, and are reported as 0 otherwise.
+ */
+public class CommandMetrics implements CommandMetricsMXBean {
+
+  /**
+   * The name this is registered under in an MBean server.
+   */
+  public static final ObjectName OBJECT_NAME;
+
+  static {
+    try {
+      OBJECT_NAME = new ObjectName("jshell:type=CommandMetrics");
+    } catch (MalformedObjectNameException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  /**
+   * The number of buckets to every power of two is {@code 1 <<
+   * SUB_BUCKET_BITS}.
+   */
+  private static final int SUB_BUCKET_BITS = 3;
+
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  /**
+   * Enough buckets for every positive long.
+   */
+  private static final int BUCKETS =
+      (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+  /**
+   * The number of paths resolved by each thread so far.
+   */
+  private static final ThreadLocal<long[]> pathResolutions =
+      ThreadLocal.withInitial(() -> new long[1]);
+
+  private final ConcurrentHashMap<String, Recorder> recorders =
+      new ConcurrentHashMap<>();
+
+  private static com.sun.management.ThreadMXBean threads() {
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+      return null;
+    }
+    com.sun.management.ThreadMXBean allocations =
+        (com.sun.management.ThreadMXBean) threads;
+    if (!allocations.isThreadAllocatedMemorySupported()
+        || !allocations.isThreadAllocatedMemoryEnabled()) {
+      return null;
+    }
+    return allocations;
+  }
+
+  /**
+   * Returns the number of bytes allocated by the current thread so far, or 0
+   * if that cannot be measured.
+   *
+   * @return the number of bytes allocated by the current thread
+   */
+  public static long allocatedBytes() {
+    return THREADS == null ? 0 : THREADS.getCurrentThreadAllocatedBytes();
+  }
+
+  /**
+   * Counts one more path resolved by the current thread.
+   */
+  public static void countPathResolution() {
+    pathResolutions.get()[0]++;
+  }
+
+  /**
+   * Returns the number of paths resolved by the current thread so far.
+   *
+   * @return the number of paths resolved by the current thread
+   */
+  public static long pathResolutions() {
+    return pathResolutions.get()[0];
+  }
+
+  /**
+   * Records one run of the command {@code alias}.
+   *
+   * @param alias           the alias of the command
+   * @param nanos           how long it took
+   * @param isSuccessful    whether it succeeded
+   * @param allocatedBytes  how many bytes it allocated
+   * @param pathResolutions how many paths it resolved
+   * @param outputLines     how many lines it output
+   */
+  public void record(String alias, long nanos, boolean isSuccessful,
+      long allocatedBytes, long pathResolutions, long outputLines) {
+    Recorder recorder = recorders.computeIfAbsent(alias, Recorder::new);
+    recorder.buckets.incrementAndGet(bucketOf(nanos));
+    if (!isSuccessful) {
+      recorder.failures.increment();
+    }
+    recorder.totalNanos.add(nanos);
+    if (nanos > recorder.maxNanos.get()) {
+      recorder.maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+    recorder.allocatedBytes.add(allocatedBytes);
+    recorder.pathResolutions.add(pathResolutions);
+    recorder.outputLines.add(outputLines);
+  }
+
+  /**
+   * Returns the index of the bucket that counts {@code nanos}. Values below
+   * {@code SUB_BUCKETS} have a bucket each, and every power of two above them
+   * is split into {@code SUB_BUCKETS} buckets of the same width.
+   */
+  static int bucketOf(long nanos) {
+    if (nanos < SUB_BUCKETS) {
+      return (int) Math.max(nanos, 0);
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+    int shift = exponent - SUB_BUCKET_BITS;
+    return ((shift + 1) << SUB_BUCKET_BITS)
+        + (int) ((nanos >>> shift) & (SUB_BUCKETS - 1));
+  }
+
+  /**
+   * Returns the greatest value counted by the bucket at {@code index}.
+   */
+  static long highestIn(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int shift = (index >>> SUB_BUCKET_BITS) - 1;
+    long lowest = (long) (SUB_BUCKETS + (index & (SUB_BUCKETS - 1))) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+
+  @Override
+  public List<Summary> getCommands() {
+    List<Summary> summaries = new ArrayList<>();
+    recorders.forEach((alias, recorder) -> summaries.add(recorder.summary()));
+    summaries.sort((a, b) -> a.getCommand().compareTo(b.getCommand()));
+    return summaries;
+  }
+
+  @Override
+  public void reset() {
+    recorders.clear();
+  }
+
+  /**
+   * The numbers of one command.
+   */
+  private static class Recorder {
+
+    private final String alias;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAdder pathResolutions = new LongAdder();
+    private final LongAdder outputLines = new LongAdder();
+
+    private Recorder(String alias) {
+      this.alias = alias;
+    }
+
+    private Summary summary() {
+      long[] counts = new long[BUCKETS];
+      long total = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        counts[i] = buckets.get(i);
+        total += counts[i];
+      }
+      long max = maxNanos.get();
+      return new Summary(alias, total, failures.sum(), totalNanos.sum(),
+          percentile(counts, total, 50, max),
+          percentile(counts, total, 90, max),
+          percentile(counts, total, 99, max), max, allocatedBytes.sum(),
+          pathResolutions.sum(), outputLines.sum());
+    }
+
+    /**
+     * Returns the greatest value of the bucket that the {@code percent}th
+     * percentile of {@code counts} falls into, but no more than {@code max}.
+     */
+    private static long percentile(long[] counts, long total, int percent,
+        long max) {
+      long rank = Math.max((total * percent + 99) / 100, 1);
+      long seen = 0;
+      for (int i = 0; i < counts.length; i++) {
+        seen += counts[i];
+        if (seen >= rank) {
+          return Math.min(highestIn(i), max);
+        }
+      }
+      return max;
+    }
+  }
+
+  /**
+   * The numbers of one command at the time it was read. Latencies are in
+   * nanoseconds, and the other numbers are totals over every run.
+   */
+  public static class Summary {
+
+    private final String command;
+    private final long count;
+    private final long failures;
+    private final long totalNanos;
+    private final long p50Nanos;
+    private final long p90Nanos;
+    private final long p99Nanos;
+    private final long maxNanos;
+    private final long allocatedBytes;
+    private final long pathResolutions;
+    private final long outputLines;
+
+    private Summary(String command, long count, long failures,
+        long totalNanos, long p50Nanos, long p90Nanos, long p99Nanos,
+        long maxNanos, long allocatedBytes, long pathResolutions,
+        long outputLines) {
+      this.command = command;
+      this.count = count;
+      this.failures = failures;
+      this.totalNanos = totalNanos;
+      this.p50Nanos = p50Nanos;
+      this.p90Nanos = p90Nanos;
+      this.p99Nanos = p99Nanos;
+      this.maxNanos = maxNanos;
+      this.allocatedBytes = allocatedBytes;
+      this.pathResolutions = pathResolutions;
+      this.outputLines = outputLines;
+    }
+
+    public String getCommand() {
+      return command;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public long getFailures() {
+      return failures;
+    }
+
+    public long getTotalNanos() {
+      return totalNanos;
+    }
+
+    public long getP50Nanos() {
+      return p50Nanos;
+    }
+
+    public long getP90Nanos() {
+      return p90Nanos;
+    }
+
+    public long getP99Nanos() {
+      return p99Nanos;
+    }
+
+    public long getMaxNanos() {
+      return maxNanos;
+    }
+
+    public long getAllocatedBytes() {
+      return allocatedBytes;
+    }
+
+    public long getPathResolutions() {
+      return pathResolutions;
+    }
+
+    public long getOutputLines() {
+      return outputLines;
+    }
+  }
+}
@@ -0,0 +1,24 @@
+package util;
+
+import java.util.List;
+import util.CommandMetrics.Summary;
+
+/**
+ * The management interface of {@link CommandMetrics}, through which the
+ * numbers of every command can be read and reset over JMX.
+ */
+public interface CommandMetricsMXBean {
+
+  /**
+   * Returns the numbers of every command run since the last reset, in the
+   * order of their aliases.
+   *
+   * @return the numbers of every command
+   */
+  List<Summary> getCommands();
+
+  /**
+   * Forgets the numbers of every command.
+   */
+  void reset();
+}
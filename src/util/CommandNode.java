@@ -0,0 +1,196 @@
+package util;
+
+import exceptions.WrongSyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import util.CmdOutput.OutMode;
+
+/**
+ * One command of a command line, as parsed against the flags the command
+ * accepts: its alias, its arguments in order, the values of each of its flags,
+ * and the file its output is redirected to, if any.
+ * <p>
+ * A node is read from the sections of the command in a single pass, and never
+ * changes after that, so that the command it is given to can read it as often
+ * as it likes without scanning its arguments again. A section is taken as a
+ * redirection, {@code > FILE} or {@code >> FILE}, before anything else, then
+ * as an occurrence of the first flag it matches, in the order the flags are
+ * given, and otherwise as an argument.
+ */
+public final class CommandNode {
+
+  /**
+   * The flags that redirect the output of every command, to overwrite or to
+   * append to a file.
+   */
+  private static final Flag OVERWRITE =
+      new Flag(">", new DisjointMutexFlagHandler());
+  private static final Flag APPEND =
+      new Flag(">>", new DisjointMutexFlagHandler());
+
+  private final String alias;
+
+  private final List<String> arguments;
+
+  /**
+   * The values of every flag that occurs, in order, by the key of the flag.
+   */
+  private final Map<String, List<String>> flags;
+
+  /**
+   * How the output is handled, {@code PRINT} unless it is redirected.
+   */
+  private final OutMode outMode;
+
+  /**
+   * The file the output is redirected to, or null if it is not.
+   */
+  private final Path redirectTo;
+
+  /**
+   * The number of arguments, flags and redirections, each occurrence of a
+   * flag or a redirection counted once whatever the sections it takes.
+   */
+  private final int size;
+
+  private CommandNode(String alias, List<String> arguments,
+      Map<String, List<String>> flags, OutMode outMode, Path redirectTo,
+      int size) {
+    this.alias = alias;
+    this.arguments = arguments;
+    this.flags = flags;
+    this.outMode = outMode;
+    this.redirectTo = redirectTo;
+    this.size = size;
+  }
+
+  /**
+   * Parses the sections of the command {@code alias} against {@code flags}.
+   * Where the output is redirected more than once, the last redirection is
+   * the one kept.
+   *
+   * @param alias    The alias of the command.
+   * @param sections The sections after the alias.
+   * @param flags    The flags the command accepts.
+   * @return the parsed command
+   * @throws WrongSyntaxException If a redirection or a flag is present but no
+   *                              value is given.
+   */
+  public static CommandNode parse(String alias, Iterator<String> sections,
+      Flag[] flags) throws WrongSyntaxException {
+    List<String> arguments = new ArrayList<>();
+    Map<String, List<String>> values = Collections.emptyMap();
+    OutMode outMode = OutMode.PRINT;
+    String redirectTo = null;
+    int size = 0;
+    while (sections.hasNext()) {
+      String section = sections.next();
+      size++;
+      String value;
+      if ((value = OVERWRITE.read(section, sections)) != null) {
+        outMode = OutMode.OVERWRITE_FILE;
+        redirectTo = value;
+        continue;
+      }
+      if ((value = APPEND.read(section, sections)) != null) {
+        outMode = OutMode.APPEND_TO_FILE;
+        redirectTo = value;
+        continue;
+      }
+      Flag flag = null;
+      for (Flag candidate : flags) {
+        if ((value = candidate.read(section, sections)) != null) {
+          flag = candidate;
+          break;
+        }
+      }
+      if (flag == null) {
+        arguments.add(section);
+        continue;
+      }
+      if (values.isEmpty()) {
+        values = new HashMap<>();
+      }
+      values.computeIfAbsent(flag.getKey(), key -> new ArrayList<>(1))
+          .add(value);
+    }
+    return new CommandNode(alias, Collections.unmodifiableList(arguments),
+        values, outMode, redirectTo == null ? null : new Path(redirectTo),
+        size);
+  }
+
+  public String getAlias() {
+    return alias;
+  }
+
+  /**
+   * @return the arguments of this command, in order, without its flags and
+   * redirections
+   */
+  public List<String> getArguments() {
+    return arguments;
+  }
+
+  /**
+   * Returns the arguments of this command as a new Message, for commands that
+   * read them one by one.
+   *
+   * @return a Message of the arguments of this command
+   */
+  public Message toMessage() {
+    Message message = new Message();
+    message.messages.addAll(arguments);
+    return message;
+  }
+
+  /**
+   * Returns every value given to the flag {@code key}, in order.
+   *
+   * @param key The key of the flag.
+   * @return the values of the flag, none if it does not occur
+   */
+  public List<String> getFlagValues(String key) {
+    List<String> found = flags.get(key);
+    return found == null ? Collections.emptyList()
+        : Collections.unmodifiableList(found);
+  }
+
+  /**
+   * Returns the last value given to the flag {@code key}, as a mutex flag
+   * admits.
+   *
+   * @param key The key of the flag.
+   * @return the last value of the flag, or null if it does not occur
+   */
+  public String getFlag(String key) {
+    List<String> found = flags.get(key);
+    return found == null ? null : found.get(found.size() - 1);
+  }
+
+  public boolean hasFlag(String key) {
+    return flags.containsKey(key);
+  }
+
+  public OutMode getOutMode() {
+    return outMode;
+  }
+
+  /**
+   * @return the file the output is redirected to, or null if it is not
+   */
+  public Path getRedirectTo() {
+    return redirectTo;
+  }
+
+  /**
+   * @return the number of arguments, flags and redirections of this command,
+   * each occurrence of a flag or a redirection counted once
+   */
+  public int size() {
+    return size;
+  }
+}
@@ -7,7 +7,7 @@ import java.util.Iterator;
  * This class is an implementation of {@code FlagHandler} that matches the
  * behavior of a mutex flag, particularly, a disjoint flag, which means the key
  * and the value are separated by a whitespace in the plain text argument,
- * therefore consequently are in different entries in argument {@code Message}.
+ * therefore consequently are in different sections of the command line.
  */
 public class DisjointMutexFlagHandler implements FlagHandler {
 
@@ -15,37 +15,26 @@ public class DisjointMutexFlagHandler implements FlagHandler {
   }
 
   /**
-   * Populates {@code flag} with {@code args}, and delete the processed sections
-   * in {@code args}.
-   * <p>
-   * This flag handler iterates through {@code args} and set the {@code value}
-   * of {@code flag} to the very last occurrence in {@code args}. Each matching
-   * pair of {@code key} and {@code value} is removed during the iteration.
+   * Reads the value of {@code flag} if {@code section} is its key, in which
+   * case the value is the next section in {@code rest}.
    *
-   * @param flag The flag to be populated.
-   * @param args The list of arguments to be scanned.
-   * @return {@code true} if {@code flag} is modified, and at least one pair of
-   * {@code key} and {@code value} is removed.
+   * @param flag    The flag to be read.
+   * @param section The section of the command line being read.
+   * @param rest    The sections after {@code section}.
+   * @return the value, or null if {@code section} is not the key of {@code
+   * flag}
    * @throws WrongSyntaxException If flag key is present but no value is given.
    */
   @Override
-  public boolean populate(Flag flag, Message args) throws WrongSyntaxException {
-    Iterator<String> itr = args.iterator();
-    boolean found = false;
-    while (itr.hasNext()) {
-      String str = itr.next();
-      if (str.equals(flag.getKey())) {
-        itr.remove();
-        if (itr.hasNext()) {
-          flag.setValue(itr.next());
-          itr.remove();
-          found = true;
-        } else {
-          throw missingValue();
-        }
-      }
+  public String read(Flag flag, String section, Iterator<String> rest)
+      throws WrongSyntaxException {
+    if (!section.equals(flag.getKey())) {
+      return null;
     }
-    return found;
+    if (!rest.hasNext()) {
+      throw missingValue();
+    }
+    return rest.next();
   }
 
 }
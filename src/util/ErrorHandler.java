@@ -1,11 +1,31 @@
 package util;
 
 import exceptions.JShellException;
+import java.io.PrintStream;
 
 public class ErrorHandler {
 
+  /**
+   * The stream that errors are printed to.
+   */
+  private final PrintStream err;
+
+  public ErrorHandler() {
+    this(System.err);
+  }
+
+  /**
+   * Constructs an error handler that prints to {@code err} instead of the
+   * standard error.
+   *
+   * @param err The stream that errors are printed to.
+   */
+  public ErrorHandler(PrintStream err) {
+    this.err = err;
+  }
+
   public void resolve(JShellException jse) {
-    System.err.println("JShell: " + jse);
+    err.println("JShell: " + jse);
   }
 
 }
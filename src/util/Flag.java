@@ -1,12 +1,13 @@
 package util;
 
 import exceptions.WrongSyntaxException;
+import java.util.Iterator;
 
 /**
- * The {@code Flag} class represents flag pairs in arguments. A flag consists of
- * a final {@code key} and a mutable {@code value}. It also has a {@code
- * FlagHandler} to help to scan the given argument message and populate this
- * flag.
+ * The {@code Flag} class represents a flag that a command accepts, as declared
+ * by the command before any of its arguments are read. A flag consists of a
+ * {@code key} and a {@code FlagHandler} that recognizes occurrences of the
+ * flag among the sections of a command line and reads their values.
  * <p>
  * There are two types of flags, mutex (short for mutually exclusive) flags, and
  * cumulative flags.
@@ -16,9 +17,10 @@ import exceptions.WrongSyntaxException;
  * <p>
  * Cumulative flags receive a collection of values. For example, for the
  * argument {@code "-key 1 -key 2 -key 3"}, a cumulative flag should retrieve
- * all three values {@code 1 2 3}. However, this class can only store one value
- * at a time, therefore users must maintain a collection of values outside of
- * this class by themselves.
+ * all three values {@code 1 2 3}.
+ * <p>
+ * Either way, every value read is kept by the {@code CommandNode} parsed, in
+ * order, and it is up to the command which of them it admits.
  */
 public class Flag {
 
@@ -26,8 +28,6 @@ public class Flag {
 
   private final String key;
 
-  private String value;
-
   /**
    * Construct a new flag with identifier {@code key} and a flag handler {@code
    * handler}.
@@ -41,52 +41,27 @@ public class Flag {
   }
 
   /**
-   * Extracts the values in args that fits this flag, and returns the index of
-   * key in {@code args}.
+   * Reads the value of this flag, if {@code section} is an occurrence of it.
    * <p>
-   * This method invokes {@code handler} and set this flag's {@code value}
-   * according to the type of handler this flag is assigned with. The
-   * corresponding section(s) in {@code args} will be removed after this call.
-   * <p>
-   * Different implementation of {@code handler} will affect the behavior of
-   * this method. For example, {@code DisjointMutexFlagHandler}s scan through
-   * the entire {@code args} and set this flag's {@code value} to the last
-   * section that fits this flag's {@code key}, but {@code
-   * PositionalFlagHandler}s (not yet implemented) stops at the first encounter
-   * of the key.
+   * This method invokes {@code handler}, so different implementations of
+   * {@code handler} affect the behavior of this method. For example, {@code
+   * DisjointMutexFlagHandler}s take the section after the key as the value,
+   * while {@code CombinedCumulativeFlagHandler}s take the rest of {@code
+   * section} after the key.
    *
-   * @param args The argument message to be scanned.
-   * @return {@code true} if a value is found and this flag has been populated
+   * @param section The section of the command line being read.
+   * @param rest    The sections after {@code section}, of which those taken
+   *                as the value are consumed.
+   * @return the value of this flag, or null if {@code section} is not an
+   * occurrence of it
    * @throws WrongSyntaxException If flag key is present but no value is given.
    */
-  public boolean extractValue(Message args) throws WrongSyntaxException {
-    return handler.populate(this, args);
+  public String read(String section, Iterator<String> rest)
+      throws WrongSyntaxException {
+    return handler.read(this, section, rest);
   }
 
   public String getKey() {
     return key;
   }
-
-  public String getValue() {
-    return value;
-  }
-
-  /**
-   * Sets the field {@code value} to parameter {@code value}. This overwrites
-   * the previously added value.
-   *
-   * @param value The value to be assigned to this flag.
-   */
-  public void setValue(String value) {
-    this.value = value;
-  }
-
-  /**
-   * Returns whether this flag has a value assigned to it.
-   *
-   * @return {@code true} if the field {@code value} is not {@code null}.
-   */
-  public boolean isFilled() {
-    return value != null;
-  }
 }
@@ -1,10 +1,23 @@
 package util;
 
 import exceptions.WrongSyntaxException;
+import java.util.Iterator;
 
 public interface FlagHandler {
 
-  boolean populate(Flag flag, Message args) throws WrongSyntaxException;
+  /**
+   * Returns the value of {@code flag} if {@code section} is an occurrence of
+   * it, taking the sections that make up the value from {@code rest}.
+   *
+   * @param flag    The flag to be read.
+   * @param section The section of the command line being read.
+   * @param rest    The sections after {@code section}.
+   * @return the value, or null if {@code section} is not an occurrence of
+   * {@code flag}
+   * @throws WrongSyntaxException If flag key is present but no value is given.
+   */
+  String read(Flag flag, String section, Iterator<String> rest)
+      throws WrongSyntaxException;
 
   default WrongSyntaxException missingValue() {
     return new WrongSyntaxException("flag key detected, but no value present");
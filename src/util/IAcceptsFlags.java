@@ -2,5 +2,15 @@ package util;
 
 public interface IAcceptsFlags {
 
+  /**
+   * Returns the flags this command accepts, which its command line is parsed
+   * against into a {@code CommandNode} before the command is executed.
+   * <p>
+   * This is called once for each command, through {@code
+   * AbstractCommand#getFlags}, which keeps the flags for every command line
+   * after that.
+   *
+   * @return the flags this command accepts
+   */
   Flag[] constructFlags();
 }
@@ -0,0 +1,41 @@
+package util;
+
+import exceptions.JShellException;
+import java.util.Iterator;
+import util.CmdOutput.OutputBuilder;
+
+/**
+ * A command that can read the lines printed by the command before it in a
+ * pipeline, such as {@code ls | grep PATTERN}.
+ */
+public interface IAcceptsInput {
+
+  /**
+   * Executes this command on the lines of {@code input} rather than on any
+   * file named in {@code args}.
+   *
+   * @param args    The arguments of this command.
+   * @param input   The lines printed by the command before this one.
+   * @param builder The builder of the output of this command.
+   * @return the output of this command
+   * @throws JShellException if the command fails.
+   */
+  CmdOutput execute(Message args, Iterator<String> input,
+      OutputBuilder builder) throws JShellException;
+
+  /**
+   * Executes this command on the lines of {@code input}, with the arguments
+   * and flags of {@code node}. Commands that accept flags read them from
+   * {@code node}, and the others are given its arguments as a Message.
+   *
+   * @param node    The parsed command line of this command.
+   * @param input   The lines printed by the command before this one.
+   * @param builder The builder of the output of this command.
+   * @return the output of this command
+   * @throws JShellException if the command fails.
+   */
+  default CmdOutput execute(CommandNode node, Iterator<String> input,
+      OutputBuilder builder) throws JShellException {
+    return execute(node.toMessage(), input, builder);
+  }
+}
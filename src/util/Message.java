@@ -73,6 +73,17 @@ public class Message implements Iterable<String> {
     return messages.size();
   }
 
+  /**
+   * Returns the string at {@code index}, so that a message can be read without
+   * an iterator.
+   *
+   * @param index the position of the string, from 0
+   * @return the string at {@code index}
+   */
+  public String get(int index) {
+    return messages.get(index);
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -0,0 +1,218 @@
+package util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A compiled pattern that file and directory names are matched against. It is
+ * built either from a glob, where {@code *} matches any run of characters,
+ * {@code ?} matches one character and {@code [...]} matches one character of a
+ * class, or from a regular expression. Either way the whole name has to match.
+ * <p>
+ * Besides the compiled pattern, this class also knows the literal prefix every
+ * matching name starts with, so that callers can skip names that cannot match
+ * without running the pattern on them.
+ * <p>
+ * Compiling a pattern is relatively expensive, so recently used patterns are
+ * kept in a small cache shared by all callers. Instances are immutable and
+ * can be shared freely; the matchers they create cannot.
+ */
+public class NamePattern {
+
+  /**
+   * The maximum number of compiled patterns kept in the cache.
+   */
+  private static final int CACHE_SIZE = 64;
+
+  private static final Map<String, NamePattern> cache =
+      new LinkedHashMap<String, NamePattern>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(
+            Map.Entry<String, NamePattern> eldest) {
+          return size() > CACHE_SIZE;
+        }
+      };
+
+  private final Pattern pattern;
+
+  /**
+   * The text every matching name starts with.
+   */
+  private final String prefix;
+
+  /**
+   * Whether the pattern matches {@code prefix} and nothing else.
+   */
+  private final boolean literal;
+
+  private NamePattern(Pattern pattern, String prefix, boolean literal) {
+    this.pattern = pattern;
+    this.prefix = prefix;
+    this.literal = literal;
+  }
+
+  /**
+   * Returns the pattern of the glob {@code glob}.
+   *
+   * @param glob a glob that names are matched against.
+   * @return the compiled pattern
+   */
+  public static NamePattern glob(String glob) {
+    synchronized (cache) {
+      NamePattern cached = cache.get("g" + glob);
+      if (cached == null) {
+        cached = compileGlob(glob);
+        cache.put("g" + glob, cached);
+      }
+      return cached;
+    }
+  }
+
+  /**
+   * Returns the pattern of the regular expression {@code regex}.
+   *
+   * @param regex a regular expression that names are matched against.
+   * @return the compiled pattern
+   * @throws PatternSyntaxException if {@code regex} is not a valid regular
+   *                                expression.
+   */
+  public static NamePattern regex(String regex) throws PatternSyntaxException {
+    synchronized (cache) {
+      NamePattern cached = cache.get("r" + regex);
+      if (cached == null) {
+        cached = compileRegex(regex);
+        cache.put("r" + regex, cached);
+      }
+      return cached;
+    }
+  }
+
+  private static NamePattern compileGlob(String glob) {
+    StringBuilder regex = new StringBuilder();
+    int prefixEnd = -1;
+    int i = 0;
+    while (i < glob.length()) {
+      char c = glob.charAt(i);
+      int classEnd = c == '[' ? findClassEnd(glob, i) : -1;
+      if (c == '*' || c == '?' || classEnd > 0) {
+        if (prefixEnd < 0) {
+          prefixEnd = i;
+        }
+        if (c == '*') {
+          regex.append(".*");
+        } else if (c == '?') {
+          regex.append('.');
+        } else {
+          regex.append('[');
+          int start = i + 1;
+          if (glob.charAt(start) == '!') {
+            regex.append('^');
+            start++;
+          }
+          for (int j = start; j < classEnd; j++) {
+            appendLiteral(regex, glob.charAt(j), glob.charAt(j) == '-');
+          }
+          regex.append(']');
+          i = classEnd;
+        }
+      } else {
+        appendLiteral(regex, c, false);
+      }
+      i++;
+    }
+    boolean literal = prefixEnd < 0;
+    String prefix = literal ? glob : glob.substring(0, prefixEnd);
+    return new NamePattern(Pattern.compile(regex.toString()), prefix, literal);
+  }
+
+  /**
+   * Returns the index of the ']' that closes the class opened at {@code
+   * start}, or -1 if there is none. A class has at least one character in it,
+   * so a ']' right after the '[' or "[!" belongs to the class.
+   */
+  private static int findClassEnd(String glob, int start) {
+    int first = start + 1;
+    if (first < glob.length() && glob.charAt(first) == '!') {
+      first++;
+    }
+    return glob.indexOf(']', first + 1);
+  }
+
+  /**
+   * Appends {@code c} to {@code regex} so that it only matches itself. A dash
+   * can be kept as it is, so that it still denotes a range in a class.
+   */
+  private static void appendLiteral(StringBuilder regex, char c,
+      boolean keepDash) {
+    if (!Character.isLetterOrDigit(c) && !(keepDash && c == '-')) {
+      regex.append('\\');
+    }
+    regex.append(c);
+  }
+
+  private static NamePattern compileRegex(String regex)
+      throws PatternSyntaxException {
+    Pattern pattern = Pattern.compile(regex);
+    // Any alternation may let a name start differently, so no prefix is
+    // assumed at all then.
+    if (regex.indexOf('|') >= 0) {
+      return new NamePattern(pattern, "", false);
+    }
+    int end = 0;
+    while (end < regex.length() && isPlain(regex.charAt(end))) {
+      end++;
+    }
+    if (end == regex.length()) {
+      return new NamePattern(pattern, regex, true);
+    }
+    char next = regex.charAt(end);
+    if (end > 0 && (next == '?' || next == '*' || next == '{')) {
+      // The last plain character is optional.
+      end--;
+    }
+    return new NamePattern(pattern, regex.substring(0, end), false);
+  }
+
+  /**
+   * Returns whether {@code c} always matches itself in a regular expression.
+   */
+  private static boolean isPlain(char c) {
+    return Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == ' ';
+  }
+
+  /**
+   * @return the text that every name matching this pattern starts with,
+   * possibly empty.
+   */
+  public String getPrefix() {
+    return prefix;
+  }
+
+  /**
+   * @return {@code true} if this pattern matches exactly one name, which is
+   * its prefix.
+   */
+  public boolean isLiteral() {
+    return literal;
+  }
+
+  /**
+   * Returns a new matcher of this pattern. Names can be matched one after
+   * another with {@code matcher.reset(name).matches()}, which does not
+   * allocate anything, but a matcher must not be used by more than one thread
+   * at a time.
+   *
+   * @return a new matcher of this pattern
+   */
+  public Matcher matcher() {
+    return pattern.matcher("");
+  }
+
+  @Override
+  public String toString() {
+    return pattern.pattern();
+  }
+}
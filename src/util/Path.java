@@ -1,11 +1,9 @@
 package util;
 
 import java.io.Serializable;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
-import java.util.Objects;
-import java.util.Stack;
 
 /**
  * This class represents a path to a file or directory in the file system. It
@@ -14,18 +12,20 @@ import java.util.Stack;
  * maintained in a field separated from the actual text. It also has some useful
  * methods to retrieve frequently used sections of paths without the need to
  * deal with raw strings.
+ * <p>
+ * A path is split into its sections once, when it is constructed. Iterating
+ * over a path, comparing paths, and building the path to a child all work on
+ * the array of sections, without splitting the text again.
  */
 public class Path implements Serializable, Iterable<String> {
 
-  private static final long serialVersionUID = -805060300750773716L;
+  private static final long serialVersionUID = 5612933399016123354L;
   /**
-   * The text form of this Path. This String always has it leading {@code
-   * SEPARATOR} stripped. If it does not have a trailing {@code SEPARATOR}, the
-   * constructor automatically append one for it.
-   * <p>
-   * To determine if this is an absolute path, use {@code isAbsolute()}.
+   * The normalized sections of this Path, in order. Empty sections and "."
+   * sections are never stored, and ".." sections can only appear before every
+   * proper name.
    */
-  private final String text;
+  private final String[] sections;
   /**
    * This String separates different sections of this Path. For a Path to be
    * considered an absolute path, its leading characters must equals this
@@ -36,12 +36,27 @@ public class Path implements Serializable, Iterable<String> {
    * Whether this Path is an absolute Path.
    */
   private final boolean isAbsolute;
+  /**
+   * The text form of this Path, built on first use. This String always has it
+   * leading {@code SEPARATOR} stripped, and always has a trailing {@code
+   * SEPARATOR}.
+   */
+  private transient String text;
+  /**
+   * The string representation of this Path, built on first use.
+   */
+  private transient String string;
+  /**
+   * The hash code of this Path, computed on first use. 0 means not computed
+   * yet.
+   */
+  private transient int hash;
 
   /**
    * The default constructor
    */
   protected Path() {
-    text = "";
+    sections = new String[0];
     SEPARATOR = "";
     isAbsolute = false;
   }
@@ -69,51 +84,89 @@ public class Path implements Serializable, Iterable<String> {
    * @param plainPath a path in plain text
    * @param SEPARATOR the String that separates {@code path} into different
    *                  names of directories and files.
+   * @throws IllegalArgumentException if {@code SEPARATOR} is empty.
    */
   public Path(String plainPath, String SEPARATOR) {
-    Path temp = new Path(plainPath + SEPARATOR, SEPARATOR,
-        plainPath.startsWith(SEPARATOR));
-    ArrayList<String> sections = new ArrayList<>();
-    Stack<Integer> namesAt = new Stack<>();
-    // last is the index of the last proper name section
-    int last = -1;
-    for (String str : temp) {
-      if (last >= 0 && str.equals("..")) {
-        // Cancellation
-        sections.remove(last);
-        last = namesAt.pop();
-      } else if (!str.equals("") && !str.equals(".")) {
-        sections.add(str + SEPARATOR);
-        if (!str.equals("..")) {
-          // In this case, str is a proper name
-          namesAt.push(last);
-          last = sections.size() - 1;
+    if (SEPARATOR.isEmpty()) {
+      throw new IllegalArgumentException("Path separator cannot be empty");
+    }
+    String[] buffer = new String[8];
+    int size = 0;
+    // The number of leading ".." sections, which cannot be cancelled.
+    int ups = 0;
+    int start = 0;
+    int length = plainPath.length();
+    while (start <= length) {
+      int end = plainPath.indexOf(SEPARATOR, start);
+      if (end < 0) {
+        end = length;
+      }
+      if (end > start && !isCurrentDir(plainPath, start, end)) {
+        if (isParentDir(plainPath, start, end)) {
+          if (size > ups) {
+            // Cancellation
+            size--;
+          } else {
+            buffer = append(buffer, size++, "..");
+            ups++;
+          }
+        } else {
+          buffer = append(buffer, size++, plainPath.substring(start, end));
         }
       }
+      start = end + SEPARATOR.length();
     }
-    StringBuilder sb = new StringBuilder();
-    for (String str : sections) {
-      sb.append(str);
-    }
-    this.text = (sb.length() == 0 ? "/" : sb.toString());
-    this.isAbsolute = temp.isAbsolute;
+    this.sections = size == buffer.length ? buffer : Arrays.copyOf(buffer, size);
+    this.isAbsolute = plainPath.startsWith(SEPARATOR);
     this.SEPARATOR = SEPARATOR;
   }
 
   /**
-   * A private constructor, mainly used to test edge cases.
+   * A private constructor that takes already normalized sections.
    *
-   * @param text       a path in plain text
+   * @param sections   the sections of the new path, which are not copied
    * @param SEPARATOR  the String that separates {@code path} into different
    *                   names of directories and files.
    * @param isAbsolute whether this path should be absolute.
    */
-  private Path(String text, String SEPARATOR, boolean isAbsolute) {
-    this.text = text;
+  private Path(String[] sections, String SEPARATOR, boolean isAbsolute) {
+    this.sections = sections;
     this.SEPARATOR = SEPARATOR;
     this.isAbsolute = isAbsolute;
   }
 
+  private static boolean isCurrentDir(String s, int start, int end) {
+    return end - start == 1 && s.charAt(start) == '.';
+  }
+
+  private static boolean isParentDir(String s, int start, int end) {
+    return end - start == 2 && s.charAt(start) == '.'
+        && s.charAt(start + 1) == '.';
+  }
+
+  private static String[] append(String[] buffer, int index, String section) {
+    if (index == buffer.length) {
+      buffer = Arrays.copyOf(buffer, buffer.length * 2);
+    }
+    buffer[index] = section;
+    return buffer;
+  }
+
+  /**
+   * Returns the path to the element named {@code name} inside the element
+   * this path points at. {@code name} is taken as one section as it is, so
+   * unlike the public constructors this method does not split or normalize
+   * anything.
+   *
+   * @param name the name of a file or directory directly under this path
+   * @return a path that is this path followed by {@code name}
+   */
+  public Path getChild(String name) {
+    String[] childSections = Arrays.copyOf(sections, sections.length + 1);
+    childSections[sections.length] = name;
+    return new Path(childSections, SEPARATOR, isAbsolute);
+  }
+
   /**
    * Returns true if the original String path starts with SEPARATOR. That is,
    * the original String path is an absolute path.
@@ -124,6 +177,26 @@ public class Path implements Serializable, Iterable<String> {
     return isAbsolute;
   }
 
+  /**
+   * @return the number of sections in this path.
+   */
+  public int length() {
+    return sections.length;
+  }
+
+  /**
+   * Returns the section at {@code index}, where the first section has an
+   * index of 0.
+   *
+   * @param index the index of the section
+   * @return the section at {@code index}
+   * @throws IndexOutOfBoundsException if {@code index} is negative, or not
+   *                                   less than {@code length()}.
+   */
+  public String getSection(int index) {
+    return sections[index];
+  }
+
   /**
    * Returns the String form of this Path.
    * <p>
@@ -133,6 +206,17 @@ public class Path implements Serializable, Iterable<String> {
    * @return the plain text form of this Path.
    */
   public String getText() {
+    if (text == null) {
+      if (sections.length == 0) {
+        text = "/";
+      } else {
+        StringBuilder sb = new StringBuilder();
+        for (String section : sections) {
+          sb.append(section).append(SEPARATOR);
+        }
+        text = sb.toString();
+      }
+    }
     return text;
   }
 
@@ -144,7 +228,7 @@ public class Path implements Serializable, Iterable<String> {
    * SEPARATOR}, false otherwise.
    */
   private boolean isRootPath() {
-    return this.equals(new Path("/", SEPARATOR, true));
+    return isAbsolute && sections.length == 0;
   }
 
   /**
@@ -170,12 +254,17 @@ public class Path implements Serializable, Iterable<String> {
     }
     Path path1 = (Path) o;
     return isAbsolute == path1.isAbsolute &&
-        text.equals(path1.text);
+        Arrays.equals(sections, path1.sections);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(text, isAbsolute);
+    int h = hash;
+    if (h == 0) {
+      h = 31 * Arrays.hashCode(sections) + (isAbsolute ? 1 : 0);
+      hash = h;
+    }
+    return h;
   }
 
   /**
@@ -187,7 +276,10 @@ public class Path implements Serializable, Iterable<String> {
    */
   @Override
   public String toString() {
-    return isAbsolute ? (isRootPath() ? text : SEPARATOR + text) : text;
+    if (string == null) {
+      string = isAbsolute && !isRootPath() ? SEPARATOR + getText() : getText();
+    }
+    return string;
   }
 
   /**
@@ -201,8 +293,8 @@ public class Path implements Serializable, Iterable<String> {
   }
 
   /**
-   * This implementation skips the {@code SEPARATOR} in {@code text} of the
-   * path.
+   * This implementation walks through the sections of the path, which have
+   * already been split when the path was constructed.
    */
   private class PathIterator implements Iterator<String> {
 
@@ -214,7 +306,7 @@ public class Path implements Serializable, Iterable<String> {
 
     @Override
     public boolean hasNext() {
-      return index < text.length() - SEPARATOR.length();
+      return index < sections.length;
     }
 
     @Override
@@ -222,17 +314,7 @@ public class Path implements Serializable, Iterable<String> {
       if (!hasNext()) {
         throw new NoSuchElementException();
       }
-      int start = index;
-      int end = start + text.substring(index).indexOf(SEPARATOR);
-      if (end < start) {
-        end = text.length();
-      }
-      String nextSection = text.substring(start, end);
-      index = end + SEPARATOR.length();
-      if (index > text.length()) {
-        index = text.length();
-      }
-      return nextSection;
+      return sections[index++];
     }
   }
 }
@@ -1,6 +1,7 @@
 package util;
 
 import driver.Controller;
+import events.PathResolutionEvent;
 import exceptions.FileNotExistException;
 import exceptions.NotADirectoryException;
 import io.Directory;
@@ -8,19 +9,79 @@ import io.File;
 import io.FileEditor;
 import io.FileManager;
 import io.FolderElement;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import jdk.jfr.EventType;
 
 /**
  * This class is a helper class that interprets any given path into a reference
  * to a File or Directory in the system.
+ * <p>
+ * Absolute paths that have been resolved before are kept in a small least
+ * recently used cache. The cache is dropped whenever the root directory is
+ * replaced, or whenever its file manager reports that elements may have been
+ * renamed or removed since the cache was filled. The cache is shared by the
+ * threads of a pipeline, so it is only used while holding its lock. Paths
+ * parsed from text are kept in the same way, whatever they lead to.
+ * <p>
+ * Every path resolved is counted for the command metrics, and recorded as a
+ * {@code PathResolutionEvent} if Flight Recorder is recording those.
  */
 public class PathInterpreter {
 
+  /**
+   * The maximum number of absolute paths kept in {@code cache}.
+   */
+  private static final int CACHE_SIZE = 1024;
+
+  /**
+   * Tells whether path resolution events are being recorded, so that no event
+   * needs to be created when they are not.
+   */
+  private static final EventType PATH_EVENTS =
+      EventType.getEventType(PathResolutionEvent.class);
+
   /**
    * The file system to be managed by this object
    */
   private final Controller controller;
 
+  /**
+   * Recently resolved absolute paths and the elements they lead to, in least
+   * recently used order.
+   */
+  private final LinkedHashMap<Path, FolderElement> cache =
+      new LinkedHashMap<Path, FolderElement>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(
+            Map.Entry<Path, FolderElement> eldest) {
+          return size() > CACHE_SIZE;
+        }
+      };
+
+  /**
+   * Recently parsed paths by their text, in least recently used order. Paths
+   * never change, so one is shared by every command given the same text.
+   */
+  private final LinkedHashMap<String, Path> parsed =
+      new LinkedHashMap<String, Path>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Path> eldest) {
+          return size() > CACHE_SIZE;
+        }
+      };
+
+  /**
+   * The root directory that {@code cache} was filled from.
+   */
+  private Directory cacheRoot;
+
+  /**
+   * The generation of the file manager of {@code cacheRoot} when {@code
+   * cache} was last valid.
+   */
+  private long cacheGeneration;
+
   /**
    * Constructs a new instance with {@code controller} as the monitored file
    * system and {@code pathSeparator} as the separator of paths.
@@ -46,16 +107,64 @@ public class PathInterpreter {
    */
   public FolderElement toFolderElement(Path path)
       throws NotADirectoryException, FileNotExistException {
+    CommandMetrics.countPathResolution();
+    PathResolutionEvent event = PATH_EVENTS.isEnabled()
+        ? new PathResolutionEvent() : null;
+    if (event != null) {
+      event.begin();
+    }
     FolderElement element;
-    Iterator<String> itr = path.iterator();
-    if (path.isAbsolute()) {
-      element = findNextRecursive(controller.getRootDir(), itr, false);
+    boolean isCached = false;
+    if (!path.isAbsolute()) {
+      element = find(controller.getWorkingDir(), path, false);
     } else {
-      element = findNextRecursive(controller.getWorkingDir(), itr, false);
+      Directory root = controller.getRootDir();
+      // The commands of a pipeline resolve paths on threads of their own.
+      synchronized (cache) {
+        validateCache(root);
+        element = cache.get(path);
+        isCached = element != null;
+        if (element == null) {
+          element = find(root, path, false);
+          if (element != null) {
+            cache.put(path, element);
+          }
+        }
+      }
+    }
+    if (event == null) {
+      return element;
+    }
+    event.end();
+    if (event.shouldCommit()) {
+      event.path = path.toString();
+      event.depth = path.length();
+      event.absolute = path.isAbsolute();
+      event.cacheHit = isCached;
+      event.found = element != null;
+      event.commit();
     }
     return element;
   }
 
+  /**
+   * Returns the path written as {@code text}, parsing it only if it has not
+   * been parsed recently.
+   *
+   * @param text The text of the path.
+   * @return the path written as {@code text}
+   */
+  public Path toPath(String text) {
+    synchronized (parsed) {
+      Path path = parsed.get(text);
+      if (path == null) {
+        path = new Path(text);
+        parsed.put(text, path);
+      }
+      return path;
+    }
+  }
+
   /**
    * This method first tries to locate the folder element pointing by {@code
    * path} and return it. If it fails to do so, it creates a dummy folder
@@ -69,14 +178,27 @@ public class PathInterpreter {
    */
   public FolderElement createDummyAt(Path path)
       throws NotADirectoryException, FileNotExistException {
-    FolderElement element;
-    Iterator<String> itr = path.iterator();
+    FolderElement element = toFolderElement(path);
+    if (element != null) {
+      return element;
+    }
     if (path.isAbsolute()) {
-      element = findNextRecursive(controller.getRootDir(), itr, true);
-    } else {
-      element = findNextRecursive(controller.getWorkingDir(), itr, true);
+      return find(controller.getRootDir(), path, true);
+    }
+    return find(controller.getWorkingDir(), path, true);
+  }
+
+  /**
+   * Drops every cached path if {@code root} is not the directory they were
+   * resolved from, or if anything has been renamed or removed since then.
+   */
+  private void validateCache(Directory root) {
+    long generation = root.getFileManager().getGeneration();
+    if (root != cacheRoot || generation != cacheGeneration) {
+      cache.clear();
+      cacheRoot = root;
+      cacheGeneration = generation;
     }
-    return element;
   }
 
   private FolderElement interpretSymbol(FolderElement start, String symbol) {
@@ -92,30 +214,35 @@ public class PathInterpreter {
     return null;
   }
 
-
-  private FolderElement findNextRecursive(FolderElement start,
-      Iterator<String> itr, boolean createDummy)
+  /**
+   * Follows {@code path} section by section, starting from {@code start}.
+   *
+   * @param createDummy whether to return a dummy directory in place of the
+   *                    last section if it does not exist.
+   */
+  private FolderElement find(FolderElement start, Path path,
+      boolean createDummy)
       throws NotADirectoryException, FileNotExistException {
-    if (!itr.hasNext()) {
-      return start;
-    }
-    if (start instanceof File) {
-      throw new NotADirectoryException("path : Not a directory");
-    }
-    if (start == null) {
-      throw new FileNotExistException("path : No such file or directory");
-    }
-    String nextSection = itr.next();
-    FolderElement nextTarget = interpretSymbol(start, nextSection);
-    if (nextTarget == null) {
-      nextTarget = ((Directory) start).getElementByName(nextSection);
-    }
-    FolderElement nextRecursive = findNextRecursive(nextTarget, itr,
-        createDummy);
-    if (nextRecursive == null && createDummy) {
-      nextRecursive = new Directory(nextSection, (Directory) start,
-          new FileManager(new FileEditor()));
+    FolderElement current = start;
+    int last = path.length() - 1;
+    for (int i = 0; i <= last; i++) {
+      if (current instanceof File) {
+        throw new NotADirectoryException("path : Not a directory");
+      }
+      if (current == null) {
+        throw new FileNotExistException("path : No such file or directory");
+      }
+      String section = path.getSection(i);
+      FolderElement next = interpretSymbol(current, section);
+      if (next == null) {
+        next = ((Directory) current).getElementByName(section);
+      }
+      if (next == null && createDummy && i == last) {
+        next = new Directory(section, (Directory) current,
+            new FileManager(new FileEditor()));
+      }
+      current = next;
     }
-    return nextRecursive;
+    return current;
   }
 }
@@ -0,0 +1,324 @@
+package util;
+
+import io.Directory;
+import io.FolderElement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+/**
+ * Walks a directory tree depth first and collects the lines a {@code Visitor}
+ * produces for each element, in the order a sequential walk would produce
+ * them.
+ * <p>
+ * Trees with fewer than {@code THRESHOLD} elements are walked on the calling
+ * thread. In larger trees, the calling thread still walks in order and passes
+ * on each line as it comes, but the subtrees of the subdirectories coming up
+ * next are walked ahead in the common fork/join pool, up to {@code AHEAD}
+ * tasks for each worker at a time. Within a task, subtrees are split off
+ * further while there are idle workers to take them. Each task collects its
+ * lines separately, and the lines of a subtree are passed on in the place
+ * where the sequential walk would have produced them once the task is joined.
+ * This way a streaming {@code CmdOutput} writes the lines of a large tree in
+ * order while the rest of the tree is still being walked.
+ * <p>
+ * Neither walk calls itself for subdirectories, and a task is only split off
+ * from so many tasks in a row, so trees of any depth can be walked without
+ * running out of stack.
+ * <p>
+ * The tree must not be changed while it is walked. The visitor may be called
+ * from several threads at once, but never on the same element twice, and
+ * never on an element before the visit of its parent has returned.
+ */
+public class TreeWalker extends RecursiveTask<List<String>> {
+
+  private static final long serialVersionUID = -3265724309417551983L;
+
+  /**
+   * Trees with fewer elements than this are walked on the calling thread.
+   */
+  private static final int THRESHOLD = 4096;
+
+  /**
+   * The number of subtrees, for each worker of the common pool, that the
+   * calling thread has walked ahead of its turn at a time.
+   */
+  private static final int AHEAD = 2;
+
+  /**
+   * The calling thread hands children to a task in runs of about this many
+   * elements, counting the elements directly inside each child, so that a
+   * wide directory is not split into a task for every child.
+   */
+  private static final int RUN_SIZE = 1024;
+
+  /**
+   * A subtree is only split off into a new task while fewer than this many
+   * tasks wait to be taken by other workers.
+   */
+  private static final int MAX_SURPLUS = 2;
+
+  /**
+   * A task split off from this many tasks in a row splits off no more, since
+   * joining a task may run it on the stack of the task joining it.
+   */
+  private static final int MAX_NESTING = 64;
+
+  /**
+   * Produces the lines of each element visited by a {@code TreeWalker}.
+   */
+  @FunctionalInterface
+  public interface Visitor {
+
+    /**
+     * Passes the lines of {@code fe} to {@code lines}. Lines of the elements
+     * inside {@code fe} are appended after these, if this method returns
+     * {@code true}.
+     *
+     * @param fe    The element visited.
+     * @param depth The number of levels {@code fe} is below the directory the
+     *              walk started in, which has a depth of 0.
+     * @param lines Receives the lines.
+     * @return {@code true} if the elements inside {@code fe} should be visited,
+     * which is ignored if {@code fe} is not a directory.
+     */
+    boolean visit(FolderElement fe, int depth, Consumer<String> lines);
+  }
+
+  /**
+   * The elements whose subtrees this task walks, one after another, all at
+   * the same depth.
+   */
+  private final List<FolderElement> roots;
+
+  private final int depth;
+
+  /**
+   * The number of tasks this task was split off from, in a row.
+   */
+  private final int nesting;
+
+  private final Visitor visitor;
+
+  /**
+   * The lines of this task and the tasks split off from it, in order. Each
+   * item is either a list of lines collected by this task, or a forked task
+   * whose lines go in its place.
+   */
+  private final List<Object> parts = new ArrayList<>();
+
+  /**
+   * The list of lines currently appended to by this task.
+   */
+  private List<String> lines = new ArrayList<>();
+
+  /**
+   * Appends to whatever {@code lines} currently is.
+   */
+  private final Consumer<String> appender = line -> lines.add(line);
+
+  private TreeWalker(List<FolderElement> roots, int depth, int nesting,
+      Visitor visitor) {
+    this.roots = roots;
+    this.depth = depth;
+    this.nesting = nesting;
+    this.visitor = visitor;
+  }
+
+  /**
+   * Visits {@code dir} and the elements inside it depth first, and returns the
+   * lines produced by {@code visitor} in the order they were visited.
+   *
+   * @param dir     The directory to start the walk in.
+   * @param visitor Produces the lines of each element.
+   * @return the lines of all elements visited
+   */
+  public static List<String> walk(Directory dir, Visitor visitor) {
+    List<String> lines = new ArrayList<>();
+    walk(dir, visitor, lines::add);
+    return lines;
+  }
+
+  /**
+   * Visits {@code dir} and the elements inside it depth first, and adds the
+   * lines produced by {@code visitor} to {@code output} in the order they were
+   * visited. If {@code output} is streaming, each line is written as soon as
+   * the lines before it are.
+   *
+   * @param dir     The directory to start the walk in.
+   * @param visitor Produces the lines of each element.
+   * @param output  The output that receives the lines.
+   */
+  public static void walk(Directory dir, Visitor visitor, CmdOutput output) {
+    walk(dir, visitor, output::add);
+  }
+
+  /**
+   * Visits {@code dir} and the elements inside it depth first, and passes the
+   * lines produced by {@code visitor} to {@code sink} in the order they were
+   * visited, each as soon as the lines before it have been passed. {@code
+   * sink} is only called on the calling thread.
+   *
+   * @param dir     The directory to start the walk in.
+   * @param visitor Produces the lines of each element.
+   * @param sink    Receives the lines.
+   */
+  public static void walk(Directory dir, Visitor visitor,
+      Consumer<String> sink) {
+    if (!visitor.visit(dir, 0, sink)) {
+      return;
+    }
+    int window = isSmall(dir) ? 0
+        : AHEAD * ForkJoinPool.getCommonPoolParallelism();
+    int running = 0;
+    // The directories being walked, innermost on top.
+    Deque<Level> pending = new ArrayDeque<>();
+    pending.push(new Level(dir));
+    while (!pending.isEmpty()) {
+      Level level = pending.peek();
+      int depth = pending.size();
+      // Split off runs of the children coming up next while there is room,
+      // so that they are walked while the lines before them are passed on.
+      while (running < window && level.children.hasNext()) {
+        List<FolderElement> run = new ArrayList<>();
+        int size = 0;
+        while (size < RUN_SIZE && level.children.hasNext()) {
+          FolderElement child = level.children.next();
+          run.add(child);
+          size += child instanceof Directory ? 1 + ((Directory) child).size()
+              : 1;
+        }
+        TreeWalker task = new TreeWalker(run, depth, 1, visitor);
+        ForkJoinPool.commonPool().execute(task);
+        level.ahead.add(task);
+        running++;
+      }
+      TreeWalker task = level.ahead.poll();
+      if (task != null) {
+        for (String line : task.join()) {
+          sink.accept(line);
+        }
+        running--;
+      } else if (!level.children.hasNext()) {
+        pending.pop();
+      } else {
+        FolderElement child = level.children.next();
+        if (visitor.visit(child, depth, sink) && child instanceof Directory) {
+          pending.push(new Level((Directory) child));
+        }
+      }
+    }
+  }
+
+  /**
+   * A directory being walked in order by the calling thread.
+   */
+  private static class Level {
+
+    /**
+     * The children not taken yet.
+     */
+    private final Iterator<FolderElement> children;
+
+    /**
+     * The tasks that walk the runs of children taken ahead of their turn, in
+     * order.
+     */
+    private final Deque<TreeWalker> ahead = new ArrayDeque<>();
+
+    private Level(Directory dir) {
+      this.children = dir.iterator();
+    }
+  }
+
+  /**
+   * Returns whether there are fewer than {@code THRESHOLD} elements in the
+   * tree of {@code dir}. At most {@code THRESHOLD} elements are counted.
+   */
+  private static boolean isSmall(Directory dir) {
+    int count = 0;
+    Deque<Directory> pending = new ArrayDeque<>();
+    pending.push(dir);
+    while (!pending.isEmpty()) {
+      count += pending.peek().size();
+      if (count >= THRESHOLD) {
+        return false;
+      }
+      for (FolderElement fe : pending.pop()) {
+        if (fe instanceof Directory) {
+          pending.push((Directory) fe);
+        }
+      }
+    }
+    return true;
+  }
+
+  @Override
+  protected List<String> compute() {
+    parts.add(lines);
+    for (FolderElement root : roots) {
+      visit(root, depth);
+    }
+    if (parts.size() == 1) {
+      return lines;
+    }
+    List<String> result = new ArrayList<>();
+    for (Object part : parts) {
+      if (part instanceof TreeWalker) {
+        result.addAll(((TreeWalker) part).join());
+      } else {
+        @SuppressWarnings("unchecked")
+        List<String> collected = (List<String>) part;
+        result.addAll(collected);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Visits {@code top} and the elements inside it depth first, splitting off
+   * subtrees into tasks of their own where {@code shouldSplit} says so.
+   */
+  private void visit(FolderElement top, int level) {
+    if (!visitor.visit(top, level, appender) || !(top instanceof Directory)) {
+      return;
+    }
+    // The children of each directory being walked, innermost on top.
+    Deque<Iterator<FolderElement>> pending = new ArrayDeque<>();
+    pending.push(((Directory) top).iterator());
+    while (!pending.isEmpty()) {
+      Iterator<FolderElement> children = pending.peek();
+      if (!children.hasNext()) {
+        pending.pop();
+        continue;
+      }
+      FolderElement child = children.next();
+      int childLevel = level + pending.size();
+      if (child instanceof Directory && shouldSplit((Directory) child)) {
+        TreeWalker task = new TreeWalker(List.of(child), childLevel,
+            nesting + 1, visitor);
+        task.fork();
+        parts.add(task);
+        lines = new ArrayList<>();
+        parts.add(lines);
+      } else if (visitor.visit(child, childLevel, appender)
+          && child instanceof Directory) {
+        pending.push(((Directory) child).iterator());
+      }
+    }
+  }
+
+  /**
+   * Returns whether the subtree of {@code child} should be walked by a task of
+   * its own.
+   */
+  private boolean shouldSplit(Directory child) {
+    return inForkJoinPool() && nesting < MAX_NESTING && child.size() > 0
+        && getSurplusQueuedTaskCount() < MAX_SURPLUS;
+  }
+}